@@ -0,0 +1,34 @@
+package com.w3canvas.javacanvas.backend;
+
+/**
+ * Sweep of an arc() or ellipse() call, following the canvas spec.
+ *
+ * Canvas angles grow clockwise on screen. A difference of a full turn or more in the drawing
+ * direction draws the whole ellipse; any other difference is reduced modulo 2&pi;, so
+ * {@code arc(x, y, r, 0, -2 * Math.PI, false)} draws no arc at all.
+ */
+public final class ArcSweep {
+
+    private static final double FULL_TURN = 2 * Math.PI;
+
+    private ArcSweep() {
+    }
+
+    /**
+     * Returns the signed sweep from {@code startAngle}: positive clockwise, negative
+     * counterclockwise, and at most a full turn either way.
+     */
+    public static double of(double startAngle, double endAngle, boolean counterclockwise) {
+        double turn = counterclockwise ? startAngle - endAngle : endAngle - startAngle;
+        double sweep;
+        if (turn >= FULL_TURN) {
+            sweep = FULL_TURN;
+        } else {
+            sweep = turn % FULL_TURN;
+            if (sweep < 0) {
+                sweep += FULL_TURN;
+            }
+        }
+        return counterclockwise ? -sweep : sweep;
+    }
+}
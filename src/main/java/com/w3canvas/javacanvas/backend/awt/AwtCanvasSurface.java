@@ -1,19 +1,153 @@
 package com.w3canvas.javacanvas.backend.awt;
 
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.PixelGrabber;
+import java.awt.image.Raster;
 import java.awt.Image;
 import java.awt.image.ImageObserver;
 
+import com.w3canvas.javacanvas.core.PixelBlend;
 import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
 import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
 
+/**
+ * Canvas surface backed by a {@code BufferedImage}.
+ *
+ * <p>
+ * The image is {@code TYPE_INT_ARGB_PRE} by default, so Java2D compositing, the blur
+ * {@code ConvolveOp} and the custom blend modes all work on premultiplied pixels without
+ * converting them. Pixels are converted to straight alpha only where they leave the canvas:
+ * {@link #getPixelData} (and so getImageData) and {@link #toStraightAlpha} before encoding.
+ * {@code -Dw3canvas.awt.premultiplied=false} selects a {@code TYPE_INT_ARGB} image instead.
+ *
+ * <p>
+ * The image may be a view of a larger backing image, its capacity. {@link #resize} within
+ * the capacity only changes the view; growing beyond it takes a backing image from the
+ * {@link RasterPool}, which also gets the old one back, as it gets this surface's when the
+ * surface is released. A backing image that has been handed out by {@link #getNativeImage},
+ * to a pattern or an ImageBitmap for instance, may still be drawn from elsewhere and is left
+ * to the garbage collector instead.
+ */
 public class AwtCanvasSurface implements ICanvasSurface {
-    private final BufferedImage image;
+    private static final boolean PREMULTIPLIED_BY_DEFAULT =
+            !"false".equalsIgnoreCase(System.getProperty("w3canvas.awt.premultiplied"));
+
+    private BufferedImage backing;
+    private BufferedImage image;
+    private final boolean premultiplied;
+    // Only surfaces that own a plain heap image can resize and recycle it
+    private final boolean resizable;
+    private boolean released;
+    // Set once getNativeImage() has handed out the backing image, which then is never pooled
+    private boolean shared;
     private AwtGraphicsContext graphicsContext;
 
     public AwtCanvasSurface(int width, int height) {
-        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this(width, height, PREMULTIPLIED_BY_DEFAULT);
+    }
+
+    /**
+     * @param premultiplied whether to store premultiplied ({@code TYPE_INT_ARGB_PRE}) pixels
+     */
+    public AwtCanvasSurface(int width, int height, boolean premultiplied) {
+        this.premultiplied = premultiplied;
+        this.resizable = true;
+        BufferedImage pooled = RasterPool.SHARED.acquire(width, height, imageType());
+        this.backing = pooled != null ? pooled : new BufferedImage(width, height, imageType());
+        this.image = view(width, height);
+        if (pooled != null) {
+            clear(image);
+        }
+    }
+
+    /**
+     * Wraps an image whose pixels are packed ARGB ints, premultiplied or not as given. The
+     * surface keeps the image's size.
+     */
+    protected AwtCanvasSurface(BufferedImage image, boolean premultiplied) {
+        this.backing = image;
+        this.image = image;
+        this.premultiplied = premultiplied;
+        this.resizable = false;
+    }
+
+    private int imageType() {
+        return premultiplied ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_ARGB;
+    }
+
+    private BufferedImage view(int width, int height) {
+        if (width == backing.getWidth() && height == backing.getHeight()) {
+            return backing;
+        }
+        return backing.getSubimage(0, 0, width, height);
+    }
+
+    private static void clear(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Returns the size of the backing image, up to which the surface resizes without allocating.
+     */
+    public Dimension getCapacity() {
+        return new Dimension(backing.getWidth(), backing.getHeight());
+    }
+
+    /**
+     * Resizes and clears the surface. Within the capacity this only narrows or widens the
+     * view; beyond it the backing image is replaced by one of the next size class, so that
+     * further small changes fit again.
+     */
+    @Override
+    public boolean resize(int width, int height) {
+        if (!resizable || released || width <= 0 || height <= 0) {
+            return false;
+        }
+        if (graphicsContext != null) {
+            graphicsContext.dispose();
+            graphicsContext = null;
+        }
+        if (width > backing.getWidth() || height > backing.getHeight()) {
+            recycleBacking();
+            BufferedImage pooled = RasterPool.SHARED.acquire(width, height, imageType());
+            backing = pooled != null ? pooled : new BufferedImage(RasterPool.sizeClassAbove(width),
+                    RasterPool.sizeClassAbove(height), imageType());
+        }
+        image = view(width, height);
+        clear(image);
+        return true;
+    }
+
+    private void recycleBacking() {
+        if (!shared) {
+            RasterPool.SHARED.release(backing);
+        }
+        shared = false;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Canvas surface has been released");
+        }
+    }
+
+    /**
+     * Returns the image to draw on, for this package's drawing code, which does not keep it.
+     * Unlike {@link #getNativeImage} this leaves the backing image poolable.
+     */
+    BufferedImage image() {
+        checkNotReleased();
+        return image;
     }
 
     @Override
@@ -26,8 +160,24 @@ public class AwtCanvasSurface implements ICanvasSurface {
         return image.getHeight();
     }
 
+    /**
+     * Returns true if the backing image stores premultiplied pixels.
+     */
+    public boolean isPremultiplied() {
+        return premultiplied;
+    }
+
+    /**
+     * Creates a scratch image in the same pixel format as this surface, so that drawing it
+     * back onto the canvas is a plain copy.
+     */
+    BufferedImage createCompatibleImage(int width, int height) {
+        return new BufferedImage(width, height, imageType());
+    }
+
     @Override
     public void reset() {
+        checkNotReleased();
         // Dispose the old graphics context to prevent resource leaks
         if (graphicsContext != null) {
             graphicsContext.dispose();
@@ -38,19 +188,51 @@ public class AwtCanvasSurface implements ICanvasSurface {
 
     @Override
     public IGraphicsContext getGraphicsContext() {
+        checkNotReleased();
         if (graphicsContext == null) {
             graphicsContext = new AwtGraphicsContext(image.createGraphics(), this);
         }
         return graphicsContext;
     }
 
+    @Override
+    public void release() {
+        if (graphicsContext != null) {
+            graphicsContext.dispose();
+            graphicsContext = null;
+        }
+        if (resizable && !released) {
+            recycleBacking();
+        }
+        released = true;
+    }
+
+    /**
+     * Returns the image the canvas draws on. Callers may keep it, so the backing image is no
+     * longer recycled when the surface is resized or released.
+     *
+     * @throws IllegalStateException if the surface has been released
+     */
     @Override
     public Object getNativeImage() {
+        checkNotReleased();
+        shared = true;
         return image;
     }
 
     @Override
     public int[] getPixelData(int x, int y, int width, int height) {
+        checkNotReleased();
+        if (premultiplied) {
+            // Pixels outside the canvas stay transparent black
+            int[] pixels = new int[width * height];
+            Rectangle area = new Rectangle(x, y, width, height).intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+            if (!area.isEmpty()) {
+                readStraightAlpha(image.getRaster(), area.x, area.y, area.width, area.height,
+                        pixels, (area.y - y) * width + (area.x - x), width);
+            }
+            return pixels;
+        }
         int[] pixels = new int[width * height];
         PixelGrabber pg = new PixelGrabber(image, x, y, width, height, pixels, 0, width);
         try {
@@ -66,4 +248,42 @@ public class AwtCanvasSurface implements ICanvasSurface {
         }
         return pixels;
     }
+
+    /**
+     * Returns {@code image} with straight alpha, ready for ImageIO, which otherwise converts
+     * premultiplied images pixel by pixel through their color model. Images that are not
+     * premultiplied canvas images ({@code TYPE_INT_ARGB_PRE} or off-heap) are returned as they are.
+     */
+    public static BufferedImage toStraightAlpha(BufferedImage image) {
+        if (image == null || (image.getType() != BufferedImage.TYPE_INT_ARGB_PRE
+                && !(image.getRaster().getDataBuffer() instanceof OffHeapDataBuffer))) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage straight = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] row = new int[width];
+        Raster source = image.getRaster();
+        for (int y = 0; y < height; y++) {
+            readStraightAlpha(source, 0, y, width, 1, row, 0, width);
+            straight.getRaster().setDataElements(0, y, width, 1, row);
+        }
+        return straight;
+    }
+
+    /**
+     * Reads a premultiplied {@code TYPE_INT_ARGB_PRE} area row by row into {@code dst} as
+     * straight ARGB. Going through data elements leaves the image's acceleration intact.
+     */
+    private static void readStraightAlpha(Raster raster, int x, int y, int width, int height,
+            int[] dst, int offset, int scan) {
+        int[] row = new int[width];
+        for (int r = 0; r < height; r++) {
+            raster.getDataElements(x, y + r, width, 1, row);
+            int base = offset + r * scan;
+            for (int i = 0; i < width; i++) {
+                dst[base + i] = PixelBlend.unpremultiply(row[i]);
+            }
+        }
+    }
 }
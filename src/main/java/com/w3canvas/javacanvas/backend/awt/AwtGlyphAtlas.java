@@ -0,0 +1,459 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Alpha glyph atlas used by the AWT backend's fast text mode.
+ *
+ * <p>Each glyph is rasterized once per (font, render context, horizontal subpixel offset)
+ * into 8-bit coverage pages that are packed shelf by shelf. {@link #drawString} then lays
+ * the text out as a {@link GlyphVector} and blends the cached coverage straight into the
+ * destination raster with source-over, tinted by a solid color. This avoids the Java2D
+ * text pipeline entirely for tables and scatter plots with thousands of small labels.
+ *
+ * <p>The atlas only handles what it can reproduce exactly: untransformed (translation
+ * only) glyphs of at most {@link #MAX_FONT_SIZE} pixels drawn into an integer ARGB raster.
+ * Callers fall back to outline rendering for everything else.
+ *
+ * <p>When all pages are full the atlas is flushed and starts over. Lookups are
+ * synchronized, but blending happens outside the lock on page arrays that are never
+ * reused after a flush, so worker threads can share the atlas.
+ */
+public final class AwtGlyphAtlas {
+
+    /** Width and height of an atlas page in pixels. */
+    public static final int PAGE_SIZE = 512;
+
+    /** Number of pages kept before the atlas is flushed. */
+    public static final int MAX_PAGES = 8;
+
+    /** Largest font size (in pixels) rendered through the atlas. */
+    public static final float MAX_FONT_SIZE = 64f;
+
+    /** Horizontal subpixel positions per pixel. */
+    private static final int SUBPIXEL_STEPS = 4;
+
+    /** Number of laid-out strings kept so repeated labels skip glyph layout. */
+    private static final int MAX_RUNS = 1024;
+
+    private static final AwtGlyphAtlas SHARED = new AwtGlyphAtlas(PAGE_SIZE, MAX_PAGES);
+
+    private final int pageSize;
+    private final int maxPages;
+    private final Map<StrikeKey, Map<Integer, Glyph>> strikes = new HashMap<>();
+    private final List<byte[]> pages = new ArrayList<>();
+    private final Map<RunKey, GlyphRun> runs = new LinkedHashMap<RunKey, GlyphRun>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RunKey, GlyphRun> eldest) {
+            return size() > MAX_RUNS;
+        }
+    };
+
+    // Shelf packer state for the current page
+    private int shelfX;
+    private int shelfY;
+    private int shelfHeight;
+
+    private long glyphHits;
+    private long glyphMisses;
+    private long flushes;
+
+    public AwtGlyphAtlas(int pageSize, int maxPages) {
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(1, maxPages);
+    }
+
+    /**
+     * Returns the atlas shared by all AWT graphics contexts.
+     */
+    public static AwtGlyphAtlas getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns true if the atlas can render text with the given font and render context.
+     */
+    public static boolean supports(Font font, FontRenderContext frc) {
+        return font != null
+                && font.getSize2D() <= MAX_FONT_SIZE
+                && !font.isTransformed()
+                && frc.getTransform().isIdentity();
+    }
+
+    /**
+     * Draws {@code text} with its alphabetic baseline at device position ({@code x}, {@code y}).
+     *
+     * @param text  the text to draw
+     * @param font  the font to lay the text out with
+     * @param frc   the render context; its transform must be the identity
+     * @param x     device x of the pen start
+     * @param y     device y of the baseline
+     * @param argb  non-premultiplied source color, with any global alpha already applied
+     * @param dest  the destination image (TYPE_INT_ARGB or TYPE_INT_ARGB_PRE)
+     * @param clip  device clip rectangle, or {@code null} for the whole image
+     * @return {@code false} if the destination or font is not supported and nothing was drawn
+     */
+    public boolean drawString(String text, Font font, FontRenderContext frc, double x, double y,
+                              int argb, BufferedImage dest, Rectangle clip) {
+        int type = dest.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE) {
+            return false;
+        }
+        WritableRaster raster = dest.getRaster();
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || !(raster.getDataBuffer() instanceof DataBufferInt)
+                || !supports(font, frc)) {
+            return false;
+        }
+        if ((argb >>> 24) == 0 || text.isEmpty()) {
+            return true;
+        }
+
+        Rectangle bounds = new Rectangle(0, 0, dest.getWidth(), dest.getHeight());
+        if (clip != null) {
+            bounds = bounds.intersection(clip);
+        }
+        if (bounds.isEmpty()) {
+            return true;
+        }
+
+        StrikeKey strikeKey = new StrikeKey(font, frc.isAntiAliased(), frc.usesFractionalMetrics());
+        GlyphRun run = getRun(text, strikeKey, frc);
+        int count = run.codes.length;
+        float[] positions = run.positions;
+
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int stride = sm.getScanlineStride();
+        int base = raster.getDataBuffer().getOffset()
+                + sm.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        boolean premultiplied = type == BufferedImage.TYPE_INT_ARGB_PRE;
+
+        Glyph[] glyphs = new Glyph[count];
+        int[] penX = new int[count];
+        lookup(strikeKey, frc, run.codes, positions, x, glyphs, penX);
+
+        int baseline = (int) Math.round(y);
+        for (int i = 0; i < count; i++) {
+            Glyph g = glyphs[i];
+            if (g == null || g.width == 0) {
+                continue;
+            }
+            int gy = baseline + Math.round(positions[i * 2 + 1]) + g.top;
+            blend(g, penX[i] + g.left, gy, argb, data, base, stride, bounds, premultiplied);
+        }
+        return true;
+    }
+
+    private GlyphRun getRun(String text, StrikeKey strikeKey, FontRenderContext frc) {
+        RunKey key = new RunKey(text, strikeKey);
+        synchronized (this) {
+            GlyphRun run = runs.get(key);
+            if (run != null) {
+                return run;
+            }
+        }
+
+        char[] chars = text.toCharArray();
+        GlyphVector gv = strikeKey.font.layoutGlyphVector(frc, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
+        int count = gv.getNumGlyphs();
+        GlyphRun run = new GlyphRun(gv.getGlyphCodes(0, count, null), gv.getGlyphPositions(0, count, null));
+        synchronized (this) {
+            runs.put(key, run);
+        }
+        return run;
+    }
+
+    private synchronized void lookup(StrikeKey strikeKey, FontRenderContext frc, int[] codes, float[] positions,
+                                     double x, Glyph[] out, int[] penX) {
+        Font font = strikeKey.font;
+        Map<Integer, Glyph> strike = strikes.computeIfAbsent(strikeKey, k -> new HashMap<>());
+        GlyphVector single = null;
+        int[] singleCode = new int[1];
+
+        for (int i = 0; i < codes.length; i++) {
+            double gx = x + positions[i * 2];
+            int ix = (int) Math.floor(gx);
+            int step = (int) ((gx - ix) * SUBPIXEL_STEPS);
+            if (step >= SUBPIXEL_STEPS) {
+                step = SUBPIXEL_STEPS - 1;
+            }
+            penX[i] = ix;
+
+            Integer key = codes[i] * SUBPIXEL_STEPS + step;
+            Glyph glyph = strike.get(key);
+            if (glyph != null) {
+                glyphHits++;
+            } else {
+                glyphMisses++;
+                singleCode[0] = codes[i];
+                single = font.createGlyphVector(frc, singleCode);
+                glyph = rasterize(single, frc, (float) step / SUBPIXEL_STEPS);
+                if (glyph == null) {
+                    // Atlas was flushed to make room; the strike map is gone with it
+                    strike = strikes.computeIfAbsent(strikeKey, k -> new HashMap<>());
+                    glyph = rasterize(single, frc, (float) step / SUBPIXEL_STEPS);
+                }
+                if (glyph == null) {
+                    glyph = Glyph.EMPTY;
+                }
+                strike.put(key, glyph);
+            }
+            out[i] = glyph;
+        }
+    }
+
+    /**
+     * Rasterizes one glyph into the atlas. Returns null if the atlas had to be flushed first.
+     */
+    private Glyph rasterize(GlyphVector single, FontRenderContext frc, float subpixel) {
+        Rectangle r = single.getGlyphPixelBounds(0, frc, subpixel, 0);
+        if (r.isEmpty()) {
+            return Glyph.EMPTY;
+        }
+        if (r.width > pageSize || r.height > pageSize) {
+            return Glyph.EMPTY;
+        }
+
+        if (pages.isEmpty() || shelfX + r.width > pageSize) {
+            shelfX = 0;
+            shelfY += shelfHeight;
+            shelfHeight = 0;
+        }
+        if (pages.isEmpty() || shelfY + r.height > pageSize) {
+            if (pages.size() >= maxPages) {
+                flush();
+                return null;
+            }
+            pages.add(new byte[pageSize * pageSize]);
+            shelfX = 0;
+            shelfY = 0;
+            shelfHeight = 0;
+        }
+
+        BufferedImage scratch = new BufferedImage(r.width, r.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scratch.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, frc.getAntiAliasingHint());
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, frc.getFractionalMetricsHint());
+            g.setComposite(AlphaComposite.Src);
+            g.setColor(Color.WHITE);
+            g.drawGlyphVector(single, subpixel - r.x, -r.y);
+        } finally {
+            g.dispose();
+        }
+
+        byte[] page = pages.get(pages.size() - 1);
+        int[] argb = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+        for (int row = 0; row < r.height; row++) {
+            int dst = (shelfY + row) * pageSize + shelfX;
+            int src = row * r.width;
+            for (int col = 0; col < r.width; col++) {
+                page[dst + col] = (byte) (argb[src + col] >>> 24);
+            }
+        }
+
+        Glyph glyph = new Glyph(page, shelfY * pageSize + shelfX, r.width, r.height, r.x, r.y);
+        shelfX += r.width;
+        shelfHeight = Math.max(shelfHeight, r.height);
+        return glyph;
+    }
+
+    private void blend(Glyph g, int dx, int dy, int argb, int[] data, int base, int stride,
+                       Rectangle bounds, boolean premultiplied) {
+        int x0 = Math.max(dx, bounds.x);
+        int y0 = Math.max(dy, bounds.y);
+        int x1 = Math.min(dx + g.width, bounds.x + bounds.width);
+        int y1 = Math.min(dy + g.height, bounds.y + bounds.height);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        int srcA = argb >>> 24;
+        int srcR = (argb >> 16) & 0xFF;
+        int srcG = (argb >> 8) & 0xFF;
+        int srcB = argb & 0xFF;
+        byte[] page = g.page;
+
+        for (int y = y0; y < y1; y++) {
+            int maskRow = g.offset + (y - dy) * pageSize - dx;
+            int row = base + y * stride;
+            for (int x = x0; x < x1; x++) {
+                int coverage = page[maskRow + x] & 0xFF;
+                if (coverage == 0) {
+                    continue;
+                }
+                int a = (srcA * coverage + 127) / 255;
+                if (a == 0) {
+                    continue;
+                }
+                int idx = row + x;
+                if (a == 255) {
+                    data[idx] = argb | 0xFF000000;
+                    continue;
+                }
+                int dst = data[idx];
+                int inv = 255 - a;
+                if (premultiplied) {
+                    int outA = a + ((dst >>> 24) * inv + 127) / 255;
+                    int outR = (srcR * a + 127) / 255 + (((dst >> 16) & 0xFF) * inv + 127) / 255;
+                    int outG = (srcG * a + 127) / 255 + (((dst >> 8) & 0xFF) * inv + 127) / 255;
+                    int outB = (srcB * a + 127) / 255 + ((dst & 0xFF) * inv + 127) / 255;
+                    data[idx] = (outA << 24) | (outR << 16) | (outG << 8) | outB;
+                } else {
+                    int dstA = dst >>> 24;
+                    int dstWeight = dstA * inv;
+                    int outA255 = a * 255 + dstWeight;
+                    int outR = (srcR * a * 255 + ((dst >> 16) & 0xFF) * dstWeight) / outA255;
+                    int outG = (srcG * a * 255 + ((dst >> 8) & 0xFF) * dstWeight) / outA255;
+                    int outB = (srcB * a * 255 + (dst & 0xFF) * dstWeight) / outA255;
+                    int outA = (outA255 + 127) / 255;
+                    data[idx] = (outA << 24) | (outR << 16) | (outG << 8) | outB;
+                }
+            }
+        }
+    }
+
+    private void flush() {
+        strikes.clear();
+        pages.clear();
+        shelfX = 0;
+        shelfY = 0;
+        shelfHeight = 0;
+        flushes++;
+    }
+
+    public synchronized long getGlyphHits() {
+        return glyphHits;
+    }
+
+    public synchronized long getGlyphMisses() {
+        return glyphMisses;
+    }
+
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    public synchronized int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Drops all cached glyphs and resets the counters.
+     */
+    public synchronized void clear() {
+        flush();
+        runs.clear();
+        flushes = 0;
+        glyphHits = 0;
+        glyphMisses = 0;
+    }
+
+    private static final class Glyph {
+        static final Glyph EMPTY = new Glyph(null, 0, 0, 0, 0, 0);
+
+        final byte[] page;
+        final int offset;
+        final int width;
+        final int height;
+        final int left;
+        final int top;
+
+        Glyph(byte[] page, int offset, int width, int height, int left, int top) {
+            this.page = page;
+            this.offset = offset;
+            this.width = width;
+            this.height = height;
+            this.left = left;
+            this.top = top;
+        }
+    }
+
+    private static final class GlyphRun {
+        final int[] codes;
+        final float[] positions;
+
+        GlyphRun(int[] codes, float[] positions) {
+            this.codes = codes;
+            this.positions = positions;
+        }
+    }
+
+    private static final class RunKey {
+        private final String text;
+        private final StrikeKey strike;
+        private final int hash;
+
+        RunKey(String text, StrikeKey strike) {
+            this.text = text;
+            this.strike = strike;
+            this.hash = 31 * text.hashCode() + strike.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RunKey)) {
+                return false;
+            }
+            RunKey other = (RunKey) o;
+            return hash == other.hash && text.equals(other.text) && strike.equals(other.strike);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class StrikeKey {
+        private final Font font;
+        private final boolean antiAliased;
+        private final boolean fractionalMetrics;
+
+        StrikeKey(Font font, boolean antiAliased, boolean fractionalMetrics) {
+            this.font = font;
+            this.antiAliased = antiAliased;
+            this.fractionalMetrics = fractionalMetrics;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StrikeKey)) {
+                return false;
+            }
+            StrikeKey other = (StrikeKey) o;
+            return antiAliased == other.antiAliased
+                    && fractionalMetrics == other.fractionalMetrics
+                    && font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(font, antiAliased, fractionalMetrics);
+        }
+    }
+}
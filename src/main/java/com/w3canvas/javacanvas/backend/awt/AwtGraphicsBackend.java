@@ -17,8 +17,18 @@ public class AwtGraphicsBackend implements IGraphicsBackend {
      */
     private static final int MAX_FONT_SIZE = 10485760; // 10MB
 
+    /**
+     * Canvases with at least this many pixels keep them off the Java heap
+     * ({@code -Dw3canvas.awt.offHeapPixels}, 0 for every canvas). Off by default.
+     */
+    private static final String OFF_HEAP_PIXELS_PROPERTY = "w3canvas.awt.offHeapPixels";
+
     @Override
     public ICanvasSurface createCanvasSurface(int width, int height) {
+        long offHeapPixels = Long.getLong(OFF_HEAP_PIXELS_PROPERTY, -1L);
+        if (offHeapPixels >= 0 && (long) width * height >= offHeapPixels) {
+            return new OffHeapCanvasSurface(width, height);
+        }
         return new AwtCanvasSurface(width, height);
     }
 
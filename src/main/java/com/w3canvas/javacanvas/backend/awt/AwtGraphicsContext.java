@@ -23,11 +23,12 @@ import java.awt.image.ConvolveOp;
 import java.awt.image.Kernel;
 import java.awt.image.LookupOp;
 import java.awt.image.RescaleOp;
-import java.text.AttributedString;
 import java.awt.font.TextAttribute;
 import java.util.Map;
 import java.util.HashMap;
 
+import com.w3canvas.javacanvas.backend.ArcSweep;
+import com.w3canvas.javacanvas.core.PixelBlend;
 import com.w3canvas.javacanvas.interfaces.*;
 
 /**
@@ -64,6 +65,15 @@ public class AwtGraphicsContext implements IGraphicsContext {
     private final AwtCanvasSurface surface;
     private java.awt.geom.Path2D.Double path;
     private double[] lastPoint = new double[2];
+
+    // Copy of the g2d transform used by the path builders, so each vertex does not clone
+    // an AffineTransform. Layout: m00, m10, m01, m11, m02, m12; refreshed when stale.
+    private final double[] pathMatrix = new double[6];
+    private boolean pathMatrixValid;
+
+    // Device-space stroked outlines of retained paths, reused by isPointInRetainedStroke
+    // while the stroke and transform stay the same. Entries go away with their path.
+    private final Map<Shape, StrokedOutline> strokedOutlines = new java.util.WeakHashMap<>();
     private IPaint fillPaint;
     private IPaint strokePaint;
 
@@ -90,6 +100,15 @@ public class AwtGraphicsContext implements IGraphicsContext {
     private double letterSpacing = 0;
     private double wordSpacing = 0;
 
+    private String textRendering = "auto";
+
+    // Shaped text shared by fillText, strokeText and measureText
+    private final AwtTextLayoutCache textCache = AwtTextLayoutCache.getShared();
+
+    // Glyph atlas used for fillText when textRendering is "optimizeSpeed"
+    private static final boolean GLYPH_ATLAS_BY_DEFAULT = Boolean.getBoolean("w3canvas.text.glyphAtlas");
+    private final AwtGlyphAtlas glyphAtlas = AwtGlyphAtlas.getShared();
+
     // Shadow blur constants
     private static final float ALPHA_CHANNEL_MAX = 255.0f;
     private static final double BLUR_DIVISOR = 2.0;
@@ -131,6 +150,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
     @Override
     public void scale(double x, double y) {
         g2d.scale(x, y);
+        pathMatrixValid = false;
     }
 
     @Override
@@ -145,6 +165,10 @@ public class AwtGraphicsContext implements IGraphicsContext {
             return;
         }
 
+        if (fillTextWithGlyphAtlas(text, adjustedX, adjustedY, maxWidth)) {
+            return;
+        }
+
         java.awt.font.TextLayout tl = createTextLayout(text);
         if (tl == null) return;
 
@@ -170,6 +194,54 @@ public class AwtGraphicsContext implements IGraphicsContext {
         tl.draw(g2d, (float)adjustedX, (float)adjustedY);
     }
 
+    /**
+     * Draws text through the shared glyph atlas when the fast text mode is enabled.
+     *
+     * <p>Only plain left-to-right text drawn with a solid color, source-over compositing,
+     * a translation-only transform and no clip is handled here, so the result matches the
+     * {@code TextLayout} path. Everything else (including all stroked text) returns false
+     * and is rendered from glyph outlines as usual.
+     *
+     * @return true if the text was drawn
+     */
+    private boolean fillTextWithGlyphAtlas(String text, double x, double y, double maxWidth) {
+        boolean enabled = "optimizeSpeed".equals(textRendering)
+                || (GLYPH_ATLAS_BY_DEFAULT && "auto".equals(textRendering));
+        if (!enabled || text == null || text.isEmpty()
+                || letterSpacing != 0 || "rtl".equals(direction)
+                || java.text.Bidi.requiresBidi(text.toCharArray(), 0, text.length())) {
+            return false;
+        }
+
+        AffineTransform tx = g2d.getTransform();
+        if ((tx.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0 || g2d.getClip() != null) {
+            return false;
+        }
+        if (!(g2d.getPaint() instanceof java.awt.Color) || !(g2d.getComposite() instanceof AlphaComposite)) {
+            return false;
+        }
+        AlphaComposite composite = (AlphaComposite) g2d.getComposite();
+        if (composite.getRule() != AlphaComposite.SRC_OVER) {
+            return false;
+        }
+
+        Font font = g2d.getFont();
+        java.awt.font.FontRenderContext frc = g2d.getFontRenderContext();
+        if (!AwtGlyphAtlas.supports(font, frc)) {
+            return false;
+        }
+        if (maxWidth > 0 && textCache.getLayout(text, font, direction, frc).getAdvance() > maxWidth) {
+            return false; // Horizontal squeeze needs a scaled transform
+        }
+
+        java.awt.Color color = (java.awt.Color) g2d.getPaint();
+        int alpha = Math.round(color.getAlpha() * composite.getAlpha());
+        int argb = (alpha << 24) | (color.getRGB() & 0x00FFFFFF);
+        BufferedImage target = surface.image();
+        return glyphAtlas.drawString(text, font, frc, x + tx.getTranslateX(), y + tx.getTranslateY(),
+                argb, target, null);
+    }
+
     @Override
     public void strokeText(String text, double x, double y, double maxWidth) {
         // Adjust x-coordinate based on textAlign setting
@@ -233,33 +305,39 @@ public class AwtGraphicsContext implements IGraphicsContext {
     @Override
     public void rotate(double theta) {
         g2d.rotate(theta);
+        pathMatrixValid = false;
     }
 
     @Override
     public void translate(double tx, double ty) {
         g2d.translate(tx, ty);
+        pathMatrixValid = false;
     }
 
     @Override
     public void transform(double m11, double m12, double m21, double m22, double dx, double dy) {
         g2d.transform(new AffineTransform(m11, m12, m21, m22, dx, dy));
+        pathMatrixValid = false;
     }
 
     @Override
     public void setTransform(double m11, double m12, double m21, double m22, double dx, double dy) {
         g2d.setTransform(new AffineTransform(m11, m12, m21, m22, dx, dy));
+        pathMatrixValid = false;
     }
 
     @Override
     public void setTransform(Object transform) {
         if (transform instanceof AffineTransform) {
             g2d.setTransform((AffineTransform) transform);
+            pathMatrixValid = false;
         }
     }
 
     @Override
     public void resetTransform() {
         g2d.setTransform(new AffineTransform());
+        pathMatrixValid = false;
     }
 
     @Override
@@ -267,6 +345,11 @@ public class AwtGraphicsContext implements IGraphicsContext {
         return g2d.getTransform();
     }
 
+    @Override
+    public double[] getTransformMatrix() {
+        return pathMatrix().clone();
+    }
+
     // Drawing properties
     @Override
     public ICanvasPattern createPattern(Object image, String repetition) {
@@ -407,6 +490,11 @@ public class AwtGraphicsContext implements IGraphicsContext {
         this.wordSpacing = spacing;
     }
 
+    @Override
+    public void setTextRendering(String textRendering) {
+        this.textRendering = textRendering != null ? textRendering : "auto";
+    }
+
     private void updateFontWithAttributes() {
         Font f = g2d.getFont();
         if (f == null) return;
@@ -428,21 +516,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
     }
 
     private java.awt.font.TextLayout createTextLayout(String text) {
-        if (text == null || text.isEmpty()) return null;
-
-        java.awt.font.FontRenderContext frc = g2d.getFontRenderContext();
-        Font font = g2d.getFont();
-
-        AttributedString as = new AttributedString(text);
-        as.addAttribute(TextAttribute.FONT, font);
-
-        if ("rtl".equals(direction)) {
-            as.addAttribute(TextAttribute.RUN_DIRECTION, TextAttribute.RUN_DIRECTION_RTL);
-        } else if ("ltr".equals(direction)) {
-            as.addAttribute(TextAttribute.RUN_DIRECTION, TextAttribute.RUN_DIRECTION_LTR);
-        }
-
-        return new java.awt.font.TextLayout(as.getIterator(), frc);
+        return textCache.getLayout(text, g2d.getFont(), direction, g2d.getFontRenderContext());
     }
 
     /**
@@ -624,8 +698,19 @@ public class AwtGraphicsContext implements IGraphicsContext {
 
     @Override
     public void drawImage(int[] pixels, int x, int y, int width, int height) {
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        image.setRGB(0, 0, width, height, pixels, 0, width);
+        BufferedImage image;
+        if (surface.isPremultiplied()) {
+            // Convert once here, so drawing onto the canvas is a plain copy
+            int[] premultiplied = new int[width * height];
+            for (int i = 0; i < premultiplied.length; i++) {
+                premultiplied[i] = PixelBlend.premultiply(pixels[i]);
+            }
+            image = surface.createCompatibleImage(width, height);
+            image.getRaster().setDataElements(0, 0, width, height, premultiplied);
+        } else {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            image.setRGB(0, 0, width, height, pixels, 0, width);
+        }
 
         // Apply CSS filters if active
         if (shouldApplyFilters()) {
@@ -681,7 +766,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
 
     @Override
     public ITextMetrics measureText(String text) {
-        return new AwtTextMetrics(text, g2d.getFont(), g2d, wordSpacing);
+        return textCache.getMetrics(text, g2d.getFont(), g2d, wordSpacing);
     }
 
     @Override
@@ -692,9 +777,14 @@ public class AwtGraphicsContext implements IGraphicsContext {
 
     @Override
     public IImageData getImageData(int x, int y, int width, int height) {
-        BufferedImage image = (BufferedImage) surface.getNativeImage();
-        int[] pixels = new int[width * height];
-        image.getRGB(x, y, width, height, pixels, 0, width);
+        int[] pixels;
+        if (surface.isPremultiplied()) {
+            pixels = surface.getPixelData(x, y, width, height);
+        } else {
+            BufferedImage image = surface.image();
+            pixels = new int[width * height];
+            image.getRGB(x, y, width, height, pixels, 0, width);
+        }
         return new com.w3canvas.javacanvas.core.ImageData(width, height, new com.w3canvas.javacanvas.core.CanvasPixelArray(pixels, width, height));
     }
 
@@ -715,40 +805,62 @@ public class AwtGraphicsContext implements IGraphicsContext {
         path.closePath();
     }
 
+    /**
+     * Returns the current transform matrix for path building, re-reading it from the
+     * Graphics2D only after the transform has changed.
+     */
+    private double[] pathMatrix() {
+        if (!pathMatrixValid) {
+            g2d.getTransform().getMatrix(pathMatrix);
+            pathMatrixValid = true;
+        }
+        return pathMatrix;
+    }
+
+    private double deviceX(double[] m, double x, double y) {
+        return m[0] * x + m[2] * y + m[4];
+    }
+
+    private double deviceY(double[] m, double x, double y) {
+        return m[1] * x + m[3] * y + m[5];
+    }
+
     @Override
     public void moveTo(double x, double y) {
         lastPoint[0] = x;
         lastPoint[1] = y;
-        Point2D p = new Point2D.Double(x, y);
-        g2d.getTransform().transform(p, p);
-        path.moveTo(p.getX(), p.getY());
+        double[] m = pathMatrix();
+        path.moveTo(deviceX(m, x, y), deviceY(m, x, y));
     }
 
     @Override
     public void lineTo(double x, double y) {
         lastPoint[0] = x;
         lastPoint[1] = y;
-        Point2D p = new Point2D.Double(x, y);
-        g2d.getTransform().transform(p, p);
-        path.lineTo(p.getX(), p.getY());
+        double[] m = pathMatrix();
+        path.lineTo(deviceX(m, x, y), deviceY(m, x, y));
     }
 
     @Override
     public void quadraticCurveTo(double cpx, double cpy, double x, double y) {
         lastPoint[0] = x;
         lastPoint[1] = y;
-        double[] xy = { cpx, cpy, x, y };
-        g2d.getTransform().transform(xy, 0, xy, 0, 2);
-        path.quadTo(xy[0], xy[1], xy[2], xy[3]);
+        double[] m = pathMatrix();
+        path.quadTo(deviceX(m, cpx, cpy), deviceY(m, cpx, cpy), deviceX(m, x, y), deviceY(m, x, y));
     }
 
     @Override
     public void bezierCurveTo(double cp1x, double cp1y, double cp2x, double cp2y, double x, double y) {
         lastPoint[0] = x;
         lastPoint[1] = y;
-        float[] xy = { (float)cp1x, (float)cp1y, (float)cp2x, (float)cp2y, (float)x, (float)y };
-        g2d.getTransform().transform(xy, 0, xy, 0, 3);
-        path.curveTo(xy[0], xy[1], xy[2], xy[3], xy[4], xy[5]);
+        double[] m = pathMatrix();
+        // Control points are rounded to float precision, as the curve was always built that way
+        float x1 = (float) cp1x, y1 = (float) cp1y;
+        float x2 = (float) cp2x, y2 = (float) cp2y;
+        float x3 = (float) x, y3 = (float) y;
+        path.curveTo((float) deviceX(m, x1, y1), (float) deviceY(m, x1, y1),
+                (float) deviceX(m, x2, y2), (float) deviceY(m, x2, y2),
+                (float) deviceX(m, x3, y3), (float) deviceY(m, x3, y3));
     }
 
     @Override
@@ -830,17 +942,12 @@ public class AwtGraphicsContext implements IGraphicsContext {
 
     @Override
     public void rect(double x, double y, double w, double h) {
-        // Transform the corner coordinates
-        Point2D p1 = g2d.getTransform().transform(new Point2D.Double(x, y), null);
-        Point2D p2 = g2d.getTransform().transform(new Point2D.Double(x + w, y), null);
-        Point2D p3 = g2d.getTransform().transform(new Point2D.Double(x + w, y + h), null);
-        Point2D p4 = g2d.getTransform().transform(new Point2D.Double(x, y + h), null);
-
-        // Add as explicit path commands (creates clean subpath)
-        path.moveTo(p1.getX(), p1.getY());
-        path.lineTo(p2.getX(), p2.getY());
-        path.lineTo(p3.getX(), p3.getY());
-        path.lineTo(p4.getX(), p4.getY());
+        // Transform the corners and add them as explicit path commands (creates clean subpath)
+        double[] m = pathMatrix();
+        path.moveTo(deviceX(m, x, y), deviceY(m, x, y));
+        path.lineTo(deviceX(m, x + w, y), deviceY(m, x + w, y));
+        path.lineTo(deviceX(m, x + w, y + h), deviceY(m, x + w, y + h));
+        path.lineTo(deviceX(m, x, y + h), deviceY(m, x, y + h));
         path.closePath();
     }
 
@@ -968,15 +1075,11 @@ public class AwtGraphicsContext implements IGraphicsContext {
 
     @Override
     public void arc(double x, double y, double radius, double startAngle, double endAngle, boolean counterclockwise) {
-        double ang = endAngle - startAngle;
-        if (counterclockwise) {
-            if (ang < 0) ang += 2 * Math.PI;
-        } else {
-            if (ang > 0) ang -= 2 * Math.PI;
-        }
+        double ang = ArcSweep.of(startAngle, endAngle, counterclockwise);
+        // Arc2D angles run counterclockwise in a y-up space, hence the negated angles
         path.append(g2d.getTransform().createTransformedShape(
                 new Arc2D.Double(x - radius, y - radius, 2 * radius, 2 * radius,
-                        Math.toDegrees(startAngle), Math.toDegrees(ang), Arc2D.OPEN)), true);
+                        -Math.toDegrees(startAngle), -Math.toDegrees(ang), Arc2D.OPEN)), true);
         double endAngleRad = startAngle + ang;
         lastPoint[0] = x + radius * Math.cos(endAngleRad);
         lastPoint[1] = y + radius * Math.sin(endAngleRad);
@@ -984,20 +1087,11 @@ public class AwtGraphicsContext implements IGraphicsContext {
 
     @Override
     public void ellipse(double x, double y, double radiusX, double radiusY, double rotation, double startAngle, double endAngle, boolean counterclockwise) {
-        double ang = endAngle - startAngle;
-        if (counterclockwise) {
-            if (ang < 0) {
-                ang += 2 * Math.PI;
-            }
-        } else {
-            if (ang > 0) {
-                ang -= 2 * Math.PI;
-            }
-        }
+        double ang = ArcSweep.of(startAngle, endAngle, counterclockwise);
 
         AffineTransform tx = AffineTransform.getRotateInstance(rotation, x, y);
         Shape ellipse = new Arc2D.Double(x - radiusX, y - radiusY, radiusX * 2, radiusY * 2,
-                Math.toDegrees(startAngle), Math.toDegrees(ang), Arc2D.OPEN);
+                -Math.toDegrees(startAngle), -Math.toDegrees(ang), Arc2D.OPEN);
         path.append(tx.createTransformedShape(ellipse), true);
     }
 
@@ -1059,7 +1153,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
         bounds.height += expansion * 2;
 
         // Ensure bounds are within canvas and non-empty
-        BufferedImage canvasImage = (BufferedImage) surface.getNativeImage();
+        BufferedImage canvasImage = surface.image();
         bounds = bounds.intersection(new java.awt.Rectangle(0, 0, canvasImage.getWidth(), canvasImage.getHeight()));
 
         if (bounds.width <= 0 || bounds.height <= 0) {
@@ -1067,7 +1161,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
         }
 
         // Create off-screen buffer with alpha channel
-        BufferedImage offscreen = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage offscreen = surface.createCompatibleImage(bounds.width, bounds.height);
         Graphics2D offscreenG2d = offscreen.createGraphics();
 
         try {
@@ -1162,7 +1256,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
         bounds.grow(expansion, expansion);
 
         // Ensure bounds are within canvas and non-empty
-        BufferedImage canvasImage = (BufferedImage) surface.getNativeImage();
+        BufferedImage canvasImage = surface.image();
         bounds = bounds.intersection(new java.awt.Rectangle(0, 0, canvasImage.getWidth(), canvasImage.getHeight()));
 
         if (bounds.width <= 0 || bounds.height <= 0) {
@@ -1170,7 +1264,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
         }
 
         // Create off-screen buffer with alpha channel
-        BufferedImage offscreen = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage offscreen = surface.createCompatibleImage(bounds.width, bounds.height);
         Graphics2D offscreenG2d = offscreen.createGraphics();
 
         try {
@@ -1243,6 +1337,89 @@ public class AwtGraphicsContext implements IGraphicsContext {
         }
     }
 
+    @Override
+    public IShape createRetainedPath(IPath2D path) {
+        if (!(path instanceof com.w3canvas.javacanvas.core.Path2D)) {
+            return null;
+        }
+        com.w3canvas.javacanvas.core.Path2D corePath = (com.w3canvas.javacanvas.core.Path2D) path;
+        // Replay under an identity transform so the shape stays in user space
+        java.awt.geom.Path2D.Double savedPath = this.path;
+        double[] savedLastPoint = lastPoint.clone();
+        AffineTransform savedTransform = g2d.getTransform();
+        try {
+            // Pre-size: Path2D.Double grows large paths by only 1/8 at a time
+            this.path = new java.awt.geom.Path2D.Double(java.awt.geom.Path2D.WIND_NON_ZERO,
+                    corePath.getCommandCount() + 1);
+            g2d.setTransform(new AffineTransform());
+            pathMatrixValid = false;
+            corePath.replayOn(this);
+            return new AwtShape(this.path);
+        } finally {
+            g2d.setTransform(savedTransform);
+            pathMatrixValid = false;
+            this.path = savedPath;
+            this.lastPoint = savedLastPoint;
+        }
+    }
+
+    @Override
+    public void setRetainedPath(IShape shape) {
+        java.awt.geom.Path2D retained = (java.awt.geom.Path2D) ((AwtShape) shape).getShape();
+        // Copies the segments and maps them to device space in a single pass
+        this.path = new java.awt.geom.Path2D.Double(retained, g2d.getTransform());
+        Point2D current = retained.getCurrentPoint();
+        if (current != null) {
+            lastPoint[0] = current.getX();
+            lastPoint[1] = current.getY();
+        }
+    }
+
+    @Override
+    public boolean isPointInRetainedPath(IShape shape, double x, double y) {
+        // Map the point into user space instead of copying the shape into device space
+        double[] m = pathMatrix();
+        double det = m[0] * m[3] - m[1] * m[2];
+        if (det == 0) {
+            return false;
+        }
+        double dx = x - m[4];
+        double dy = y - m[5];
+        double ux = (m[3] * dx - m[2] * dy) / det;
+        double uy = (m[0] * dy - m[1] * dx) / det;
+        return ((AwtShape) shape).getShape().contains(ux, uy);
+    }
+
+    @Override
+    public boolean isPointInRetainedStroke(IShape shape, double x, double y) {
+        Shape retained = ((AwtShape) shape).getShape();
+        Stroke stroke = g2d.getStroke();
+        double[] m = pathMatrix();
+        StrokedOutline outline = strokedOutlines.get(retained);
+        if (outline == null || !outline.matches(stroke, m)) {
+            Shape deviceShape = new java.awt.geom.Path2D.Double(retained, g2d.getTransform());
+            outline = new StrokedOutline(stroke, m.clone(), stroke.createStrokedShape(deviceShape));
+            strokedOutlines.put(retained, outline);
+        }
+        return outline.outline.contains(x, y);
+    }
+
+    private static final class StrokedOutline {
+        final Stroke stroke;
+        final double[] matrix;
+        final Shape outline;
+
+        StrokedOutline(Stroke stroke, double[] matrix, Shape outline) {
+            this.stroke = stroke;
+            this.matrix = matrix;
+            this.outline = outline;
+        }
+
+        boolean matches(Stroke stroke, double[] matrix) {
+            return this.stroke.equals(stroke) && java.util.Arrays.equals(this.matrix, matrix);
+        }
+    }
+
     @Override
     public boolean isPointInPath(double x, double y) {
         return path.contains(x, y);
@@ -1346,7 +1523,8 @@ public class AwtGraphicsContext implements IGraphicsContext {
             }
 
             // Create off-screen buffer for shadow
-            BufferedImage shadowImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            // Premultiplied, so the blur does not pull in the black of transparent pixels
+            BufferedImage shadowImage = surface.createCompatibleImage(width, height);
             Graphics2D shadowG2d = shadowImage.createGraphics();
 
             try {
@@ -1567,7 +1745,11 @@ public class AwtGraphicsContext implements IGraphicsContext {
             null
         );
 
-        BufferedImage temp = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        // ConvolveOp weighs the raw channels, which is only correct for premultiplied pixels;
+        // straight alpha sources get dark fringes where they meet transparent black
+        int type = source.getType() == BufferedImage.TYPE_INT_ARGB_PRE
+                ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage temp = new BufferedImage(source.getWidth(), source.getHeight(), type);
         hBlur.filter(source, temp);
 
         // Vertical blur
@@ -1578,7 +1760,7 @@ public class AwtGraphicsContext implements IGraphicsContext {
             null
         );
 
-        BufferedImage result = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        BufferedImage result = new BufferedImage(source.getWidth(), source.getHeight(), type);
         vBlur.filter(temp, result);
 
         return result;
@@ -0,0 +1,225 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.text.AttributedString;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded LRU cache of shaped text for the AWT backend.
+ *
+ * <p>Building a {@link TextLayout} runs the full shaping pipeline (bidi analysis, glyph
+ * lookup, advances), and {@link AwtTextMetrics} measures the same string again. Dashboards
+ * and charts redraw the same labels every frame, so {@code fillText}, {@code strokeText} and
+ * {@code measureText} share this cache instead of shaping the text on every call.
+ *
+ * <p>Entries are keyed by the text, the {@link Font} (which carries letter spacing as a
+ * {@link TextAttribute#TRACKING} attribute), the direction, the word spacing (metrics only)
+ * and the {@link FontRenderContext}. The render context ignores translation, so translated
+ * redraws hit the cache while scaled or rotated text is shaped for its own device transform.
+ *
+ * <p>The cache is shared by all AWT contexts and is safe to use from worker threads.
+ * Its capacity can be set with the {@code w3canvas.text.cacheSize} system property
+ * (0 disables caching).
+ */
+public final class AwtTextLayoutCache {
+
+    /**
+     * Default number of entries kept for each of the layout and metrics caches.
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final AwtTextLayoutCache SHARED =
+            new AwtTextLayoutCache(Integer.getInteger("w3canvas.text.cacheSize", DEFAULT_CAPACITY));
+
+    private final int capacity;
+    private final Map<Key, TextLayout> layouts;
+    private final Map<Key, AwtTextMetrics> metrics;
+
+    private long layoutHits;
+    private long layoutMisses;
+    private long metricsHits;
+    private long metricsMisses;
+
+    public AwtTextLayoutCache(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        this.layouts = createLruMap(this.capacity);
+        this.metrics = createLruMap(this.capacity);
+    }
+
+    /**
+     * Returns the cache shared by all AWT graphics contexts.
+     */
+    public static AwtTextLayoutCache getShared() {
+        return SHARED;
+    }
+
+    private static <V> Map<Key, V> createLruMap(final int maxEntries) {
+        return new LinkedHashMap<Key, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the shaped layout for {@code text}, creating it on a miss.
+     *
+     * @param text      the text to shape; {@code null} or empty text yields {@code null}
+     * @param font      the font, including letter-spacing attributes
+     * @param direction the canvas direction ("ltr", "rtl" or "inherit")
+     * @param frc       the render context of the target graphics
+     * @return the cached or newly created layout, or {@code null} for empty text
+     */
+    public TextLayout getLayout(String text, Font font, String direction, FontRenderContext frc) {
+        if (text == null || text.isEmpty() || font == null) {
+            return null;
+        }
+        Key key = new Key(text, font, direction, 0, frc);
+        synchronized (this) {
+            TextLayout cached = layouts.get(key);
+            if (cached != null) {
+                layoutHits++;
+                return cached;
+            }
+            layoutMisses++;
+        }
+
+        TextLayout layout = createLayout(text, font, direction, frc);
+        if (capacity > 0) {
+            synchronized (this) {
+                layouts.put(key, layout);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the metrics for {@code text} measured with {@code font} on {@code g2d}.
+     *
+     * @param text        the text to measure
+     * @param font        the font, including letter-spacing attributes
+     * @param g2d         the graphics used for font metrics and render context
+     * @param wordSpacing extra spacing between words, in pixels
+     * @return the cached or newly computed metrics
+     */
+    public AwtTextMetrics getMetrics(String text, Font font, Graphics2D g2d, double wordSpacing) {
+        Key key = new Key(text, font, null, wordSpacing, g2d.getFontRenderContext());
+        synchronized (this) {
+            AwtTextMetrics cached = metrics.get(key);
+            if (cached != null) {
+                metricsHits++;
+                return cached;
+            }
+            metricsMisses++;
+        }
+
+        AwtTextMetrics result = new AwtTextMetrics(text, font, g2d, wordSpacing);
+        if (capacity > 0) {
+            synchronized (this) {
+                metrics.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    private static TextLayout createLayout(String text, Font font, String direction, FontRenderContext frc) {
+        AttributedString as = new AttributedString(text);
+        as.addAttribute(TextAttribute.FONT, font);
+
+        if ("rtl".equals(direction)) {
+            as.addAttribute(TextAttribute.RUN_DIRECTION, TextAttribute.RUN_DIRECTION_RTL);
+        } else if ("ltr".equals(direction)) {
+            as.addAttribute(TextAttribute.RUN_DIRECTION, TextAttribute.RUN_DIRECTION_LTR);
+        }
+
+        return new TextLayout(as.getIterator(), frc);
+    }
+
+    public synchronized long getLayoutHits() {
+        return layoutHits;
+    }
+
+    public synchronized long getLayoutMisses() {
+        return layoutMisses;
+    }
+
+    public synchronized long getMetricsHits() {
+        return metricsHits;
+    }
+
+    public synchronized long getMetricsMisses() {
+        return metricsMisses;
+    }
+
+    /**
+     * Returns the combined hit rate of the layout and metrics caches, between 0 and 1.
+     */
+    public synchronized double getHitRate() {
+        long hits = layoutHits + metricsHits;
+        long total = hits + layoutMisses + metricsMisses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public synchronized int size() {
+        return layouts.size() + metrics.size();
+    }
+
+    /**
+     * Removes all cached entries and resets the hit/miss counters.
+     */
+    public synchronized void clear() {
+        layouts.clear();
+        metrics.clear();
+        layoutHits = 0;
+        layoutMisses = 0;
+        metricsHits = 0;
+        metricsMisses = 0;
+    }
+
+    private static final class Key {
+        private final String text;
+        private final Font font;
+        private final String direction;
+        private final double wordSpacing;
+        private final FontRenderContext frc;
+        private final int hash;
+
+        Key(String text, Font font, String direction, double wordSpacing, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.direction = direction;
+            this.wordSpacing = wordSpacing;
+            this.frc = frc;
+            this.hash = Objects.hash(text, font, direction, wordSpacing, frc);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && Double.compare(wordSpacing, other.wordSpacing) == 0
+                    && Objects.equals(text, other.text)
+                    && font.equals(other.font)
+                    && Objects.equals(direction, other.direction)
+                    && Objects.equals(frc, other.frc);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.ImageIO;
+
+import com.w3canvas.javacanvas.core.PixelBlend;
+
+/**
+ * Canvas surface whose pixels live in a memory-mapped file, for images larger than the heap
+ * or even RAM, such as gigapixel map renders.
+ *
+ * <p>
+ * The file holds the raw pixels and nothing else: row by row, one big-endian premultiplied
+ * ARGB int per pixel. A new file starts out transparent; an existing file keeps its pixels, so
+ * a render can be reopened. The surface can be drawn on like any other AWT surface, but that
+ * goes through Java2D's generic loops; the fast way to fill it is to render tiles on ordinary
+ * canvases and copy them in with {@link #writePixels}, which is what
+ * {@code TileRenderer.render(String, MappedCanvasSurface, int)} does.
+ *
+ * <p>
+ * The image can exceed memory on both ends: {@link #writePng} encodes it one row at a time,
+ * and the file itself can be streamed as it is. A surface holds at most 2^31 - 1 pixels.
+ */
+public class MappedCanvasSurface extends AwtCanvasSurface {
+
+    private final MappedDataBuffer buffer;
+    private final Path file;
+
+    /**
+     * Maps {@code file}, creating it if needed and growing it to {@code width * height * 4}
+     * bytes.
+     */
+    public MappedCanvasSurface(Path file, int width, int height) throws IOException {
+        this(file, map(file, width, height), width, height);
+    }
+
+    private MappedCanvasSurface(Path file, MappedDataBuffer buffer, int width, int height) {
+        super(createImage(buffer, width, height), true);
+        this.buffer = buffer;
+        this.file = file;
+    }
+
+    private static MappedDataBuffer map(Path file, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE
+                || (long) width * 4 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid mapped canvas size: " + width + "x" + height);
+        }
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new MappedDataBuffer(channel, width, height);
+        }
+    }
+
+    private static BufferedImage createImage(MappedDataBuffer buffer, int width, int height) {
+        DirectColorModel colorModel = new DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), 32,
+                0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000, true, DataBuffer.TYPE_INT);
+        SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT,
+                width, height, colorModel.getMasks());
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        return new BufferedImage(colorModel, raster, true, null);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Replaces the pixels under {@code tile}, whose top left corner goes to ({@code x}, {@code y}).
+     * The tile must lie inside the surface.
+     */
+    public void writePixels(int x, int y, BufferedImage tile) {
+        int width = tile.getWidth();
+        int height = tile.getHeight();
+        if (x < 0 || y < 0 || x + width > getWidth() || y + height > getHeight()) {
+            throw new IllegalArgumentException("Tile " + width + "x" + height + " at " + x + "," + y
+                    + " lies outside the " + getWidth() + "x" + getHeight() + " surface");
+        }
+        boolean premultiplied = tile.getType() == BufferedImage.TYPE_INT_ARGB_PRE;
+        int[] row = new int[width];
+        for (int r = 0; r < height; r++) {
+            if (premultiplied) {
+                tile.getRaster().getDataElements(0, r, width, 1, row);
+            } else {
+                tile.getRGB(0, r, width, 1, row, 0, width);
+                for (int i = 0; i < width; i++) {
+                    row[i] = PixelBlend.premultiply(row[i]);
+                }
+            }
+            buffer.setRow(x, y + r, width, row, 0);
+        }
+    }
+
+    /**
+     * Encodes the surface as a PNG. ImageIO reads the image one row at a time, so the whole
+     * image never has to fit in memory.
+     */
+    public void writePng(OutputStream out) throws IOException {
+        if (!ImageIO.write(createStraightAlphaView(), "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /**
+     * Returns a straight-alpha view of the pixels that converts only the rows asked for,
+     * instead of leaving ImageIO to convert every row through the premultiplied color model.
+     */
+    private BufferedImage createStraightAlphaView() {
+        BufferedImage image = image();
+        DirectColorModel straight = new DirectColorModel(32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000);
+        return new BufferedImage(straight, image.getRaster(), false, null) {
+            @Override
+            public Raster getData(Rectangle rect) {
+                WritableRaster raster = Raster.createPackedRaster(DataBuffer.TYPE_INT, rect.width, rect.height,
+                        straight.getMasks(), new Point(rect.x, rect.y));
+                int[] row = new int[rect.width];
+                for (int r = 0; r < rect.height; r++) {
+                    buffer.getRow(rect.x, rect.y + r, rect.width, row, 0);
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = PixelBlend.unpremultiply(row[i]);
+                    }
+                    raster.setDataElements(rect.x, rect.y + r, rect.width, 1, row);
+                }
+                return raster;
+            }
+        };
+    }
+
+    /**
+     * Writes changed pixels back to the file, so that it can be read while the surface is open.
+     */
+    @Override
+    public void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Returns true once the file has been unmapped.
+     */
+    public boolean isReleased() {
+        return buffer.isReleased();
+    }
+
+    /**
+     * Writes the pixels back and unmaps the file, which stays on disk. Drawing on or reading
+     * the surface afterwards throws IllegalStateException; releasing it again does nothing.
+     */
+    @Override
+    public void release() {
+        super.release();
+        buffer.release();
+    }
+}
@@ -0,0 +1,116 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Integer {@code DataBuffer} over a memory-mapped file, for images larger than the heap or RAM.
+ *
+ * <p>
+ * One mapping is limited to 2 GB, so the file is mapped in chunks of whole rows; a row never
+ * spans two chunks, which lets {@link #getRow} and {@link #setRow} copy it in one bulk call.
+ * Elements are stored big-endian. The operating system pages the file in and out as it is
+ * touched, so only the rows being drawn or read need to be resident.
+ */
+final class MappedDataBuffer extends DataBuffer {
+
+    // Largest mapping, in ints: 1 GB
+    private static final int MAX_CHUNK_ELEMENTS = 1 << 28;
+
+    private final int width;
+    private final int rowsPerChunk;
+    private final int chunkElements;
+    private volatile MappedByteBuffer[] mappings;
+    private volatile IntBuffer[] chunks;
+
+    /**
+     * Maps {@code width * height} ints of {@code channel}, starting at its first byte. The
+     * channel must be open for reading and writing; it can be closed once this returns.
+     */
+    MappedDataBuffer(FileChannel channel, int width, int height) throws IOException {
+        super(DataBuffer.TYPE_INT, width * height);
+        this.width = width;
+        this.rowsPerChunk = Math.max(1, MAX_CHUNK_ELEMENTS / width);
+        this.chunkElements = rowsPerChunk * width;
+        int count = (height + rowsPerChunk - 1) / rowsPerChunk;
+        MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+        IntBuffer[] views = new IntBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long rows = Math.min(rowsPerChunk, height - (long) i * rowsPerChunk);
+            mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkElements * 4, rows * width * 4);
+            views[i] = mapped[i].asIntBuffer();
+        }
+        this.mappings = mapped;
+        this.chunks = views;
+    }
+
+    private IntBuffer[] chunks() {
+        IntBuffer[] c = chunks;
+        if (c == null) {
+            throw new IllegalStateException("Canvas surface has been released");
+        }
+        return c;
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+        return chunks()[i / chunkElements].get(i % chunkElements);
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+        chunks()[i / chunkElements].put(i % chunkElements, val);
+    }
+
+    /**
+     * Copies {@code length} pixels of row {@code y}, starting at column {@code x}, into {@code dst}.
+     */
+    void getRow(int x, int y, int length, int[] dst, int offset) {
+        chunks()[y / rowsPerChunk].get((y % rowsPerChunk) * width + x, dst, offset, length);
+    }
+
+    /**
+     * Copies {@code length} pixels from {@code src} into row {@code y}, starting at column {@code x}.
+     */
+    void setRow(int x, int y, int length, int[] src, int offset) {
+        chunks()[y / rowsPerChunk].put((y % rowsPerChunk) * width + x, src, offset, length);
+    }
+
+    /**
+     * Writes changed pages back to the file.
+     */
+    void force() {
+        MappedByteBuffer[] m = mappings;
+        if (m != null) {
+            for (MappedByteBuffer mapping : m) {
+                mapping.force();
+            }
+        }
+    }
+
+    boolean isReleased() {
+        return chunks == null;
+    }
+
+    /**
+     * Writes the pixels back and unmaps the file. Further calls do nothing.
+     */
+    void release() {
+        MappedByteBuffer[] m;
+        synchronized (this) {
+            m = mappings;
+            if (m == null) {
+                return;
+            }
+            chunks = null;
+            mappings = null;
+        }
+        for (MappedByteBuffer mapping : m) {
+            mapping.force();
+            OffHeapDataBuffer.free(mapping);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Canvas surface whose premultiplied ARGB pixels live outside the Java heap.
+ *
+ * <p>
+ * Large canvases then no longer fill the heap with multi-megabyte arrays that the collector
+ * has to trace and copy, and {@link #release()} frees the memory as soon as the canvas is
+ * disposed. The price is drawing speed: Java2D has no specialised loops for a custom
+ * {@code DataBuffer} and falls back to its generic per-pixel ones, which are several times
+ * slower than on a heap image. Use it for canvases that are large and long-lived or churned
+ * faster than the collector keeps up with, not for interactive drawing.
+ */
+public class OffHeapCanvasSurface extends AwtCanvasSurface {
+
+    private final OffHeapDataBuffer buffer;
+
+    public OffHeapCanvasSurface(int width, int height) {
+        this(new OffHeapDataBuffer(checkedSize(width, height)), width, height);
+    }
+
+    private OffHeapCanvasSurface(OffHeapDataBuffer buffer, int width, int height) {
+        super(createImage(buffer, width, height), true);
+        this.buffer = buffer;
+    }
+
+    private static int checkedSize(int width, int height) {
+        if (width <= 0 || height <= 0 || (long) width * height * 4 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid off-heap canvas size: " + width + "x" + height);
+        }
+        return width * height;
+    }
+
+    private static BufferedImage createImage(OffHeapDataBuffer buffer, int width, int height) {
+        DirectColorModel colorModel = new DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), 32,
+                0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000, true, DataBuffer.TYPE_INT);
+        SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT,
+                width, height, colorModel.getMasks());
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        return new BufferedImage(colorModel, raster, true, null);
+    }
+
+    /**
+     * Returns true once the pixel memory has been freed.
+     */
+    public boolean isReleased() {
+        return buffer.isReleased();
+    }
+
+    /**
+     * Frees the pixel memory. Drawing on or reading the surface afterwards throws
+     * IllegalStateException; releasing it again does nothing.
+     */
+    @Override
+    public void release() {
+        super.release();
+        buffer.release();
+    }
+}
@@ -0,0 +1,105 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.image.DataBuffer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Integer {@code DataBuffer} whose elements live in a direct {@code ByteBuffer} outside the
+ * Java heap.
+ *
+ * <p>
+ * The memory is freed by {@link #release()} instead of waiting for the garbage collector to
+ * find the buffer. Accessing the buffer after release throws IllegalStateException; release
+ * must not race with drawing or reading, since the memory is gone the moment it returns.
+ */
+final class OffHeapDataBuffer extends DataBuffer {
+
+    private static final Logger LOG = Logger.getLogger(OffHeapDataBuffer.class.getName());
+
+    // Unsafe.invokeCleaner frees a direct buffer immediately; null if the JDK does not offer it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception | LinkageError e) {
+            LOG.log(Level.WARNING, "Off-heap canvas memory will be freed by the garbage collector", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private volatile ByteBuffer memory;
+    private volatile IntBuffer data;
+
+    OffHeapDataBuffer(int size) {
+        super(DataBuffer.TYPE_INT, size);
+        this.memory = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+        this.data = memory.asIntBuffer();
+    }
+
+    private IntBuffer data() {
+        IntBuffer d = data;
+        if (d == null) {
+            throw new IllegalStateException("Canvas surface has been released");
+        }
+        return d;
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+        return data().get(i);
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+        data().put(i, val);
+    }
+
+    boolean isReleased() {
+        return data == null;
+    }
+
+    /**
+     * Frees the memory. Further calls do nothing.
+     */
+    void release() {
+        ByteBuffer m;
+        synchronized (this) {
+            m = memory;
+            if (m == null) {
+                return;
+            }
+            data = null;
+            memory = null;
+        }
+        free(m);
+    }
+
+    /**
+     * Frees a direct or mapped buffer now instead of when it is garbage collected.
+     * The buffer must not be accessed afterwards.
+     */
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Could not free off-heap canvas memory", e);
+            }
+        }
+    }
+}
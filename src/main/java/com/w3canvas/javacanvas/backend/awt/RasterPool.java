@@ -0,0 +1,106 @@
+package com.w3canvas.javacanvas.backend.awt;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Recycles the backing images of released and resized canvas surfaces.
+ *
+ * <p>
+ * Images are grouped by size class: each dimension is rounded to 64, 96, 128, 192, 256, 384,
+ * 512, 768, 1024 and so on, every step at most 1.5 times the previous one. A released image
+ * goes to the class at or below its size. A request is served from the class at or above its
+ * size, where every image is large enough, or else by an image that happens to be large
+ * enough in the class below, such as one of exactly the same size. The pool
+ * keeps at most {@code -Dw3canvas.awt.rasterPoolBytes} bytes (64 MB by default, 0 turns it
+ * off) and drops what does not fit.
+ */
+final class RasterPool {
+
+    static final RasterPool SHARED = new RasterPool(Long.getLong("w3canvas.awt.rasterPoolBytes", 64L << 20));
+
+    private static final int MIN_SIZE_CLASS = 64;
+
+    private final long capacityBytes;
+    private final Map<Long, ArrayDeque<BufferedImage>> free = new HashMap<>();
+    private long pooledBytes;
+
+    RasterPool(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Returns the smallest size class of at least {@code size}.
+     */
+    static int sizeClassAbove(int size) {
+        if (size <= MIN_SIZE_CLASS) {
+            return MIN_SIZE_CLASS;
+        }
+        int power = Integer.highestOneBit(size - 1) << 1;
+        return size <= power / 4 * 3 ? power / 4 * 3 : power;
+    }
+
+    /**
+     * Returns the largest size class of at most {@code size}, or 0 if there is none.
+     */
+    static int sizeClassBelow(int size) {
+        if (size < MIN_SIZE_CLASS) {
+            return 0;
+        }
+        int power = Integer.highestOneBit(size);
+        return size >= power / 2 * 3 ? power / 2 * 3 : power;
+    }
+
+    private static long key(int width, int height, int type) {
+        return (long) width << 33 | (long) height << 1 | (type == BufferedImage.TYPE_INT_ARGB_PRE ? 1 : 0);
+    }
+
+    private static long bytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    /**
+     * Takes a pooled image of the given type that is at least {@code width} by {@code height},
+     * or returns null if there is none. Its pixels are not cleared.
+     */
+    synchronized BufferedImage acquire(int width, int height, int type) {
+        int[] widths = { sizeClassBelow(width), sizeClassAbove(width) };
+        int[] heights = { sizeClassBelow(height), sizeClassAbove(height) };
+        // Smallest classes first
+        for (int w : widths) {
+            for (int h : heights) {
+                ArrayDeque<BufferedImage> images = free.get(key(w, h, type));
+                if (images == null) {
+                    continue;
+                }
+                for (Iterator<BufferedImage> it = images.iterator(); it.hasNext();) {
+                    BufferedImage image = it.next();
+                    if (image.getWidth() >= width && image.getHeight() >= height) {
+                        it.remove();
+                        pooledBytes -= bytes(image);
+                        return image;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives an image back for reuse. It must no longer be drawn on or read by its owner.
+     */
+    synchronized void release(BufferedImage image) {
+        int type = image.getType();
+        int width = sizeClassBelow(image.getWidth());
+        int height = sizeClassBelow(image.getHeight());
+        if (width == 0 || height == 0 || pooledBytes + bytes(image) > capacityBytes
+                || (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE)) {
+            return;
+        }
+        free.computeIfAbsent(key(width, height, type), k -> new ArrayDeque<>()).push(image);
+        pooledBytes += bytes(image);
+    }
+}
@@ -0,0 +1,162 @@
+package com.w3canvas.javacanvas.backend.javafx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.w3canvas.javacanvas.core.PixelBlend;
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.BlendMode;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.transform.Affine;
+
+/**
+ * Consecutive draws with custom blend modes, applied together.
+ *
+ * <p>
+ * Each queued draw holds its source pixels, position, operation and global alpha. When the
+ * batch is flushed, the destination area covering all of them is read once, every draw is
+ * blended into it in order with {@link PixelBlend}, and the result is drawn back once. The
+ * context flushes before any other drawing and before pixels are read, so the result is the
+ * same as blending each draw on its own.
+ *
+ * <p>
+ * The write-back clears the area and draws the blended pixels over it through the canvas'
+ * GraphicsContext, with an identity transform, full alpha and no blend mode, rather than
+ * with its PixelWriter, which ignores the clip. Pixels outside the clip keep their value.
+ *
+ * <p>
+ * Positions are in canvas pixels; like the unbatched path, this assumes an identity or
+ * translation-only transform.
+ */
+final class JavaFXBlendBatch {
+
+    // Flush early rather than hold more than this many source pixels
+    private static final int MAX_PENDING_PIXELS = 4 * 1024 * 1024;
+
+    private static final class Draw {
+        final int[] pixels;
+        final int x, y, width, height;
+        final CompositeOperation operation;
+        final double alpha;
+
+        Draw(int[] pixels, int x, int y, int width, int height, CompositeOperation operation, double alpha) {
+            this.pixels = pixels;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.operation = operation;
+            this.alpha = alpha;
+        }
+    }
+
+    private final GraphicsContext gc;
+    private final JavaFXSnapshotCache snapshots;
+    private final List<Draw> draws = new ArrayList<>();
+    private int pendingPixels;
+    private int minX, minY, maxX, maxY;
+    private long flushCount;
+
+    JavaFXBlendBatch(GraphicsContext gc, JavaFXSnapshotCache snapshots) {
+        this.gc = gc;
+        this.snapshots = snapshots;
+    }
+
+    boolean isEmpty() {
+        return draws.isEmpty();
+    }
+
+    /**
+     * Returns the number of read/blend/write cycles performed, for tests and diagnostics.
+     */
+    long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Queues a draw.
+     *
+     * @param pixels premultiplied ARGB source pixels, {@code width} per row
+     */
+    void add(int[] pixels, int x, int y, int width, int height, CompositeOperation operation, double alpha) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (pendingPixels + pixels.length > MAX_PENDING_PIXELS) {
+            flush();
+        }
+        if (draws.isEmpty()) {
+            minX = x;
+            minY = y;
+            maxX = x + width;
+            maxY = y + height;
+        } else {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + width);
+            maxY = Math.max(maxY, y + height);
+        }
+        draws.add(new Draw(pixels, x, y, width, height, operation, alpha));
+        pendingPixels += pixels.length;
+    }
+
+    /**
+     * Blends every queued draw into the canvas.
+     */
+    void flush() {
+        if (draws.isEmpty()) {
+            return;
+        }
+        int x0 = Math.max(minX, 0);
+        int y0 = Math.max(minY, 0);
+        int x1 = Math.min(maxX, (int) gc.getCanvas().getWidth());
+        int y1 = Math.min(maxY, (int) gc.getCanvas().getHeight());
+        if (x1 > x0 && y1 > y0) {
+            int width = x1 - x0;
+            int height = y1 - y0;
+            int[] area = snapshots.read(x0, y0, width, height, PixelFormat.getIntArgbPreInstance());
+            for (Draw draw : draws) {
+                blend(draw, area, x0, y0, width, height);
+            }
+            snapshots.invalidate();
+            writeBack(area, x0, y0, width, height);
+            flushCount++;
+        }
+        draws.clear();
+        pendingPixels = 0;
+    }
+
+    private void writeBack(int[] area, int x, int y, int width, int height) {
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), area, 0, width);
+        gc.save();
+        try {
+            gc.setTransform(new Affine());
+            gc.setGlobalAlpha(1.0);
+            gc.setGlobalBlendMode(BlendMode.SRC_OVER);
+            gc.setEffect(null);
+            gc.clearRect(x, y, width, height);
+            gc.drawImage(image, x, y);
+        } finally {
+            gc.restore();
+        }
+    }
+
+    private static void blend(Draw draw, int[] area, int areaX, int areaY, int areaWidth, int areaHeight) {
+        int left = Math.max(draw.x, areaX);
+        int right = Math.min(draw.x + draw.width, areaX + areaWidth);
+        if (right <= left) {
+            return;
+        }
+        int top = Math.max(draw.y, areaY);
+        int bottom = Math.min(draw.y + draw.height, areaY + areaHeight);
+        for (int y = top; y < bottom; y++) {
+            PixelBlend.blendRow(draw.operation,
+                    draw.pixels, (y - draw.y) * draw.width + (left - draw.x),
+                    area, (y - areaY) * areaWidth + (left - areaX),
+                    right - left, draw.alpha);
+        }
+    }
+}
@@ -2,71 +2,128 @@ package com.w3canvas.javacanvas.backend.javafx;
 
 import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
 import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
-import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
-import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
-import javafx.scene.image.WritableImage;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.PixelReader;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.paint.Color;
-
 
+/**
+ * Canvas surface backed by a JavaFX Canvas node.
+ *
+ * Pixel reads go through the context's {@link JavaFXSnapshotCache}, so reading the
+ * surface twice without drawing in between renders the canvas only once. Draws with
+ * custom blend modes that are still queued are applied first.
+ *
+ * In recording mode (the {@code w3canvas.javafx.recording} system property, or the
+ * three-argument constructor) drawing from other threads goes through a
+ * {@link JavaFXCommandRecorder} and reaches the FX thread when the surface is flushed,
+ * once per animation frame, or when pixels are read.
+ */
 public class JavaFXCanvasSurface implements ICanvasSurface {
-    private final WritableImage image;
     private final Canvas canvas;
     private final GraphicsContext gc;
-    private JavaFXGraphicsContext graphicsContext;
+    private final JavaFXGraphicsContext graphicsContext;
+    private final JavaFXCommandRecorder recorder;
 
     public JavaFXCanvasSurface(int width, int height) {
-        this.image = new WritableImage(width, height);
+        this(width, height, Boolean.getBoolean("w3canvas.javafx.recording"));
+    }
+
+    public JavaFXCanvasSurface(int width, int height, boolean recording) {
         this.canvas = new Canvas(width, height);
         this.gc = canvas.getGraphicsContext2D();
+        this.graphicsContext = new JavaFXGraphicsContext(gc);
+        this.recorder = recording ? new JavaFXCommandRecorder(graphicsContext) : null;
     }
 
     @Override
     public int getWidth() {
-        return (int) image.getWidth();
+        return (int) canvas.getWidth();
     }
 
     @Override
     public int getHeight() {
-        return (int) image.getHeight();
+        return (int) canvas.getHeight();
     }
 
     @Override
     public void reset() {
         // A real reset. Clear the canvas content.
         // The CoreCanvasRenderingContext2D will reset the transform and other properties.
+        if (recorder != null) {
+            recorder.call(() -> {
+                clear();
+                return null;
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private void clear() {
+        graphicsContext.flushBlends();
+        graphicsContext.getSnapshots().invalidate();
         gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
     }
 
     @Override
     public IGraphicsContext getGraphicsContext() {
-        if (graphicsContext == null) {
-            graphicsContext = new JavaFXGraphicsContext(gc);
-        }
-        return graphicsContext;
+        return recorder != null ? recorder.getContext() : graphicsContext;
     }
 
     @Override
     public Object getNativeImage() {
-        SnapshotParameters params = new SnapshotParameters();
-        params.setFill(Color.TRANSPARENT);
-        canvas.snapshot(params, image);
-        return image;
+        if (recorder != null) {
+            return recorder.call(this::readNativeImage);
+        }
+        return readNativeImage();
+    }
+
+    private Object readNativeImage() {
+        graphicsContext.flushBlends();
+        return graphicsContext.getSnapshots().getFullSnapshot();
     }
 
     @Override
     public int[] getPixelData(int x, int y, int width, int height) {
-        // Snapshot the canvas to the image before reading pixels
-        SnapshotParameters params = new SnapshotParameters();
-        params.setFill(Color.TRANSPARENT);
-        canvas.snapshot(params, image);
-        int[] pixels = new int[width * height];
-        PixelReader pixelReader = image.getPixelReader();
-        pixelReader.getPixels(x, y, width, height, javafx.scene.image.PixelFormat.getIntArgbInstance(), pixels, 0, width);
-        return pixels;
+        if (recorder != null) {
+            return recorder.call(() -> readPixelData(x, y, width, height));
+        }
+        return readPixelData(x, y, width, height);
+    }
+
+    private int[] readPixelData(int x, int y, int width, int height) {
+        graphicsContext.flushBlends();
+        return graphicsContext.getSnapshots().read(x, y, width, height);
+    }
+
+    /**
+     * Sends drawing recorded since the last flush to the FX thread. Does nothing when
+     * the surface is not recording.
+     */
+    @Override
+    public void flush() {
+        if (recorder != null) {
+            recorder.flush();
+        }
+    }
+
+    /**
+     * Returns whether drawing from other threads is recorded and replayed in batches.
+     */
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    /**
+     * Returns the number of calls that waited for the FX thread, or 0 when not recording.
+     */
+    public long getSynchronousCallCount() {
+        return recorder != null ? recorder.getWaitCount() : 0;
+    }
+
+    /**
+     * Returns the number of recorded batches sent to the FX thread, or 0 when not recording.
+     */
+    public long getBatchCount() {
+        return recorder != null ? recorder.getBatchCount() : 0;
     }
 }
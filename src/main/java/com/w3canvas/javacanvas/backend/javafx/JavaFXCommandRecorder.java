@@ -0,0 +1,269 @@
+package com.w3canvas.javacanvas.backend.javafx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
+import javafx.application.Platform;
+import javafx.scene.transform.Affine;
+
+/**
+ * Records drawing calls made off the JavaFX Application Thread and replays them on it in batches.
+ *
+ * <p>
+ * {@link #getContext()} returns an {@link IGraphicsContext} that stands in for a
+ * {@link JavaFXGraphicsContext}. On a script thread, every call that returns nothing is appended
+ * to a command list; {@link #flush()} hands the whole list to the FX thread with one
+ * {@code Platform.runLater}. The canvas element registers the flush as an animation frame render
+ * hook, so a frame's drawing reaches JavaFX in one hop. Recording the first command of a batch
+ * also posts one flush to the FX thread, so drawing done outside animation frames (a plain script,
+ * a timer) is shown as well and the list does not grow while nothing else flushes it.
+ *
+ * <p>
+ * Calls that return a value (getImageData, measureText, isPointInPath, ...) flush the list and
+ * wait for the FX thread to run it and the call. The current transform is the exception: it is
+ * tracked on the calling thread so that save() and getTransform() do not wait. Calls made on the
+ * FX thread itself run pending commands first and then go straight to the context.
+ *
+ * <p>
+ * The stand-in is a dynamic proxy, so methods added to IGraphicsContext are recorded without
+ * changes here. Array arguments are copied when recorded; other arguments are passed as they are.
+ */
+final class JavaFXCommandRecorder implements InvocationHandler {
+
+    private final JavaFXGraphicsContext target;
+    private final IGraphicsContext context;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private List<Runnable> commands = new ArrayList<>();
+
+    // Only used on the recording thread
+    private final Affine transform = new Affine();
+
+    private final AtomicLong recordedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+
+    JavaFXCommandRecorder(JavaFXGraphicsContext target) {
+        this.target = target;
+        this.context = (IGraphicsContext) Proxy.newProxyInstance(IGraphicsContext.class.getClassLoader(),
+                new Class<?>[] { IGraphicsContext.class }, this);
+    }
+
+    /**
+     * Returns the recording context.
+     */
+    IGraphicsContext getContext() {
+        return context;
+    }
+
+    JavaFXGraphicsContext getTarget() {
+        return target;
+    }
+
+    long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    long getBatchCount() {
+        return batchCount.get();
+    }
+
+    long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Sends the recorded commands to the FX thread without waiting for them to run.
+     * Runs them immediately when called on the FX thread.
+     */
+    void flush() {
+        Runnable batch = takeBatch();
+        if (batch == null) {
+            return;
+        }
+        if (Platform.isFxApplicationThread()) {
+            batch.run();
+        } else {
+            Platform.runLater(batch);
+        }
+    }
+
+    /**
+     * Runs {@code action} on the FX thread after all recorded commands and returns its result.
+     */
+    <T> T call(Callable<T> action) {
+        if (Platform.isFxApplicationThread()) {
+            flush();
+            try {
+                return action.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        waitCount.incrementAndGet();
+        Runnable batch = takeBatch();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            if (batch != null) {
+                batch.run();
+            }
+            return action.call();
+        });
+        Platform.runLater(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the JavaFX thread", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Runnable takeBatch() {
+        List<Runnable> batch;
+        synchronized (lock) {
+            if (commands.isEmpty()) {
+                return null;
+            }
+            batch = commands;
+            commands = new ArrayList<>();
+        }
+        batchCount.incrementAndGet();
+        return () -> {
+            for (Runnable command : batch) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    System.err.println("ERROR: Recorded JavaFX drawing command failed: " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "Recording " + target;
+            }
+        }
+
+        trackTransform(method.getName(), args);
+        if (!Platform.isFxApplicationThread()) {
+            if (method.getReturnType() == void.class) {
+                record(method, copyArrays(args));
+                return null;
+            }
+            if ("getTransform".equals(method.getName())) {
+                return new Affine(transform);
+            }
+            if ("getTransformMatrix".equals(method.getName())) {
+                return new double[] { transform.getMxx(), transform.getMyx(), transform.getMxy(),
+                        transform.getMyy(), transform.getTx(), transform.getTy() };
+            }
+        }
+        return call(() -> invokeTarget(method, args));
+    }
+
+    private void record(Method method, Object[] args) {
+        boolean first;
+        synchronized (lock) {
+            first = commands.isEmpty();
+            commands.add(() -> invokeTarget(method, args));
+        }
+        recordedCount.incrementAndGet();
+        if (first) {
+            // Whatever is recorded until the FX thread gets to it goes in the same batch
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Mirrors JavaFXGraphicsContext's transform methods on the shadow transform.
+     */
+    private void trackTransform(String name, Object[] args) {
+        switch (name) {
+            case "scale":
+                transform.appendScale((Double) args[0], (Double) args[1]);
+                break;
+            case "rotate":
+                transform.appendRotation(Math.toDegrees((Double) args[0]));
+                break;
+            case "translate":
+                transform.appendTranslation((Double) args[0], (Double) args[1]);
+                break;
+            case "transform":
+                transform.append(matrix(args));
+                break;
+            case "setTransform":
+                if (args.length == 6) {
+                    transform.setToTransform(matrix(args));
+                } else if (args[0] instanceof Affine) {
+                    transform.setToTransform((Affine) args[0]);
+                }
+                break;
+            case "resetTransform":
+                transform.setToIdentity();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Affine matrix(Object[] args) {
+        return new Affine((Double) args[0], (Double) args[2], (Double) args[4],
+                (Double) args[1], (Double) args[3], (Double) args[5]);
+    }
+
+    private static Object[] copyArrays(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] copy = args.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] instanceof double[]) {
+                copy[i] = ((double[]) copy[i]).clone();
+            } else if (copy[i] instanceof int[]) {
+                copy[i] = ((int[]) copy[i]).clone();
+            } else if (copy[i] instanceof Affine) {
+                copy[i] = new Affine((Affine) copy[i]);
+            }
+        }
+        return copy;
+    }
+}
@@ -21,7 +21,7 @@ import javafx.scene.effect.BlendMode;
  * <li>Porter-Duff Modes: source-in, source-out, destination-in,
  * destination-out, destination-atop, destination-over, xor, copy</li>
  * </ul>
- * These are handled by {@code JavaFXBlendRenderer} for pixel-perfect
+ * These are handled by {@code JavaFXBlendBatch} for pixel-perfect
  * correctness.
  * </li>
  * </ul>
@@ -26,6 +26,9 @@ import java.awt.geom.PathIterator;
 public class JavaFXGraphicsContext implements IGraphicsContext {
 
     private final GraphicsContext gc;
+    private final JavaFXSnapshotCache snapshots;
+    private final JavaFXBlendBatch blendBatch;
+    private final JavaFXScratchCanvasPool scratchPool = new JavaFXScratchCanvasPool();
     private double[] lastPoint = new double[2];
     private Path path;
     private IPaint fillPaint;
@@ -52,14 +55,40 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
     private String direction = "ltr";
     private double letterSpacing = 0;
     private double wordSpacing = 0;
+    private String textRendering = "auto";
 
     public JavaFXGraphicsContext(GraphicsContext gc) {
         this.gc = gc;
+        this.snapshots = new JavaFXSnapshotCache(gc.getCanvas());
+        this.blendBatch = new JavaFXBlendBatch(gc, snapshots);
         this.path = new Path();
         this.fillPaint = new JavaFXPaint(javafx.scene.paint.Color.BLACK);
         this.strokePaint = new JavaFXPaint(javafx.scene.paint.Color.BLACK);
     }
 
+    /**
+     * Returns the readback cache for this context's canvas.
+     */
+    JavaFXSnapshotCache getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * Applies queued custom-blend draws. Called before the canvas pixels are read.
+     */
+    void flushBlends() {
+        blendBatch.flush();
+    }
+
+    /**
+     * Called before anything is drawn directly on the canvas: queued blends go first,
+     * and cached snapshots become stale.
+     */
+    private void beginDraw() {
+        blendBatch.flush();
+        snapshots.invalidate();
+    }
+
     @Override
     public double[] getLastPoint() {
         return lastPoint;
@@ -67,6 +96,7 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public void fillText(String text, double x, double y, double maxWidth) {
+        beginDraw();
         if (wordSpacing != 0 || letterSpacing != 0) {
             if (this.fillPaint instanceof JavaFXPaint) {
                 gc.setFill(((JavaFXPaint) this.fillPaint).getPaint());
@@ -85,6 +115,7 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public void strokeText(String text, double x, double y, double maxWidth) {
+        beginDraw();
         if (wordSpacing != 0 || letterSpacing != 0) {
             if (this.strokePaint instanceof JavaFXPaint) {
                 gc.setStroke(((JavaFXPaint) this.strokePaint).getPaint());
@@ -108,10 +139,8 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public IImageData getImageData(int x, int y, int width, int height) {
-        WritableImage snapshot = new WritableImage(width, height);
-        gc.getCanvas().snapshot(null, snapshot);
-        int[] pixels = new int[width * height];
-        snapshot.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        blendBatch.flush();
+        int[] pixels = snapshots.read(x, y, width, height);
         return new com.w3canvas.javacanvas.core.ImageData(width, height,
                 new com.w3canvas.javacanvas.core.CanvasPixelArray(pixels, width, height));
     }
@@ -163,6 +192,12 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
         return gc.getTransform();
     }
 
+    @Override
+    public double[] getTransformMatrix() {
+        Affine t = gc.getTransform();
+        return new double[] { t.getMxx(), t.getMyx(), t.getMxy(), t.getMyy(), t.getTx(), t.getTy() };
+    }
+
     @Override
     public void setFillPaint(IPaint paint) {
         this.fillPaint = paint;
@@ -322,6 +357,12 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
         this.wordSpacing = spacing;
     }
 
+    @Override
+    public void setTextRendering(String textRendering) {
+        // Stored only; JavaFX text is always rendered through the Prism glyph cache
+        this.textRendering = textRendering;
+    }
+
     @Override
     public void setFont(IFont font) {
         if (font instanceof JavaFXFont) {
@@ -383,6 +424,7 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public void clearRect(double x, double y, double w, double h) {
+        beginDraw();
         // gc.clearRect(x, y, w, h); // Original implementation
 
         // New, more robust implementation that is not affected by transform
@@ -395,9 +437,14 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
     @Override
     public void fillRectDirect(double x, double y, double w, double h) {
         if (isCustomBlendMode()) {
-            // Create a temporary canvas to render the fill
-            javafx.scene.canvas.Canvas tempCanvas = new javafx.scene.canvas.Canvas(w, h);
-            GraphicsContext tempGc = tempCanvas.getGraphicsContext2D();
+            int width = (int) w;
+            int height = (int) h;
+            if (width <= 0 || height <= 0) {
+                return;
+            }
+            // Render the fill into a pooled scratch canvas
+            JavaFXScratchCanvasPool.Scratch scratch = scratchPool.acquire(width, height);
+            GraphicsContext tempGc = scratch.getGraphicsContext();
 
             // Copy fill state
             if (this.fillPaint instanceof JavaFXPaint) {
@@ -414,12 +461,12 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
             }
 
             tempGc.fillRect(0, 0, w, h);
+            int[] pixels = scratchPool.readPixels(scratch, width, height);
+            scratchPool.release(scratch);
 
-            WritableImage snapshot = new WritableImage((int) w, (int) h);
-            tempCanvas.snapshot(null, snapshot);
-
-            drawCustomBlendImage(snapshot, (int) x, (int) y, (int) w, (int) h);
+            queueCustomBlend(pixels, (int) x, (int) y, width, height);
         } else {
+            beginDraw();
             // Use JavaFX's native fillRect method which bypasses the path system
             // This is needed because JavaFX's path system doesn't properly handle
             // multiple rect() calls within the same path
@@ -436,11 +483,13 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public void draw(IShape shape) {
+        beginDraw();
         gc.stroke();
     }
 
     @Override
     public void fill(IShape shape) {
+        beginDraw();
         gc.fill();
     }
 
@@ -449,8 +498,11 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
         if (img instanceof Image) {
             Image image = (Image) img;
             if (isCustomBlendMode()) {
-                drawCustomBlendImage(image, x, y, (int) image.getWidth(), (int) image.getHeight());
+                int width = (int) image.getWidth();
+                int height = (int) image.getHeight();
+                queueCustomBlend(readPremultiplied(image, 0, 0, width, height), x, y, width, height);
             } else {
+                beginDraw();
                 gc.drawImage(image, x, y);
             }
         }
@@ -461,14 +513,18 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
         if (pixels == null || pixels.length == 0) {
             return;
         }
-        WritableImage image = new WritableImage(width, height);
-        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
-
         if (isCustomBlendMode()) {
-            drawCustomBlendImage(image, x, y, width, height);
-        } else {
-            gc.drawImage(image, x, y, width, height);
+            int[] premultiplied = new int[width * height];
+            for (int i = 0; i < premultiplied.length; i++) {
+                premultiplied[i] = com.w3canvas.javacanvas.core.PixelBlend.premultiply(pixels[i]);
+            }
+            queueCustomBlend(premultiplied, x, y, width, height);
+            return;
         }
+        beginDraw();
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        gc.drawImage(image, x, y, width, height);
     }
 
     @Override
@@ -476,117 +532,53 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
         if (img instanceof Image) {
             Image image = (Image) img;
             if (isCustomBlendMode()) {
-                // Crop the source image first
-                WritableImage cropped = new WritableImage(image.getPixelReader(), sx, sy, sw, sh);
-                // Scale if necessary (JavaFXBlendRenderer handles blending, but not scaling
-                // directly)
-                // Actually, we should probably scale the cropped image to dw, dh
-                // But JavaFXBlendRenderer expects source and dest to be same size or handles
-                // it?
-                // JavaFXBlendRenderer.blend takes src and dst.
-                // If we want to draw to dx, dy with size dw, dh.
-                // We need the destination snapshot of size dw, dh.
-                // And the source image should be scaled to dw, dh.
-
-                // For now, let's implement a simple scaling if needed, or just rely on the
-                // renderer
-                // But the renderer blends pixel by pixel. Source and Dest must align.
-
-                // Create a scaled view of the source if needed
-                Image sourceToBlend = cropped;
-                if (sw != dw || sh != dh) {
-                    // Scale source to destination size
-                    // This is expensive but necessary for correctness
-                    // We can use an ImageView to snapshot it scaled?
-                    // Or just sample it.
-                    // For simplicity, let's assume we can use a helper or just resize.
-                    // Let's use a temporary canvas to resize?
-                    // Or just pass the cropped image and let the blend logic handle it?
-                    // JavaFXBlendRenderer currently iterates min width/height.
-
-                    // Let's use a scaled snapshot
-                    javafx.scene.canvas.Canvas tempCanvas = new javafx.scene.canvas.Canvas(dw, dh);
-                    tempCanvas.getGraphicsContext2D().drawImage(cropped, 0, 0, dw, dh);
-                    WritableImage scaled = new WritableImage(dw, dh);
-                    tempCanvas.snapshot(null, scaled);
-                    sourceToBlend = scaled;
+                if (dw <= 0 || dh <= 0) {
+                    return;
                 }
-
-                drawCustomBlendImage(sourceToBlend, dx, dy, dw, dh);
+                int[] pixels;
+                if (sw == dw && sh == dh) {
+                    pixels = readPremultiplied(image, sx, sy, sw, sh);
+                } else {
+                    // Scale the source region into a pooled scratch canvas
+                    JavaFXScratchCanvasPool.Scratch scratch = scratchPool.acquire(dw, dh);
+                    scratch.getGraphicsContext().drawImage(image, sx, sy, sw, sh, 0, 0, dw, dh);
+                    pixels = scratchPool.readPixels(scratch, dw, dh);
+                    scratchPool.release(scratch);
+                }
+                queueCustomBlend(pixels, dx, dy, dw, dh);
             } else {
+                beginDraw();
                 gc.drawImage(image, sx, sy, sw, sh, dx, dy, dw, dh);
             }
         }
     }
 
-    private void drawCustomBlendImage(Image src, int x, int y, int w, int h) {
-        // 1. Snapshot the destination area
-        WritableImage dstSnapshot = new WritableImage(w, h);
-        javafx.scene.SnapshotParameters params = new javafx.scene.SnapshotParameters();
-        params.setViewport(new javafx.geometry.Rectangle2D(x, y, w, h));
-        params.setFill(Color.TRANSPARENT); // Important to capture transparency
-        gc.getCanvas().snapshot(params, dstSnapshot);
+    private static int[] readPremultiplied(Image image, int x, int y, int width, int height) {
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(x, y, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return pixels;
+    }
 
-        // 2. Perform blending
+    /**
+     * Queues a draw with the current custom blend mode and global alpha. Consecutive blended
+     * draws are applied together by {@link JavaFXBlendBatch}; like before batching, x and y
+     * are taken as canvas pixels, so rotated or scaled transforms are not supported here.
+     */
+    private void queueCustomBlend(int[] pixels, int x, int y, int w, int h) {
         CompositeOperation op = ((JavaFXComposite) currentComposite).getOperation();
-        double alpha = gc.getGlobalAlpha();
-        WritableImage blended = JavaFXBlendRenderer.blend(src, dstSnapshot, op, alpha);
-
-        // 3. Clear the destination area and draw the result
-        // We use save/restore to ensure clearRect works in identity transform if
-        // needed,
-        // but here we want to draw at x,y.
-        // If we clearRect, we might clear background that shouldn't be cleared if we
-        // are transformed?
-        // Actually, snapshot takes viewport in scene coordinates or local?
-        // Canvas.snapshot snapshots the node.
-        // If we have transforms, x,y might not map directly to viewport.
-        // This is complicated.
-        // If there are transforms, 'x,y' in drawImage are in user space.
-        // But snapshot viewport is in... local bounds of the node?
-
-        // LIMITATION: Custom blend modes with transforms are very hard to implement
-        // correctly
-        // without full offscreen rendering.
-        // For now, we assume identity transform or simple translation for this
-        // fallback.
-        // Or we can try to map coordinates.
-
-        // Let's just draw the blended image.
-        // If we don't clear, we get double blending.
-        // If we clear, we might clear too much if there's rotation.
-
-        // Strategy: Draw the blended image with SRC_OVER.
-        // Since we blended with the background, the result is (Src OP Dst).
-        // If we draw this over Dst, we get (Src OP Dst) OVER Dst.
-        // If (Src OP Dst) is opaque, it covers Dst.
-        // If it has transparency, it blends again.
-
-        // If we can't clear correctly, we might have artifacts.
-        // But for many blend modes (like multiply), the result is usually opaque if dst
-        // is opaque.
-
-        // Let's try just drawing the result.
-        // If the user wants perfect composition, they should avoid complex transforms
-        // with unsupported blend modes.
-
-        // Actually, we can use setGlobalBlendMode(SRC) if it existed.
-        // Since it doesn't, we are stuck.
-        // But wait, if we use clearRect(x, y, w, h), it respects the current transform.
-        // So if we draw at x,y with width w,h, clearRect(x,y,w,h) should clear exactly
-        // that area.
-
-        gc.clearRect(x, y, w, h);
-        gc.drawImage(blended, x, y);
+        blendBatch.add(pixels, x, y, w, h, op, gc.getGlobalAlpha());
     }
 
     @Override
     public void drawString(String str, int x, int y) {
+        beginDraw();
         gc.strokeText(str, x, y);
     }
 
     @Override
     public void clip() {
+        // Queued blends were drawn under the previous clip
+        blendBatch.flush();
         gc.clip();
     }
 
@@ -917,6 +909,7 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public void fill(String fillRule) {
+        beginDraw();
         // Set the fill rule on the path based on the fillRule parameter
         if (path != null) {
             if ("evenodd".equals(fillRule)) {
@@ -935,6 +928,7 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
 
     @Override
     public void stroke() {
+        beginDraw();
         gc.stroke();
     }
 
@@ -1124,6 +1118,27 @@ public class JavaFXGraphicsContext implements IGraphicsContext {
         }
     }
 
+    @Override
+    public IShape createRetainedPath(IPath2D path) {
+        // The JavaFX GraphicsContext keeps its own path, which can only be built command by command
+        return null;
+    }
+
+    @Override
+    public void setRetainedPath(IShape shape) {
+        // Not used: createRetainedPath() never returns a shape for this backend
+    }
+
+    @Override
+    public boolean isPointInRetainedPath(IShape shape, double x, double y) {
+        return false; // Not used, see setRetainedPath()
+    }
+
+    @Override
+    public boolean isPointInRetainedStroke(IShape shape, double x, double y) {
+        return false; // Not used, see setRetainedPath()
+    }
+
     // Shadow property setters
     @Override
     public void setShadowBlur(double blur) {
@@ -0,0 +1,114 @@
+package com.w3canvas.javacanvas.backend.javafx;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
+
+/**
+ * Reusable offscreen canvases for rendering a source before it is blended by hand.
+ *
+ * <p>
+ * Custom blend modes render the fill or scaled image into a scratch canvas and read its
+ * pixels back. Creating a Canvas node for every draw call is expensive, so canvases are kept
+ * in buckets whose sides are powers of two (at least {@value #MIN_SIDE} pixels); a request
+ * is served by the smallest bucket that fits it and drawn at the top-left corner.
+ *
+ * <p>
+ * Must only be used on the JavaFX Application Thread.
+ */
+final class JavaFXScratchCanvasPool {
+
+    private static final int MIN_SIDE = 16;
+    private static final int MAX_PER_BUCKET = 2;
+
+    /**
+     * A pooled canvas and the image its snapshots are written into.
+     */
+    static final class Scratch {
+        final Canvas canvas;
+        final WritableImage image;
+
+        private Scratch(int width, int height) {
+            this.canvas = new Canvas(width, height);
+            this.image = new WritableImage(width, height);
+        }
+
+        GraphicsContext getGraphicsContext() {
+            return canvas.getGraphicsContext2D();
+        }
+    }
+
+    private final Map<Long, ArrayDeque<Scratch>> buckets = new HashMap<>();
+    private final SnapshotParameters params = new SnapshotParameters();
+    private long created;
+
+    JavaFXScratchCanvasPool() {
+        params.setFill(Color.TRANSPARENT);
+    }
+
+    /**
+     * Returns a cleared canvas at least {@code width} x {@code height} in size.
+     */
+    Scratch acquire(int width, int height) {
+        ArrayDeque<Scratch> bucket = buckets.get(key(side(width), side(height)));
+        Scratch scratch = bucket != null ? bucket.poll() : null;
+        if (scratch == null) {
+            scratch = new Scratch(side(width), side(height));
+            created++;
+        }
+        return scratch;
+    }
+
+    /**
+     * Renders the scratch canvas and returns its top-left {@code width} x {@code height}
+     * pixels as premultiplied ARGB.
+     */
+    int[] readPixels(Scratch scratch, int width, int height) {
+        scratch.canvas.snapshot(params, scratch.image);
+        int[] pixels = new int[width * height];
+        scratch.image.getPixelReader().getPixels(0, 0, width, height,
+                PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        return pixels;
+    }
+
+    /**
+     * Clears the canvas and returns it to its bucket.
+     */
+    void release(Scratch scratch) {
+        GraphicsContext gc = scratch.getGraphicsContext();
+        gc.setTransform(new Affine());
+        gc.setGlobalAlpha(1.0);
+        gc.clearRect(0, 0, scratch.canvas.getWidth(), scratch.canvas.getHeight());
+        ArrayDeque<Scratch> bucket = buckets.computeIfAbsent(
+                key((int) scratch.canvas.getWidth(), (int) scratch.canvas.getHeight()), k -> new ArrayDeque<>());
+        if (bucket.size() < MAX_PER_BUCKET) {
+            bucket.push(scratch);
+        }
+    }
+
+    /**
+     * Returns the number of canvases created, for tests and diagnostics.
+     */
+    long getCreatedCount() {
+        return created;
+    }
+
+    private static int side(int size) {
+        if (size <= MIN_SIDE) {
+            return MIN_SIDE;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+}
@@ -0,0 +1,143 @@
+package com.w3canvas.javacanvas.backend.javafx;
+
+import java.nio.IntBuffer;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+import javafx.scene.paint.Color;
+
+/**
+ * Snapshots of a JavaFX Canvas for pixel readback.
+ *
+ * <p>
+ * Reading pixels from a Canvas means rendering it with {@code Canvas.snapshot}, which costs
+ * the same for a 1x1 read as for the whole canvas unless a viewport is set. This cache keeps
+ * the last snapshot together with the draw generation it was taken at; drawing calls
+ * {@link #invalidate()}, and any read at the same generation is served from the cached pixels.
+ *
+ * <p>
+ * The first read of a generation snapshots only the requested region. If a second read in
+ * the same generation falls outside that region, the whole canvas is snapshotted once and
+ * serves all further reads until the next draw, so a run of getImageData calls costs at most
+ * two renders.
+ *
+ * <p>
+ * Like the Canvas itself, this class must only be used on the JavaFX Application Thread.
+ */
+final class JavaFXSnapshotCache {
+
+    private final Canvas canvas;
+    private final SnapshotParameters params = new SnapshotParameters();
+
+    private long generation;
+
+    private WritableImage full;
+    private long fullGeneration = -1;
+
+    private WritableImage region;
+    private int regionX, regionY, regionWidth, regionHeight;
+    private long regionGeneration = -1;
+
+    private long snapshotCount;
+
+    JavaFXSnapshotCache(Canvas canvas) {
+        this.canvas = canvas;
+        params.setFill(Color.TRANSPARENT);
+    }
+
+    /**
+     * Marks every snapshot as stale. Called before anything is drawn on the canvas.
+     */
+    void invalidate() {
+        generation++;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the number of snapshots taken, for tests and diagnostics.
+     */
+    long getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Returns an up-to-date snapshot of the whole canvas. The image is reused between
+     * calls, so callers must copy it if they keep it across draws.
+     */
+    WritableImage getFullSnapshot() {
+        if (fullGeneration != generation) {
+            int width = (int) canvas.getWidth();
+            int height = (int) canvas.getHeight();
+            if (full == null || (int) full.getWidth() != width || (int) full.getHeight() != height) {
+                full = new WritableImage(width, height);
+            }
+            params.setViewport(null);
+            canvas.snapshot(params, full);
+            snapshotCount++;
+            fullGeneration = generation;
+        }
+        return full;
+    }
+
+    /**
+     * Reads a rectangle of non-premultiplied ARGB pixels. Pixels outside the canvas are 0.
+     */
+    int[] read(int x, int y, int width, int height) {
+        return read(x, y, width, height, PixelFormat.getIntArgbInstance());
+    }
+
+    /**
+     * Reads a rectangle of pixels in {@code format}. Pixels outside the canvas are 0.
+     */
+    int[] read(int x, int y, int width, int height, WritablePixelFormat<IntBuffer> format) {
+        int[] pixels = new int[width * height];
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, (int) canvas.getWidth());
+        int y1 = Math.min(y + height, (int) canvas.getHeight());
+        if (x1 <= x0 || y1 <= y0) {
+            return pixels;
+        }
+        int offset = (y0 - y) * width + (x0 - x);
+
+        if (fullGeneration != generation) {
+            if (regionGeneration == generation && x0 >= regionX && y0 >= regionY
+                    && x1 <= regionX + regionWidth && y1 <= regionY + regionHeight) {
+                region.getPixelReader().getPixels(x0 - regionX, y0 - regionY, x1 - x0, y1 - y0,
+                        format, pixels, offset, width);
+                return pixels;
+            }
+            if (regionGeneration != generation) {
+                snapshotRegion(x0, y0, x1 - x0, y1 - y0);
+                region.getPixelReader().getPixels(0, 0, x1 - x0, y1 - y0,
+                        format, pixels, offset, width);
+                return pixels;
+            }
+            // Second miss in this generation: one full snapshot serves the rest
+        }
+        getFullSnapshot().getPixelReader().getPixels(x0, y0, x1 - x0, y1 - y0,
+                format, pixels, offset, width);
+        return pixels;
+    }
+
+    private void snapshotRegion(int x, int y, int width, int height) {
+        if (region == null || (int) region.getWidth() != width || (int) region.getHeight() != height) {
+            region = new WritableImage(width, height);
+        }
+        params.setViewport(new Rectangle2D(x, y, width, height));
+        canvas.snapshot(params, region);
+        snapshotCount++;
+        regionX = x;
+        regionY = y;
+        regionWidth = width;
+        regionHeight = height;
+        regionGeneration = generation;
+    }
+}
@@ -536,6 +536,21 @@ public class CanvasRenderingContext2D extends ProjectScriptableObject implements
         core.setWordSpacing(spacing);
     }
 
+    @Override
+    public String getTextRendering() {
+        return core.getTextRendering();
+    }
+
+    @Override
+    public void setTextRendering(String textRendering) {
+        core.setTextRendering(textRendering);
+    }
+
+    @Override
+    public int[] hitTest(IPath2D[] paths, double x, double y, String mode) {
+        return core.hitTest(paths, x, y, mode);
+    }
+
     @Override
     public void fillText(String text, double x, double y, double maxWidth) {
         core.fillText(text, x, y, maxWidth);
@@ -883,6 +898,26 @@ public class CanvasRenderingContext2D extends ProjectScriptableObject implements
         return isPointInStroke(x, y);
     }
 
+    /**
+     * Batch hit test: {@code ctx.hitTest(paths, x, y[, "fill" | "stroke"])} returns the
+     * indices of the Path2D objects in {@code paths} that contain the point.
+     */
+    public Scriptable jsFunction_hitTest(NativeArray paths, double x, double y, Object mode) {
+        IPath2D[] array = new IPath2D[(int) paths.getLength()];
+        for (int i = 0; i < array.length; i++) {
+            Object path = paths.get(i, paths);
+            if (path instanceof IPath2D) {
+                array[i] = (IPath2D) path;
+            }
+        }
+        int[] hits = hitTest(array, x, y, mode instanceof String ? (String) mode : "fill");
+        Object[] result = new Object[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            result[i] = hits[i];
+        }
+        return Context.getCurrentContext().newArray(getParentScope(), result);
+    }
+
     // Handle all drawImage signatures: (image, dx, dy), (image, dx, dy, dw, dh),
     // (image, sx, sy, sw, sh, dx, dy, dw, dh)
     public void jsFunction_drawImage(Object img, Object arg1, Object arg2, Object arg3, Object arg4, Object arg5,
@@ -1067,6 +1102,14 @@ public class CanvasRenderingContext2D extends ProjectScriptableObject implements
         setWordSpacing(spacing);
     }
 
+    public String jsGet_textRendering() {
+        return getTextRendering();
+    }
+
+    public void jsSet_textRendering(String textRendering) {
+        setTextRendering(textRendering);
+    }
+
     public ImageData jsFunction_createImageData(int width, int height) {
         IImageData coreImageData = createImageData(width, height);
         ImageData rhinoImageData = (ImageData) Context.getCurrentContext().newObject(getParentScope(), "ImageData");
@@ -24,14 +24,21 @@ import com.w3canvas.javacanvas.utils.RhinoCanvasUtils;
 import com.w3canvas.javacanvas.interfaces.ICanvasPeer;
 import com.w3canvas.javacanvas.interfaces.IWindowHost;
 
+import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
 import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.software.SoftwareGraphicsBackend;
 import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
 import com.w3canvas.javacanvas.core.dom.CoreHTMLCanvasElement;
 import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
 import com.w3canvas.javacanvas.interfaces.IGraphicsBackend;
+import com.w3canvas.javacanvas.rt.AnimationFrameScheduler;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import com.w3canvas.javacanvas.rt.TileRenderer;
 
 /**
  * Rhino adapter for HTMLCanvasElement - wraps CoreHTMLCanvasElement.
@@ -68,6 +75,9 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 	private ICanvasPeer peer;
 	private IWindowHost windowHost;
 	private CanvasRenderingContext2D canvas;
+	private IGraphicsBackend backend;
+	private AnimationFrameScheduler renderHookFrames;
+	private Runnable renderHook;
 
 	private static final Color WHITE_TRANSPARENT = new Color(255, 255, 255, 0);
 	private static final Color BLACK_TRANSPARENT = new Color(0, 0, 0, 0);
@@ -118,7 +128,6 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 	public Scriptable jsFunction_getContext(String param) {
 		if (canvas == null) {
 			String backendName = System.getProperty("w3canvas.backend", "awt");
-			IGraphicsBackend backend;
 			if ("javafx".equalsIgnoreCase(backendName)) {
                 try {
                     backend = (IGraphicsBackend) Class.forName("com.w3canvas.javacanvas.backend.javafx.JavaFXGraphicsBackend").getDeclaredConstructor().newInstance();
@@ -126,6 +135,8 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
                     System.err.println("Warning: JavaFX backend not available, falling back to AWT. Error: " + e.getMessage());
                     backend = new AwtGraphicsBackend();
                 }
+			} else if ("software".equalsIgnoreCase(backendName)) {
+				backend = new SoftwareGraphicsBackend();
 			} else {
 				backend = new AwtGraphicsBackend();
 			}
@@ -146,14 +157,47 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 
 			// 5. Initialize the canvas reference for dirty() calls
 			canvas.initCanvas((ICanvas) this);
+
+			// 6. Backends that batch drawing are flushed once per animation frame
+			addRenderHook();
 		}
 
 		return canvas;
 	}
 
+	/**
+	 * Registers a flush of the current surface with the animation frames of the runtime on
+	 * this thread, for backends that batch drawing.
+	 */
+	private void addRenderHook() {
+		if (backend instanceof AwtGraphicsBackend) {
+			return;
+		}
+		Context cx = Context.getCurrentContext();
+		Object runtime = cx != null ? cx.getThreadLocal("runtime") : null;
+		if (runtime instanceof RhinoRuntime) {
+			ICanvasSurface surface = canvas.getSurface();
+			renderHookFrames = ((RhinoRuntime) runtime).getAnimationFrames();
+			renderHook = surface::flush;
+			renderHookFrames.addRenderHook(renderHook);
+		}
+	}
+
+	private void removeRenderHook() {
+		if (renderHook != null) {
+			renderHookFrames.removeRenderHook(renderHook);
+			renderHook = null;
+			renderHookFrames = null;
+		}
+	}
+
 	@Override
 	protected void onResize() {
-		super.onResize();
+		// Once there is a rendering context the canvas shows its surface, so the image of
+		// the Image superclass is not copied to the new size
+		if (canvas == null) {
+			super.onResize();
+		}
 
 		if (peer == null)
 			return;
@@ -166,6 +210,19 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 		peer.setBounds(left, top, width, height);
 	}
 
+	/**
+	 * Renders a drawing script into this canvas as tiles on parallel threads and blocks
+	 * until all of them are done. See {@link TileRenderer} for the globals the script sees.
+	 *
+	 * @param script the drawing script, run once per tile
+	 * @param tileSize the maximum tile width and height in pixels
+	 */
+	public void jsFunction_renderTiles(String script, int tileSize) {
+		jsFunction_getContext("2d");
+		new TileRenderer().render(script, getImage(), tileSize);
+		dirty();
+	}
+
 	public String jsFunction_toDataURL(String mimeType) throws Exception {
 		return toDataURL(mimeType, getImage());
 	}
@@ -185,7 +242,7 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 
 		try {
-			if (ImageIO.write(image, outputFormat, bos)) {
+			if (ImageIO.write(AwtCanvasSurface.toStraightAlpha(image), outputFormat, bos)) {
 				outputData.append("data:").append(outputMimeFormat).append(";base64,").append(
 						Base64.encodeBytes(bos.toByteArray()));
 			}
@@ -242,6 +299,17 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 		return canvas;
 	}
 
+	/**
+	 * Frees the memory held by the rendering context's surface, for canvases whose pixels
+	 * live off the Java heap. The canvas must not be drawn on or read afterwards.
+	 */
+	public void release() {
+		removeRenderHook();
+		if (canvas != null && canvas.getSurface() != null) {
+			canvas.getSurface().release();
+		}
+	}
+
 	@Override
 	public Integer getWidth() {
 		// Delegate to core canvas for cross-Context access
@@ -262,6 +330,7 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 				// Ignore invalid values
 			}
 		}
+		resizeContext();
 	}
 
 	@Override
@@ -284,6 +353,42 @@ public class HTMLCanvasElement extends Image implements IObserver, ICanvas {
 				// Ignore invalid values
 			}
 		}
+		resizeContext();
+	}
+
+	/**
+	 * Brings the rendering context's surface to the canvas size, which clears it and resets
+	 * the context state. Surfaces that can resize in place keep their raster; others are
+	 * replaced.
+	 */
+	private void resizeContext() {
+		if (canvas == null) {
+			return;
+		}
+		int width = getWidth();
+		int height = getHeight();
+		ICanvasSurface surface = canvas.getSurface();
+		if (width <= 0 || height <= 0 || (surface.getWidth() == width && surface.getHeight() == height)) {
+			return;
+		}
+		if (surface.resize(width, height)) {
+			canvas.reset();
+		} else {
+			// The old surface's hook goes with it
+			removeRenderHook();
+			canvas.init(new CoreCanvasRenderingContext2D(getDocument(), backend, width, height));
+			addRenderHook();
+		}
+	}
+
+	@Override
+	public Integer getRealWidth() {
+		return getImage().getWidth();
+	}
+
+	@Override
+	public Integer getRealHeight() {
+		return getImage().getHeight();
 	}
 
 	/**
@@ -160,7 +160,11 @@ public class RhinoPath2D extends ProjectScriptableObject implements IPath2D {
 
     @Override
     public void addPath(IPath2D path) {
-        corePath.addPath(path);
+        if (path instanceof RhinoPath2D) {
+            corePath.addPath(((RhinoPath2D) path).corePath);
+        } else {
+            corePath.addPath(path);
+        }
     }
 
     @Override
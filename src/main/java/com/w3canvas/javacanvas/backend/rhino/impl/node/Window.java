@@ -2,6 +2,8 @@ package com.w3canvas.javacanvas.backend.rhino.impl.node;
 
 import com.w3canvas.javacanvas.interfaces.IImageData;
 import com.w3canvas.javacanvas.interfaces.IImageBitmap;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ScriptableObject;
 
 @SuppressWarnings("serial")
@@ -65,6 +67,23 @@ public class Window extends Node {
 		this.location = location;
 	}
 
+	public int jsFunction_requestAnimationFrame(Object callback) {
+		return currentRuntime().requestAnimationFrame(callback);
+	}
+
+	public void jsFunction_cancelAnimationFrame(int id) {
+		currentRuntime().getAnimationFrames().cancel(id);
+	}
+
+	private static RhinoRuntime currentRuntime() {
+		Context cx = Context.getCurrentContext();
+		Object runtime = cx != null ? cx.getThreadLocal("runtime") : null;
+		if (!(runtime instanceof RhinoRuntime)) {
+			throw new IllegalStateException("No runtime is associated with the current thread");
+		}
+		return (RhinoRuntime) runtime;
+	}
+
 	public void setDocument(Document document) {
 		this.document = document;
 		jsFunction_appendChild(document);
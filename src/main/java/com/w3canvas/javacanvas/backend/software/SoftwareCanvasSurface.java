@@ -0,0 +1,83 @@
+package com.w3canvas.javacanvas.backend.software;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import com.w3canvas.javacanvas.core.PixelBlend;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
+import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
+
+/**
+ * Canvas surface whose pixels are a plain {@code int[]} of premultiplied ARGB.
+ *
+ * The array is the data buffer of a {@code TYPE_INT_ARGB_PRE} image, which is returned
+ * as the native image, so encoding and drawing the canvas elsewhere need no copy.
+ * A surface and its context must be used by one thread at a time.
+ */
+public class SoftwareCanvasSurface implements ICanvasSurface {
+    private final BufferedImage image;
+    private final int[] pixels;
+    private SoftwareGraphicsContext graphicsContext;
+
+    public SoftwareCanvasSurface(int width, int height) {
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(pixels, 0);
+        graphicsContext = new SoftwareGraphicsContext(this);
+    }
+
+    @Override
+    public IGraphicsContext getGraphicsContext() {
+        if (graphicsContext == null) {
+            graphicsContext = new SoftwareGraphicsContext(this);
+        }
+        return graphicsContext;
+    }
+
+    @Override
+    public Object getNativeImage() {
+        return image;
+    }
+
+    @Override
+    public int[] getPixelData(int x, int y, int width, int height) {
+        int[] result = new int[width * height];
+        int surfaceWidth = getWidth();
+        int surfaceHeight = getHeight();
+        for (int row = 0; row < height; row++) {
+            int sy = y + row;
+            if (sy < 0 || sy >= surfaceHeight) {
+                continue;
+            }
+            for (int col = 0; col < width; col++) {
+                int sx = x + col;
+                if (sx >= 0 && sx < surfaceWidth) {
+                    result[row * width + col] = PixelBlend.unpremultiply(pixels[sy * surfaceWidth + sx]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the premultiplied ARGB pixels, row by row. Writes are visible in the native image.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+}
@@ -0,0 +1,26 @@
+package com.w3canvas.javacanvas.backend.software;
+
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
+import com.w3canvas.javacanvas.interfaces.IComposite;
+
+/**
+ * Composite operation and global alpha for the software backend. The pixels are
+ * combined by {@link com.w3canvas.javacanvas.core.PixelBlend}.
+ */
+public class SoftwareComposite implements IComposite {
+    private final CompositeOperation operation;
+    private final double alpha;
+
+    public SoftwareComposite(CompositeOperation operation, double alpha) {
+        this.operation = operation != null ? operation : CompositeOperation.SOURCE_OVER;
+        this.alpha = alpha;
+    }
+
+    public CompositeOperation getOperation() {
+        return operation;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+}
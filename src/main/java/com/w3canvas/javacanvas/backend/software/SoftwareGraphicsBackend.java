@@ -0,0 +1,28 @@
+package com.w3canvas.javacanvas.backend.software;
+
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
+import com.w3canvas.javacanvas.interfaces.IComposite;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
+
+/**
+ * Backend that rasterizes in plain Java into an {@code int[]} of premultiplied pixels.
+ *
+ * <p>
+ * Colors, gradients, patterns and fonts are the AWT backend's objects: they only describe
+ * paint and glyph outlines, and {@link SoftwareGraphicsContext} samples them itself. Nothing
+ * is drawn through {@code Graphics2D}, so contexts on different threads share no locks.
+ * Select it with {@code -Dw3canvas.backend=software}.
+ */
+public class SoftwareGraphicsBackend extends AwtGraphicsBackend {
+
+    @Override
+    public ICanvasSurface createCanvasSurface(int width, int height) {
+        return new SoftwareCanvasSurface(width, height);
+    }
+
+    @Override
+    public IComposite createComposite(CompositeOperation op, double alpha) {
+        return new SoftwareComposite(op, alpha);
+    }
+}
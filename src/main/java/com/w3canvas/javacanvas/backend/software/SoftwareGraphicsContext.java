@@ -0,0 +1,1391 @@
+package com.w3canvas.javacanvas.backend.software;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.PaintContext;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.w3canvas.css.CSSParser;
+import com.w3canvas.javacanvas.backend.ArcSweep;
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtConicGradient;
+import com.w3canvas.javacanvas.backend.awt.AwtFont;
+import com.w3canvas.javacanvas.backend.awt.AwtLinearGradient;
+import com.w3canvas.javacanvas.backend.awt.AwtPaint;
+import com.w3canvas.javacanvas.backend.awt.AwtPattern;
+import com.w3canvas.javacanvas.backend.awt.AwtRadialGradient;
+import com.w3canvas.javacanvas.backend.awt.AwtShape;
+import com.w3canvas.javacanvas.backend.awt.AwtTextLayoutCache;
+import com.w3canvas.javacanvas.core.CanvasPixelArray;
+import com.w3canvas.javacanvas.core.ImageData;
+import com.w3canvas.javacanvas.core.PixelBlend;
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
+import com.w3canvas.javacanvas.interfaces.ICanvasPattern;
+import com.w3canvas.javacanvas.interfaces.IComposite;
+import com.w3canvas.javacanvas.interfaces.IFont;
+import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
+import com.w3canvas.javacanvas.interfaces.IImageData;
+import com.w3canvas.javacanvas.interfaces.IPaint;
+import com.w3canvas.javacanvas.interfaces.IPath2D;
+import com.w3canvas.javacanvas.interfaces.IShape;
+import com.w3canvas.javacanvas.interfaces.ITextMetrics;
+
+/**
+ * Graphics context of the software backend.
+ *
+ * <p>Paths are built in device space, as in the AWT backend, and every fill, stroke, text
+ * run and image goes through the same steps:
+ * <ol>
+ *   <li>the outline (stroked with {@link BasicStroke} or taken from the glyphs) is handed
+ *       to the {@link SoftwareRasterizer}, which produces per-pixel coverage row by row;</li>
+ *   <li>coverage is multiplied by the clip mask;</li>
+ *   <li>covered runs are composited into the surface's premultiplied {@code int[]}:
+ *       source-over inline, every other operation through
+ *       {@link PixelBlend#blendRow}, blended with the destination by coverage.</li>
+ * </ol>
+ * Solid colors need no per-pixel source; gradients and patterns are sampled through their
+ * {@link PaintContext}, images by nearest or bilinear lookup.
+ *
+ * <p>Row buffers and the rasterizer's accumulation buffer are allocated once per context.
+ * Retained Path2D shapes are not kept, so Path2D objects are replayed on every use.
+ *
+ * <p>A draw with a shadow or a CSS filter first goes into a transparent canvas-sized layer.
+ * The filter is applied to the layer by the AWT backend's filter code. The shadow is the
+ * layer's alpha, offset, blurred with the AWT backend's kernel and tinted with the shadow
+ * color. Shadow, then layer, are composited with the global alpha, operation and clip. This
+ * costs a few passes over the whole canvas per draw, so such draws are much slower than
+ * plain ones.
+ *
+ * <p>A context is confined to one thread at a time.
+ */
+public class SoftwareGraphicsContext implements IGraphicsContext {
+
+    private static final RenderingHints PAINT_HINTS = new RenderingHints(
+            RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+    private final SoftwareCanvasSurface surface;
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final SoftwareRasterizer rasterizer;
+    private final SoftwareRasterizer.CoverageSink compositeSink = this::compositeRow;
+
+    // Per-row scratch: coverage as 0-255, source pixels, blend results
+    private final int[] maskRow;
+    private final int[] sourceRow;
+    private final int[] blendRow;
+
+    private AffineTransform transform = new AffineTransform();
+    // m00, m10, m01, m11, m02, m12 of the transform, for path building
+    private final double[] matrix = { 1, 0, 0, 1, 0, 0 };
+    private Path2D.Double path = new Path2D.Double();
+    private double[] lastPoint = new double[2];
+
+    private IPaint fillPaint = new AwtPaint(Color.BLACK);
+    private IPaint strokePaint = new AwtPaint(Color.BLACK);
+    private CompositeOperation operation = CompositeOperation.SOURCE_OVER;
+    private double alpha = 1.0;
+
+    // Clip coverage per pixel (0-255), or null when nothing is clipped
+    private byte[] clip;
+
+    private float lineWidth = 1.0f;
+    private int lineCap = BasicStroke.CAP_BUTT;
+    private int lineJoin = BasicStroke.JOIN_MITER;
+    private float miterLimit = 10.0f;
+    private float[] lineDash = null;
+    private float lineDashOffset = 0.0f;
+    private BasicStroke stroke = new BasicStroke(1.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10.0f);
+
+    private String fillRule = "nonzero";
+
+    // Text properties
+    private Font baseFont = new Font(Font.DIALOG, Font.PLAIN, 12);
+    private Font font = baseFont;
+    private String textAlign = "start";
+    private String textBaseline = "alphabetic";
+    private String direction = "ltr";
+    private double letterSpacing = 0;
+    private double wordSpacing = 0;
+    private String textRendering = "auto";
+    private final AwtTextLayoutCache textCache = AwtTextLayoutCache.getShared();
+    // Only used for font metrics and the font render context, never for drawing
+    private Graphics2D metricsGraphics;
+
+    private double shadowBlur = 0;
+    private String shadowColor = "rgba(0, 0, 0, 0)";
+    // Premultiplied shadowColor
+    private int shadowPixel = 0;
+    private double shadowOffsetX = 0;
+    private double shadowOffsetY = 0;
+    private String filter = "none";
+
+    private boolean imageSmoothingEnabled = true;
+    private String imageSmoothingQuality = "low";
+
+    // Source of the draw in progress: a solid color unless one of the others is set
+    private int solidColor;
+    private PaintContext paintContext;
+    private ImageSampler imageSampler;
+    private boolean clearing;
+
+    // Where spans are composited: the surface's pixels, or the layer while a draw goes into it
+    private int[] target;
+    // Premultiplied pixels of a layer being composited onto the surface
+    private int[] layerSource;
+    // Canvas-sized scratch for draws with a shadow or filter, allocated on first use
+    private BufferedImage layerImage;
+    private int[] layer;
+    private int[] shadowLayer;
+    private int[] blurScratch;
+    private int[] filtered;
+    private IGraphicsContext filterContext;
+
+    public SoftwareGraphicsContext(SoftwareCanvasSurface surface) {
+        this.surface = surface;
+        this.pixels = surface.getPixels();
+        this.width = surface.getWidth();
+        this.height = surface.getHeight();
+        this.rasterizer = new SoftwareRasterizer(width, height);
+        this.maskRow = new int[width + 2];
+        this.sourceRow = new int[width + 2];
+        this.blendRow = new int[width + 2];
+        this.target = pixels;
+    }
+
+    // Transformations
+    @Override
+    public void scale(double x, double y) {
+        transform.scale(x, y);
+        transform.getMatrix(matrix);
+    }
+
+    @Override
+    public void rotate(double theta) {
+        transform.rotate(theta);
+        transform.getMatrix(matrix);
+    }
+
+    @Override
+    public void translate(double tx, double ty) {
+        transform.translate(tx, ty);
+        transform.getMatrix(matrix);
+    }
+
+    @Override
+    public void transform(double m11, double m12, double m21, double m22, double dx, double dy) {
+        transform.concatenate(new AffineTransform(m11, m12, m21, m22, dx, dy));
+        transform.getMatrix(matrix);
+    }
+
+    @Override
+    public void setTransform(double m11, double m12, double m21, double m22, double dx, double dy) {
+        transform.setTransform(m11, m12, m21, m22, dx, dy);
+        transform.getMatrix(matrix);
+    }
+
+    @Override
+    public void setTransform(Object transform) {
+        if (transform instanceof AffineTransform) {
+            this.transform.setTransform((AffineTransform) transform);
+            this.transform.getMatrix(matrix);
+        }
+    }
+
+    @Override
+    public void resetTransform() {
+        transform.setToIdentity();
+        transform.getMatrix(matrix);
+    }
+
+    @Override
+    public Object getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    @Override
+    public double[] getTransformMatrix() {
+        return matrix.clone();
+    }
+
+    // Drawing properties
+    @Override
+    public void setFillPaint(IPaint paint) {
+        this.fillPaint = paint;
+    }
+
+    @Override
+    public void setStrokePaint(IPaint paint) {
+        this.strokePaint = paint;
+    }
+
+    @Override
+    public ICanvasPattern createPattern(Object image, String repetition) {
+        if (image instanceof BufferedImage) {
+            return new AwtPattern(image, repetition);
+        }
+        return null;
+    }
+
+    private void updateStroke() {
+        if (lineDash != null && lineDash.length > 0) {
+            stroke = new BasicStroke(lineWidth, lineCap, lineJoin, miterLimit, lineDash, lineDashOffset);
+        } else {
+            stroke = new BasicStroke(lineWidth, lineCap, lineJoin, miterLimit);
+        }
+    }
+
+    @Override
+    public void setLineWidth(double width) {
+        this.lineWidth = (float) width;
+        updateStroke();
+    }
+
+    @Override
+    public void setLineCap(String cap) {
+        if ("round".equals(cap)) this.lineCap = BasicStroke.CAP_ROUND;
+        else if ("square".equals(cap)) this.lineCap = BasicStroke.CAP_SQUARE;
+        else this.lineCap = BasicStroke.CAP_BUTT;
+        updateStroke();
+    }
+
+    @Override
+    public void setLineJoin(String join) {
+        if ("round".equals(join)) this.lineJoin = BasicStroke.JOIN_ROUND;
+        else if ("bevel".equals(join)) this.lineJoin = BasicStroke.JOIN_BEVEL;
+        else this.lineJoin = BasicStroke.JOIN_MITER;
+        updateStroke();
+    }
+
+    @Override
+    public void setMiterLimit(double limit) {
+        this.miterLimit = (float) limit;
+        updateStroke();
+    }
+
+    @Override
+    public void setLineDash(double[] dash) {
+        if (dash == null) {
+            this.lineDash = null;
+        } else {
+            this.lineDash = new float[dash.length];
+            for (int i = 0; i < dash.length; i++) {
+                this.lineDash[i] = (float) dash[i];
+            }
+        }
+        updateStroke();
+    }
+
+    @Override
+    public void setLineDashOffset(double offset) {
+        this.lineDashOffset = (float) offset;
+        updateStroke();
+    }
+
+    @Override
+    public void setComposite(IComposite comp) {
+        if (comp instanceof SoftwareComposite) {
+            this.operation = ((SoftwareComposite) comp).getOperation();
+            this.alpha = ((SoftwareComposite) comp).getAlpha();
+        }
+    }
+
+    @Override
+    public void setGlobalAlpha(double alpha) {
+        this.alpha = alpha;
+    }
+
+    @Override
+    public void setFont(IFont font) {
+        if (font instanceof AwtFont) {
+            this.baseFont = ((AwtFont) font).getFont();
+            updateFontWithAttributes();
+        }
+    }
+
+    @Override
+    public void setTextAlign(String textAlign) {
+        this.textAlign = textAlign != null ? textAlign : "start";
+    }
+
+    @Override
+    public void setTextBaseline(String textBaseline) {
+        this.textBaseline = textBaseline != null ? textBaseline : "alphabetic";
+    }
+
+    @Override
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public void setLetterSpacing(double spacing) {
+        this.letterSpacing = spacing;
+        updateFontWithAttributes();
+    }
+
+    @Override
+    public void setWordSpacing(double spacing) {
+        this.wordSpacing = spacing;
+    }
+
+    @Override
+    public void setTextRendering(String textRendering) {
+        this.textRendering = textRendering != null ? textRendering : "auto";
+    }
+
+    private void updateFontWithAttributes() {
+        Map<TextAttribute, Object> attributes = new HashMap<>();
+        float size = baseFont.getSize2D();
+        attributes.put(TextAttribute.TRACKING, letterSpacing != 0 && size > 0 ? letterSpacing / size : 0.0);
+        this.font = baseFont.deriveFont(attributes);
+    }
+
+    // Shadow properties
+    @Override
+    public void setShadowBlur(double blur) {
+        this.shadowBlur = Math.max(0, blur);
+    }
+
+    @Override
+    public void setShadowColor(String color) {
+        this.shadowColor = color != null ? color : "rgba(0, 0, 0, 0)";
+        this.shadowPixel = PixelBlend.premultiply(parseShadowColor(this.shadowColor));
+    }
+
+    /**
+     * Parses a shadow color as the AWT backend does, reading the alpha of rgba() as a fraction.
+     */
+    private static int parseShadowColor(String color) {
+        if (color.startsWith("rgba(")) {
+            try {
+                String[] parts = color.substring(5, color.length() - 1).split(",");
+                int r = Integer.parseInt(parts[0].trim());
+                int g = Integer.parseInt(parts[1].trim());
+                int b = Integer.parseInt(parts[2].trim());
+                int a = (int) (Float.parseFloat(parts[3].trim()) * 255);
+                return new Color(r, g, b, a).getRGB();
+            } catch (RuntimeException e) {
+                return 0xFF000000;
+            }
+        }
+        return CSSParser.parseColor(color).getRGB();
+    }
+
+    @Override
+    public void setShadowOffsetX(double offsetX) {
+        this.shadowOffsetX = offsetX;
+    }
+
+    @Override
+    public void setShadowOffsetY(double offsetY) {
+        this.shadowOffsetY = offsetY;
+    }
+
+    // Image smoothing
+    @Override
+    public void setImageSmoothingEnabled(boolean enabled) {
+        this.imageSmoothingEnabled = enabled;
+    }
+
+    @Override
+    public void setImageSmoothingQuality(String quality) {
+        this.imageSmoothingQuality = quality;
+    }
+
+    // Filter
+    @Override
+    public void setFilter(String filter) {
+        this.filter = filter != null ? filter : "none";
+    }
+
+    @Override
+    public String getFilter() {
+        return filter;
+    }
+
+    // Drawing operations
+    @Override
+    public void clearRect(double x, double y, double w, double h) {
+        addDeviceRect((int) x, (int) y, (int) w, (int) h);
+        clearing = true;
+        try {
+            rasterizer.render(false, compositeSink);
+        } finally {
+            clearing = false;
+        }
+    }
+
+    @Override
+    public void fillRectDirect(double x, double y, double w, double h) {
+        addDeviceRect((int) x, (int) y, (int) w, (int) h);
+        renderWith(fillPaint, false);
+    }
+
+    private void addDeviceRect(double x, double y, double w, double h) {
+        double[] m = matrix;
+        if (m[1] == 0 && m[2] == 0) {
+            rasterizer.addRect(m[0] * x + m[4], m[3] * y + m[5], m[0] * w, m[3] * h);
+        } else {
+            rasterizer.addShape(transform.createTransformedShape(new Rectangle2D.Double(x, y, w, h)));
+        }
+    }
+
+    @Override
+    public void draw(IShape shape) {
+        if (shape instanceof AwtShape) {
+            rasterizer.addShape(transform.createTransformedShape(
+                    stroke.createStrokedShape(((AwtShape) shape).getShape())));
+            renderWith(strokePaint, false);
+        }
+    }
+
+    @Override
+    public void fill(IShape shape) {
+        if (shape instanceof AwtShape) {
+            rasterizer.addShape(transform.createTransformedShape(((AwtShape) shape).getShape()));
+            renderWith(fillPaint, false);
+        }
+    }
+
+    @Override
+    public void drawImage(Object img, int x, int y) {
+        BufferedImage image = toBufferedImage(img);
+        if (image != null) {
+            drawImage(image, 0, 0, image.getWidth(), image.getHeight(), x, y, image.getWidth(), image.getHeight());
+        }
+    }
+
+    @Override
+    public void drawImage(Object img, int sx, int sy, int sw, int sh, int dx, int dy, int dw, int dh) {
+        BufferedImage image = toBufferedImage(img);
+        if (image == null || sw <= 0 || sh <= 0 || dw == 0 || dh == 0) {
+            return;
+        }
+        // Draw only the part of the source rectangle inside the image, scaled as the whole
+        double scaleX = (double) dw / sw;
+        double scaleY = (double) dh / sh;
+        int x0 = Math.max(sx, 0);
+        int y0 = Math.max(sy, 0);
+        int x1 = Math.min(sx + sw, image.getWidth());
+        int y1 = Math.min(sy + sh, image.getHeight());
+        if (x1 <= x0 || y1 <= y0) {
+            return;
+        }
+        int w = x1 - x0;
+        int h = y1 - y0;
+        int[] argb = image.getRGB(x0, y0, w, h, null, 0, w);
+        drawPixels(argb, w, h, dx + (x0 - sx) * scaleX, dy + (y0 - sy) * scaleY, w * scaleX, h * scaleY);
+    }
+
+    @Override
+    public void drawImage(int[] pixels, int x, int y, int width, int height) {
+        drawPixels(pixels.clone(), width, height, x, y, width, height);
+    }
+
+    /**
+     * Draws non-premultiplied ARGB pixels into the destination rectangle, in user space.
+     * The array is premultiplied in place.
+     */
+    private void drawPixels(int[] argb, int w, int h, double dx, double dy, double dw, double dh) {
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = PixelBlend.premultiply(argb[i]);
+        }
+        AffineTransform toDevice = new AffineTransform(transform);
+        toDevice.translate(dx, dy);
+        toDevice.scale(dw / w, dh / h);
+        AffineTransform toImage;
+        try {
+            toImage = toDevice.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            return;
+        }
+        rasterizer.addShape(toDevice.createTransformedShape(new Rectangle2D.Double(0, 0, w, h)));
+        imageSampler = new ImageSampler(argb, w, h, toImage, imageSmoothingEnabled);
+        try {
+            composite(false);
+        } finally {
+            imageSampler = null;
+        }
+    }
+
+    @Override
+    public void drawString(String str, int x, int y) {
+        TextLayout layout = textLayout(str);
+        if (layout != null) {
+            fillText(layout.getOutline(AffineTransform.getTranslateInstance(x, y)), transform, true);
+        }
+    }
+
+    @Override
+    public ITextMetrics measureText(String text) {
+        return textCache.getMetrics(text, font, metricsGraphics(), wordSpacing);
+    }
+
+    @Override
+    public IImageData createImageData(int width, int height) {
+        int[] data = new int[width * height];
+        return new ImageData(width, height, new CanvasPixelArray(data, width, height));
+    }
+
+    @Override
+    public IImageData getImageData(int x, int y, int width, int height) {
+        int[] data = surface.getPixelData(x, y, width, height);
+        return new ImageData(width, height, new CanvasPixelArray(data, width, height));
+    }
+
+    @Override
+    public void fillText(String text, double x, double y, double maxWidth) {
+        drawText(text, x, y, maxWidth, true);
+    }
+
+    @Override
+    public void strokeText(String text, double x, double y, double maxWidth) {
+        drawText(text, x, y, maxWidth, false);
+    }
+
+    private void drawText(String text, double x, double y, double maxWidth, boolean fill) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        double adjustedX = adjustXForTextAlign(text, x);
+        double adjustedY = adjustYForTextBaseline(y);
+
+        // Handle maxWidth by scaling text horizontally when it exceeds the limit
+        AffineTransform textTransform = transform;
+        double textWidth = textWidth(text);
+        if (maxWidth > 0 && textWidth > maxWidth) {
+            textTransform = new AffineTransform(transform);
+            textTransform.translate(adjustedX, adjustedY);
+            textTransform.scale(maxWidth / textWidth, 1.0);
+            textTransform.translate(-adjustedX, -adjustedY);
+        }
+
+        Path2D.Double outline = new Path2D.Double();
+        if (wordSpacing == 0) {
+            TextLayout layout = textLayout(text);
+            if (layout == null) {
+                return;
+            }
+            outline.append(layout.getOutline(AffineTransform.getTranslateInstance(adjustedX, adjustedY)), false);
+        } else {
+            String[] words = text.split(" ", -1);
+            double spaceWidth = metricsGraphics().getFontMetrics(font).getStringBounds(" ", metricsGraphics()).getWidth();
+            double currentX = adjustedX;
+            for (int i = 0; i < words.length; i++) {
+                TextLayout layout = textLayout(words[i]);
+                if (layout != null) {
+                    outline.append(layout.getOutline(AffineTransform.getTranslateInstance(currentX, adjustedY)), false);
+                    currentX += layout.getAdvance();
+                }
+                if (i < words.length - 1) {
+                    currentX += spaceWidth + wordSpacing;
+                }
+            }
+        }
+        fillText(outline, textTransform, fill);
+    }
+
+    private void fillText(Shape outline, AffineTransform textTransform, boolean fill) {
+        Shape userShape = fill ? outline : stroke.createStrokedShape(outline);
+        rasterizer.addShape(textTransform.createTransformedShape(userShape));
+        renderWith(fill ? fillPaint : strokePaint, false);
+    }
+
+    private TextLayout textLayout(String text) {
+        return textCache.getLayout(text, font, direction, metricsGraphics().getFontRenderContext());
+    }
+
+    private double textWidth(String text) {
+        if (wordSpacing == 0) {
+            return metricsGraphics().getFontMetrics(font).stringWidth(text);
+        }
+        return measureText(text).getWidth();
+    }
+
+    private double adjustXForTextAlign(String text, double x) {
+        boolean rtl = "rtl".equals(direction);
+        if ("right".equals(textAlign) || ("end".equals(textAlign) && !rtl) || ("start".equals(textAlign) && rtl)) {
+            return x - textWidth(text);
+        } else if ("center".equals(textAlign)) {
+            return x - textWidth(text) / 2.0;
+        }
+        return x;
+    }
+
+    private double adjustYForTextBaseline(double y) {
+        if ("alphabetic".equals(textBaseline)) {
+            return y;
+        }
+        FontMetrics fm = metricsGraphics().getFontMetrics(font);
+        int ascent = fm.getAscent();
+        int descent = fm.getDescent();
+        if ("top".equals(textBaseline)) {
+            return y + ascent;
+        } else if ("hanging".equals(textBaseline)) {
+            return y + (ascent * 0.8);
+        } else if ("middle".equals(textBaseline)) {
+            return y + ((ascent - descent) / 2.0);
+        } else if ("ideographic".equals(textBaseline) || "bottom".equals(textBaseline)) {
+            return y - descent;
+        }
+        return y;
+    }
+
+    /**
+     * Returns a graphics used only to measure text, with the same text hints the AWT
+     * backend renders with.
+     */
+    private Graphics2D metricsGraphics() {
+        if (metricsGraphics == null) {
+            metricsGraphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB_PRE).createGraphics();
+            metricsGraphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            metricsGraphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        }
+        return metricsGraphics;
+    }
+
+    // Clipping
+    @Override
+    public void clip() {
+        byte[] previous = clip;
+        byte[] next = new byte[width * height];
+        rasterizer.addShape(path);
+        rasterizer.render("evenodd".equals(fillRule), (y, x0, x1, coverage) -> {
+            int base = y * width;
+            for (int x = x0; x < x1; x++) {
+                int a = (int) (coverage[x] * 255 + 0.5f);
+                if (previous != null) {
+                    a = mul255(a, previous[base + x] & 0xFF);
+                }
+                next[base + x] = (byte) a;
+            }
+        });
+        clip = next;
+    }
+
+    // Path methods
+    @Override
+    public void beginPath() {
+        path = new Path2D.Double();
+    }
+
+    @Override
+    public void closePath() {
+        path.closePath();
+    }
+
+    private double deviceX(double x, double y) {
+        return matrix[0] * x + matrix[2] * y + matrix[4];
+    }
+
+    private double deviceY(double x, double y) {
+        return matrix[1] * x + matrix[3] * y + matrix[5];
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        lastPoint[0] = x;
+        lastPoint[1] = y;
+        path.moveTo(deviceX(x, y), deviceY(x, y));
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        lastPoint[0] = x;
+        lastPoint[1] = y;
+        path.lineTo(deviceX(x, y), deviceY(x, y));
+    }
+
+    @Override
+    public void quadraticCurveTo(double cpx, double cpy, double x, double y) {
+        lastPoint[0] = x;
+        lastPoint[1] = y;
+        path.quadTo(deviceX(cpx, cpy), deviceY(cpx, cpy), deviceX(x, y), deviceY(x, y));
+    }
+
+    @Override
+    public void bezierCurveTo(double cp1x, double cp1y, double cp2x, double cp2y, double x, double y) {
+        lastPoint[0] = x;
+        lastPoint[1] = y;
+        path.curveTo(deviceX(cp1x, cp1y), deviceY(cp1x, cp1y),
+                deviceX(cp2x, cp2y), deviceY(cp2x, cp2y),
+                deviceX(x, y), deviceY(x, y));
+    }
+
+    @Override
+    public void arcTo(double x1, double y1, double x2, double y2, double radius) {
+        if (path.getCurrentPoint() == null) {
+            return;
+        }
+        // Work in user space, from the last point given to the path
+        double x0 = lastPoint[0];
+        double y0 = lastPoint[1];
+        if (radius == 0 || (x0 == x1 && y0 == y1) || (x1 == x2 && y1 == y2)) {
+            lineTo(x1, y1);
+            return;
+        }
+
+        double dx01 = x1 - x0;
+        double dy01 = y1 - y0;
+        double len01 = Math.sqrt(dx01 * dx01 + dy01 * dy01);
+        dx01 /= len01;
+        dy01 /= len01;
+        double dx12 = x2 - x1;
+        double dy12 = y2 - y1;
+        double len12 = Math.sqrt(dx12 * dx12 + dy12 * dy12);
+        dx12 /= len12;
+        dy12 /= len12;
+
+        double angle = Math.acos(Math.max(-1, Math.min(1, dx01 * dx12 + dy01 * dy12)));
+        if (Math.abs(angle) < 1e-6 || Math.abs(angle - Math.PI) < 1e-6) {
+            lineTo(x1, y1);
+            return;
+        }
+
+        double tangent = radius / Math.tan(angle / 2.0);
+        double t1x = x1 - tangent * dx01;
+        double t1y = y1 - tangent * dy01;
+        double t2x = x1 + tangent * dx12;
+        double t2y = y1 + tangent * dy12;
+        lineTo(t1x, t1y);
+
+        boolean clockwise = dx01 * dy12 - dy01 * dx12 < 0;
+        double cx = t1x + (clockwise ? dy01 : -dy01) * radius;
+        double cy = t1y + (clockwise ? -dx01 : dx01) * radius;
+        double startAngle = Math.toDegrees(Math.atan2(t1y - cy, t1x - cx));
+        double endAngle = Math.toDegrees(Math.atan2(t2y - cy, t2x - cx));
+        double sweepAngle = endAngle - startAngle;
+        if (clockwise) {
+            if (sweepAngle > 0) {
+                sweepAngle -= 360;
+            }
+        } else if (sweepAngle < 0) {
+            sweepAngle += 360;
+        }
+        // Arc2D angles run counterclockwise in a y-up space, hence the negated angles
+        path.append(transform.createTransformedShape(new Arc2D.Double(cx - radius, cy - radius,
+                2 * radius, 2 * radius, -startAngle, -sweepAngle, Arc2D.OPEN)), true);
+        lastPoint[0] = t2x;
+        lastPoint[1] = t2y;
+    }
+
+    @Override
+    public void rect(double x, double y, double w, double h) {
+        path.moveTo(deviceX(x, y), deviceY(x, y));
+        path.lineTo(deviceX(x + w, y), deviceY(x + w, y));
+        path.lineTo(deviceX(x + w, y + h), deviceY(x + w, y + h));
+        path.lineTo(deviceX(x, y + h), deviceY(x, y + h));
+        path.closePath();
+    }
+
+    @Override
+    public void roundRect(double x, double y, double w, double h, Object radii) {
+        double[] cornerRadii = parseRoundRectRadii(radii);
+        double maxRadius = Math.min(Math.abs(w) / 2, Math.abs(h) / 2);
+        double tl = Math.min(cornerRadii[0], maxRadius);
+        double tr = Math.min(cornerRadii[1], maxRadius);
+        double br = Math.min(cornerRadii[2], maxRadius);
+        double bl = Math.min(cornerRadii[3], maxRadius);
+        if (tl == 0 && tr == 0 && br == 0 && bl == 0) {
+            rect(x, y, w, h);
+            return;
+        }
+
+        Path2D.Double roundedRect = new Path2D.Double();
+        roundedRect.moveTo(x + tl, y);
+        roundedRect.lineTo(x + w - tr, y);
+        if (tr > 0) {
+            roundedRect.quadTo(x + w, y, x + w, y + tr);
+        }
+        roundedRect.lineTo(x + w, y + h - br);
+        if (br > 0) {
+            roundedRect.quadTo(x + w, y + h, x + w - br, y + h);
+        }
+        roundedRect.lineTo(x + bl, y + h);
+        if (bl > 0) {
+            roundedRect.quadTo(x, y + h, x, y + h - bl);
+        }
+        roundedRect.lineTo(x, y + tl);
+        if (tl > 0) {
+            roundedRect.quadTo(x, y, x + tl, y);
+        }
+        roundedRect.closePath();
+        path.append(transform.createTransformedShape(roundedRect), true);
+    }
+
+    /**
+     * Parse roundRect radii parameter according to Canvas 2D spec.
+     * Returns array of 4 corner radii: [top-left, top-right, bottom-right, bottom-left]
+     */
+    private double[] parseRoundRectRadii(Object radii) {
+        double[] values = null;
+        if (radii instanceof Number) {
+            double r = ((Number) radii).doubleValue();
+            return new double[]{r, r, r, r};
+        } else if (radii instanceof double[]) {
+            values = (double[]) radii;
+        } else if (radii instanceof Object[]) {
+            Object[] arr = (Object[]) radii;
+            values = new double[arr.length];
+            for (int i = 0; i < arr.length; i++) {
+                if (arr[i] instanceof Number) {
+                    values[i] = ((Number) arr[i]).doubleValue();
+                }
+            }
+        } else if (radii instanceof org.mozilla.javascript.NativeArray) {
+            org.mozilla.javascript.NativeArray arr = (org.mozilla.javascript.NativeArray) radii;
+            values = new double[(int) arr.getLength()];
+            for (int i = 0; i < values.length; i++) {
+                Object val = arr.get(i);
+                if (val instanceof Number) {
+                    values[i] = ((Number) val).doubleValue();
+                }
+            }
+        }
+        if (values == null || values.length == 0) {
+            return new double[]{0, 0, 0, 0};
+        }
+        switch (values.length) {
+            case 1:
+                return new double[]{values[0], values[0], values[0], values[0]};
+            case 2:
+                return new double[]{values[0], values[1], values[0], values[1]};
+            case 3:
+                return new double[]{values[0], values[1], values[2], values[1]};
+            default:
+                return new double[]{values[0], values[1], values[2], values[3]};
+        }
+    }
+
+    @Override
+    public void arc(double x, double y, double radius, double startAngle, double endAngle, boolean counterclockwise) {
+        ellipse(x, y, radius, radius, 0, startAngle, endAngle, counterclockwise);
+    }
+
+    @Override
+    public void ellipse(double x, double y, double radiusX, double radiusY, double rotation, double startAngle, double endAngle, boolean counterclockwise) {
+        // Canvas angles grow clockwise on screen; counterclockwise sweeps are negative
+        double ang = ArcSweep.of(startAngle, endAngle, counterclockwise);
+        AffineTransform toDevice = new AffineTransform(transform);
+        toDevice.rotate(rotation, x, y);
+        // Arc2D angles run counterclockwise in a y-up space, hence the negated angles
+        path.append(toDevice.createTransformedShape(new Arc2D.Double(x - radiusX, y - radiusY, 2 * radiusX, 2 * radiusY,
+                -Math.toDegrees(startAngle), -Math.toDegrees(ang), Arc2D.OPEN)), true);
+        double end = startAngle + ang;
+        Point2D last = AffineTransform.getRotateInstance(rotation, x, y).transform(
+                new Point2D.Double(x + radiusX * Math.cos(end), y + radiusY * Math.sin(end)), null);
+        lastPoint[0] = last.getX();
+        lastPoint[1] = last.getY();
+    }
+
+    @Override
+    public void fill() {
+        fill(this.fillRule);
+    }
+
+    @Override
+    public void fill(String fillRule) {
+        rasterizer.addShape(path);
+        renderWith(fillPaint, "evenodd".equals(fillRule));
+    }
+
+    @Override
+    public void stroke() {
+        rasterizer.addShape(stroke.createStrokedShape(path));
+        renderWith(strokePaint, false);
+    }
+
+    @Override
+    public void setFillRule(String fillRule) {
+        this.fillRule = fillRule != null ? fillRule : "nonzero";
+    }
+
+    @Override
+    public boolean isPointInPath(double x, double y) {
+        path.setWindingRule("evenodd".equals(fillRule) ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO);
+        return path.contains(x, y);
+    }
+
+    @Override
+    public boolean isPointInStroke(double x, double y) {
+        return stroke.createStrokedShape(path).contains(x, y);
+    }
+
+    @Override
+    public IShape getPath() {
+        return new AwtShape(path);
+    }
+
+    @Override
+    public void setPath(IShape shape) {
+        if (shape instanceof AwtShape) {
+            Shape nativeShape = ((AwtShape) shape).getShape();
+            this.path = nativeShape instanceof Path2D.Double ? (Path2D.Double) nativeShape : new Path2D.Double(nativeShape);
+        }
+    }
+
+    @Override
+    public IShape createRetainedPath(IPath2D path) {
+        // Path2D objects are replayed on each use
+        return null;
+    }
+
+    @Override
+    public void setRetainedPath(IShape shape) {
+        if (shape instanceof AwtShape) {
+            this.path = new Path2D.Double(((AwtShape) shape).getShape(), transform);
+        }
+    }
+
+    @Override
+    public boolean isPointInRetainedPath(IShape shape, double x, double y) {
+        return shape instanceof AwtShape
+                && transform.createTransformedShape(((AwtShape) shape).getShape()).contains(x, y);
+    }
+
+    @Override
+    public boolean isPointInRetainedStroke(IShape shape, double x, double y) {
+        return shape instanceof AwtShape
+                && stroke.createStrokedShape(transform.createTransformedShape(((AwtShape) shape).getShape())).contains(x, y);
+    }
+
+    @Override
+    public double[] getLastPoint() {
+        return lastPoint;
+    }
+
+    // Rendering
+
+    /**
+     * Composites the rasterizer's accumulated outline with {@code paint} as the source.
+     */
+    private void renderWith(IPaint paint, boolean evenOdd) {
+        Paint source = toAwtPaint(paint);
+        if (source instanceof Color) {
+            solidColor = PixelBlend.premultiply(((Color) source).getRGB());
+        } else if (source != null) {
+            // Paths are already in device space, so paints see an identity transform (as in the AWT backend)
+            paintContext = source.createContext(ColorModel.getRGBdefault(), new Rectangle(0, 0, width, height),
+                    new Rectangle2D.Double(0, 0, width, height), new AffineTransform(), PAINT_HINTS);
+        } else {
+            solidColor = 0xFF000000;
+        }
+        try {
+            composite(evenOdd);
+        } finally {
+            if (paintContext != null) {
+                paintContext.dispose();
+                paintContext = null;
+            }
+        }
+    }
+
+    private void composite(boolean evenOdd) {
+        if (operation == CompositeOperation.SOURCE_OVER && paintContext == null && imageSampler == null
+                && (solidColor == 0 || alpha <= 0)) {
+            // Nothing to draw
+            rasterizer.clear();
+            return;
+        }
+        if (hasShadow() || hasFilter()) {
+            compositeThroughLayer(evenOdd);
+            return;
+        }
+        rasterizer.render(evenOdd, compositeSink);
+    }
+
+    private boolean hasShadow() {
+        return (shadowPixel >>> 24) != 0 && (shadowBlur > 0 || shadowOffsetX != 0 || shadowOffsetY != 0);
+    }
+
+    private boolean hasFilter() {
+        return !"none".equals(filter) && !filter.trim().isEmpty();
+    }
+
+    /**
+     * Draws the outline into the layer, filters it, and composites its shadow and then the
+     * layer itself onto the surface.
+     */
+    private void compositeThroughLayer(boolean evenOdd) {
+        if (layer == null) {
+            layerImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            layer = ((DataBufferInt) layerImage.getRaster().getDataBuffer()).getData();
+        } else {
+            Arrays.fill(layer, 0);
+        }
+        CompositeOperation savedOperation = operation;
+        double savedAlpha = alpha;
+        byte[] savedClip = clip;
+        operation = CompositeOperation.SOURCE_OVER;
+        alpha = 1.0;
+        clip = null;
+        target = layer;
+        try {
+            rasterizer.render(evenOdd, compositeSink);
+        } finally {
+            operation = savedOperation;
+            alpha = savedAlpha;
+            clip = savedClip;
+            target = pixels;
+        }
+
+        int[] drawn = hasFilter() ? filterLayer() : layer;
+        if (hasShadow()) {
+            compositeLayer(shadowOf(drawn));
+        }
+        compositeLayer(drawn);
+    }
+
+    /**
+     * Returns the layer with the CSS filter applied, drawn by an AWT context into a second
+     * canvas-sized image.
+     */
+    private int[] filterLayer() {
+        if (filterContext == null) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            filtered = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            filterContext = new AwtCanvasSurface(image, true) {
+            }.getGraphicsContext();
+        } else {
+            Arrays.fill(filtered, 0);
+        }
+        filterContext.setFilter(filter);
+        filterContext.drawImage(layerImage, 0, 0);
+        return filtered;
+    }
+
+    /**
+     * Returns the shadow of premultiplied {@code drawn}: its alpha moved by the shadow offset,
+     * which is in device space, blurred, and tinted with the shadow color.
+     */
+    private int[] shadowOf(int[] drawn) {
+        if (shadowLayer == null) {
+            shadowLayer = new int[width * height];
+            blurScratch = new int[width * height];
+        }
+        int[] alphas = shadowLayer;
+        int dx = (int) Math.round(shadowOffsetX);
+        int dy = (int) Math.round(shadowOffsetY);
+        for (int y = 0; y < height; y++) {
+            int sy = y - dy;
+            for (int x = 0; x < width; x++) {
+                int sx = x - dx;
+                boolean inside = sx >= 0 && sx < width && sy >= 0 && sy < height;
+                alphas[y * width + x] = inside ? drawn[sy * width + sx] >>> 24 : 0;
+            }
+        }
+        // The AWT backend's kernel, so that both backends blur alike
+        int radius = (int) Math.ceil(shadowBlur / 3.0);
+        if (radius > 0) {
+            float[] kernel = gaussianKernel(radius);
+            blur(alphas, blurScratch, kernel, 1, width, width, height);
+            blur(blurScratch, alphas, kernel, width, 1, height, width);
+        }
+        for (int i = 0; i < alphas.length; i++) {
+            alphas[i] = alphas[i] == 0 ? 0 : scale(shadowPixel, alphas[i]);
+        }
+        return alphas;
+    }
+
+    private static float[] gaussianKernel(int radius) {
+        float[] kernel = new float[radius * 2 + 1];
+        float sigma = radius / 3.0f;
+        float sum = 0;
+        for (int i = 0; i < kernel.length; i++) {
+            int x = i - radius;
+            kernel[i] = (float) Math.exp(-(x * x) / (2 * sigma * sigma));
+            sum += kernel[i];
+        }
+        for (int i = 0; i < kernel.length; i++) {
+            kernel[i] /= sum;
+        }
+        return kernel;
+    }
+
+    /**
+     * Convolves lines of 0-255 values with {@code kernel}: {@code lines} lines of
+     * {@code length} values, {@code step} apart within a line, with lines starting
+     * {@code lineStep} apart. Values outside the canvas count as 0.
+     */
+    private static void blur(int[] src, int[] dst, float[] kernel, int step, int lineStep, int length, int lines) {
+        int radius = kernel.length / 2;
+        for (int line = 0; line < lines; line++) {
+            int base = line * lineStep;
+            for (int i = 0; i < length; i++) {
+                float sum = 0;
+                int from = Math.max(-radius, -i);
+                int to = Math.min(radius, length - 1 - i);
+                for (int k = from; k <= to; k++) {
+                    sum += kernel[k + radius] * src[base + (i + k) * step];
+                }
+                dst[base + i * step] = Math.min(255, (int) (sum + 0.5f));
+            }
+        }
+    }
+
+    /**
+     * Composites premultiplied canvas-sized {@code source} onto the surface wherever it is
+     * not transparent, as the source of the current operation.
+     */
+    private void compositeLayer(int[] source) {
+        final int[] mask = maskRow;
+        final byte[] clip = this.clip;
+        layerSource = source;
+        try {
+            for (int y = 0; y < height; y++) {
+                int base = y * width;
+                for (int x = 0; x < width; x++) {
+                    int a = source[base + x] == 0 ? 0 : 255;
+                    if (clip != null && a != 0) {
+                        a = clip[base + x] & 0xFF;
+                    }
+                    mask[x] = a;
+                }
+                compositeSpans(y, 0, width);
+            }
+        } finally {
+            layerSource = null;
+        }
+    }
+
+    private static Paint toAwtPaint(IPaint paint) {
+        if (paint instanceof AwtPaint) {
+            return ((AwtPaint) paint).getPaint();
+        } else if (paint instanceof AwtLinearGradient) {
+            return ((AwtLinearGradient) paint).getPaint();
+        } else if (paint instanceof AwtRadialGradient) {
+            return ((AwtRadialGradient) paint).getPaint();
+        } else if (paint instanceof AwtConicGradient) {
+            return ((AwtConicGradient) paint).getPaint();
+        } else if (paint instanceof AwtPattern) {
+            return ((AwtPattern) paint).getPaint();
+        }
+        return null;
+    }
+
+    private void compositeRow(int y, int x0, int x1, float[] coverage) {
+        final int[] mask = maskRow;
+        final byte[] clip = this.clip;
+        final int base = y * width;
+        for (int x = x0; x < x1; x++) {
+            int a = (int) (coverage[x] * 255 + 0.5f);
+            if (clip != null && a != 0) {
+                a = mul255(a, clip[base + x] & 0xFF);
+            }
+            mask[x] = a;
+        }
+        compositeSpans(y, x0, x1);
+    }
+
+    /**
+     * Composites the runs of {@code maskRow} between {@code x0} and {@code x1} that are not 0.
+     */
+    private void compositeSpans(int y, int x0, int x1) {
+        final int[] mask = maskRow;
+        int x = x0;
+        while (x < x1) {
+            if (mask[x] == 0) {
+                x++;
+                continue;
+            }
+            int start = x;
+            while (x < x1 && mask[x] != 0) {
+                x++;
+            }
+            compositeSpan(y, start, x);
+        }
+    }
+
+    private void compositeSpan(int y, int start, int end) {
+        final int[] pixels = this.target;
+        final int[] mask = maskRow;
+        final int base = y * width;
+
+        if (clearing) {
+            for (int x = start; x < end; x++) {
+                pixels[base + x] = scale(pixels[base + x], 255 - mask[x]);
+            }
+            return;
+        }
+
+        boolean solid = paintContext == null && imageSampler == null && layerSource == null;
+        if (!solid) {
+            fetchSource(y, start, end - start);
+        }
+
+        if (operation == CompositeOperation.SOURCE_OVER) {
+            int globalAlpha = (int) (Math.max(0, Math.min(1, alpha)) * 255 + 0.5);
+            for (int x = start; x < end; x++) {
+                int s = solid ? solidColor : sourceRow[x];
+                int m = mul255(mask[x], globalAlpha);
+                if (m != 255) {
+                    s = scale(s, m);
+                }
+                int sa = s >>> 24;
+                if (sa == 255) {
+                    pixels[base + x] = s;
+                } else if (s != 0) {
+                    pixels[base + x] = s + scale(pixels[base + x], 255 - sa);
+                }
+            }
+            return;
+        }
+
+        if (solid) {
+            java.util.Arrays.fill(sourceRow, start, end, solidColor);
+        }
+        System.arraycopy(pixels, base + start, blendRow, start, end - start);
+        // Copy ignores global alpha, as in the AWT backend
+        double sourceAlpha = operation == CompositeOperation.COPY ? 1.0 : alpha;
+        PixelBlend.blendRow(operation, sourceRow, start, blendRow, start, end - start, sourceAlpha);
+        for (int x = start; x < end; x++) {
+            int m = mask[x];
+            pixels[base + x] = m == 255 ? blendRow[x] : lerp(pixels[base + x], blendRow[x], m);
+        }
+    }
+
+    private void fetchSource(int y, int x0, int length) {
+        if (layerSource != null) {
+            System.arraycopy(layerSource, y * width + x0, sourceRow, x0, length);
+            return;
+        }
+        if (imageSampler != null) {
+            imageSampler.sample(y, x0, length, sourceRow);
+            return;
+        }
+        Raster raster = paintContext.getRaster(x0, y, length, 1);
+        ColorModel colorModel = paintContext.getColorModel();
+        Object data = null;
+        int rx = raster.getMinX();
+        int ry = raster.getMinY();
+        for (int i = 0; i < length; i++) {
+            data = raster.getDataElements(rx + i, ry, data);
+            sourceRow[x0 + i] = PixelBlend.premultiply(colorModel.getRGB(data));
+        }
+    }
+
+    private static int mul255(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    private static int scale(int pixel, int m) {
+        return mul255(pixel >>> 24, m) << 24
+                | mul255(pixel >> 16 & 0xFF, m) << 16
+                | mul255(pixel >> 8 & 0xFF, m) << 8
+                | mul255(pixel & 0xFF, m);
+    }
+
+    private static int lerp(int d, int r, int m) {
+        int n = 255 - m;
+        return (mul255(d >>> 24, n) + mul255(r >>> 24, m)) << 24
+                | (mul255(d >> 16 & 0xFF, n) + mul255(r >> 16 & 0xFF, m)) << 16
+                | (mul255(d >> 8 & 0xFF, n) + mul255(r >> 8 & 0xFF, m)) << 8
+                | (mul255(d & 0xFF, n) + mul255(r & 0xFF, m));
+    }
+
+    private static BufferedImage toBufferedImage(Object img) {
+        if (img instanceof BufferedImage) {
+            return (BufferedImage) img;
+        }
+        if (img instanceof java.awt.Image) {
+            java.awt.Image awtImg = (java.awt.Image) img;
+            int width = awtImg.getWidth(null);
+            int height = awtImg.getHeight(null);
+            if (width <= 0 || height <= 0) {
+                return null;
+            }
+            BufferedImage buffered = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = buffered.createGraphics();
+            g.drawImage(awtImg, 0, 0, null);
+            g.dispose();
+            return buffered;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up premultiplied image pixels for device pixel centers through the inverse
+     * of the image-to-device transform.
+     */
+    private static final class ImageSampler {
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+        private final double m00, m10, m01, m11, m02, m12;
+        private final boolean smooth;
+
+        ImageSampler(int[] pixels, int width, int height, AffineTransform toImage, boolean smooth) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.m00 = toImage.getScaleX();
+            this.m10 = toImage.getShearY();
+            this.m01 = toImage.getShearX();
+            this.m11 = toImage.getScaleY();
+            this.m02 = toImage.getTranslateX();
+            this.m12 = toImage.getTranslateY();
+            this.smooth = smooth;
+        }
+
+        void sample(int y, int x0, int length, int[] out) {
+            double py = y + 0.5;
+            for (int i = 0; i < length; i++) {
+                double px = x0 + i + 0.5;
+                double u = m00 * px + m01 * py + m02;
+                double v = m10 * px + m11 * py + m12;
+                out[x0 + i] = smooth ? bilinear(u - 0.5, v - 0.5) : pixel((int) Math.floor(u), (int) Math.floor(v));
+            }
+        }
+
+        private int pixel(int x, int y) {
+            x = x < 0 ? 0 : (x >= width ? width - 1 : x);
+            y = y < 0 ? 0 : (y >= height ? height - 1 : y);
+            return pixels[y * width + x];
+        }
+
+        private int bilinear(double u, double v) {
+            int x = (int) Math.floor(u);
+            int y = (int) Math.floor(v);
+            int fx = (int) ((u - x) * 256);
+            int fy = (int) ((v - y) * 256);
+            int p00 = pixel(x, y);
+            int p10 = pixel(x + 1, y);
+            int p01 = pixel(x, y + 1);
+            int p11 = pixel(x + 1, y + 1);
+            int w00 = (256 - fx) * (256 - fy);
+            int w10 = fx * (256 - fy);
+            int w01 = (256 - fx) * fy;
+            int w11 = fx * fy;
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int c = ((p00 >>> shift & 0xFF) * w00 + (p10 >>> shift & 0xFF) * w10
+                        + (p01 >>> shift & 0xFF) * w01 + (p11 >>> shift & 0xFF) * w11 + 32768) >>> 16;
+                result |= c << shift;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.w3canvas.javacanvas.backend.software;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Scanline rasterizer that turns device-space outlines into per-pixel coverage.
+ *
+ * <p>
+ * Each line segment adds the signed area it covers in every pixel cell to an accumulation
+ * buffer; summing a row from left to right then gives the exact analytic coverage of every
+ * pixel (the winding number, with fractional values along the edges). Nonzero coverage is
+ * {@code min(1, |sum|)}; even-odd coverage folds the sum into [0, 1] modulo 2. Curves are
+ * flattened first.
+ *
+ * <p>
+ * The buffer is allocated once for the surface size and only the touched cells are cleared
+ * again, so rasterizing a shape allocates nothing beyond the path iterator. Instances are not
+ * thread-safe.
+ */
+final class SoftwareRasterizer {
+
+    /**
+     * Receives the coverage of each rasterized row.
+     */
+    interface CoverageSink {
+        /**
+         * @param y        the row
+         * @param x0       first column with possible coverage
+         * @param x1       end column (exclusive)
+         * @param coverage coverage in [0, 1], indexed by column
+         */
+        void row(int y, int x0, int x1, float[] coverage);
+    }
+
+    // Maximum distance between a curve and its flattened polyline, in pixels
+    private static final double FLATNESS = 0.1;
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final float[] cells;
+    private final float[] coverage;
+    private final double[] coords = new double[6];
+
+    // Touched area: rows [minRow, maxRow), cells [minCol, maxCol)
+    private int minRow, maxRow, minCol, maxCol;
+
+    SoftwareRasterizer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        // One extra column for coverage leaving the right edge, one for the cell after it
+        this.stride = width + 2;
+        this.cells = new float[stride * height];
+        this.coverage = new float[stride];
+        resetBounds();
+    }
+
+    /**
+     * Adds the outline of {@code shape}, in device pixels. Open subpaths are closed.
+     */
+    void addShape(Shape shape) {
+        PathIterator it = shape.getPathIterator(null, FLATNESS);
+        double startX = 0, startY = 0, lastX = 0, lastY = 0;
+        boolean open = false;
+        while (!it.isDone()) {
+            switch (it.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    if (open) {
+                        addLine(lastX, lastY, startX, startY);
+                    }
+                    startX = lastX = coords[0];
+                    startY = lastY = coords[1];
+                    open = true;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    addLine(lastX, lastY, coords[0], coords[1]);
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    addLine(lastX, lastY, startX, startY);
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+                default:
+                    break;
+            }
+            it.next();
+        }
+        if (open) {
+            addLine(lastX, lastY, startX, startY);
+        }
+    }
+
+    /**
+     * Adds an axis-aligned rectangle, in device pixels.
+     */
+    void addRect(double x, double y, double w, double h) {
+        addLine(x, y, x + w, y);
+        addLine(x + w, y, x + w, y + h);
+        addLine(x + w, y + h, x, y + h);
+        addLine(x, y + h, x, y);
+    }
+
+    /**
+     * Adds one edge of a closed outline.
+     */
+    void addLine(double x0, double y0, double x1, double y1) {
+        if (y0 == y1 || Math.max(y0, y1) <= 0 || Math.min(y0, y1) >= height) {
+            return;
+        }
+        if (Double.isNaN(x0 + y0 + x1 + y1) || Double.isInfinite(x0 + y0 + x1 + y1)) {
+            return;
+        }
+        // Split where the edge crosses the left or right border; the pieces outside are
+        // pushed onto the border, where they still contribute to the rows they span
+        if ((x0 < 0 && x1 > 0) || (x0 > 0 && x1 < 0)) {
+            double y = y0 + (0 - x0) * (y1 - y0) / (x1 - x0);
+            addLine(x0, y0, 0, y);
+            addLine(0, y, x1, y1);
+            return;
+        }
+        if ((x0 < width && x1 > width) || (x0 > width && x1 < width)) {
+            double y = y0 + (width - x0) * (y1 - y0) / (x1 - x0);
+            addLine(x0, y0, width, y);
+            addLine(width, y, x1, y1);
+            return;
+        }
+        accumulate(clampX(x0), y0, clampX(x1), y1);
+    }
+
+    private double clampX(double x) {
+        return x < 0 ? 0 : (x > width ? width : x);
+    }
+
+    private void accumulate(double x0, double y0, double x1, double y1) {
+        double dir = 1;
+        if (y0 > y1) {
+            dir = -1;
+            double t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+        }
+        double dxdy = (x1 - x0) / (y1 - y0);
+        double x = x0;
+        if (y0 < 0) {
+            x -= y0 * dxdy;
+        }
+        int yStart = Math.max(0, (int) Math.floor(y0));
+        int yEnd = Math.min(height, (int) Math.ceil(y1));
+        final float[] cells = this.cells;
+
+        for (int y = yStart; y < yEnd; y++) {
+            int line = y * stride;
+            double dy = Math.min(y + 1, y1) - Math.max(y, y0);
+            double xNext = x + dxdy * dy;
+            double d = dy * dir;
+            double xa = Math.min(x, xNext);
+            double xb = Math.max(x, xNext);
+            double xaFloor = Math.floor(xa);
+            int xai = (int) xaFloor;
+            double xbCeil = Math.ceil(xb);
+            int xbi = (int) xbCeil;
+
+            if (xbi <= xai + 1) {
+                // The edge stays within one cell on this row
+                double xmf = 0.5 * (x + xNext) - xaFloor;
+                cells[line + xai] += (float) (d - d * xmf);
+                cells[line + xai + 1] += (float) (d * xmf);
+            } else {
+                double s = 1 / (xb - xa);
+                double xaf = xa - xaFloor;
+                double a0 = 0.5 * s * (1 - xaf) * (1 - xaf);
+                double xbf = xb - xbCeil + 1;
+                double am = 0.5 * s * xbf * xbf;
+                cells[line + xai] += (float) (d * a0);
+                if (xbi == xai + 2) {
+                    cells[line + xai + 1] += (float) (d * (1 - a0 - am));
+                } else {
+                    double a1 = s * (1.5 - xaf);
+                    cells[line + xai + 1] += (float) (d * (a1 - a0));
+                    float step = (float) (d * s);
+                    for (int xi = xai + 2; xi < xbi - 1; xi++) {
+                        cells[line + xi] += step;
+                    }
+                    double a2 = a1 + (xbi - xai - 3) * s;
+                    cells[line + xbi - 1] += (float) (d * (1 - a2 - am));
+                }
+                cells[line + xbi] += (float) (d * am);
+            }
+            x = xNext;
+        }
+
+        int lo = (int) Math.floor(Math.min(x0, x1));
+        int hi = (int) Math.ceil(Math.max(x0, x1)) + 2;
+        minRow = Math.min(minRow, yStart);
+        maxRow = Math.max(maxRow, yEnd);
+        minCol = Math.min(minCol, lo);
+        maxCol = Math.max(maxCol, Math.min(hi, stride));
+    }
+
+    boolean isEmpty() {
+        return minRow >= maxRow;
+    }
+
+    /**
+     * Resolves the accumulated edges into coverage, hands each row to {@code sink} and
+     * clears the buffer for the next shape.
+     */
+    void render(boolean evenOdd, CoverageSink sink) {
+        if (isEmpty()) {
+            return;
+        }
+        final float[] cells = this.cells;
+        final float[] coverage = this.coverage;
+        int end = Math.min(maxCol, width);
+        for (int y = minRow; y < maxRow; y++) {
+            int line = y * stride;
+            float acc = 0;
+            for (int x = minCol; x < end; x++) {
+                acc += cells[line + x];
+                float c = Math.abs(acc);
+                if (evenOdd) {
+                    c -= 2 * (float) Math.floor(c / 2);
+                    if (c > 1) {
+                        c = 2 - c;
+                    }
+                } else if (c > 1) {
+                    c = 1;
+                }
+                coverage[x] = c;
+            }
+            Arrays.fill(cells, line + minCol, line + maxCol, 0f);
+            if (minCol < end) {
+                sink.row(y, minCol, end, coverage);
+            }
+        }
+        resetBounds();
+    }
+
+    /**
+     * Drops the accumulated edges without rendering them.
+     */
+    void clear() {
+        if (!isEmpty()) {
+            for (int y = minRow; y < maxRow; y++) {
+                Arrays.fill(cells, y * stride + minCol, y * stride + maxCol, 0f);
+            }
+        }
+        resetBounds();
+    }
+
+    private void resetBounds() {
+        minRow = Integer.MAX_VALUE;
+        maxRow = Integer.MIN_VALUE;
+        minCol = Integer.MAX_VALUE;
+        maxCol = Integer.MIN_VALUE;
+    }
+}
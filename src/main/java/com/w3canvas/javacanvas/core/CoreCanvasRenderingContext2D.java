@@ -6,7 +6,7 @@ import com.w3canvas.javacanvas.interfaces.*;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Scriptable;
 import java.awt.image.BufferedImage;
-import java.util.Stack;
+import java.util.ArrayDeque;
 import com.w3canvas.javacanvas.core.Path2D;
 
 /**
@@ -47,12 +47,26 @@ import com.w3canvas.javacanvas.core.Path2D;
  */
 public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
+    // Groups of state properties, tracked for save()/restore() and applyCurrentState()
+    private static final int STYLES = 1; // fillStyle, strokeStyle
+    private static final int COMPOSITING = 1 << 1; // globalAlpha, globalCompositeOperation
+    private static final int LINE_STYLES = 1 << 2;
+    private static final int SHADOWS = 1 << 3;
+    private static final int SMOOTHING = 1 << 4;
+    private static final int TEXT_STYLES = 1 << 5; // direction, letterSpacing, wordSpacing, textRendering
+    private static final int FILTER = 1 << 6;
+    private static final int TRANSFORM = 1 << 7;
+    private static final int ALL_GROUPS = (1 << 8) - 1;
+
     private final IGraphicsBackend backend;
     private final ICanvasSurface surface;
     private IGraphicsContext gc;
     private Document document;
 
-    private Stack<ContextState> stack;
+    // Saved states, innermost first
+    private ArrayDeque<ContextState> stack;
+    // State groups changed since they were last pushed to the graphics context
+    private int dirty;
     private Object fillStyle;
     private Object strokeStyle;
     private double globalAlpha;
@@ -78,10 +92,14 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
     private String direction;
     private double letterSpacing;
     private double wordSpacing;
+    private String textRendering;
 
     // Filter property
     private String filter;
 
+    // Bounding-box grid for hitTest(), kept across calls with the same path list
+    private final HitTestIndex hitTestIndex = new HitTestIndex();
+
     public CoreCanvasRenderingContext2D(Document document, IGraphicsBackend backend, int width, int height) {
         this.document = document;
         this.backend = backend;
@@ -103,7 +121,8 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
      * Used during construction to avoid disposing the graphics context.
      */
     private void initializeState() {
-        stack = new Stack<>();
+        stack = new ArrayDeque<>();
+        dirty = ALL_GROUPS;
         fillStyle = "#000000";
         strokeStyle = "#000000";
         globalAlpha = 1.0;
@@ -129,6 +148,8 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         direction = "inherit";
         letterSpacing = 0.0;
         wordSpacing = 0.0;
+        textRendering = "auto";
+        gc.setTextRendering(textRendering);
 
         // Initialize filter
         filter = "none";
@@ -154,44 +175,64 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void save() {
-        stack.push(new ContextState(this));
+        // The new state copies nothing yet; see modify()
+        stack.push(new ContextState());
     }
 
     @Override
     public void restore() {
-        if (!stack.isEmpty()) {
-            ContextState state = stack.pop();
+        ContextState state = stack.poll();
+        if (state != null) {
             state.apply(this);
         }
     }
 
+    /**
+     * Called before a group of state changes. The first change after save() copies the
+     * group's current values into the saved state, so that restore() only has to put back
+     * what was changed; the group is also marked for applyCurrentState().
+     */
+    private void modify(int group) {
+        ContextState saved = stack.peek();
+        if (saved != null && (saved.groups & group) == 0) {
+            saved.copy(this, group);
+        }
+        dirty |= group;
+    }
+
     @Override
     public void scale(double x, double y) {
+        modify(TRANSFORM);
         gc.scale(x, y);
     }
 
     @Override
     public void rotate(double angle) {
+        modify(TRANSFORM);
         gc.rotate(angle);
     }
 
     @Override
     public void translate(double x, double y) {
+        modify(TRANSFORM);
         gc.translate(x, y);
     }
 
     @Override
     public void transform(double m11, double m12, double m21, double m22, double dx, double dy) {
+        modify(TRANSFORM);
         gc.transform(m11, m12, m21, m22, dx, dy);
     }
 
     @Override
     public void setTransform(double m11, double m12, double m21, double m22, double dx, double dy) {
+        modify(TRANSFORM);
         gc.setTransform(m11, m12, m21, m22, dx, dy);
     }
 
     @Override
     public void resetTransform() {
+        modify(TRANSFORM);
         gc.resetTransform();
     }
 
@@ -207,6 +248,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setGlobalAlpha(double globalAlpha) {
+        modify(COMPOSITING);
         this.globalAlpha = globalAlpha;
     }
 
@@ -217,6 +259,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setGlobalCompositeOperation(String op) {
+        modify(COMPOSITING);
         this.globalCompositeOperation = op;
     }
 
@@ -227,6 +270,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setFillStyle(Object fillStyle) {
+        modify(STYLES);
         this.fillStyle = fillStyle;
     }
 
@@ -237,6 +281,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setStrokeStyle(Object strokeStyle) {
+        modify(STYLES);
         this.strokeStyle = strokeStyle;
     }
 
@@ -270,6 +315,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         if (lw <= 0) {
             throw new IllegalArgumentException("Line width must be positive, got: " + lw);
         }
+        modify(LINE_STYLES);
         this.lineWidth = lw;
         gc.setLineWidth(lw);
     }
@@ -281,6 +327,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setLineCap(String cap) {
+        modify(LINE_STYLES);
         this.lineCap = cap;
     }
 
@@ -291,6 +338,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setLineJoin(String join) {
+        modify(LINE_STYLES);
         this.lineJoin = join;
     }
 
@@ -301,11 +349,13 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setMiterLimit(double miterLimit) {
+        modify(LINE_STYLES);
         this.miterLimit = miterLimit;
     }
 
     @Override
     public void setLineDash(Object dash) {
+        modify(LINE_STYLES);
         this.lineDash = dash;
     }
 
@@ -321,6 +371,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setLineDashOffset(double offset) {
+        modify(LINE_STYLES);
         this.lineDashOffset = offset;
     }
 
@@ -332,6 +383,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setShadowBlur(double blur) {
+        modify(SHADOWS);
         this.shadowBlur = Math.max(0, blur); // Ensure non-negative
     }
 
@@ -342,6 +394,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setShadowColor(String color) {
+        modify(SHADOWS);
         this.shadowColor = color != null ? color : "rgba(0, 0, 0, 0)";
     }
 
@@ -352,6 +405,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setShadowOffsetX(double offsetX) {
+        modify(SHADOWS);
         this.shadowOffsetX = offsetX;
     }
 
@@ -362,6 +416,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setShadowOffsetY(double offsetY) {
+        modify(SHADOWS);
         this.shadowOffsetY = offsetY;
     }
 
@@ -373,6 +428,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setImageSmoothingEnabled(boolean enabled) {
+        modify(SMOOTHING);
         this.imageSmoothingEnabled = enabled;
     }
 
@@ -385,6 +441,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
     public void setImageSmoothingQuality(String quality) {
         // Validate quality: "low", "medium", "high"
         if ("low".equals(quality) || "medium".equals(quality) || "high".equals(quality)) {
+            modify(SMOOTHING);
             this.imageSmoothingQuality = quality;
         }
     }
@@ -479,31 +536,46 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         gc.ellipse(x, y, radiusX, radiusY, rotation, startAngle, endAngle, counterclockwise);
     }
 
+    /**
+     * Pushes the state groups that changed since the last draw to the graphics context,
+     * which keeps them until they change again.
+     */
     private void applyCurrentState() {
-        IComposite composite = CompositeFactory.createComposite(this.globalCompositeOperation, this.globalAlpha,
-                this.backend);
-        if (composite != null) {
-            gc.setComposite(composite);
+        if ((dirty & COMPOSITING) != 0) {
+            IComposite composite = CompositeFactory.createComposite(this.globalCompositeOperation,
+                    this.globalAlpha, this.backend);
+            if (composite != null) {
+                gc.setComposite(composite);
+            }
+            gc.setGlobalAlpha(this.globalAlpha);
         }
-        gc.setGlobalAlpha(this.globalAlpha);
 
-        // Apply shadow properties
-        gc.setShadowBlur(this.shadowBlur);
-        gc.setShadowColor(this.shadowColor);
-        gc.setShadowOffsetX(this.shadowOffsetX);
-        gc.setShadowOffsetY(this.shadowOffsetY);
+        // Apply shadow properties. JavaFX combines the shadow and the filter into one effect,
+        // so both are pushed when either changes.
+        if ((dirty & (SHADOWS | FILTER)) != 0) {
+            gc.setShadowBlur(this.shadowBlur);
+            gc.setShadowColor(this.shadowColor);
+            gc.setShadowOffsetX(this.shadowOffsetX);
+            gc.setShadowOffsetY(this.shadowOffsetY);
+            gc.setFilter(this.filter);
+        }
 
         // Apply image smoothing
-        gc.setImageSmoothingEnabled(this.imageSmoothingEnabled);
-        gc.setImageSmoothingQuality(this.imageSmoothingQuality);
-
-        // Apply filter
-        gc.setFilter(this.filter);
+        if ((dirty & SMOOTHING) != 0) {
+            gc.setImageSmoothingEnabled(this.imageSmoothingEnabled);
+            gc.setImageSmoothingQuality(this.imageSmoothingQuality);
+        }
 
         // Apply modern text properties
-        gc.setDirection(this.direction);
-        gc.setLetterSpacing(this.letterSpacing);
-        gc.setWordSpacing(this.wordSpacing);
+        if ((dirty & TEXT_STYLES) != 0) {
+            gc.setDirection(this.direction);
+            gc.setLetterSpacing(this.letterSpacing);
+            gc.setWordSpacing(this.wordSpacing);
+            gc.setTextRendering(this.textRendering);
+        }
+
+        // Styles, line styles and the transform are applied where they are used
+        dirty &= STYLES | LINE_STYLES | TRANSFORM;
     }
 
     @Override
@@ -524,7 +596,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         if (fillRule != null && ("evenodd".equals(fillRule) || "nonzero".equals(fillRule))) {
             gc.setFillRule(fillRule);
         }
-        gc.fill(gc.getPath());
+        gc.fill();
     }
 
     @Override
@@ -556,51 +628,30 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         // in the same path. Detect if the path contains multiple RECT elements and fill
         // them
         // individually using fillRect() instead.
-        java.util.List<IPath2D.PathElement> elements = path.getElements();
-        if (elements != null && elements.size() > 0) {
-            // Check if path contains only RECT elements (and maybe MOVE_TO before each)
-            boolean allRects = true;
-            int rectCount = 0;
-            for (IPath2D.PathElement element : elements) {
-                if (element.getType() == IPath2D.PathElement.Type.RECT) {
-                    rectCount++;
-                } else if (element.getType() != IPath2D.PathElement.Type.MOVE_TO &&
-                        element.getType() != IPath2D.PathElement.Type.CLOSE_PATH) {
-                    allRects = false;
-                    break;
+        Path2D corePath = toCorePath(path);
+        double[] rects = corePath != null ? corePath.getRectangles() : null;
+
+        // WORKAROUND: If we have multiple rectangles, use fillRectDirect
+        // to bypass JavaFX's path rendering limitation. JavaFX's GraphicsContext
+        // doesn't properly render multiple rect() calls within the same path.
+        // By using fillRectDirect, we render each rectangle separately which works
+        // correctly.
+        if (rects != null && rects.length > 4) {
+            for (int i = 0; i < rects.length; i += 4) {
+                // Ensure fill paint is set before each rectangle
+                if (fillStyle instanceof String) {
+                    gc.setFillPaint(ColorParser.parse((String) fillStyle, backend));
+                } else if (fillStyle instanceof IPaint) {
+                    gc.setFillPaint((IPaint) fillStyle);
                 }
+                // Attempt to use direct fillRect method
+                gc.fillRectDirect(rects[i], rects[i + 1], rects[i + 2], rects[i + 3]);
             }
-
-            // WORKAROUND: If we have multiple rectangles, use fillRectDirect
-            // to bypass JavaFX's path rendering limitation. JavaFX's GraphicsContext
-            // doesn't properly render multiple rect() calls within the same path.
-            // By using fillRectDirect, we render each rectangle separately which works
-            // correctly.
-            if (allRects && rectCount > 1) {
-                for (IPath2D.PathElement element : elements) {
-                    if (element.getType() == IPath2D.PathElement.Type.RECT) {
-                        double[] params = element.getParams();
-                        // Ensure fill paint is set before each rectangle
-                        if (fillStyle instanceof String) {
-                            gc.setFillPaint(ColorParser.parse((String) fillStyle, backend));
-                        } else if (fillStyle instanceof IPaint) {
-                            gc.setFillPaint((IPaint) fillStyle);
-                        }
-                        // Attempt to use direct fillRect method
-                        gc.fillRectDirect(params[0], params[1], params[2], params[3]);
-                    }
-                }
-                return;
-            }
+            return;
         }
 
         // For other paths, use the normal approach
-        gc.beginPath();
-        if (path instanceof Path2D) {
-            ((Path2D) path).replayOn(gc);
-        } else if (path instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) {
-            ((com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) path).getCorePath().replayOn(gc);
-        }
+        setCurrentPath(path);
 
         // Fill the path with the current transform applied
         gc.fill();
@@ -617,6 +668,12 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
             // The backend needs to handle this.
         }
 
+        applyLineStyle();
+
+        gc.stroke();
+    }
+
+    private void applyLineStyle() {
         gc.setLineWidth(this.lineWidth);
         gc.setLineCap(this.lineCap);
         gc.setLineJoin(this.lineJoin);
@@ -627,8 +684,6 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
             gc.setLineDash(null);
         }
         gc.setLineDashOffset(this.lineDashOffset);
-
-        gc.stroke();
     }
 
     @Override
@@ -645,24 +700,10 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
             gc.setStrokePaint((IPaint) strokeStyle);
         }
 
-        gc.setLineWidth(this.lineWidth);
-        gc.setLineCap(this.lineCap);
-        gc.setLineJoin(this.lineJoin);
-        gc.setMiterLimit(this.miterLimit);
-        if (this.lineDash instanceof double[]) {
-            gc.setLineDash((double[]) this.lineDash);
-        } else {
-            gc.setLineDash(null);
-        }
-        gc.setLineDashOffset(this.lineDashOffset);
+        applyLineStyle();
 
-        // Begin a new path and replay the Path2D elements
-        gc.beginPath();
-        if (path instanceof Path2D) {
-            ((Path2D) path).replayOn(gc);
-        } else if (path instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) {
-            ((com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) path).getCorePath().replayOn(gc);
-        }
+        // Replace the current path with the Path2D
+        setCurrentPath(path);
 
         // Stroke the path with the current transform applied
         gc.stroke();
@@ -697,13 +738,8 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
             gc.setFillRule(fillRule);
         }
 
-        // Begin a new path and replay the Path2D elements
-        gc.beginPath();
-        if (path instanceof Path2D) {
-            ((Path2D) path).replayOn(gc);
-        } else if (path instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) {
-            ((com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) path).getCorePath().replayOn(gc);
-        }
+        // Replace the current path with the Path2D
+        setCurrentPath(path);
 
         // Clip the path
         gc.clip();
@@ -719,16 +755,24 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         if (path == null) {
             return false;
         }
+        Path2D corePath = toCorePath(path);
+        if (corePath != null) {
+            double[] m = gc.getTransformMatrix();
+            double[] point = toUserSpace(m, x, y);
+            if (point == null || !boundsContain(corePath.getBounds(), point[0], point[1], 0)) {
+                return false;
+            }
+            IShape retained = corePath.getRetainedShape(gc);
+            if (retained != null) {
+                return gc.isPointInRetainedPath(retained, x, y);
+            }
+        }
+
         // Save the current path
         IShape savedPath = gc.getPath();
 
-        // Replay the provided path onto the graphics context
-        gc.beginPath();
-        if (path instanceof Path2D) {
-            ((Path2D) path).replayOn(gc);
-        } else if (path instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) {
-            ((com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) path).getCorePath().replayOn(gc);
-        }
+        // Replace the current path with the provided path
+        setCurrentPath(path);
 
         // Check if point is in the path
         boolean result = gc.isPointInPath(x, y);
@@ -749,16 +793,26 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         if (path == null) {
             return false;
         }
+        applyLineStyle();
+        Path2D corePath = toCorePath(path);
+        if (corePath != null) {
+            double[] m = gc.getTransformMatrix();
+            double[] point = toUserSpace(m, x, y);
+            if (point == null
+                    || !boundsContain(corePath.getBounds(), point[0], point[1], strokeMargin(m))) {
+                return false;
+            }
+            IShape retained = corePath.getRetainedShape(gc);
+            if (retained != null) {
+                return gc.isPointInRetainedStroke(retained, x, y);
+            }
+        }
+
         // Save the current path
         IShape savedPath = gc.getPath();
 
-        // Replay the provided path onto the graphics context
-        gc.beginPath();
-        if (path instanceof Path2D) {
-            ((Path2D) path).replayOn(gc);
-        } else if (path instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) {
-            ((com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) path).getCorePath().replayOn(gc);
-        }
+        // Replace the current path with the provided path
+        setCurrentPath(path);
 
         // Check if point is in the stroke
         boolean result = gc.isPointInStroke(x, y);
@@ -769,6 +823,104 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         return result;
     }
 
+    /**
+     * Replaces the backend path with a Path2D. Backends that retain paths reuse the shape
+     * cached on the Path2D and only apply the current transform; others replay the commands.
+     */
+    private void setCurrentPath(IPath2D path) {
+        Path2D corePath = toCorePath(path);
+        gc.beginPath();
+        if (corePath == null) {
+            return;
+        }
+        IShape retained = corePath.getRetainedShape(gc);
+        if (retained != null) {
+            gc.setRetainedPath(retained);
+        } else {
+            corePath.replayOn(gc);
+        }
+    }
+
+    @Override
+    public int[] hitTest(IPath2D[] paths, double x, double y, String mode) {
+        boolean stroke = "stroke".equals(mode);
+        Path2D[] corePaths = new Path2D[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            corePaths[i] = toCorePath(paths[i]);
+        }
+        hitTestIndex.update(corePaths);
+
+        double[] m = gc.getTransformMatrix();
+        double[] point = toUserSpace(m, x, y);
+        if (point == null) {
+            return new int[0];
+        }
+        if (stroke) {
+            applyLineStyle();
+        }
+        int[] candidates = hitTestIndex.query(point[0], point[1], stroke ? strokeMargin(m) : 0);
+
+        // Only the candidates near the point get the exact shape test
+        int[] hits = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            IShape retained = corePaths[id].getRetainedShape(gc);
+            boolean hit;
+            if (retained != null) {
+                hit = stroke ? gc.isPointInRetainedStroke(retained, x, y) : gc.isPointInRetainedPath(retained, x, y);
+            } else {
+                hit = stroke ? isPointInStroke(corePaths[id], x, y) : isPointInPath(corePaths[id], x, y);
+            }
+            if (hit) {
+                hits[count++] = id;
+            }
+        }
+        return java.util.Arrays.copyOf(hits, count);
+    }
+
+    /**
+     * Maps a device-space point into user space with the inverse of {@code m}, or returns
+     * null if the transform is not invertible.
+     */
+    private static double[] toUserSpace(double[] m, double x, double y) {
+        double det = m[0] * m[3] - m[1] * m[2];
+        if (det == 0 || Double.isNaN(det)) {
+            return null;
+        }
+        double dx = x - m[4];
+        double dy = y - m[5];
+        return new double[] { (m[3] * dx - m[2] * dy) / det, (m[0] * dy - m[1] * dx) / det };
+    }
+
+    private static boolean boundsContain(double[] bounds, double x, double y, double margin) {
+        return bounds != null
+                && x >= bounds[0] - margin && x <= bounds[2] + margin
+                && y >= bounds[1] - margin && y <= bounds[3] + margin;
+    }
+
+    /**
+     * Returns how far, in user space, the stroke of a path can reach outside its bounds.
+     * Covers miter joins and square caps, and line widths applied in either user or
+     * device space.
+     */
+    private double strokeMargin(double[] m) {
+        double reach = lineWidth / 2 * Math.max("miter".equals(lineJoin) ? miterLimit : 1, Math.sqrt(2));
+        // Smallest singular value of the linear part; its inverse is the largest device-to-user scale
+        double e = (m[0] + m[3]) / 2, f = (m[0] - m[3]) / 2;
+        double g = (m[1] + m[2]) / 2, h = (m[1] - m[2]) / 2;
+        double minScale = Math.abs(Math.hypot(e, h) - Math.hypot(f, g));
+        return minScale > 0 ? reach * Math.max(1, 1 / minScale) : Double.POSITIVE_INFINITY;
+    }
+
+    private static Path2D toCorePath(IPath2D path) {
+        if (path instanceof Path2D) {
+            return (Path2D) path;
+        } else if (path instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) {
+            return ((com.w3canvas.javacanvas.backend.rhino.impl.node.RhinoPath2D) path).getCorePath();
+        }
+        return null;
+    }
+
     private Object getNativeImage(Object image) {
         if (image instanceof com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement) {
             com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement canvas = (com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement) image;
@@ -942,6 +1094,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
     public void setDirection(String direction) {
         // Validate direction: "ltr", "rtl", "inherit"
         if ("ltr".equals(direction) || "rtl".equals(direction) || "inherit".equals(direction)) {
+            modify(TEXT_STYLES);
             this.direction = direction;
             gc.setDirection(direction);
         }
@@ -979,6 +1132,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
      */
     @Override
     public void setLetterSpacing(double spacing) {
+        modify(TEXT_STYLES);
         this.letterSpacing = spacing;
         gc.setLetterSpacing(spacing);
     }
@@ -1010,10 +1164,43 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
      */
     @Override
     public void setWordSpacing(double spacing) {
+        modify(TEXT_STYLES);
         this.wordSpacing = spacing;
         gc.setWordSpacing(spacing);
     }
 
+    /**
+     * Gets the text rendering hint.
+     *
+     * @return Current text rendering hint (default: "auto")
+     */
+    @Override
+    public String getTextRendering() {
+        return textRendering;
+    }
+
+    /**
+     * Sets the text rendering hint.
+     *
+     * <p>
+     * <strong>Implementation Status:</strong> In the AWT backend,
+     * "optimizeSpeed" draws untransformed fillText calls through a cached glyph
+     * atlas (see {@code AwtGlyphAtlas}). Other values use the regular text
+     * pipeline. The JavaFX backend stores the value only.
+     *
+     * @param textRendering "auto", "optimizeSpeed", "optimizeLegibility", or
+     *                      "geometricPrecision". Invalid values are ignored.
+     */
+    @Override
+    public void setTextRendering(String textRendering) {
+        if ("auto".equals(textRendering) || "optimizeSpeed".equals(textRendering)
+                || "optimizeLegibility".equals(textRendering) || "geometricPrecision".equals(textRendering)) {
+            modify(TEXT_STYLES);
+            this.textRendering = textRendering;
+            gc.setTextRendering(textRendering);
+        }
+    }
+
     @Override
     public void fillText(String text, double x, double y, double maxWidth) {
         applyCurrentState();
@@ -1104,6 +1291,7 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
 
     @Override
     public void setFilter(String filter) {
+        modify(FILTER);
         if (filter == null || filter.trim().isEmpty()) {
             this.filter = "none";
         } else {
@@ -1360,99 +1548,140 @@ public class CoreCanvasRenderingContext2D implements ICanvasRenderingContext2D {
         }
     }
 
+    /**
+     * A saved state. It starts out empty and copies each group of properties the first time
+     * the group changes after save(), so that saving costs nothing for the groups a caller
+     * leaves alone and restoring only puts back the ones it changed.
+     */
     private static class ContextState {
-        private final Object fillStyle;
-        private final Object strokeStyle;
-        private final double globalAlpha;
-        private final String globalCompositeOperation;
-        private final double lineWidth;
-        private final String lineJoin;
-        private final String lineCap;
-        private final double miterLimit;
-        private final Object lineDash;
-        private final double lineDashOffset;
-        private final Object transform;
+        // Groups copied so far
+        private int groups;
+
+        private Object fillStyle;
+        private Object strokeStyle;
+        private double globalAlpha;
+        private String globalCompositeOperation;
+        private double lineWidth;
+        private String lineJoin;
+        private String lineCap;
+        private double miterLimit;
+        private Object lineDash;
+        private double lineDashOffset;
+        private Object transform;
 
         // Shadow properties
-        private final double shadowBlur;
-        private final String shadowColor;
-        private final double shadowOffsetX;
-        private final double shadowOffsetY;
+        private double shadowBlur;
+        private String shadowColor;
+        private double shadowOffsetX;
+        private double shadowOffsetY;
 
         // Image smoothing
-        private final boolean imageSmoothingEnabled;
-        private final String imageSmoothingQuality;
+        private boolean imageSmoothingEnabled;
+        private String imageSmoothingQuality;
 
         // Modern text properties
-        private final String direction;
-        private final double letterSpacing;
-        private final double wordSpacing;
+        private String direction;
+        private double letterSpacing;
+        private double wordSpacing;
+        private String textRendering;
 
         // Filter property
-        private final String filter;
-
-        ContextState(CoreCanvasRenderingContext2D ctx) {
-            this.fillStyle = ctx.fillStyle;
-            this.strokeStyle = ctx.strokeStyle;
-            this.globalAlpha = ctx.globalAlpha;
-            this.globalCompositeOperation = ctx.globalCompositeOperation;
-            this.lineWidth = ctx.lineWidth;
-            this.lineJoin = ctx.lineJoin;
-            this.lineCap = ctx.lineCap;
-            this.miterLimit = ctx.miterLimit;
-            this.lineDash = ctx.lineDash;
-            this.lineDashOffset = ctx.lineDashOffset;
-            this.transform = ctx.gc.getTransform();
-
-            // Save shadow properties
-            this.shadowBlur = ctx.shadowBlur;
-            this.shadowColor = ctx.shadowColor;
-            this.shadowOffsetX = ctx.shadowOffsetX;
-            this.shadowOffsetY = ctx.shadowOffsetY;
-
-            // Save image smoothing
-            this.imageSmoothingEnabled = ctx.imageSmoothingEnabled;
-            this.imageSmoothingQuality = ctx.imageSmoothingQuality;
-
-            // Save modern text properties
-            this.direction = ctx.direction;
-            this.letterSpacing = ctx.letterSpacing;
-            this.wordSpacing = ctx.wordSpacing;
-
-            // Save filter property
-            this.filter = ctx.filter;
+        private String filter;
+
+        void copy(CoreCanvasRenderingContext2D ctx, int group) {
+            groups |= group;
+            switch (group) {
+                case STYLES:
+                    this.fillStyle = ctx.fillStyle;
+                    this.strokeStyle = ctx.strokeStyle;
+                    break;
+                case COMPOSITING:
+                    this.globalAlpha = ctx.globalAlpha;
+                    this.globalCompositeOperation = ctx.globalCompositeOperation;
+                    break;
+                case LINE_STYLES:
+                    this.lineWidth = ctx.lineWidth;
+                    this.lineJoin = ctx.lineJoin;
+                    this.lineCap = ctx.lineCap;
+                    this.miterLimit = ctx.miterLimit;
+                    this.lineDash = ctx.lineDash;
+                    this.lineDashOffset = ctx.lineDashOffset;
+                    break;
+                case SHADOWS:
+                    this.shadowBlur = ctx.shadowBlur;
+                    this.shadowColor = ctx.shadowColor;
+                    this.shadowOffsetX = ctx.shadowOffsetX;
+                    this.shadowOffsetY = ctx.shadowOffsetY;
+                    break;
+                case SMOOTHING:
+                    this.imageSmoothingEnabled = ctx.imageSmoothingEnabled;
+                    this.imageSmoothingQuality = ctx.imageSmoothingQuality;
+                    break;
+                case TEXT_STYLES:
+                    this.direction = ctx.direction;
+                    this.letterSpacing = ctx.letterSpacing;
+                    this.wordSpacing = ctx.wordSpacing;
+                    this.textRendering = ctx.textRendering;
+                    break;
+                case FILTER:
+                    this.filter = ctx.filter;
+                    break;
+                case TRANSFORM:
+                    this.transform = ctx.gc.getTransform();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown state group: " + group);
+            }
         }
 
         void apply(CoreCanvasRenderingContext2D ctx) {
-            ctx.fillStyle = this.fillStyle;
-            ctx.strokeStyle = this.strokeStyle;
-            ctx.globalAlpha = this.globalAlpha;
-            ctx.globalCompositeOperation = this.globalCompositeOperation;
-            ctx.lineWidth = this.lineWidth;
-            ctx.lineJoin = this.lineJoin;
-            ctx.lineCap = this.lineCap;
-            ctx.miterLimit = this.miterLimit;
-            ctx.lineDash = this.lineDash;
-            ctx.lineDashOffset = this.lineDashOffset;
-            ctx.gc.setTransform(this.transform);
+            if ((groups & STYLES) != 0) {
+                ctx.fillStyle = this.fillStyle;
+                ctx.strokeStyle = this.strokeStyle;
+            }
+            if ((groups & COMPOSITING) != 0) {
+                ctx.globalAlpha = this.globalAlpha;
+                ctx.globalCompositeOperation = this.globalCompositeOperation;
+            }
+            if ((groups & LINE_STYLES) != 0) {
+                ctx.lineWidth = this.lineWidth;
+                ctx.lineJoin = this.lineJoin;
+                ctx.lineCap = this.lineCap;
+                ctx.miterLimit = this.miterLimit;
+                ctx.lineDash = this.lineDash;
+                ctx.lineDashOffset = this.lineDashOffset;
+            }
+            if ((groups & TRANSFORM) != 0) {
+                ctx.gc.setTransform(this.transform);
+            }
 
             // Restore shadow properties
-            ctx.shadowBlur = this.shadowBlur;
-            ctx.shadowColor = this.shadowColor;
-            ctx.shadowOffsetX = this.shadowOffsetX;
-            ctx.shadowOffsetY = this.shadowOffsetY;
+            if ((groups & SHADOWS) != 0) {
+                ctx.shadowBlur = this.shadowBlur;
+                ctx.shadowColor = this.shadowColor;
+                ctx.shadowOffsetX = this.shadowOffsetX;
+                ctx.shadowOffsetY = this.shadowOffsetY;
+            }
 
             // Restore image smoothing
-            ctx.imageSmoothingEnabled = this.imageSmoothingEnabled;
-            ctx.imageSmoothingQuality = this.imageSmoothingQuality;
+            if ((groups & SMOOTHING) != 0) {
+                ctx.imageSmoothingEnabled = this.imageSmoothingEnabled;
+                ctx.imageSmoothingQuality = this.imageSmoothingQuality;
+            }
 
             // Restore modern text properties
-            ctx.direction = this.direction;
-            ctx.letterSpacing = this.letterSpacing;
-            ctx.wordSpacing = this.wordSpacing;
+            if ((groups & TEXT_STYLES) != 0) {
+                ctx.direction = this.direction;
+                ctx.letterSpacing = this.letterSpacing;
+                ctx.wordSpacing = this.wordSpacing;
+                ctx.textRendering = this.textRendering;
+            }
 
             // Restore filter property
-            ctx.filter = this.filter;
+            if ((groups & FILTER) != 0) {
+                ctx.filter = this.filter;
+            }
+            ctx.dirty |= groups;
         }
     }
 }
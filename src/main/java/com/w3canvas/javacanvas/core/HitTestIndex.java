@@ -0,0 +1,218 @@
+package com.w3canvas.javacanvas.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over the user-space bounding boxes of a list of {@link Path2D} objects.
+ *
+ * <p>Interactive charts hit-test the pointer against thousands of paths on every mouse
+ * move. The index maps each grid cell to the paths whose bounding box overlaps it, so a
+ * query only looks at the paths near the point and the exact (expensive) shape test runs
+ * for a handful of candidates instead of every path.
+ *
+ * <p>{@link #update(Path2D[])} keeps the index in sync with the caller's list. When every
+ * path is unchanged (same object, same {@link Path2D#getVersion() version}) it costs one
+ * comparison per path; otherwise the grid is rebuilt from the cached path bounds.
+ *
+ * <p>This class is not thread-safe; each rendering context owns its own index.
+ */
+public class HitTestIndex {
+
+    /**
+     * Default grid cell size, in user-space units.
+     */
+    public static final double DEFAULT_CELL_SIZE = 64;
+
+    // Paths whose box spans more cells than this are kept in a list checked on every query
+    private static final int MAX_CELLS_PER_PATH = 256;
+
+    private final double cellSize;
+    private final Map<Long, int[]> cells = new HashMap<>();
+    private final List<Integer> oversized = new ArrayList<>();
+
+    private Path2D[] paths = new Path2D[0];
+    private int[] versions = new int[0];
+    private double[][] boxes = new double[0][];
+
+    // Per-query stamps used to report each candidate once
+    private int[] seen = new int[0];
+    private int stamp;
+
+    public HitTestIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public HitTestIndex(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive, got: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Synchronizes the index with {@code newPaths}, rebuilding it if anything changed.
+     *
+     * @param newPaths the paths to index; the array index is the path's id in query results
+     */
+    public void update(Path2D[] newPaths) {
+        boolean rebuild = newPaths.length != paths.length;
+        for (int i = 0; !rebuild && i < newPaths.length; i++) {
+            rebuild = newPaths[i] != paths[i]
+                    || (newPaths[i] != null && newPaths[i].getVersion() != versions[i]);
+        }
+        if (!rebuild) {
+            return;
+        }
+
+        cells.clear();
+        oversized.clear();
+        paths = newPaths.clone();
+        versions = new int[paths.length];
+        boxes = new double[paths.length][];
+        if (seen.length < paths.length) {
+            seen = new int[paths.length];
+            stamp = 0;
+        }
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i] == null) {
+                continue;
+            }
+            versions[i] = paths[i].getVersion();
+            boxes[i] = paths[i].getBounds();
+            if (boxes[i] != null) {
+                insert(i, boxes[i]);
+            }
+        }
+    }
+
+    private void insert(int id, double[] box) {
+        if (!isFinite(box) || cellCount(box[2] - box[0], box[3] - box[1]) > MAX_CELLS_PER_PATH) {
+            oversized.add(id);
+            return;
+        }
+        long minCol = cell(box[0]);
+        long minRow = cell(box[1]);
+        long maxCol = cell(box[2]);
+        long maxRow = cell(box[3]);
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                long key = key(col, row);
+                int[] ids = cells.get(key);
+                if (ids == null) {
+                    cells.put(key, new int[] { 1, id });
+                } else {
+                    if (ids[0] + 1 == ids.length) {
+                        ids = Arrays.copyOf(ids, ids.length * 2);
+                        cells.put(key, ids);
+                    }
+                    ids[++ids[0]] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the paths whose bounding box, grown by {@code margin}, contains
+     * the user-space point (x, y), in ascending order.
+     *
+     * @param x      the x-coordinate in user space
+     * @param y      the y-coordinate in user space
+     * @param margin extra distance around each box, e.g. half the stroke width
+     * @return the candidate ids; empty if no box is near the point
+     */
+    public int[] query(double x, double y, double margin) {
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        int[] result = new int[8];
+        int count = 0;
+
+        if (!Double.isFinite(x) || !Double.isFinite(y) || Double.isNaN(margin)) {
+            return new int[0];
+        }
+        if (cellCount(2 * margin, 2 * margin) > MAX_CELLS_PER_PATH) {
+            // Very large stroke margin: checking every box is cheaper than walking the cells
+            for (int id = 0; id < boxes.length; id++) {
+                if (boxes[id] != null && contains(boxes[id], x, y, margin)) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = id;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        long minCol = cell(x - margin);
+        long minRow = cell(y - margin);
+        long maxCol = cell(x + margin);
+        long maxRow = cell(y + margin);
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                int[] ids = cells.get(key(col, row));
+                if (ids == null) {
+                    continue;
+                }
+                for (int i = 1; i <= ids[0]; i++) {
+                    int id = ids[i];
+                    if (seen[id] != stamp) {
+                        seen[id] = stamp;
+                        if (contains(boxes[id], x, y, margin)) {
+                            if (count == result.length) {
+                                result = Arrays.copyOf(result, count * 2);
+                            }
+                            result[count++] = id;
+                        }
+                    }
+                }
+            }
+        }
+        for (int id : oversized) {
+            if (contains(boxes[id], x, y, margin)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = id;
+            }
+        }
+
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of indexed paths.
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    private static boolean isFinite(double[] box) {
+        return Double.isFinite(box[0]) && Double.isFinite(box[1])
+                && Double.isFinite(box[2]) && Double.isFinite(box[3]);
+    }
+
+    private static boolean contains(double[] box, double x, double y, double margin) {
+        return x >= box[0] - margin && x <= box[2] + margin
+                && y >= box[1] - margin && y <= box[3] + margin;
+    }
+
+    // Upper bound on the number of cells covered by a box of the given size
+    private double cellCount(double width, double height) {
+        return (width / cellSize + 2) * (height / cellSize + 2);
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(long col, long row) {
+        return (col << 32) ^ (row & 0xFFFFFFFFL);
+    }
+}
@@ -40,6 +40,27 @@ public class ImageBitmap implements IImageBitmap {
         this.closed = false;
     }
 
+    private ImageBitmap(BufferedImage image, int width, int height) {
+        this.image = image;
+        this.width = width;
+        this.height = height;
+        this.closed = false;
+    }
+
+    /**
+     * Creates an ImageBitmap that takes ownership of a BufferedImage without copying it.
+     * The caller must not draw into the image afterwards.
+     *
+     * @param image the image to adopt
+     * @return an ImageBitmap backed by {@code image}
+     */
+    public static ImageBitmap adopt(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        return new ImageBitmap(image, image.getWidth(), image.getHeight());
+    }
+
     /**
      * Creates an ImageBitmap from an HTMLCanvasElement.
      *
@@ -1,7 +1,10 @@
 package com.w3canvas.javacanvas.core;
 
+import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
 import com.w3canvas.javacanvas.interfaces.IPath2D;
+import com.w3canvas.javacanvas.interfaces.IShape;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -12,8 +15,10 @@ import java.util.List;
  * to be created independently of the rendering context and then used with
  * {@code fill()}, {@code stroke()}, {@code clip()}, and hit-testing methods.
  *
- * <p>The path is stored as a list of path elements (commands) that can be replayed
- * on any {@link IGraphicsContext}. This allows for:
+ * <p>The path is stored as packed primitive arrays: one verb byte per command and its
+ * numeric arguments appended to a shared {@code double[]}. Building a long polyline
+ * therefore allocates nothing per vertex beyond occasional array growth. The commands
+ * can be replayed on any {@link IGraphicsContext}. This allows for:
  * <ul>
  *   <li>Creating complex paths once and reusing them multiple times</li>
  *   <li>Copying and modifying paths without affecting the original</li>
@@ -21,6 +26,11 @@ import java.util.List;
  *   <li>Serializing and deserializing paths (command list is accessible)</li>
  * </ul>
  *
+ * <p>Backends that support it build the path into a native shape once, in user space, and
+ * keep it on the Path2D (see {@link #getRetainedShape(IGraphicsContext)}). Repeated
+ * {@code fill(path)} or {@code stroke(path)} calls then only map that shape through the
+ * current transform. Any mutation drops the retained shape.
+ *
  * <p><strong>Example usage:</strong>
  * <pre>{@code
  * Path2D path = new Path2D();
@@ -40,20 +50,62 @@ import java.util.List;
  */
 public class Path2D implements IPath2D {
 
-    private final List<PathElement> elements;
+    private static final PathElement.Type[] TYPES = PathElement.Type.values();
+
+    // Number of coordinates stored for each verb, indexed by PathElement.Type ordinal
+    private static final int[] ARG_COUNT = new int[TYPES.length];
+
+    static {
+        ARG_COUNT[PathElement.Type.MOVE_TO.ordinal()] = 2;
+        ARG_COUNT[PathElement.Type.LINE_TO.ordinal()] = 2;
+        ARG_COUNT[PathElement.Type.QUADRATIC_CURVE_TO.ordinal()] = 4;
+        ARG_COUNT[PathElement.Type.BEZIER_CURVE_TO.ordinal()] = 6;
+        ARG_COUNT[PathElement.Type.ARC_TO.ordinal()] = 5;
+        ARG_COUNT[PathElement.Type.RECT.ordinal()] = 4;
+        ARG_COUNT[PathElement.Type.ROUND_RECT.ordinal()] = 4;
+        ARG_COUNT[PathElement.Type.ARC.ordinal()] = 6;
+        ARG_COUNT[PathElement.Type.ELLIPSE.ordinal()] = 8;
+        ARG_COUNT[PathElement.Type.CLOSE_PATH.ordinal()] = 0;
+    }
+
+    private static final byte MOVE_TO = (byte) PathElement.Type.MOVE_TO.ordinal();
+    private static final byte LINE_TO = (byte) PathElement.Type.LINE_TO.ordinal();
+    private static final byte QUADRATIC_CURVE_TO = (byte) PathElement.Type.QUADRATIC_CURVE_TO.ordinal();
+    private static final byte BEZIER_CURVE_TO = (byte) PathElement.Type.BEZIER_CURVE_TO.ordinal();
+    private static final byte ARC_TO = (byte) PathElement.Type.ARC_TO.ordinal();
+    private static final byte RECT = (byte) PathElement.Type.RECT.ordinal();
+    private static final byte ROUND_RECT = (byte) PathElement.Type.ROUND_RECT.ordinal();
+    private static final byte ARC = (byte) PathElement.Type.ARC.ordinal();
+    private static final byte ELLIPSE = (byte) PathElement.Type.ELLIPSE.ordinal();
+    private static final byte CLOSE_PATH = (byte) PathElement.Type.CLOSE_PATH.ordinal();
+
+    private byte[] verbs = new byte[16];
+    private int verbCount;
+    private double[] coords = new double[32];
+    private int coordCount;
+
+    // roundRect radii, consumed in order by ROUND_RECT verbs
+    private List<Object> extras;
+
+    // Backend shape built from the commands, and the context class that built it
+    private IShape retainedShape;
+    private Class<?> retainedShapeOwner;
+
+    // Incremented on every mutation; bounds are cached for one version
+    private int version;
+    private double[] bounds;
+    private int boundsVersion = -1;
 
     /**
      * Create a new empty Path2D.
      */
     public Path2D() {
-        this.elements = new ArrayList<>();
     }
 
     /**
      * Create a new Path2D as a copy of another path.
      */
     public Path2D(IPath2D path) {
-        this.elements = new ArrayList<>();
         if (path != null) {
             addPath(path);
         }
@@ -61,107 +113,383 @@ public class Path2D implements IPath2D {
 
     @Override
     public void moveTo(double x, double y) {
-        elements.add(new PathElement(PathElement.Type.MOVE_TO, null, x, y));
+        int i = append(MOVE_TO);
+        coords[i] = x;
+        coords[i + 1] = y;
     }
 
     @Override
     public void lineTo(double x, double y) {
-        elements.add(new PathElement(PathElement.Type.LINE_TO, null, x, y));
+        int i = append(LINE_TO);
+        coords[i] = x;
+        coords[i + 1] = y;
     }
 
     @Override
     public void quadraticCurveTo(double cpx, double cpy, double x, double y) {
-        elements.add(new PathElement(PathElement.Type.QUADRATIC_CURVE_TO, null, cpx, cpy, x, y));
+        int i = append(QUADRATIC_CURVE_TO);
+        coords[i] = cpx;
+        coords[i + 1] = cpy;
+        coords[i + 2] = x;
+        coords[i + 3] = y;
     }
 
     @Override
     public void bezierCurveTo(double cp1x, double cp1y, double cp2x, double cp2y, double x, double y) {
-        elements.add(new PathElement(PathElement.Type.BEZIER_CURVE_TO, null, cp1x, cp1y, cp2x, cp2y, x, y));
+        int i = append(BEZIER_CURVE_TO);
+        coords[i] = cp1x;
+        coords[i + 1] = cp1y;
+        coords[i + 2] = cp2x;
+        coords[i + 3] = cp2y;
+        coords[i + 4] = x;
+        coords[i + 5] = y;
     }
 
     @Override
     public void arcTo(double x1, double y1, double x2, double y2, double radius) {
-        elements.add(new PathElement(PathElement.Type.ARC_TO, null, x1, y1, x2, y2, radius));
+        int i = append(ARC_TO);
+        coords[i] = x1;
+        coords[i + 1] = y1;
+        coords[i + 2] = x2;
+        coords[i + 3] = y2;
+        coords[i + 4] = radius;
     }
 
     @Override
     public void rect(double x, double y, double w, double h) {
-        elements.add(new PathElement(PathElement.Type.RECT, null, x, y, w, h));
+        int i = append(RECT);
+        coords[i] = x;
+        coords[i + 1] = y;
+        coords[i + 2] = w;
+        coords[i + 3] = h;
     }
 
     @Override
     public void roundRect(double x, double y, double w, double h, Object radii) {
-        elements.add(new PathElement(PathElement.Type.ROUND_RECT, radii, x, y, w, h));
+        int i = append(ROUND_RECT);
+        coords[i] = x;
+        coords[i + 1] = y;
+        coords[i + 2] = w;
+        coords[i + 3] = h;
+        if (extras == null) {
+            extras = new ArrayList<>();
+        }
+        extras.add(radii);
     }
 
     @Override
     public void arc(double x, double y, double radius, double startAngle, double endAngle, boolean counterclockwise) {
-        elements.add(new PathElement(PathElement.Type.ARC, null, x, y, radius, startAngle, endAngle, counterclockwise ? 1.0 : 0.0));
+        int i = append(ARC);
+        coords[i] = x;
+        coords[i + 1] = y;
+        coords[i + 2] = radius;
+        coords[i + 3] = startAngle;
+        coords[i + 4] = endAngle;
+        coords[i + 5] = counterclockwise ? 1.0 : 0.0;
     }
 
     @Override
     public void ellipse(double x, double y, double radiusX, double radiusY, double rotation,
                        double startAngle, double endAngle, boolean counterclockwise) {
-        elements.add(new PathElement(PathElement.Type.ELLIPSE, null, x, y, radiusX, radiusY, rotation,
-                startAngle, endAngle, counterclockwise ? 1.0 : 0.0));
+        int i = append(ELLIPSE);
+        coords[i] = x;
+        coords[i + 1] = y;
+        coords[i + 2] = radiusX;
+        coords[i + 3] = radiusY;
+        coords[i + 4] = rotation;
+        coords[i + 5] = startAngle;
+        coords[i + 6] = endAngle;
+        coords[i + 7] = counterclockwise ? 1.0 : 0.0;
     }
 
     @Override
     public void closePath() {
-        elements.add(new PathElement(PathElement.Type.CLOSE_PATH, null));
+        append(CLOSE_PATH);
     }
 
     @Override
     public void addPath(IPath2D path) {
-        if (path != null && path.getElements() != null) {
-            elements.addAll(path.getElements());
+        if (path instanceof Path2D) {
+            Path2D other = (Path2D) path;
+            // Snapshot the counts first so that path.addPath(path) doubles the path
+            int otherVerbs = other.verbCount;
+            int otherCoords = other.coordCount;
+            ensureCapacity(otherVerbs, otherCoords);
+            System.arraycopy(other.verbs, 0, verbs, verbCount, otherVerbs);
+            System.arraycopy(other.coords, 0, coords, coordCount, otherCoords);
+            verbCount += otherVerbs;
+            coordCount += otherCoords;
+            if (other.extras != null && !other.extras.isEmpty()) {
+                if (extras == null) {
+                    extras = new ArrayList<>();
+                }
+                extras.addAll(new ArrayList<>(other.extras));
+            }
+            invalidate();
+        } else if (path != null && path.getElements() != null) {
+            for (PathElement element : path.getElements()) {
+                int i = append((byte) element.getType().ordinal());
+                System.arraycopy(element.getParams(), 0, coords, i, ARG_COUNT[element.getType().ordinal()]);
+                if (element.getType() == PathElement.Type.ROUND_RECT) {
+                    if (extras == null) {
+                        extras = new ArrayList<>();
+                    }
+                    extras.add(element.getExtra());
+                }
+            }
         }
     }
 
+    /**
+     * Returns the path commands as element objects.
+     *
+     * <p>The elements are created on each call; rendering code should use
+     * {@link #replayOn(IGraphicsContext)} instead.
+     */
     @Override
     public List<PathElement> getElements() {
-        return new ArrayList<>(elements);
+        List<PathElement> elements = new ArrayList<>(verbCount);
+        int c = 0;
+        int extra = 0;
+        for (int v = 0; v < verbCount; v++) {
+            int type = verbs[v];
+            int count = ARG_COUNT[type];
+            double[] params = Arrays.copyOfRange(coords, c, c + count);
+            Object extraValue = type == ROUND_RECT ? extras.get(extra++) : null;
+            elements.add(new PathElement(TYPES[type], extraValue, params));
+            c += count;
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the number of commands in this path.
+     */
+    public int getCommandCount() {
+        return verbCount;
+    }
+
+    /**
+     * Returns the rectangles of a path built only from {@code rect()} calls (optionally
+     * mixed with {@code moveTo()} and {@code closePath()}), packed as x, y, width, height
+     * quadruples, or null if the path contains any other command.
+     */
+    public double[] getRectangles() {
+        int rectCount = 0;
+        for (int v = 0; v < verbCount; v++) {
+            byte verb = verbs[v];
+            if (verb == RECT) {
+                rectCount++;
+            } else if (verb != MOVE_TO && verb != CLOSE_PATH) {
+                return null;
+            }
+        }
+        double[] rects = new double[rectCount * 4];
+        int r = 0;
+        int c = 0;
+        for (int v = 0; v < verbCount; v++) {
+            if (verbs[v] == RECT) {
+                System.arraycopy(coords, c, rects, r, 4);
+                r += 4;
+            }
+            c += ARG_COUNT[verbs[v]];
+        }
+        return rects;
+    }
+
+    private int append(byte verb) {
+        int count = ARG_COUNT[verb];
+        ensureCapacity(1, count);
+        verbs[verbCount++] = verb;
+        int start = coordCount;
+        coordCount += count;
+        invalidate();
+        return start;
+    }
+
+    private void ensureCapacity(int extraVerbs, int extraCoords) {
+        if (verbCount + extraVerbs > verbs.length) {
+            verbs = Arrays.copyOf(verbs, Math.max(verbs.length * 2, verbCount + extraVerbs));
+        }
+        if (coordCount + extraCoords > coords.length) {
+            coords = Arrays.copyOf(coords, Math.max(coords.length * 2, coordCount + extraCoords));
+        }
+    }
+
+    private void invalidate() {
+        retainedShape = null;
+        retainedShapeOwner = null;
+        version++;
+    }
+
+    /**
+     * Returns a counter that changes whenever the path is modified.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a conservative user-space bounding box of this path as
+     * {@code {minX, minY, maxX, maxY}}, or null if the path has no geometry.
+     *
+     * <p>Curves are bounded by their control points and arcs by their full circle or
+     * ellipse, so the box may be larger than the painted area but never smaller.
+     * The result is cached until the path changes; callers must not modify it.
+     */
+    public double[] getBounds() {
+        if (boundsVersion != version) {
+            bounds = computeBounds();
+            boundsVersion = version;
+        }
+        return bounds;
+    }
+
+    private double[] computeBounds() {
+        double[] b = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        final double[] p = coords;
+        double curX = Double.NaN, curY = Double.NaN;
+        double startX = Double.NaN, startY = Double.NaN;
+        double[] end = new double[2];
+        int c = 0;
+        for (int v = 0; v < verbCount; v++) {
+            byte verb = verbs[v];
+            if (verb == MOVE_TO) {
+                include(b, p[c], p[c + 1], 0);
+                curX = startX = p[c];
+                curY = startY = p[c + 1];
+            } else if (verb == LINE_TO || verb == QUADRATIC_CURVE_TO || verb == BEZIER_CURVE_TO) {
+                int count = ARG_COUNT[verb];
+                for (int i = 0; i < count; i += 2) {
+                    include(b, p[c + i], p[c + i + 1], 0);
+                }
+                curX = p[c + count - 2];
+                curY = p[c + count - 1];
+            } else if (verb == ARC_TO) {
+                if (!Double.isNaN(curX)) {
+                    includeArcTo(b, curX, curY, p[c], p[c + 1], p[c + 2], p[c + 3], p[c + 4], end);
+                    curX = end[0];
+                    curY = end[1];
+                }
+            } else if (verb == RECT || verb == ROUND_RECT) {
+                include(b, p[c], p[c + 1], 0);
+                include(b, p[c] + p[c + 2], p[c + 1] + p[c + 3], 0);
+                curX = startX = p[c];
+                curY = startY = p[c + 1];
+            } else if (verb == ARC) {
+                include(b, p[c], p[c + 1], Math.abs(p[c + 2]));
+                curX = p[c] + p[c + 2] * Math.cos(p[c + 4]);
+                curY = p[c + 1] + p[c + 2] * Math.sin(p[c + 4]);
+            } else if (verb == ELLIPSE) {
+                include(b, p[c], p[c + 1], Math.max(Math.abs(p[c + 2]), Math.abs(p[c + 3])));
+                double ex = p[c + 2] * Math.cos(p[c + 6]);
+                double ey = p[c + 3] * Math.sin(p[c + 6]);
+                curX = p[c] + ex * Math.cos(p[c + 4]) - ey * Math.sin(p[c + 4]);
+                curY = p[c + 1] + ex * Math.sin(p[c + 4]) + ey * Math.cos(p[c + 4]);
+            } else if (verb == CLOSE_PATH) {
+                curX = startX;
+                curY = startY;
+            }
+            c += ARG_COUNT[verb];
+        }
+        return b[0] <= b[2] && b[1] <= b[3] ? b : null;
+    }
+
+    private static void include(double[] b, double x, double y, double radius) {
+        b[0] = Math.min(b[0], x - radius);
+        b[1] = Math.min(b[1], y - radius);
+        b[2] = Math.max(b[2], x + radius);
+        b[3] = Math.max(b[3], y + radius);
+    }
+
+    /**
+     * Includes the segment added by {@code arcTo} from (x0, y0) and stores its end point.
+     * Mirrors the backends: degenerate input becomes a line to (x1, y1).
+     */
+    private static void includeArcTo(double[] b, double x0, double y0, double x1, double y1,
+                                     double x2, double y2, double radius, double[] end) {
+        include(b, x1, y1, 0);
+        end[0] = x1;
+        end[1] = y1;
+        double len01 = Math.hypot(x1 - x0, y1 - y0);
+        double len12 = Math.hypot(x2 - x1, y2 - y1);
+        if (radius == 0 || len01 == 0 || len12 == 0) {
+            return;
+        }
+        double dx01 = (x1 - x0) / len01, dy01 = (y1 - y0) / len01;
+        double dx12 = (x2 - x1) / len12, dy12 = (y2 - y1) / len12;
+        double angle = Math.acos(Math.max(-1, Math.min(1, dx01 * dx12 + dy01 * dy12)));
+        if (angle < 1e-6 || Math.abs(angle - Math.PI) < 1e-6) {
+            return;
+        }
+        // Both tangent points are on the arc's circle, so the circle's box covers them
+        double tangent = radius / Math.tan(angle / 2.0);
+        double t1x = x1 - tangent * dx01, t1y = y1 - tangent * dy01;
+        double side = dx01 * dy12 - dy01 * dx12 < 0 ? -1 : 1;
+        include(b, t1x - side * dy01 * radius, t1y + side * dx01 * radius, Math.abs(radius));
+        end[0] = x1 + tangent * dx12;
+        end[1] = y1 + tangent * dy12;
+    }
+
+    /**
+     * Returns the native shape retained for this path by the backend of {@code gc},
+     * building it on first use and after any mutation.
+     *
+     * @param gc the graphics context the path is drawn on
+     * @return the retained user-space shape, or null if the backend does not retain paths
+     */
+    public IShape getRetainedShape(IGraphicsContext gc) {
+        if (retainedShapeOwner != gc.getClass()) {
+            retainedShape = gc.createRetainedPath(this);
+            retainedShapeOwner = gc.getClass();
+        }
+        return retainedShape;
     }
 
     /**
-     * Replay all path elements onto a graphics context.
+     * Replay all path commands onto a graphics context.
      */
-    public void replayOn(com.w3canvas.javacanvas.interfaces.IGraphicsContext gc) {
-        for (PathElement element : elements) {
-            double[] params = element.getParams();
-            switch (element.getType()) {
+    public void replayOn(IGraphicsContext gc) {
+        final byte[] verbs = this.verbs;
+        final double[] p = this.coords;
+        int c = 0;
+        int extra = 0;
+        for (int v = 0; v < verbCount; v++) {
+            switch (TYPES[verbs[v]]) {
                 case MOVE_TO:
-                    gc.moveTo(params[0], params[1]);
+                    gc.moveTo(p[c], p[c + 1]);
                     break;
                 case LINE_TO:
-                    gc.lineTo(params[0], params[1]);
+                    gc.lineTo(p[c], p[c + 1]);
                     break;
                 case QUADRATIC_CURVE_TO:
-                    gc.quadraticCurveTo(params[0], params[1], params[2], params[3]);
+                    gc.quadraticCurveTo(p[c], p[c + 1], p[c + 2], p[c + 3]);
                     break;
                 case BEZIER_CURVE_TO:
-                    gc.bezierCurveTo(params[0], params[1], params[2], params[3], params[4], params[5]);
+                    gc.bezierCurveTo(p[c], p[c + 1], p[c + 2], p[c + 3], p[c + 4], p[c + 5]);
                     break;
                 case ARC_TO:
-                    gc.arcTo(params[0], params[1], params[2], params[3], params[4]);
+                    gc.arcTo(p[c], p[c + 1], p[c + 2], p[c + 3], p[c + 4]);
                     break;
                 case RECT:
-                    gc.rect(params[0], params[1], params[2], params[3]);
+                    gc.rect(p[c], p[c + 1], p[c + 2], p[c + 3]);
                     break;
                 case ROUND_RECT:
-                    gc.roundRect(params[0], params[1], params[2], params[3], element.getExtra());
+                    gc.roundRect(p[c], p[c + 1], p[c + 2], p[c + 3], extras.get(extra++));
                     break;
                 case ARC:
-                    gc.arc(params[0], params[1], params[2], params[3], params[4], params[5] != 0.0);
+                    gc.arc(p[c], p[c + 1], p[c + 2], p[c + 3], p[c + 4], p[c + 5] != 0.0);
                     break;
                 case ELLIPSE:
-                    gc.ellipse(params[0], params[1], params[2], params[3], params[4],
-                              params[5], params[6], params[7] != 0.0);
+                    gc.ellipse(p[c], p[c + 1], p[c + 2], p[c + 3], p[c + 4],
+                              p[c + 5], p[c + 6], p[c + 7] != 0.0);
                     break;
                 case CLOSE_PATH:
                     gc.closePath();
                     break;
             }
+            c += ARG_COUNT[verbs[v]];
         }
     }
 }
@@ -0,0 +1,288 @@
+package com.w3canvas.javacanvas.core;
+
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
+
+/**
+ * Row-at-a-time compositing of premultiplied ARGB pixels with integer math.
+ *
+ * <p>
+ * Pixels are packed {@code 0xAARRGGBB} ints with the color channels already
+ * multiplied by alpha (JavaFX {@code IntArgbPre}, AWT {@code TYPE_INT_ARGB_PRE}).
+ * Porter-Duff operators work directly on the premultiplied channels; blend modes
+ * unpremultiply only to evaluate the blend function B(Cb, Cs). Nothing is
+ * allocated per pixel except for the HSL modes, which go through {@link BlendMath}.
+ *
+ * @see <a href="https://www.w3.org/TR/compositing-1/">CSS Compositing and
+ *      Blending Level 1</a>
+ */
+public class PixelBlend {
+
+    private PixelBlend() {
+        // Static utility class
+    }
+
+    /**
+     * Composites {@code length} source pixels onto the destination pixels in place.
+     *
+     * @param mode  the composite operation
+     * @param src   source row, premultiplied ARGB
+     * @param dst   destination row, premultiplied ARGB; receives the result
+     * @param length number of pixels to process
+     * @param alpha global alpha applied to the source (0.0-1.0)
+     */
+    public static void blendRow(CompositeOperation mode, int[] src, int[] dst, int length, double alpha) {
+        blendRow(mode, src, 0, dst, 0, length, alpha);
+    }
+
+    /**
+     * Composites {@code length} pixels of {@code src} starting at {@code srcOffset} onto
+     * {@code dst} starting at {@code dstOffset}, in place.
+     */
+    public static void blendRow(CompositeOperation mode, int[] src, int srcOffset, int[] dst, int dstOffset,
+            int length, double alpha) {
+        int ga = (int) Math.round(Math.max(0.0, Math.min(1.0, alpha)) * 255);
+        if (isBlendMode(mode)) {
+            for (int i = 0; i < length; i++) {
+                int s = src[srcOffset + i];
+                if (mul(s >>> 24, ga) == 0) {
+                    continue;  // Transparent source leaves the destination unchanged
+                }
+                dst[dstOffset + i] = blendPixel(mode, s, dst[dstOffset + i], ga);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                int s = ga == 255 ? src[srcOffset + i] : scale(src[srcOffset + i], ga);
+                dst[dstOffset + i] = compositePixel(mode, s, dst[dstOffset + i]);
+            }
+        }
+    }
+
+    /**
+     * Returns true for the modes that use a blend function with source-over compositing,
+     * false for the Porter-Duff operators.
+     */
+    public static boolean isBlendMode(CompositeOperation mode) {
+        switch (mode) {
+            case MULTIPLY:
+            case SCREEN:
+            case OVERLAY:
+            case DARKEN:
+            case LIGHTEN:
+            case COLOR_DODGE:
+            case COLOR_BURN:
+            case HARD_LIGHT:
+            case SOFT_LIGHT:
+            case DIFFERENCE:
+            case EXCLUSION:
+            case HUE:
+            case SATURATION:
+            case COLOR:
+            case LUMINOSITY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Converts a non-premultiplied ARGB pixel to premultiplied form.
+     */
+    public static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 255) {
+            return argb;
+        }
+        return (a << 24) | (mul(argb >> 16 & 0xFF, a) << 16) | (mul(argb >> 8 & 0xFF, a) << 8) | mul(argb & 0xFF, a);
+    }
+
+    /**
+     * Converts a premultiplied ARGB pixel to non-premultiplied form.
+     */
+    public static int unpremultiply(int pre) {
+        int a = pre >>> 24;
+        if (a == 255 || a == 0) {
+            return a == 0 ? 0 : pre;
+        }
+        return (a << 24) | (div(pre >> 16 & 0xFF, a) << 16) | (div(pre >> 8 & 0xFF, a) << 8) | div(pre & 0xFF, a);
+    }
+
+    private static int compositePixel(CompositeOperation mode, int s, int d) {
+        int sa = s >>> 24;
+        int da = d >>> 24;
+        int fa;
+        int fb;
+        switch (mode) {
+            case SOURCE_IN:
+                fa = da;
+                fb = 0;
+                break;
+            case SOURCE_OUT:
+                fa = 255 - da;
+                fb = 0;
+                break;
+            case SOURCE_ATOP:
+                fa = da;
+                fb = 255 - sa;
+                break;
+            case DESTINATION_OVER:
+                fa = 255 - da;
+                fb = 255;
+                break;
+            case DESTINATION_IN:
+                fa = 0;
+                fb = sa;
+                break;
+            case DESTINATION_OUT:
+                fa = 0;
+                fb = 255 - sa;
+                break;
+            case DESTINATION_ATOP:
+                fa = 255 - da;
+                fb = sa;
+                break;
+            case XOR:
+                fa = 255 - da;
+                fb = 255 - sa;
+                break;
+            case COPY:
+                fa = 255;
+                fb = 0;
+                break;
+            case LIGHTER:
+                fa = 255;
+                fb = 255;
+                break;
+            default:
+                // Source-over
+                if (sa == 0) {
+                    return d;
+                }
+                fa = 255;
+                fb = 255 - sa;
+                break;
+        }
+        int a = Math.min(255, mul(sa, fa) + mul(da, fb));
+        int r = Math.min(255, mul(s >> 16 & 0xFF, fa) + mul(d >> 16 & 0xFF, fb));
+        int g = Math.min(255, mul(s >> 8 & 0xFF, fa) + mul(d >> 8 & 0xFF, fb));
+        int b = Math.min(255, mul(s & 0xFF, fa) + mul(d & 0xFF, fb));
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Cr = (1 - ab) * Cs' + (1 - as) * Cb' + as * ab * B(Cb, Cs), with Cs' and Cb' premultiplied.
+     * The source colors are unpremultiplied before global alpha is applied, to keep precision.
+     */
+    private static int blendPixel(CompositeOperation mode, int s, int d, int ga) {
+        int csr = div(s >> 16 & 0xFF, s >>> 24), csg = div(s >> 8 & 0xFF, s >>> 24), csb = div(s & 0xFF, s >>> 24);
+        if (ga != 255) {
+            s = scale(s, ga);
+        }
+        int sa = s >>> 24;
+        int da = d >>> 24;
+        int sr = s >> 16 & 0xFF, sg = s >> 8 & 0xFF, sb = s & 0xFF;
+        int dr = d >> 16 & 0xFF, dg = d >> 8 & 0xFF, db = d & 0xFF;
+
+        int outA = sa + da - mul(sa, da);
+        int both = mul(sa, da);
+        int r = mul(255 - da, sr) + mul(255 - sa, dr);
+        int g = mul(255 - da, sg) + mul(255 - sa, dg);
+        int b = mul(255 - da, sb) + mul(255 - sa, db);
+
+        if (both != 0) {
+            int cbr = div(dr, da), cbg = div(dg, da), cbb = div(db, da);
+            int br, bg, bb;
+            switch (mode) {
+                case HUE:
+                case SATURATION:
+                case COLOR:
+                case LUMINOSITY:
+                    float[] hsl = BlendMath.blend(mode,
+                            csr / 255.0f, csg / 255.0f, csb / 255.0f,
+                            cbr / 255.0f, cbg / 255.0f, cbb / 255.0f);
+                    br = Math.round(hsl[0] * 255);
+                    bg = Math.round(hsl[1] * 255);
+                    bb = Math.round(hsl[2] * 255);
+                    break;
+                default:
+                    br = blendChannel(mode, csr, cbr);
+                    bg = blendChannel(mode, csg, cbg);
+                    bb = blendChannel(mode, csb, cbb);
+                    break;
+            }
+            r += mul(both, br);
+            g += mul(both, bg);
+            b += mul(both, bb);
+        }
+
+        return (outA << 24) | (Math.min(outA, r) << 16) | (Math.min(outA, g) << 8) | Math.min(outA, b);
+    }
+
+    /**
+     * Separable blend function B(Cb, Cs) on 0-255 channel values, matching {@link BlendMath}.
+     */
+    private static int blendChannel(CompositeOperation mode, int cs, int cb) {
+        switch (mode) {
+            case MULTIPLY:
+                return mul(cs, cb);
+            case SCREEN:
+                return cs + cb - mul(cs, cb);
+            case OVERLAY:
+                return hardLight(cb, cs);
+            case DARKEN:
+                return Math.min(cs, cb);
+            case LIGHTEN:
+                return Math.max(cs, cb);
+            case COLOR_DODGE:
+                if (cb >= 255 || cs >= 255) {
+                    return 255;
+                }
+                return Math.min(255, (cb * 255 + (255 - cs) / 2) / (255 - cs));
+            case COLOR_BURN:
+                if (cb <= 0 || cs <= 0) {
+                    return 0;
+                }
+                return 255 - Math.min(255, ((255 - cb) * 255 + cs / 2) / cs);
+            case HARD_LIGHT:
+                return hardLight(cs, cb);
+            case SOFT_LIGHT:
+                return Math.round(BlendMath.blendSoftLight(cs / 255.0f, cb / 255.0f) * 255);
+            case DIFFERENCE:
+                return Math.abs(cs - cb);
+            case EXCLUSION:
+                return cs + cb - 2 * mul(cs, cb);
+            default:
+                return cs;
+        }
+    }
+
+    private static int hardLight(int cs, int cb) {
+        if (cs <= 127) {
+            return mul(2 * cs, cb);
+        }
+        int s2 = 2 * cs - 255;
+        return s2 + cb - mul(s2, cb);
+    }
+
+    private static int scale(int pixel, int alpha) {
+        return (mul(pixel >>> 24, alpha) << 24) | (mul(pixel >> 16 & 0xFF, alpha) << 16)
+                | (mul(pixel >> 8 & 0xFF, alpha) << 8) | mul(pixel & 0xFF, alpha);
+    }
+
+    /**
+     * a * b / 255, rounded.
+     */
+    private static int mul(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >>> 8)) >>> 8;
+    }
+
+    /**
+     * c * 255 / a, rounded and clamped; 0 when a is 0.
+     */
+    private static int div(int c, int a) {
+        if (a == 0) {
+            return 0;
+        }
+        return Math.min(255, (c * 255 + a / 2) / a);
+    }
+}
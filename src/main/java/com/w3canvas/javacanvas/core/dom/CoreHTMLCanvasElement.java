@@ -38,6 +38,8 @@ public class CoreHTMLCanvasElement extends CoreElement {
     private int width;
     private int height;
     private BufferedImage image;
+    // Set when the size has changed and the image has not been recreated yet
+    private boolean resized;
 
     // The rendering context is managed by the backend adapter (Rhino, GraalJS)
     // Core just tracks dimensions and image
@@ -64,7 +66,9 @@ public class CoreHTMLCanvasElement extends CoreElement {
     }
 
     /**
-     * Create or recreate the underlying BufferedImage.
+     * Create or recreate the underlying BufferedImage. After a size change this waits until
+     * the image is asked for, so that resizing a canvas that draws through a rendering
+     * context, and never reads this image, does not allocate.
      */
     private void createImage() {
         if (width > 0 && height > 0) {
@@ -96,7 +100,7 @@ public class CoreHTMLCanvasElement extends CoreElement {
     public void setWidth(int width) {
         if (this.width != width) {
             this.width = width;
-            createImage();
+            resized = true;
         }
     }
 
@@ -116,7 +120,7 @@ public class CoreHTMLCanvasElement extends CoreElement {
     public void setHeight(int height) {
         if (this.height != height) {
             this.height = height;
-            createImage();
+            resized = true;
         }
     }
 
@@ -126,6 +130,10 @@ public class CoreHTMLCanvasElement extends CoreElement {
      * @return the image
      */
     public BufferedImage getImage() {
+        if (resized) {
+            resized = false;
+            createImage();
+        }
         return image;
     }
 
@@ -136,6 +144,7 @@ public class CoreHTMLCanvasElement extends CoreElement {
      */
     public void setImage(BufferedImage image) {
         this.image = image;
+        this.resized = false;
     }
 
     /**
@@ -147,7 +156,7 @@ public class CoreHTMLCanvasElement extends CoreElement {
         try {
             String format = MIME_TO_FORMAT.getOrDefault(mimeType, "png");
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, format, baos);
+            ImageIO.write(getImage(), format, baos);
             byte[] bytes = baos.toByteArray();
 
             // Convert to base64
@@ -644,6 +644,18 @@ public interface ICanvasRenderingContext2D {
      */
     boolean isPointInStroke(IPath2D path, double x, double y);
 
+    /**
+     * Tests a point against many Path2D objects at once (non-standard extension).
+     * Paths whose bounding box is not near the point are rejected without a shape test.
+     *
+     * @param paths the paths to test
+     * @param x     the x-coordinate
+     * @param y     the y-coordinate
+     * @param mode  "stroke" to test the stroke with the current line style, otherwise the fill
+     * @return the indices of the paths that contain the point, in ascending order
+     */
+    int[] hitTest(IPath2D[] paths, double x, double y, String mode);
+
     // Drawing images
 
     /**
@@ -777,6 +789,20 @@ public interface ICanvasRenderingContext2D {
      */
     void setWordSpacing(double spacing);
 
+    /**
+     * Gets the text rendering hint.
+     *
+     * @return "auto", "optimizeSpeed", "optimizeLegibility", or "geometricPrecision"
+     */
+    String getTextRendering();
+
+    /**
+     * Sets the text rendering hint.
+     *
+     * @param textRendering "auto", "optimizeSpeed", "optimizeLegibility", or "geometricPrecision"
+     */
+    void setTextRendering(String textRendering);
+
     /**
      * Fills text at the specified position.
      *
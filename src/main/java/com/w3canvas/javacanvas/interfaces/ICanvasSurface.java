@@ -7,4 +7,27 @@ public interface ICanvasSurface {
     IGraphicsContext getGraphicsContext();
     Object getNativeImage();
     int[] getPixelData(int x, int y, int width, int height);
+
+    /**
+     * Pushes drawing the backend has batched to the underlying surface. Most backends
+     * draw immediately and do nothing here.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Resizes the surface in place, clearing it, and returns true; returns false if the
+     * surface cannot change size, in which case the caller creates a new one. The graphics
+     * context must be fetched again afterwards.
+     */
+    default boolean resize(int width, int height) {
+        return false;
+    }
+
+    /**
+     * Frees memory the surface holds outside the Java heap, when the canvas is disposed.
+     * The surface must not be used afterwards. Heap-backed surfaces do nothing here.
+     */
+    default void release() {
+    }
 }
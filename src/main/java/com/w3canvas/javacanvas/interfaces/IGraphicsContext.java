@@ -98,6 +98,13 @@ public interface IGraphicsContext {
      */
     Object getTransform();
 
+    /**
+     * Gets the current transformation matrix as plain numbers.
+     *
+     * @return a new array {a, b, c, d, e, f}, in the order used by {@code setTransform}
+     */
+    double[] getTransformMatrix();
+
     // Drawing properties
 
     /**
@@ -224,6 +231,13 @@ public interface IGraphicsContext {
      */
     void setWordSpacing(double spacing);
 
+    /**
+     * Sets the text rendering hint.
+     *
+     * @param textRendering "auto", "optimizeSpeed", "optimizeLegibility", or "geometricPrecision"
+     */
+    void setTextRendering(String textRendering);
+
     // Shadow properties
 
     /**
@@ -597,6 +611,46 @@ public interface IGraphicsContext {
      */
     void setPath(IShape path);
 
+    /**
+     * Builds a retained shape for a Path2D in user space, ignoring the current transform.
+     * The shape can be reused with {@link #setRetainedPath(IShape)} until the Path2D changes.
+     *
+     * @param path the path to build
+     * @return the retained shape, or null if this backend rebuilds paths on every use
+     */
+    IShape createRetainedPath(IPath2D path);
+
+    /**
+     * Replaces the current path with a shape from {@link #createRetainedPath(IPath2D)},
+     * mapped through the current transform.
+     *
+     * @param shape the retained user-space shape
+     */
+    void setRetainedPath(IShape shape);
+
+    /**
+     * Tests whether a point is inside a retained shape mapped through the current
+     * transform, using the nonzero winding rule. The current path is not changed.
+     *
+     * @param shape the retained user-space shape
+     * @param x     the x-coordinate of the point
+     * @param y     the y-coordinate of the point
+     * @return true if the point is inside the shape
+     */
+    boolean isPointInRetainedPath(IShape shape, double x, double y);
+
+    /**
+     * Tests whether a point is on the stroke of a retained shape mapped through the current
+     * transform, using the current line style. Backends may cache the stroked outline.
+     * The current path is not changed.
+     *
+     * @param shape the retained user-space shape
+     * @param x     the x-coordinate of the point
+     * @param y     the y-coordinate of the point
+     * @return true if the point is on the stroke
+     */
+    boolean isPointInRetainedStroke(IShape shape, double x, double y);
+
     /**
      * Gets the last point in the current path.
      *
@@ -1,7 +1,11 @@
 package com.w3canvas.javacanvas.js.worker;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
@@ -9,6 +13,7 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 import com.w3canvas.javacanvas.backend.rhino.impl.node.ProjectScriptableObject;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
 
 /**
  * MessagePort implementation for SharedWorker communication.
@@ -19,18 +24,29 @@ import com.w3canvas.javacanvas.backend.rhino.impl.node.ProjectScriptableObject;
  *
  * Messages are queued in the port's message queue and delivered asynchronously
  * via the event loop, ensuring proper Context isolation per the HTML Worker spec.
+ * Any number of threads may post to a port; only the receiving event loop drains it.
+ * At most one drain task is queued at a time, and it delivers every message that is
+ * waiting within a single Context entry.
+ *
+ * Diagnostics go to the {@code com.w3canvas.javacanvas.js.worker.MessagePort}
+ * java.util.logging logger at FINE level.
  */
 @SuppressWarnings("serial")
 public class MessagePort extends ProjectScriptableObject {
 
-    private Function onmessage;
-    private MessagePort otherPort;
+    private static final Logger LOG = Logger.getLogger(MessagePort.class.getName());
+
+    private volatile Function onmessage;
+    private volatile MessagePort otherPort;
     private volatile boolean started = false;
-    private Scriptable handlerScope;  // Capture scope where onmessage was set
-    private com.w3canvas.javacanvas.rt.RhinoRuntime handlerRuntime;  // Capture runtime for event loop
+    private volatile Scriptable handlerScope;  // Capture scope where onmessage was set
+    private volatile RhinoRuntime handlerRuntime;  // Capture runtime for event loop
+    private volatile Runnable closeListener;
 
     // Message queue - messages can be queued before handlerRuntime is set
-    private final BlockingQueue<Object> messageQueue = new LinkedBlockingQueue<>();
+    private final Queue<StructuredClone> messageQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private final AtomicLong deliveredCount = new AtomicLong();
 
     public MessagePort() {
     }
@@ -54,125 +70,115 @@ public class MessagePort extends ProjectScriptableObject {
      * Messages are queued to the other port's message queue immediately.
      * They will be processed when the port has a handler and is started.
      *
+     * The data is sent as a {@link StructuredClone}. Objects in the transfer list are
+     * handed over without copying and become unusable on this side, see {@link Transfer}.
+     *
      * @param data The data to send
+     * @param transfer Optional array of objects to transfer
      */
-    public void jsFunction_postMessage(Object data) {
-        System.out.println("DEBUG: postMessage() called, otherPort=" + (otherPort != null));
-        if (otherPort == null) {
-            return;  // Port not entangled
+    public void jsFunction_postMessage(Object data, Object transfer) {
+        if (!send(StructuredClone.serialize(data, transfer))) {
+            LOG.fine("postMessage on a port that is not entangled; message dropped");
         }
+    }
 
-        // Queue the message to the other port's queue
+    /**
+     * Queues an already serialized message on the entangled port. A message without
+     * transferred objects may be sent to any number of ports.
+     *
+     * @return false if this port is not entangled
+     */
+    boolean send(StructuredClone message) {
+        MessagePort target = otherPort;
+        if (target == null) {
+            return false;
+        }
         // This works immediately, even before the other port has handlerRuntime set
-        otherPort.messageQueue.offer(data);
-        System.out.println("DEBUG: Message queued, queue size=" + otherPort.messageQueue.size());
+        target.messageQueue.offer(message);
+        target.processPendingMessages();
+        return true;
+    }
 
-        // If the other port already has a handler and runtime, process pending messages
-        if (otherPort.handlerRuntime != null && otherPort.started && otherPort.onmessage != null) {
-            otherPort.processPendingMessages();
+    /**
+     * Queues a drain task on the handler's event loop unless one is already queued.
+     * Called when onmessage is set, when the port is started or when new messages arrive.
+     */
+    private void processPendingMessages() {
+        RhinoRuntime runtime = handlerRuntime;
+        if (runtime == null || !started || onmessage == null) {
+            return;  // Delivered once the port is ready
+        }
+        if (drainQueued.compareAndSet(false, true)) {
+            try {
+                runtime.getEventLoop().queueTask(this::drain);
+            } catch (RuntimeException e) {
+                // The messages stay queued; the next message or onmessage assignment retries
+                drainQueued.set(false);
+                LOG.log(Level.WARNING, "Could not post message delivery to the event loop", e);
+            }
         }
     }
 
     /**
-     * Process pending messages from the message queue.
-     * Called when onmessage is set or when new messages arrive.
+     * Delivers every queued message, entering a Context at most once per batch.
+     * Runs on the handler's event loop thread, the queue's only consumer.
      */
-    private void processPendingMessages() {
-        if (handlerRuntime == null) {
-            System.out.println("DEBUG: processPendingMessages called but no handlerRuntime yet");
-            return;  // Can't process without runtime
+    private void drain() {
+        // Cleared before polling: a message offered from now on queues another drain
+        drainQueued.set(false);
+        if (messageQueue.isEmpty()) {
+            return;
         }
 
-        // Queue a task to drain all pending messages
-        Runnable drainTask = () -> {
-            System.out.println("DEBUG: drainTask executing on thread: " + Thread.currentThread().getName() +
-                ", id=" + Thread.currentThread().getId());
-            // Check if there's already a Context on this thread
-            Context cx = Context.getCurrentContext();
-            System.out.println("DEBUG: getCurrentContext() returned: " + (cx != null ? "existing Context" : "null"));
-            boolean needToExit = false;
-            if (cx == null) {
-                cx = Context.enter();
-                needToExit = true;
-                System.out.println("DEBUG: Entered new Context, Context@" + System.identityHashCode(cx));
-
-                // Debug: Check what's in the handler scope
-                System.out.println("DEBUG: handlerScope type: " + (handlerScope != null ? handlerScope.getClass().getName() : "null"));
-                if (handlerScope != null) {
-                    System.out.println("DEBUG: handlerScope has 'document': " + handlerScope.has("document", handlerScope));
-                    System.out.println("DEBUG: handlerScope has 'window': " + handlerScope.has("window", handlerScope));
-                    System.out.println("DEBUG: handlerScope has 'canvas': " + handlerScope.has("canvas", handlerScope));
-
-                    // Check canvas object details
-                    if (handlerScope.has("canvas", handlerScope)) {
-                        Object canvasObj = handlerScope.get("canvas", handlerScope);
-                        System.out.println("DEBUG: canvas object type: " + (canvasObj != null ? canvasObj.getClass().getName() : "null"));
-                        if (canvasObj instanceof org.mozilla.javascript.Scriptable) {
-                            org.mozilla.javascript.Scriptable canvasScriptable = (org.mozilla.javascript.Scriptable) canvasObj;
-                            System.out.println("DEBUG: canvas parent scope: " + (canvasScriptable.getParentScope() != null ?
-                                canvasScriptable.getParentScope().getClass().getName() : "null"));
-                            System.out.println("DEBUG: canvas parent scope == handlerScope: " +
-                                (canvasScriptable.getParentScope() == handlerScope));
-                            System.out.println("DEBUG: canvas has 'getContext': " + canvasScriptable.has("getContext", canvasScriptable));
-                            System.out.println("DEBUG: canvas prototype: " + (canvasScriptable.getPrototype() != null ?
-                                canvasScriptable.getPrototype().getClass().getName() : "null"));
-                        }
-                    }
-                }
+        Context cx = Context.getCurrentContext();
+        boolean entered = false;
+        if (cx == null) {
+            cx = RhinoRuntime.enterContext();
+            entered = true;
+            // For main thread runtimes, ensure document/window are accessible in the new Context
+            // This solves the Rhino Context thread-locality issue where objects created in one
+            // Context cannot be accessed from another Context.
+            handlerRuntime.ensureMainThreadGlobals(handlerScope);
+        }
+        int batch = 0;
+        try {
+            cx.putThreadLocal("runtime", handlerRuntime);
 
-                // For main thread runtimes, ensure document/window are accessible in the new Context
-                // This solves the Rhino Context thread-locality issue where objects created in one
-                // Context cannot be accessed from another Context.
-                if (handlerRuntime instanceof com.w3canvas.javacanvas.rt.RhinoRuntime) {
-                    com.w3canvas.javacanvas.rt.RhinoRuntime rhinoRuntime =
-                        (com.w3canvas.javacanvas.rt.RhinoRuntime) handlerRuntime;
-                    rhinoRuntime.ensureMainThreadGlobals(handlerScope);
-                    System.out.println("DEBUG: Ensured main thread globals in new Context (isWorker=" +
-                        rhinoRuntime.isWorker() + ")");
+            // Peek first, so a port that is closed mid-batch keeps the rest of its messages in order
+            StructuredClone message;
+            while ((message = messageQueue.peek()) != null) {
+                Function handler = onmessage;
+                Scriptable scope = handlerScope;
+                if (!started || handler == null || scope == null) {
+                    break;
                 }
-            }
-            try {
-                cx.putThreadLocal("runtime", handlerRuntime);
-                System.out.println("DEBUG: Set runtime in thread local");
-
-                // Process all messages in the queue
-                Object data;
-                while ((data = messageQueue.poll()) != null) {
-                    System.out.println("DEBUG: Processing message from queue on thread: " + Thread.currentThread().getName());
-
-                    // Check if port is started and has a handler
-                    if (!started || onmessage == null || handlerScope == null) {
-                        System.out.println("DEBUG: Port not ready, re-queuing message");
-                        // Put the message back at the front
-                        messageQueue.offer(data);
-                        break;
-                    }
-
-                    try {
-                        // Create event object
-                        Scriptable event = cx.newObject(handlerScope);
-                        event.put("data", event, data);
-
-                        // Add ports array
-                        Scriptable ports = cx.newArray(handlerScope, new Object[]{this});
-                        event.put("ports", event, ports);
-
-                        // Call the handler
-                        onmessage.call(cx, handlerScope, this, new Object[]{event});
-                        System.out.println("DEBUG: Message handler called successfully");
-                    } catch (Exception e) {
-                        System.err.println("Error processing message: " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                }
-            } finally {
-                if (needToExit) {
-                    Context.exit();
+                messageQueue.poll();
+                batch++;
+                try {
+                    Scriptable event = cx.newObject(scope);
+                    event.put("data", event, message.deserialize(cx, scope));
+                    event.put("ports", event, cx.newArray(scope, new Object[]{this}));
+                    handler.call(cx, scope, this, new Object[]{event});
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Error processing message", e);
                 }
             }
-        };
+        } finally {
+            deliveredCount.addAndGet(batch);
+            if (entered) {
+                Context.exit();
+            }
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Delivered " + batch + " messages on " + Thread.currentThread().getName());
+        }
+    }
 
-        handlerRuntime.getEventLoop().queueTask(drainTask);
+    /**
+     * Returns the number of messages delivered to this port's onmessage handler.
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
     }
 
     /**
@@ -185,6 +191,7 @@ public class MessagePort extends ProjectScriptableObject {
      */
     public void jsFunction_start() {
         started = true;
+        processPendingMessages();
     }
 
     /**
@@ -192,9 +199,27 @@ public class MessagePort extends ProjectScriptableObject {
      */
     public void jsFunction_close() {
         started = false;
-        if (otherPort != null) {
-            otherPort.otherPort = null;
+        MessagePort other = otherPort;
+        if (other != null) {
+            other.otherPort = null;
             otherPort = null;
+            other.notifyClosed();
+        }
+        notifyClosed();
+    }
+
+    /**
+     * Sets a callback run when this port or its entangled port is closed.
+     * It may run more than once and on any thread.
+     */
+    void setCloseListener(Runnable listener) {
+        this.closeListener = listener;
+    }
+
+    private void notifyClosed() {
+        Runnable listener = closeListener;
+        if (listener != null) {
+            listener.run();
         }
     }
 
@@ -207,34 +232,29 @@ public class MessagePort extends ProjectScriptableObject {
      */
     public void jsSet_onmessage(Function onmessage) {
         this.onmessage = onmessage;
-        System.out.println("DEBUG: jsSet_onmessage called on thread: " + Thread.currentThread().getName() +
-            ", id=" + Thread.currentThread().getId());
 
         Context cx = Context.getCurrentContext();
         if (cx != null) {
             // Get the top-level scope which should have document and other globals
-            this.handlerScope = org.mozilla.javascript.ScriptableObject.getTopLevelScope(this);
+            this.handlerScope = ScriptableObject.getTopLevelScope(this);
 
             // Capture the runtime for event loop access
             Object runtime = cx.getThreadLocal("runtime");
-            if (runtime instanceof com.w3canvas.javacanvas.rt.RhinoRuntime) {
-                this.handlerRuntime = (com.w3canvas.javacanvas.rt.RhinoRuntime) runtime;
-                System.out.println("DEBUG: onmessage set, handlerRuntime captured, queue size=" + messageQueue.size());
+            if (runtime instanceof RhinoRuntime) {
+                this.handlerRuntime = (RhinoRuntime) runtime;
             }
         } else {
             this.handlerScope = getParentScope();
         }
-
-        // Auto-start when onmessage is set (per spec for dedicated workers)
-        if (!started) {
-            jsFunction_start();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("onmessage set on " + Thread.currentThread().getName()
+                    + ", runtime " + (handlerRuntime != null ? "captured" : "missing")
+                    + ", " + messageQueue.size() + " messages pending");
         }
 
-        // Process any messages that were queued before the handler was set
-        if (handlerRuntime != null && !messageQueue.isEmpty()) {
-            System.out.println("DEBUG: Processing " + messageQueue.size() + " pending messages");
-            processPendingMessages();
-        }
+        // Auto-start when onmessage is set (per spec for dedicated workers);
+        // this also delivers messages that were queued before the handler was set
+        jsFunction_start();
     }
 
     /**
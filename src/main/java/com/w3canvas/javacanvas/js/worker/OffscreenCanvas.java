@@ -1,5 +1,6 @@
 package com.w3canvas.javacanvas.js.worker;
 
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
 import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
 import com.w3canvas.javacanvas.backend.rhino.impl.node.CanvasRenderingContext2D;
 import com.w3canvas.javacanvas.backend.rhino.impl.node.ProjectScriptableObject;
@@ -28,6 +29,7 @@ public class OffscreenCanvas extends ProjectScriptableObject implements ICanvas
     private IGraphicsBackend backend;
     private ICanvasSurface surface;
     private CanvasRenderingContext2D context;
+    private boolean detached;
 
     public OffscreenCanvas() {}
 
@@ -44,6 +46,7 @@ public class OffscreenCanvas extends ProjectScriptableObject implements ICanvas
     }
 
     public Scriptable jsFunction_getContext(String type) {
+        checkNotDetached();
         if (context == null && "2d".equals(type)) {
             try {
                 ICanvasRenderingContext2D coreContext = new CoreCanvasRenderingContext2D(null, this.backend, getWidth(), getHeight());
@@ -151,7 +154,7 @@ public class OffscreenCanvas extends ProjectScriptableObject implements ICanvas
 
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ImageIO.write(image, outputFormat, bos);
+            ImageIO.write(AwtCanvasSurface.toStraightAlpha(image), outputFormat, bos);
             byte[] imageData = bos.toByteArray();
 
             // Create the core Blob
@@ -175,31 +178,21 @@ public class OffscreenCanvas extends ProjectScriptableObject implements ICanvas
 
     /**
      * Transfer the canvas contents to an ImageBitmap.
-     * Returns an ImageBitmap and detaches the OffscreenCanvas.
-     * Note: In this implementation, we create a copy rather than truly transferring,
-     * as Java doesn't support the same memory model as JavaScript.
+     * The ImageBitmap takes over the canvas's current image without copying it, and the
+     * canvas continues drawing into a new, cleared surface.
      *
      * @return An ImageBitmap containing the canvas image data
      */
     public Scriptable jsFunction_transferToImageBitmap() {
+        checkNotDetached();
         BufferedImage image = getImage();
         if (image == null) {
             throw new IllegalStateException("No image available");
         }
 
-        // Create a copy of the current image for the ImageBitmap
-        BufferedImage copiedImage = new BufferedImage(
-            image.getWidth(),
-            image.getHeight(),
-            BufferedImage.TYPE_INT_ARGB
-        );
-        java.awt.Graphics2D g = copiedImage.createGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
-
-        // Create the core ImageBitmap
+        // Hand the image over; nothing draws into it after the surface is replaced below
         com.w3canvas.javacanvas.core.ImageBitmap coreImageBitmap =
-            new com.w3canvas.javacanvas.core.ImageBitmap(copiedImage);
+            com.w3canvas.javacanvas.core.ImageBitmap.adopt(image);
 
         // Create the Rhino wrapper
         ImageBitmap rhinoImageBitmap = new ImageBitmap();
@@ -210,18 +203,46 @@ public class OffscreenCanvas extends ProjectScriptableObject implements ICanvas
         rhinoImageBitmap.setParentScope(scope);
         rhinoImageBitmap.setPrototype(ScriptableObject.getClassPrototype(scope, "ImageBitmap"));
 
-        // Clear the current canvas (transfer semantics)
-        // Recreate the surface to "detach" the previous image
+        // Start over on a fresh surface
         this.surface = this.backend.createCanvasSurface(width, height);
         if (context != null) {
-            // Reset the context to use the new surface
             ICanvasRenderingContext2D coreContext = new CoreCanvasRenderingContext2D(null, this.backend, getWidth(), getHeight());
             context.init(coreContext);
+            context.initCanvas(this);
         }
 
         return rhinoImageBitmap;
     }
 
+    /**
+     * Throws if this canvas cannot be transferred with postMessage: it has already been
+     * transferred, or its rendering context has been created.
+     */
+    void checkTransferable() {
+        checkNotDetached();
+        if (context != null) {
+            throw new IllegalStateException("Cannot transfer an OffscreenCanvas that has a rendering context");
+        }
+    }
+
+    /**
+     * Detaches this canvas because it was transferred with postMessage. The receiving side
+     * gets a new OffscreenCanvas of the same size; this one becomes unusable.
+     */
+    void detach() {
+        checkTransferable();
+        detached = true;
+        width = 0;
+        height = 0;
+        surface = null;
+    }
+
+    private void checkNotDetached() {
+        if (detached) {
+            throw new IllegalStateException("OffscreenCanvas has been transferred");
+        }
+    }
+
     @Override
     public Integer getWidth() {
         return width;
@@ -276,6 +297,16 @@ public class OffscreenCanvas extends ProjectScriptableObject implements ICanvas
      * Helper method to resize the canvas and reset the rendering context.
      */
     private void resizeCanvas() {
+        // Keep the raster if the surface can resize in place; that clears it as well
+        ICanvasSurface current = context != null ? context.getSurface() : surface;
+        if (current != null && current.resize(width, height)) {
+            surface = current;
+            if (context != null) {
+                context.reset();
+            }
+            return;
+        }
+
         // Recreate the surface with new dimensions
         this.surface = this.backend.createCanvasSurface(width, height);
 
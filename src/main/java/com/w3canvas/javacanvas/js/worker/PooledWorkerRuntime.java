@@ -0,0 +1,196 @@
+package com.w3canvas.javacanvas.js.worker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mozilla.javascript.Callable;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+
+/**
+ * A dedicated worker runtime that can be reused by several {@link Worker}s in turn.
+ *
+ * Everything runs on the runtime's own event loop: the worker script, incoming messages and
+ * the reset when the worker terminates. Each task is tagged with the generation of the worker
+ * that queued it, so messages still queued for a terminated worker are dropped instead of
+ * reaching the next one.
+ *
+ * The reset removes the globals the script added and restores the ones it replaced. Changes
+ * to built-in prototypes are not undone, which is why runtimes are only reused for the same
+ * script URL. A runtime whose global scope cannot be reset, for example after
+ * {@code Object.freeze(this)}, is shut down instead of going back to the pool.
+ */
+class PooledWorkerRuntime {
+
+    private static final Logger LOG = Logger.getLogger(PooledWorkerRuntime.class.getName());
+
+    private interface ContextTask {
+        void run(Context cx) throws Exception;
+    }
+
+    private final WorkerRuntimePool pool;
+    private final String scriptUrl;
+    private final RhinoRuntime runtime;
+    private final ScriptableObject scope;
+    private final Map<Object, Object> baseline = new HashMap<>();
+
+    private volatile Worker owner;
+    private volatile int generation;
+
+    PooledWorkerRuntime(WorkerRuntimePool pool, String scriptUrl) {
+        this.pool = pool;
+        this.scriptUrl = scriptUrl;
+        this.runtime = new RhinoRuntime(true);
+        try {
+            this.scope = (ScriptableObject) runtime.getScope();
+            try {
+                // The other worker classes are already registered by RhinoRuntime
+                ScriptableObject.defineClass(scope, com.w3canvas.javacanvas.backend.rhino.impl.node.TextMetrics.class);
+                ScriptableObject.defineClass(scope, com.w3canvas.javacanvas.backend.rhino.impl.node.DOMMatrix.class);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+
+            ScriptableObject.putProperty(scope, "console", new com.w3canvas.javacanvas.utils.ScriptLogger());
+
+            // Define postMessage in the worker's global scope
+            ScriptableObject.putProperty(scope, "postMessage", new Callable() {
+                @Override
+                public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+                    if (args.length == 0) {
+                        return null;
+                    }
+                    StructuredClone message = StructuredClone.serialize(args[0], args.length > 1 ? args[1] : null);
+                    Worker worker = owner;
+                    if (worker != null) {
+                        worker.dispatchMessage(message);
+                    }
+                    return null;
+                }
+            });
+
+            for (Object id : scope.getAllIds()) {
+                baseline.put(id, get(id));
+            }
+        } finally {
+            // Balance the Context.enter() in the RhinoRuntime constructor
+            Context.exit();
+        }
+    }
+
+    String getScriptUrl() {
+        return scriptUrl;
+    }
+
+    RhinoRuntime getRuntime() {
+        return runtime;
+    }
+
+    /**
+     * Binds the runtime to {@code worker} and runs the worker script.
+     */
+    void start(Worker worker) {
+        owner = worker;
+        queue(cx -> pool.getScript(cx, scriptUrl).exec(cx, scope));
+    }
+
+    /**
+     * Delivers a message from the main thread to the worker's onmessage handler.
+     */
+    void postMessage(StructuredClone message) {
+        queue(cx -> {
+            Object onmessage = scope.get("onmessage", scope);
+            if (onmessage instanceof Function) {
+                Scriptable event = cx.newObject(scope);
+                event.put("data", event, message.deserialize(cx, scope));
+                ((Function) onmessage).call(cx, scope, scope, new Object[] { event });
+            }
+        });
+    }
+
+    /**
+     * Detaches the current worker, resets the scope and returns the runtime to the pool.
+     * Tasks the worker still had queued are discarded.
+     */
+    void release() {
+        owner = null;
+        generation++;
+        runtime.cancelTimers();
+        queue(cx -> {
+            try {
+                reset();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Worker '" + scriptUrl + "' could not be reset, discarding its runtime", e);
+                shutdown();
+                return;
+            }
+            pool.release(this);
+        });
+    }
+
+    void shutdown() {
+        runtime.shutdownTimers();
+        runtime.getEventLoop().stop();
+    }
+
+    private void queue(ContextTask task) {
+        final int queuedGeneration = generation;
+        runtime.getEventLoop().queueTask(() -> {
+            if (queuedGeneration != generation) {
+                return;
+            }
+            Context cx = RhinoRuntime.enterContext();
+            try {
+                cx.putThreadLocal("runtime", runtime);
+                task.run(cx);
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "Worker '" + scriptUrl + "' failed", e);
+            } finally {
+                Context.exit();
+            }
+        });
+    }
+
+    private void reset() {
+        if (!scope.isExtensible()) {
+            // The next worker could not declare any globals
+            throw new IllegalStateException("Global scope is not extensible");
+        }
+        for (Object id : scope.getAllIds()) {
+            if (!baseline.containsKey(id)) {
+                if (id instanceof String) {
+                    // Top-level var and function declarations are permanent; lift that first
+                    scope.setAttributes((String) id, ScriptableObject.EMPTY);
+                    scope.delete((String) id);
+                } else {
+                    scope.delete(((Number) id).intValue());
+                }
+                if (id instanceof String ? scope.has((String) id, scope) : scope.has(((Number) id).intValue(), scope)) {
+                    throw new IllegalStateException("Global '" + id + "' could not be removed");
+                }
+            }
+        }
+        for (Map.Entry<Object, Object> entry : baseline.entrySet()) {
+            if (get(entry.getKey()) != entry.getValue()) {
+                if (entry.getKey() instanceof String) {
+                    scope.put((String) entry.getKey(), scope, entry.getValue());
+                } else {
+                    scope.put(((Number) entry.getKey()).intValue(), scope, entry.getValue());
+                }
+                if (get(entry.getKey()) != entry.getValue()) {
+                    throw new IllegalStateException("Global '" + entry.getKey() + "' could not be restored");
+                }
+            }
+        }
+    }
+
+    private Object get(Object id) {
+        return id instanceof String ? scope.get((String) id, scope) : scope.get(((Number) id).intValue(), scope);
+    }
+}
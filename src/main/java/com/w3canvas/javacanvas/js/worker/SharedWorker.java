@@ -1,9 +1,16 @@
 package com.w3canvas.javacanvas.js.worker;
 
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.mozilla.javascript.Callable;
 import org.mozilla.javascript.Context;
@@ -12,6 +19,7 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 import com.w3canvas.javacanvas.backend.rhino.impl.node.ProjectScriptableObject;
+import com.w3canvas.javacanvas.rt.EventLoopThreads;
 import com.w3canvas.javacanvas.rt.RhinoRuntime;
 
 /**
@@ -25,10 +33,17 @@ import com.w3canvas.javacanvas.rt.RhinoRuntime;
  *   var worker = new SharedWorker('worker.js');
  *   worker.port.onmessage = function(e) { ... };
  *   worker.port.postMessage(data);
+ *
+ * A shared worker lives as long as something is connected to it. When the last
+ * connection's port is closed, the worker is shut down and removed from the registry;
+ * the next constructor call with the same URL starts a new one. Inside the worker,
+ * {@code broadcast(data)} serializes a message once and posts it to every connected port.
  */
 @SuppressWarnings("serial")
 public class SharedWorker extends ProjectScriptableObject {
 
+    private static final Logger LOG = Logger.getLogger(SharedWorker.class.getName());
+
     // Global registry of shared workers by script URL
     private static final ConcurrentHashMap<String, SharedWorkerThread> sharedWorkers = new ConcurrentHashMap<>();
 
@@ -48,8 +63,11 @@ public class SharedWorker extends ProjectScriptableObject {
     public void jsConstructor(String scriptUrl) {
         RhinoRuntime mainRuntime = (RhinoRuntime) Context.getCurrentContext().getThreadLocal("runtime");
 
-        // Get or create the shared worker thread
-        workerThread = sharedWorkers.computeIfAbsent(scriptUrl, url -> {
+        // Join the running worker, or start a new one if there is none or it is shutting down
+        workerThread = sharedWorkers.compute(scriptUrl, (url, existing) -> {
+            if (existing != null && existing.retain()) {
+                return existing;
+            }
             SharedWorkerThread thread = new SharedWorkerThread(mainRuntime, url);
             thread.start();
             return thread;
@@ -100,39 +118,138 @@ public class SharedWorker extends ProjectScriptableObject {
 
     /**
      * SharedWorker thread that runs the worker script.
-     * Maintains a list of connected ports and dispatches connect events.
+     *
+     * Connected ports are kept in a copy-on-write list, so broadcasts iterate a snapshot
+     * without locking while connects and disconnects copy the (short) list. Connect events
+     * are dispatched on the worker's event loop, the same thread that runs its onmessage
+     * handlers. The reference count is the number of SharedWorker objects still connected;
+     * it never rises again after reaching zero.
      */
-    private static class SharedWorkerThread extends Thread {
+    private static class SharedWorkerThread implements Runnable {
         private final RhinoRuntime mainRuntime;
         private final String scriptUrl;
-        private final List<MessagePort> connections = new ArrayList<>();
-        private final List<MessagePort> pendingConnections = new ArrayList<>();
+        private final List<MessagePort> connections = new CopyOnWriteArrayList<>();
+        private final Queue<MessagePort> pendingConnections = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger refCount = new AtomicInteger(1);
+        private final AtomicLong totalConnections = new AtomicLong();
+        private final AtomicLong broadcastCount = new AtomicLong();
+        private final AtomicLong closedPortMessages = new AtomicLong();
         private RhinoRuntime workerRuntime;
         private Scriptable workerScope;
-        private Context workerContext;
         private volatile boolean scriptLoaded = false;
+        private final Thread thread;
 
         public SharedWorkerThread(RhinoRuntime mainRuntime, String scriptUrl) {
             this.mainRuntime = mainRuntime;
             this.scriptUrl = scriptUrl;
-            setDaemon(true);
+            this.thread = EventLoopThreads.newThread("SharedWorker-" + scriptUrl, this);
+        }
+
+        public void start() {
+            thread.start();
+        }
+
+        public void interrupt() {
+            thread.interrupt();
+        }
+
+        /**
+         * Adds a reference for a new connection.
+         * @return false if the worker has already been released by everyone
+         */
+        boolean retain() {
+            int refs;
+            do {
+                refs = refCount.get();
+                if (refs <= 0) {
+                    return false;
+                }
+            } while (!refCount.compareAndSet(refs, refs + 1));
+            return true;
         }
 
         public void addConnection(MessagePort port) {
-            synchronized (connections) {
-                connections.add(port);
-                if (scriptLoaded) {
-                    // Script already loaded, dispatch immediately
-                    dispatchConnectEvent(port);
-                } else {
-                    // Queue for later dispatch after script loads
-                    pendingConnections.add(port);
+            connections.add(port);
+            totalConnections.incrementAndGet();
+            port.setCloseListener(() -> release(port));
+            if (refCount.get() <= 0) {
+                // The worker called close() while this connection was being made
+                port.jsFunction_close();
+                return;
+            }
+            pendingConnections.offer(port);
+            if (scriptLoaded) {
+                queueConnectEvents();
+            }
+            // Otherwise run() dispatches it once the script has loaded
+        }
+
+        /**
+         * Drops a connection whose port was closed; the last one shuts the worker down.
+         */
+        private void release(MessagePort port) {
+            if (!connections.remove(port)) {
+                return;
+            }
+            closedPortMessages.addAndGet(port.getDeliveredCount());
+            if (refCount.decrementAndGet() <= 0) {
+                shutdown();
+            }
+        }
+
+        void shutdown() {
+            refCount.set(0);
+            sharedWorkers.remove(scriptUrl, this);
+            thread.interrupt();
+        }
+
+        /**
+         * Posts one message to every connected port, serializing it only once.
+         * @return The number of ports the message was sent to
+         */
+        int broadcast(Object data) {
+            StructuredClone message = StructuredClone.serialize(data);
+            int sent = 0;
+            for (MessagePort port : connections) {
+                if (port.send(message)) {
+                    sent++;
                 }
             }
+            broadcastCount.incrementAndGet();
+            return sent;
         }
 
-        private void dispatchConnectEvent(MessagePort port) {
-            if (workerContext != null && workerScope != null) {
+        long getMessagesReceived() {
+            long received = closedPortMessages.get();
+            for (MessagePort port : connections) {
+                received += port.getDeliveredCount();
+            }
+            return received;
+        }
+
+        private void queueConnectEvents() {
+            workerRuntime.getEventLoop().queueTask(this::dispatchPendingConnections);
+        }
+
+        private void dispatchPendingConnections() {
+            Context cx = RhinoRuntime.enterContext();
+            try {
+                cx.putThreadLocal("runtime", workerRuntime);
+                MessagePort port;
+                while ((port = pendingConnections.poll()) != null) {
+                    try {
+                        dispatchConnectEvent(cx, port);
+                    } catch (RuntimeException e) {
+                        LOG.log(Level.WARNING, "SharedWorker onconnect failed in '" + scriptUrl + "'", e);
+                    }
+                }
+            } finally {
+                Context.exit();
+            }
+        }
+
+        private void dispatchConnectEvent(Context workerContext, MessagePort port) {
+            if (workerScope != null) {
                 // Set up the port's scope to the worker scope so onmessage handlers work correctly
                 port.setParentScope(workerScope);
                 try {
@@ -168,7 +285,7 @@ public class SharedWorker extends ProjectScriptableObject {
 
             // Create worker runtime with WorkerThreadEventLoop
             workerRuntime = new RhinoRuntime(true);  // true = worker context
-            workerContext = Context.enter();
+            Context workerContext = RhinoRuntime.enterContext();
             workerContext.putThreadLocal("runtime", workerRuntime);
             workerScope = workerRuntime.getScope();
 
@@ -258,21 +375,21 @@ public class SharedWorker extends ProjectScriptableObject {
                 }
             });
 
+            // Define broadcast() to post one message to every connected port
+            ScriptableObject.putProperty(workerScope, "broadcast", new Callable() {
+                @Override
+                public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+                    return broadcast(args.length > 0 ? args[0] : Context.getUndefinedValue());
+                }
+            });
+
             // Define close() function to terminate the worker
             ScriptableObject.putProperty(workerScope, "close", new Callable() {
                 @Override
                 public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
-                    // Close all connections
-                    synchronized (connections) {
-                        for (MessagePort port : connections) {
-                            port.jsFunction_close();
-                        }
-                        connections.clear();
-                    }
-                    // Remove from registry
-                    sharedWorkers.remove(scriptUrl);
-                    // Interrupt this thread
-                    Thread.currentThread().interrupt();
+                    // Stop accepting connections, then close the existing ones
+                    shutdown();
+                    closeConnections();
                     return null;
                 }
             });
@@ -314,24 +431,15 @@ public class SharedWorker extends ProjectScriptableObject {
 
                 // Script loaded successfully, dispatch any pending connections
                 scriptLoaded = true;
-                synchronized (connections) {
-                    for (MessagePort port : pendingConnections) {
-                        dispatchConnectEvent(port);
-                    }
-                    pendingConnections.clear();
-                }
+                queueConnectEvents();
 
                 // Worker script loaded successfully
                 // The WorkerThreadEventLoop (started when runtime was created) handles all
                 // message processing on its own thread. This thread just needs to stay alive
                 // until the worker is terminated.
-                // Use Object.wait() to park this thread without busy-waiting
-                final Object lock = new Object();
-                synchronized (lock) {
-                    while (!Thread.currentThread().isInterrupted()) {
-                        lock.wait();  // Block until interrupted - NO busy-waiting!
-                    }
-                }
+                // Park this thread without busy-waiting. A latch rather than Object.wait()
+                // keeps a virtual thread from pinning its carrier thread while parked.
+                new CountDownLatch(1).await();  // Block until interrupted - NO busy-waiting!
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             } catch (Exception e) {
@@ -339,14 +447,18 @@ public class SharedWorker extends ProjectScriptableObject {
             } finally {
                 Context.exit();
                 // Clean up
-                synchronized (connections) {
-                    for (MessagePort port : connections) {
-                        port.jsFunction_close();
-                    }
-                    connections.clear();
-                }
-                sharedWorkers.remove(scriptUrl);
+                shutdown();
+                closeConnections();
+                workerRuntime.shutdownTimers();
+                workerRuntime.getEventLoop().stop();
+            }
+        }
+
+        private void closeConnections() {
+            for (MessagePort port : connections) {
+                port.jsFunction_close();
             }
+            connections.clear();
         }
     }
 
@@ -359,6 +471,42 @@ public class SharedWorker extends ProjectScriptableObject {
         return sharedWorkers.size();
     }
 
+    /**
+     * Returns the number of ports currently connected to the shared worker for
+     * {@code scriptUrl}, or 0 if it is not running.
+     */
+    public static int getConnectionCount(String scriptUrl) {
+        SharedWorkerThread worker = sharedWorkers.get(scriptUrl);
+        return worker != null ? worker.connections.size() : 0;
+    }
+
+    /**
+     * Returns the number of connections ever made to the running shared worker for
+     * {@code scriptUrl}, including closed ones, or 0 if it is not running.
+     */
+    public static long getTotalConnectionCount(String scriptUrl) {
+        SharedWorkerThread worker = sharedWorkers.get(scriptUrl);
+        return worker != null ? worker.totalConnections.get() : 0;
+    }
+
+    /**
+     * Returns the number of broadcast() calls made by the running shared worker for
+     * {@code scriptUrl}, or 0 if it is not running.
+     */
+    public static long getBroadcastCount(String scriptUrl) {
+        SharedWorkerThread worker = sharedWorkers.get(scriptUrl);
+        return worker != null ? worker.broadcastCount.get() : 0;
+    }
+
+    /**
+     * Returns the number of messages the running shared worker for {@code scriptUrl} has
+     * handled on all its ports, including ports that have since been closed.
+     */
+    public static long getMessagesReceived(String scriptUrl) {
+        SharedWorkerThread worker = sharedWorkers.get(scriptUrl);
+        return worker != null ? worker.getMessagesReceived() : 0;
+    }
+
     /**
      * Utility method to terminate all shared workers.
      * Useful for cleanup in tests.
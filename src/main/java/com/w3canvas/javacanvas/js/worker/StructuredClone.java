@@ -0,0 +1,448 @@
+package com.w3canvas.javacanvas.js.worker;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.typedarrays.NativeArrayBuffer;
+import org.mozilla.javascript.typedarrays.NativeArrayBufferView;
+import org.mozilla.javascript.typedarrays.NativeTypedArrayView;
+
+import com.w3canvas.javacanvas.backend.rhino.impl.node.Blob;
+import com.w3canvas.javacanvas.backend.rhino.impl.node.ImageBitmap;
+import com.w3canvas.javacanvas.backend.rhino.impl.node.ImageData;
+import com.w3canvas.javacanvas.core.CanvasPixelArray;
+
+/**
+ * A message serialized with the structured clone algorithm.
+ *
+ * postMessage serializes the message on the sending thread into a compact binary form and the
+ * receiving runtime rebuilds it in its own scope, so no Rhino object is ever shared between the
+ * two Contexts. Supported values are primitives, plain objects, arrays, Dates, ArrayBuffers,
+ * typed arrays and DataViews, ImageData, Blob and ImageBitmap. Shared references and cycles are
+ * preserved. Functions and other host objects cannot be cloned.
+ *
+ * ArrayBuffer contents and ImageData/ImageBitmap pixels are copied in bulk rather than element
+ * by element. Objects in the transfer list are not serialized at all, see {@link Transfer}.
+ */
+public final class StructuredClone {
+
+    private static final byte UNDEFINED = 0;
+    private static final byte NULL = 1;
+    private static final byte FALSE = 2;
+    private static final byte TRUE = 3;
+    private static final byte INT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte REFERENCE = 7;
+    private static final byte ARRAY = 8;
+    private static final byte OBJECT = 9;
+    private static final byte DATE = 10;
+    private static final byte ARRAY_BUFFER = 11;
+    private static final byte ARRAY_BUFFER_VIEW = 12;
+    private static final byte IMAGE_DATA = 13;
+    private static final byte BLOB = 14;
+    private static final byte IMAGE_BITMAP = 15;
+    private static final byte TRANSFERRED = 16;
+
+    // Indexed by the kind byte of ARRAY_BUFFER_VIEW
+    private static final String[] VIEW_CLASSES = {
+        "Int8Array", "Uint8Array", "Uint8ClampedArray", "Int16Array", "Uint16Array",
+        "Int32Array", "Uint32Array", "Float32Array", "Float64Array", "DataView"
+    };
+
+    private final byte[] bytes;
+    private final Transfer transfer;
+
+    private StructuredClone(byte[] bytes, Transfer transfer) {
+        this.bytes = bytes;
+        this.transfer = transfer;
+    }
+
+    /**
+     * Serializes {@code value}.
+     *
+     * @throws IllegalArgumentException if the value contains something that cannot be cloned
+     */
+    public static StructuredClone serialize(Object value) {
+        return serialize(value, Transfer.NONE);
+    }
+
+    /**
+     * Serializes {@code value} and then detaches the objects in {@code transfer}. If the value
+     * cannot be cloned nothing is detached.
+     */
+    static StructuredClone serialize(Object value, Transfer transfer) {
+        Writer writer = new Writer(transfer);
+        writer.write(value);
+        transfer.detach();
+        return new StructuredClone(writer.toByteArray(), transfer);
+    }
+
+    /**
+     * Validates the transfer list and serializes {@code value}, for postMessage(data, transfer).
+     */
+    static StructuredClone serialize(Object value, Object transferList) {
+        return serialize(value, Transfer.of(transferList));
+    }
+
+    /**
+     * Rebuilds the value in {@code scope}. Must be called with a Context entered on the
+     * receiving thread, and only once if the message transferred any objects.
+     */
+    public Object deserialize(Context cx, Scriptable scope) {
+        return new Reader(cx, scope, bytes, transfer).read();
+    }
+
+    /**
+     * Returns the size of the serialized form in bytes.
+     */
+    public int getByteLength() {
+        return bytes.length;
+    }
+
+    private static final class Writer {
+        private final Transfer transfer;
+        private final Map<Object, Integer> references = new IdentityHashMap<>();
+        private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        Writer(Transfer transfer) {
+            this.transfer = transfer;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[buffer.position()];
+            System.arraycopy(buffer.array(), 0, result, 0, result.length);
+            return result;
+        }
+
+        void write(Object value) {
+            if (value == null) {
+                put(NULL);
+            } else if (value instanceof Undefined) {
+                put(UNDEFINED);
+            } else if (value instanceof Boolean) {
+                put((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                ensure(5);
+                buffer.put(INT).putInt(((Number) value).intValue());
+            } else if (value instanceof Number) {
+                ensure(9);
+                buffer.put(DOUBLE).putDouble(((Number) value).doubleValue());
+            } else if (value instanceof CharSequence) {
+                put(STRING);
+                writeString(value.toString());
+            } else if (value instanceof Scriptable) {
+                writeObject((Scriptable) value);
+            } else {
+                throw new IllegalArgumentException("Value cannot be cloned: " + value.getClass().getName());
+            }
+        }
+
+        private void writeObject(Scriptable value) {
+            Integer reference = references.get(value);
+            if (reference != null) {
+                ensure(5);
+                buffer.put(REFERENCE).putInt(reference);
+                return;
+            }
+            references.put(value, references.size());
+
+            int transferIndex = transfer.indexOf(value);
+            if (transferIndex >= 0) {
+                ensure(5);
+                buffer.put(TRANSFERRED).putInt(transferIndex);
+            } else if (value instanceof Function) {
+                throw new IllegalArgumentException("Functions cannot be cloned");
+            } else if (value instanceof NativeArray) {
+                NativeArray array = (NativeArray) value;
+                int length = (int) array.getLength();
+                ensure(5);
+                buffer.put(ARRAY).putInt(length);
+                for (int i = 0; i < length; i++) {
+                    Object element = array.get(i, array);
+                    write(element == Scriptable.NOT_FOUND ? Undefined.instance : element);
+                }
+            } else if (value instanceof NativeObject) {
+                writeProperties(value);
+            } else if ("Date".equals(value.getClassName())) {
+                ensure(9);
+                buffer.put(DATE).putDouble(Context.toNumber(value));
+            } else if (value instanceof NativeArrayBuffer) {
+                NativeArrayBuffer arrayBuffer = (NativeArrayBuffer) value;
+                put(ARRAY_BUFFER);
+                writeBytes(arrayBuffer.getBuffer(), 0, arrayBuffer.getLength());
+            } else if (value instanceof NativeArrayBufferView) {
+                writeView((NativeArrayBufferView) value);
+            } else if (value instanceof ImageData) {
+                ImageData imageData = (ImageData) value;
+                int width = imageData.getWidth();
+                int height = imageData.getHeight();
+                put(IMAGE_DATA);
+                writeString(imageData.getColorSpace());
+                writePixels(width, height, imageData.getData().getPixels(0, 0, width, height));
+            } else if (value instanceof Blob) {
+                Blob blob = (Blob) value;
+                put(BLOB);
+                writeString(blob.getType());
+                byte[] data = blob.getData();
+                writeBytes(data, 0, data.length);
+            } else if (value instanceof ImageBitmap) {
+                ImageBitmap bitmap = (ImageBitmap) value;
+                if (bitmap.isClosed()) {
+                    throw new IllegalArgumentException("Cannot clone a closed ImageBitmap");
+                }
+                BufferedImage image = (BufferedImage) bitmap.getNativeImage();
+                put(IMAGE_BITMAP);
+                writePixels(image.getWidth(), image.getHeight(), argbPixels(image));
+            } else {
+                throw new IllegalArgumentException(value.getClassName() + " objects cannot be cloned");
+            }
+        }
+
+        private void writeProperties(Scriptable object) {
+            Object[] ids = object.getIds();
+            ensure(5);
+            buffer.put(OBJECT).putInt(ids.length);
+            for (Object id : ids) {
+                if (id instanceof String) {
+                    put(STRING);
+                    writeString((String) id);
+                    write(object.get((String) id, object));
+                } else {
+                    int index = ((Number) id).intValue();
+                    ensure(5);
+                    buffer.put(INT).putInt(index);
+                    write(object.get(index, object));
+                }
+            }
+        }
+
+        private void writeView(NativeArrayBufferView view) {
+            byte kind = -1;
+            for (byte i = 0; i < VIEW_CLASSES.length; i++) {
+                if (VIEW_CLASSES[i].equals(view.getClassName())) {
+                    kind = i;
+                }
+            }
+            if (kind < 0) {
+                throw new IllegalArgumentException(view.getClassName() + " objects cannot be cloned");
+            }
+            int length = view instanceof NativeTypedArrayView
+                    ? ((NativeTypedArrayView<?>) view).getArrayLength()
+                    : view.getByteLength();
+            ensure(2);
+            buffer.put(ARRAY_BUFFER_VIEW).put(kind);
+            // Views sharing a buffer keep sharing it on the other side
+            write(view.getBuffer());
+            ensure(8);
+            buffer.putInt(view.getByteOffset()).putInt(length);
+        }
+
+        private void writePixels(int width, int height, int[] pixels) {
+            ensure(8 + width * height * 4);
+            buffer.putInt(width).putInt(height);
+            buffer.asIntBuffer().put(pixels, 0, width * height);
+            buffer.position(buffer.position() + width * height * 4);
+        }
+
+        private void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeBytes(utf8, 0, utf8.length);
+        }
+
+        private void writeBytes(byte[] data, int offset, int length) {
+            ensure(4 + length);
+            buffer.putInt(length).put(data, offset, length);
+        }
+
+        private void put(byte tag) {
+            ensure(1);
+            buffer.put(tag);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final Context cx;
+        private final Scriptable scope;
+        private final ByteBuffer buffer;
+        private final Transfer transfer;
+        private final List<Object> references = new ArrayList<>();
+
+        Reader(Context cx, Scriptable scope, byte[] bytes, Transfer transfer) {
+            this.cx = cx;
+            this.scope = scope;
+            this.buffer = ByteBuffer.wrap(bytes);
+            this.transfer = transfer;
+        }
+
+        Object read() {
+            byte tag = buffer.get();
+            switch (tag) {
+                case UNDEFINED:
+                    return Undefined.instance;
+                case NULL:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case INT:
+                    return buffer.getInt();
+                case DOUBLE:
+                    return buffer.getDouble();
+                case STRING:
+                    return readString();
+                case REFERENCE:
+                    return references.get(buffer.getInt());
+                default:
+                    return readObject(tag);
+            }
+        }
+
+        private Object readObject(byte tag) {
+            // Reserve the reference number before reading nested values, as the writer did
+            int reference = references.size();
+            references.add(null);
+            Object value;
+            switch (tag) {
+                case TRANSFERRED:
+                    value = transfer.receive(buffer.getInt(), cx, scope);
+                    break;
+                case ARRAY: {
+                    int length = buffer.getInt();
+                    Scriptable array = cx.newArray(scope, length);
+                    references.set(reference, array);
+                    for (int i = 0; i < length; i++) {
+                        array.put(i, array, read());
+                    }
+                    return array;
+                }
+                case OBJECT: {
+                    int count = buffer.getInt();
+                    Scriptable object = cx.newObject(scope);
+                    references.set(reference, object);
+                    for (int i = 0; i < count; i++) {
+                        Object key = read();
+                        if (key instanceof String) {
+                            object.put((String) key, object, read());
+                        } else {
+                            object.put((Integer) key, object, read());
+                        }
+                    }
+                    return object;
+                }
+                case DATE:
+                    value = cx.newObject(scope, "Date", new Object[] { buffer.getDouble() });
+                    break;
+                case ARRAY_BUFFER: {
+                    int length = buffer.getInt();
+                    NativeArrayBuffer arrayBuffer =
+                            (NativeArrayBuffer) cx.newObject(scope, "ArrayBuffer", new Object[] { length });
+                    buffer.get(arrayBuffer.getBuffer(), 0, length);
+                    value = arrayBuffer;
+                    break;
+                }
+                case ARRAY_BUFFER_VIEW: {
+                    String className = VIEW_CLASSES[buffer.get()];
+                    Object arrayBuffer = read();
+                    int offset = buffer.getInt();
+                    int length = buffer.getInt();
+                    value = cx.newObject(scope, className, new Object[] { arrayBuffer, offset, length });
+                    break;
+                }
+                case IMAGE_DATA: {
+                    String colorSpace = readString();
+                    int width = buffer.getInt();
+                    int height = buffer.getInt();
+                    ImageData imageData = (ImageData) cx.newObject(scope, "ImageData");
+                    imageData.init(new com.w3canvas.javacanvas.core.ImageData(width, height,
+                            new CanvasPixelArray(readPixels(width * height), width, height), colorSpace));
+                    value = imageData;
+                    break;
+                }
+                case BLOB: {
+                    String type = readString();
+                    byte[] data = new byte[buffer.getInt()];
+                    buffer.get(data);
+                    Blob blob = new Blob();
+                    blob.init(new com.w3canvas.javacanvas.core.Blob(data, type));
+                    blob.setParentScope(scope);
+                    blob.setPrototype(ScriptableObject.getClassPrototype(scope, "Blob"));
+                    value = blob;
+                    break;
+                }
+                case IMAGE_BITMAP: {
+                    int width = buffer.getInt();
+                    int height = buffer.getInt();
+                    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                    readPixels(pixels);
+                    ImageBitmap bitmap = new ImageBitmap();
+                    bitmap.init(com.w3canvas.javacanvas.core.ImageBitmap.adopt(image));
+                    bitmap.setParentScope(scope);
+                    bitmap.setPrototype(ScriptableObject.getClassPrototype(scope, "ImageBitmap"));
+                    value = bitmap;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Corrupt structured clone data, tag " + tag);
+            }
+            references.set(reference, value);
+            return value;
+        }
+
+        private int[] readPixels(int count) {
+            int[] pixels = new int[count];
+            readPixels(pixels);
+            return pixels;
+        }
+
+        private void readPixels(int[] pixels) {
+            buffer.asIntBuffer().get(pixels);
+            buffer.position(buffer.position() + pixels.length * 4);
+        }
+
+        private String readString() {
+            int length = buffer.getInt();
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+    }
+
+    private static int[] argbPixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                && image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            if (data.length == width * height) {
+                return data;
+            }
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+}
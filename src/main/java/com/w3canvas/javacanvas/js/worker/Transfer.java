@@ -0,0 +1,151 @@
+package com.w3canvas.javacanvas.js.worker;
+
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.typedarrays.NativeArrayBuffer;
+
+import com.w3canvas.javacanvas.backend.rhino.impl.node.ImageBitmap;
+
+/**
+ * The transfer list of a postMessage call.
+ *
+ * {@link #of(Object)} validates the list on the sending side. While the message is serialized,
+ * {@link StructuredClone} writes transferred objects as their index in the list. {@link #detach()}
+ * then takes the pixel buffers out of the listed ImageBitmaps and OffscreenCanvases and neuters
+ * them: a transferred ImageBitmap is closed and a transferred OffscreenCanvas can no longer be
+ * used. On the receiving side {@link #receive(int, Context, Scriptable)} creates a new object
+ * that owns the same buffer. No pixels are copied.
+ *
+ * ArrayBuffers are accepted in the transfer list but copied. Rhino's {@link NativeArrayBuffer}
+ * cannot be detached, so {@link #detach()} takes a copy of the bytes on the sending thread and
+ * the receiver gets a new ArrayBuffer in its own scope holding that copy. The sender keeps its
+ * buffer, and writes to it after postMessage are not seen by the receiver.
+ */
+final class Transfer {
+
+    static final Transfer NONE = new Transfer(new Object[0]);
+
+    /**
+     * Creates the receiving side's replacement for a transferred object.
+     */
+    private interface Receiver {
+        Object create(Context cx, Scriptable scope);
+    }
+
+    private final Object[] items;
+    private final Map<Object, Integer> indexes = new IdentityHashMap<>();
+    private final Receiver[] receivers;
+
+    private Transfer(Object[] items) {
+        this.items = items;
+        this.receivers = new Receiver[items.length];
+        for (int i = 0; i < items.length; i++) {
+            if (indexes.put(items[i], i) != null) {
+                throw new IllegalArgumentException("Object appears more than once in the transfer list");
+            }
+        }
+    }
+
+    /**
+     * Validates a transfer list. Nothing is detached yet.
+     *
+     * @param transferList a JavaScript array, or undefined/null for no transfer list
+     * @throws IllegalArgumentException if the list is not an array, contains an object twice
+     *         or contains an object that cannot be transferred
+     * @throws IllegalStateException if an object has already been transferred or closed
+     */
+    static Transfer of(Object transferList) {
+        if (transferList == null || transferList instanceof Undefined) {
+            return NONE;
+        }
+        if (!(transferList instanceof NativeArray)) {
+            throw new IllegalArgumentException("Transfer list must be an array");
+        }
+        NativeArray list = (NativeArray) transferList;
+        if (list.getLength() == 0) {
+            return NONE;
+        }
+
+        Object[] items = new Object[(int) list.getLength()];
+        for (int i = 0; i < items.length; i++) {
+            Object item = list.get(i, list);
+            if (item instanceof ImageBitmap) {
+                if (((ImageBitmap) item).isClosed()) {
+                    throw new IllegalStateException("Cannot transfer a closed ImageBitmap");
+                }
+            } else if (item instanceof OffscreenCanvas) {
+                ((OffscreenCanvas) item).checkTransferable();
+            } else if (!(item instanceof NativeArrayBuffer)) {
+                throw new IllegalArgumentException("Object is not transferable: " + Context.toString(item));
+            }
+            items[i] = item;
+        }
+        return new Transfer(items);
+    }
+
+    /**
+     * Returns the position of {@code value} in the transfer list, or -1.
+     */
+    int indexOf(Object value) {
+        Integer index = indexes.get(value);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Neuters every object in the list. Called once the message has been serialized.
+     */
+    void detach() {
+        for (int i = 0; i < items.length; i++) {
+            receivers[i] = detachItem(items[i]);
+        }
+    }
+
+    /**
+     * Creates the receiving side's object for entry {@code index} of the list.
+     */
+    Object receive(int index, Context cx, Scriptable scope) {
+        return receivers[index].create(cx, scope);
+    }
+
+    private static Receiver detachItem(Object item) {
+        if (item instanceof ImageBitmap) {
+            ImageBitmap bitmap = (ImageBitmap) item;
+            final BufferedImage image = (BufferedImage) bitmap.getNativeImage();
+            bitmap.close();
+            return (cx, scope) -> {
+                ImageBitmap received = new ImageBitmap();
+                received.init(com.w3canvas.javacanvas.core.ImageBitmap.adopt(image));
+                received.setParentScope(scope);
+                received.setPrototype(ScriptableObject.getClassPrototype(scope, "ImageBitmap"));
+                return received;
+            };
+        }
+        if (item instanceof OffscreenCanvas) {
+            OffscreenCanvas canvas = (OffscreenCanvas) item;
+            final int width = canvas.getWidth();
+            final int height = canvas.getHeight();
+            canvas.detach();
+            return (cx, scope) -> {
+                OffscreenCanvas received = new OffscreenCanvas();
+                received.jsConstructor(width, height);
+                received.setParentScope(scope);
+                received.setPrototype(ScriptableObject.getClassPrototype(scope, "OffscreenCanvas"));
+                return received;
+            };
+        }
+        final byte[] bytes = ((NativeArrayBuffer) item).getBuffer().clone();
+        return (cx, scope) -> {
+            NativeArrayBuffer received =
+                    (NativeArrayBuffer) cx.newObject(scope, "ArrayBuffer", new Object[] { bytes.length });
+            System.arraycopy(bytes, 0, received.getBuffer(), 0, bytes.length);
+            return received;
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.w3canvas.javacanvas.js.worker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+
+/**
+ * Pool of initialized dedicated worker runtimes, keyed by script URL.
+ *
+ * Creating a worker runtime means building a {@link com.w3canvas.javacanvas.rt.RhinoRuntime},
+ * defining the worker's host classes and starting its event loop. Renderers that spawn
+ * short-lived workers pay that on every {@code new Worker(url)}. The pool keeps terminated
+ * workers' runtimes, resets their global scope and hands them to the next worker for the same
+ * URL. Worker scripts are compiled once and the compiled {@link Script} is shared by every
+ * runtime that runs it.
+ *
+ * At most {@link #getMaxIdlePerScript()} idle runtimes are kept per URL (4 by default, see
+ * the {@code w3canvas.workerPool.maxIdle} system property); extra ones are shut down.
+ */
+public class WorkerRuntimePool {
+
+    private static final WorkerRuntimePool INSTANCE =
+            new WorkerRuntimePool(Integer.getInteger("w3canvas.workerPool.maxIdle", 4));
+
+    private final int maxIdlePerScript;
+    private final Map<String, Deque<PooledWorkerRuntime>> idle = new HashMap<>();
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+
+    WorkerRuntimePool(int maxIdlePerScript) {
+        if (maxIdlePerScript < 0) {
+            throw new IllegalArgumentException("Pool size cannot be negative: " + maxIdlePerScript);
+        }
+        this.maxIdlePerScript = maxIdlePerScript;
+    }
+
+    /**
+     * Returns the pool shared by all dedicated workers.
+     */
+    public static WorkerRuntimePool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Takes an idle runtime for {@code scriptUrl}, or creates a new one.
+     */
+    PooledWorkerRuntime acquire(String scriptUrl) {
+        synchronized (idle) {
+            Deque<PooledWorkerRuntime> runtimes = idle.get(scriptUrl);
+            PooledWorkerRuntime runtime = runtimes != null ? runtimes.pollFirst() : null;
+            if (runtime != null) {
+                reusedCount.incrementAndGet();
+                return runtime;
+            }
+        }
+        createdCount.incrementAndGet();
+        return new PooledWorkerRuntime(this, scriptUrl);
+    }
+
+    /**
+     * Returns a runtime whose scope has been reset. Called on the runtime's own event loop.
+     */
+    void release(PooledWorkerRuntime runtime) {
+        synchronized (idle) {
+            Deque<PooledWorkerRuntime> runtimes = idle.computeIfAbsent(runtime.getScriptUrl(), url -> new ArrayDeque<>());
+            if (runtimes.size() < maxIdlePerScript) {
+                runtimes.addFirst(runtime);
+                return;
+            }
+        }
+        runtime.shutdown();
+    }
+
+    /**
+     * Returns the compiled worker script, loading it from the classpath on first use.
+     *
+     * @throws IOException if the script cannot be found or read
+     */
+    Script getScript(Context cx, String scriptUrl) throws IOException {
+        Script script = scripts.get(scriptUrl);
+        if (script == null) {
+            InputStream in = Worker.class.getClassLoader().getResourceAsStream(scriptUrl);
+            if (in == null) {
+                throw new IOException("Worker script not found on classpath: " + scriptUrl);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                script = cx.compileReader(reader, scriptUrl, 1, null);
+            }
+            Script existing = scripts.putIfAbsent(scriptUrl, script);
+            if (existing != null) {
+                script = existing;
+            }
+        }
+        return script;
+    }
+
+    /**
+     * Shuts down all idle runtimes and forgets compiled scripts.
+     */
+    public void clear() {
+        synchronized (idle) {
+            for (Deque<PooledWorkerRuntime> runtimes : idle.values()) {
+                for (PooledWorkerRuntime runtime : runtimes) {
+                    runtime.shutdown();
+                }
+            }
+            idle.clear();
+        }
+        scripts.clear();
+    }
+
+    public int getMaxIdlePerScript() {
+        return maxIdlePerScript;
+    }
+
+    /**
+     * Returns the number of idle runtimes kept for {@code scriptUrl}.
+     */
+    public int getIdleCount(String scriptUrl) {
+        synchronized (idle) {
+            Deque<PooledWorkerRuntime> runtimes = idle.get(scriptUrl);
+            return runtimes != null ? runtimes.size() : 0;
+        }
+    }
+
+    /**
+     * Returns the number of runtimes built because none was idle.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * Returns the number of workers that started on a pooled runtime.
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * Returns the number of distinct worker scripts compiled so far.
+     */
+    public int getCompiledScriptCount() {
+        return scripts.size();
+    }
+}
@@ -0,0 +1,361 @@
+package com.w3canvas.javacanvas.rt;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Frame clock behind requestAnimationFrame.
+ *
+ * A fixed-rate clock thread ticks at the frame rate (60 Hz by default, see the
+ * {@code w3canvas.frameRate} system property) while callbacks are pending. Each tick posts
+ * one frame task to the event loop, which runs every callback requested before the frame
+ * started, then the render hooks (e.g. backends flushing batched drawing), then the presenter
+ * (e.g. repainting the window). Callbacks requested during a frame run in the next frame.
+ *
+ * If the event loop falls behind, ticks that arrive while a frame is still queued or running
+ * are dropped rather than queued, so a slow script runs at a lower frame rate instead of
+ * building up a backlog. Callbacks always receive the due time of their own frame.
+ *
+ * The clock stops ticking when no callbacks are pending, and its thread exits after a second
+ * without ticks, so idle pages cost nothing. {@link #shutdown()} stops it right away when the
+ * runtime is discarded. In virtual time mode (see {@link FrameStepper}) the clock thread is
+ * never started and frames only run when {@link #runVirtualFrame(double)} is called.
+ */
+public class AnimationFrameScheduler {
+
+    /**
+     * Default frame rate, in frames per second.
+     */
+    public static final int DEFAULT_FRAME_RATE = 60;
+
+    // How long an idle clock thread waits for a new request before it exits
+    private static final long IDLE_THREAD_SECONDS = 1;
+
+    /**
+     * Timings of one frame, in nanoseconds.
+     */
+    public static final class FrameTiming {
+
+        private final long frameNumber;
+        private final double timestamp;
+        private final long scriptNanos;
+        private final long renderNanos;
+        private final long presentNanos;
+
+        FrameTiming(long frameNumber, double timestamp, long scriptNanos, long renderNanos, long presentNanos) {
+            this.frameNumber = frameNumber;
+            this.timestamp = timestamp;
+            this.scriptNanos = scriptNanos;
+            this.renderNanos = renderNanos;
+            this.presentNanos = presentNanos;
+        }
+
+        public long getFrameNumber() {
+            return frameNumber;
+        }
+
+        /**
+         * Returns the frame time passed to callbacks, in milliseconds since the scheduler was created.
+         */
+        public double getTimestamp() {
+            return timestamp;
+        }
+
+        public long getScriptNanos() {
+            return scriptNanos;
+        }
+
+        public long getRenderNanos() {
+            return renderNanos;
+        }
+
+        public long getPresentNanos() {
+            return presentNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Frame %d @%.1fms: script %.2fms, render %.2fms, present %.2fms",
+                    frameNumber, timestamp, scriptNanos / 1e6, renderNanos / 1e6, presentNanos / 1e6);
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(AnimationFrameScheduler.class.getName());
+
+    private final EventLoop eventLoop;
+    private final long periodNanos;
+    private final long originNanos = System.nanoTime();
+    private final ScheduledThreadPoolExecutor clock;
+
+    // Guarded by this
+    private Map<Integer, DoubleConsumer> callbacks = new LinkedHashMap<>();
+    private int nextId = 1;
+    private ScheduledFuture<?> tick;
+    private boolean frameQueued;
+    private long lastTickIndex = -1;
+    private boolean virtual;
+
+    private final List<Runnable> renderHooks = new CopyOnWriteArrayList<>();
+    private volatile Runnable presenter;
+
+    private volatile FrameTiming lastFrame;
+    private long frameCount;
+    private long skippedFrameCount;
+    private long totalScriptNanos;
+    private long totalRenderNanos;
+    private long totalPresentNanos;
+
+    public AnimationFrameScheduler(EventLoop eventLoop) {
+        this(eventLoop, Integer.getInteger("w3canvas.frameRate", DEFAULT_FRAME_RATE));
+    }
+
+    public AnimationFrameScheduler(EventLoop eventLoop, int frameRate) {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive, got: " + frameRate);
+        }
+        this.eventLoop = eventLoop;
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / frameRate;
+        this.clock = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "FrameClock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.clock.setRemoveOnCancelPolicy(true);
+        this.clock.setKeepAliveTime(IDLE_THREAD_SECONDS, TimeUnit.SECONDS);
+        this.clock.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Requests that {@code callback} runs once, at the start of the next frame.
+     *
+     * @param callback receives the frame timestamp in milliseconds
+     * @return the request id, valid for {@link #cancel(int)}
+     */
+    public synchronized int request(DoubleConsumer callback) {
+        int id = nextId++;
+        callbacks.put(id, callback);
+        if (tick == null && !virtual && !clock.isShutdown()) {
+            // Align to the frame grid so frames stay evenly spaced across idle periods
+            long now = System.nanoTime() - originNanos;
+            long delay = periodNanos - now % periodNanos;
+            tick = clock.scheduleAtFixedRate(this::onTick, delay, periodNanos, TimeUnit.NANOSECONDS);
+        }
+        return id;
+    }
+
+    /**
+     * Cancels a pending request. Unknown ids are ignored.
+     */
+    public synchronized void cancel(int id) {
+        callbacks.remove(id);
+    }
+
+    /**
+     * Cancels all pending requests.
+     */
+    public synchronized void cancelAll() {
+        callbacks.clear();
+    }
+
+    /**
+     * Adds a hook run on the event loop after the frame's callbacks, e.g. to flush batched drawing.
+     */
+    public void addRenderHook(Runnable hook) {
+        renderHooks.add(hook);
+    }
+
+    public void removeRenderHook(Runnable hook) {
+        renderHooks.remove(hook);
+    }
+
+    /**
+     * Returns the number of registered render hooks.
+     */
+    public int getRenderHookCount() {
+        return renderHooks.size();
+    }
+
+    /**
+     * Sets the action run at the end of each frame to show its result, e.g. a window repaint.
+     */
+    public void setPresenter(Runnable presenter) {
+        this.presenter = presenter;
+    }
+
+    /**
+     * Stops the clock thread; from now on frames only run through {@link #runVirtualFrame(double)}.
+     */
+    synchronized void useVirtualTime() {
+        virtual = true;
+        if (tick != null) {
+            tick.cancel(false);
+            tick = null;
+        }
+    }
+
+    /**
+     * Runs one frame synchronously on the calling thread, in virtual time mode.
+     *
+     * @param timestamp the frame time passed to callbacks, in milliseconds
+     */
+    void runVirtualFrame(double timestamp) {
+        synchronized (this) {
+            if (!virtual) {
+                throw new IllegalStateException("Frame clock is not in virtual time mode");
+            }
+            frameQueued = true;
+        }
+        runFrame(timestamp);
+    }
+
+    /**
+     * Cancels all requests and stops the clock thread.
+     */
+    public synchronized void shutdown() {
+        callbacks.clear();
+        clock.shutdownNow();
+        tick = null;
+    }
+
+    // Runs on the clock thread
+    private synchronized void onTick() {
+        long tickIndex = (System.nanoTime() - originNanos) / periodNanos;
+        if (lastTickIndex >= 0 && tickIndex > lastTickIndex + 1) {
+            // The clock thread itself was starved; count the frames that never got a tick
+            skippedFrameCount += tickIndex - lastTickIndex - 1;
+        }
+        lastTickIndex = tickIndex;
+
+        if (frameQueued) {
+            skippedFrameCount++;
+            return;
+        }
+        if (callbacks.isEmpty()) {
+            tick.cancel(false);
+            tick = null;
+            lastTickIndex = -1;
+            return;
+        }
+        // Set before posting: runFrame() clears it under this lock, so it cannot run first
+        frameQueued = true;
+        double timestamp = tickIndex * periodNanos / 1e6;
+        try {
+            eventLoop.queueTask(() -> runFrame(timestamp));
+        } catch (RuntimeException e) {
+            // Not posted; try again on the next tick. Throwing would stop the clock for good.
+            frameQueued = false;
+            LOG.log(Level.WARNING, "Could not post an animation frame to the event loop", e);
+        }
+    }
+
+    // Runs on the event loop
+    private void runFrame(double timestamp) {
+        Map<Integer, DoubleConsumer> due;
+        synchronized (this) {
+            due = callbacks;
+            callbacks = new LinkedHashMap<>();
+        }
+
+        long start = System.nanoTime();
+        long scriptEnd = start;
+        long renderEnd = start;
+        long presentEnd = start;
+        try {
+            for (DoubleConsumer callback : due.values()) {
+                try {
+                    callback.accept(timestamp);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Animation frame callback failed", e);
+                }
+            }
+            scriptEnd = System.nanoTime();
+            for (Runnable hook : renderHooks) {
+                try {
+                    hook.run();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Render hook failed", e);
+                }
+            }
+            renderEnd = System.nanoTime();
+            Runnable present = presenter;
+            if (present != null) {
+                try {
+                    present.run();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Frame presenter failed", e);
+                }
+            }
+            presentEnd = System.nanoTime();
+        } finally {
+            // Even an Error must not leave the next frame blocked
+            synchronized (this) {
+                frameQueued = false;
+                frameCount++;
+                totalScriptNanos += scriptEnd - start;
+                totalRenderNanos += renderEnd - scriptEnd;
+                totalPresentNanos += presentEnd - renderEnd;
+                lastFrame = new FrameTiming(frameCount, timestamp, scriptEnd - start, renderEnd - scriptEnd,
+                        presentEnd - renderEnd);
+            }
+        }
+    }
+
+    /**
+     * Returns the frame period in nanoseconds.
+     */
+    public long getFramePeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Returns the number of live clock threads: 1 while frames are ticking, 0 once idle.
+     */
+    public int getThreadCount() {
+        return clock.getPoolSize();
+    }
+
+    /**
+     * Returns the number of callbacks waiting for the next frame.
+     */
+    public synchronized int getPendingCount() {
+        return callbacks.size();
+    }
+
+    /**
+     * Returns the timings of the most recent frame, or null if no frame has run yet.
+     */
+    public FrameTiming getLastFrameTiming() {
+        return lastFrame;
+    }
+
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of frames dropped because the previous frame had not finished.
+     */
+    public synchronized long getSkippedFrameCount() {
+        return skippedFrameCount;
+    }
+
+    public synchronized long getAverageScriptNanos() {
+        return frameCount == 0 ? 0 : totalScriptNanos / frameCount;
+    }
+
+    public synchronized long getAverageRenderNanos() {
+        return frameCount == 0 ? 0 : totalRenderNanos / frameCount;
+    }
+
+    public synchronized long getAveragePresentNanos() {
+        return frameCount == 0 ? 0 : totalPresentNanos / frameCount;
+    }
+}
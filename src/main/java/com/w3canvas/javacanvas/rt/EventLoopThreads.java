@@ -0,0 +1,101 @@
+package com.w3canvas.javacanvas.rt;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads that run event loops and worker message pumps.
+ *
+ * By default these are platform daemon threads. With the system property
+ * {@code w3canvas.virtualThreads=true} on JDK 21 or newer they are virtual threads, so a
+ * process can host thousands of runtimes and workers that mostly sit blocked on their queues
+ * without one OS thread each. On older JDKs the property is ignored and platform threads are
+ * used; the virtual thread API is reached through reflection so the code still compiles for
+ * Java 8 and 17.
+ */
+public final class EventLoopThreads {
+
+    /**
+     * System property that enables virtual threads when the JDK supports them.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "w3canvas.virtualThreads";
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_UNSTARTED;
+    private static final Method IS_VIRTUAL;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        Method isVirtual = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            isVirtual = Thread.class.getMethod("isVirtual");
+            // JDK 19 and 20 have the API but reject it unless preview features are enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_UNSTARTED = unstarted;
+        IS_VIRTUAL = isVirtual;
+    }
+
+    private EventLoopThreads() {
+    }
+
+    /**
+     * Returns true if this JDK can create virtual threads.
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns true if new threads will be virtual: the property is set and the JDK supports it.
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return OF_VIRTUAL != null && Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+    }
+
+    /**
+     * Creates an unstarted thread for an event loop or message pump.
+     *
+     * @param name the thread name
+     * @param task the loop to run
+     * @return a virtual thread if enabled, otherwise a platform daemon thread
+     */
+    public static Thread newThread(String name, Runnable task) {
+        if (isVirtualThreadsEnabled()) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                System.err.println("WARN: Could not create virtual thread, using a platform thread: " + e);
+            }
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Returns true if {@code thread} is a virtual thread.
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.w3canvas.javacanvas.rt;
+
+import java.awt.image.BufferedImage;
+import java.util.function.Supplier;
+
+/**
+ * Deterministic, faster than real time animation driver for headless export.
+ *
+ * Obtained from {@link RhinoRuntime#useVirtualClock()}, which switches the runtime's timers
+ * and animation frames to a virtual clock. Time then only moves when this class advances it:
+ * each {@link #step()} moves the clock by one frame period, runs every setTimeout/setInterval
+ * callback due on the way in order, then runs the requestAnimationFrame callbacks for that
+ * frame. Nothing sleeps, so N frames take as long as the scripts need to draw them, and the
+ * same script always produces the same frames.
+ *
+ * Callbacks run synchronously on the thread calling this class.
+ */
+public class FrameStepper {
+
+    /**
+     * Receives each rendered frame.
+     */
+    public interface FrameSink {
+        /**
+         * @param frame     the frame index, starting at 0
+         * @param timestamp the frame time in milliseconds of virtual time
+         * @param image     the live canvas image; copy it if it must outlive the call
+         */
+        void accept(int frame, double timestamp, BufferedImage image) throws Exception;
+    }
+
+    private final RhinoScheduler scheduler;
+    private final AnimationFrameScheduler frames;
+    private int frameIndex;
+
+    FrameStepper(RhinoScheduler scheduler, AnimationFrameScheduler frames) {
+        this.scheduler = scheduler;
+        this.frames = frames;
+        scheduler.useVirtualTime();
+        frames.useVirtualTime();
+    }
+
+    /**
+     * Returns the current virtual time in milliseconds.
+     */
+    public double getTime() {
+        return scheduler.getVirtualNanos() / 1e6;
+    }
+
+    /**
+     * Returns the number of frames stepped so far.
+     */
+    public int getFrameCount() {
+        return frameIndex;
+    }
+
+    /**
+     * Advances virtual time without running an animation frame, firing the timers due on the way.
+     *
+     * @param millis the amount of virtual time to advance, in milliseconds
+     */
+    public void advance(double millis) {
+        if (millis < 0 || Double.isNaN(millis)) {
+            throw new IllegalArgumentException("Cannot advance by " + millis + " ms");
+        }
+        scheduler.advanceTo(scheduler.getVirtualNanos() + (long) (millis * 1e6));
+    }
+
+    /**
+     * Advances to the next frame boundary and runs that frame.
+     *
+     * @return the frame timestamp in milliseconds
+     */
+    public double step() {
+        long frameNanos = (frameIndex + 1L) * frames.getFramePeriodNanos();
+        scheduler.advanceTo(Math.max(frameNanos, scheduler.getVirtualNanos()));
+        double timestamp = scheduler.getVirtualNanos() / 1e6;
+        frames.runVirtualFrame(timestamp);
+        frameIndex++;
+        return timestamp;
+    }
+
+    /**
+     * Steps {@code count} frames, handing each result to {@code sink}.
+     *
+     * @param count  the number of frames to render
+     * @param source supplies the image to capture, e.g. {@code canvas::getImage}
+     * @param sink   receives each frame
+     */
+    public void run(int count, Supplier<BufferedImage> source, FrameSink sink) throws Exception {
+        for (int i = 0; i < count; i++) {
+            int frame = frameIndex;
+            double timestamp = step();
+            sink.accept(frame, timestamp, source.get());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.w3canvas.javacanvas.rt;
 
 import com.w3canvas.javacanvas.interfaces.IWindowHost;
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
 import com.w3canvas.javacanvas.backend.awt.SwingWindowHost;
 import java.awt.Container;
 import javax.swing.RootPaneContainer;
@@ -104,7 +105,7 @@ public class JavaCanvas {
             if (canvasNode instanceof HTMLCanvasElement) {
                 HTMLCanvasElement canvasElement = (HTMLCanvasElement) canvasNode;
                 BufferedImage image = canvasElement.getImage();
-                javax.imageio.ImageIO.write(image, "png", new java.io.File(path));
+                javax.imageio.ImageIO.write(AwtCanvasSurface.toStraightAlpha(image), "png", new java.io.File(path));
                 System.out.println("Screenshot saved to " + path);
             } else {
                 System.err.println("Could not find canvas element with id 'canvas'");
@@ -129,7 +130,7 @@ public class JavaCanvas {
             runtime.putProperty("documentBase", scriptFile.getParentFile().toURI().toString());
 
             if (runtime instanceof RhinoRuntime) {
-                Context.enter();
+                RhinoRuntime.enterContext();
                 try {
                     runtime.exec(reader, scriptPath);
                 } finally {
@@ -148,6 +149,17 @@ public class JavaCanvas {
         return runtime.exec(code);
     }
 
+    /**
+     * Renders a drawing script into a new width x height image, as tiles on parallel
+     * threads. See {@link TileRenderer} for the globals the script sees.
+     *
+     * @param tileSize the maximum tile width and height in pixels
+     * @param threads the number of tiles rendered at the same time
+     */
+    public BufferedImage renderTiled(String script, int width, int height, int tileSize, int threads) {
+        return new TileRenderer(threads).render(script, width, height, tileSize);
+    }
+
     private IWindowHost windowHost;
 
     // ... (constructors)
@@ -181,7 +193,7 @@ public class JavaCanvas {
             initializeCommon();
         } else {
             runtime = new RhinoRuntime();
-            Context.enter();
+            RhinoRuntime.enterContext();
             try {
                 initializeCommon();
             } finally {
@@ -249,6 +261,10 @@ public class JavaCanvas {
                 // Store window in RhinoRuntime so it's accessible across Contexts
                 if (runtime instanceof RhinoRuntime) {
                     ((RhinoRuntime) runtime).setMainThreadWindow(this.window);
+                    if (windowHost != null) {
+                        // Show each animation frame once its callbacks have drawn it
+                        ((RhinoRuntime) runtime).getAnimationFrames().setPresenter(windowHost::repaint);
+                    }
                 }
             }
 
@@ -2,14 +2,19 @@ package com.w3canvas.javacanvas.rt;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class MainThreadEventLoop implements EventLoop {
 
+    private static final Logger LOG = Logger.getLogger(MainThreadEventLoop.class.getName());
+
     private final BlockingQueue<Runnable> taskQueue = new LinkedBlockingQueue<>();
     private Thread eventLoopThread;
     private volatile boolean running = false;
     private final boolean synchronousMode;
-    private final IUIToolkit uiToolkit;
+    // Replaced by the Swing toolkit if the chosen one turns out not to be running
+    private volatile IUIToolkit uiToolkit;
 
     public MainThreadEventLoop() {
         this(false, null);
@@ -55,13 +60,34 @@ public class MainThreadEventLoop implements EventLoop {
             }
         }
 
-        if (uiToolkit != null) {
-            uiToolkit.invokeLater(task);
+        IUIToolkit toolkit = uiToolkit;
+        if (toolkit != null) {
+            try {
+                toolkit.invokeLater(task);
+            } catch (IllegalStateException e) {
+                // JavaFX is on the classpath but its toolkit was never started
+                if (toolkit instanceof SwingUIToolkit) {
+                    throw e;
+                }
+                fallBackToSwing(toolkit, e);
+                uiToolkit.invokeLater(task);
+            }
         } else {
             taskQueue.offer(task);
         }
     }
 
+    /**
+     * Switches to the AWT event queue for good, so that tasks keep running in order on one
+     * thread even if the failed toolkit is started later.
+     */
+    private synchronized void fallBackToSwing(IUIToolkit failed, IllegalStateException cause) {
+        if (uiToolkit == failed) {
+            LOG.log(Level.INFO, "UI toolkit not running, using the AWT event queue instead: " + cause.getMessage());
+            uiToolkit = new SwingUIToolkit();
+        }
+    }
+
     @Override
     public synchronized void start() {
         if (running) {
@@ -71,7 +97,7 @@ public class MainThreadEventLoop implements EventLoop {
         // Only start our own thread if not using UI toolkit
         if (uiToolkit == null) {
             running = true;
-            eventLoopThread = new Thread(() -> {
+            eventLoopThread = EventLoopThreads.newThread("MainEventLoop", () -> {
                 while (!Thread.currentThread().isInterrupted() && running) {
                     try {
                         // Block until a task is available - NO busy-waiting!
@@ -82,8 +108,7 @@ public class MainThreadEventLoop implements EventLoop {
                         break;
                     }
                 }
-            }, "MainEventLoop");
-            eventLoopThread.setDaemon(true);
+            });
             eventLoopThread.start();
         } else {
             // Using UI toolkit, just mark as running
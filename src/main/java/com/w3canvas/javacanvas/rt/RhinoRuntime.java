@@ -1,19 +1,44 @@
 package com.w3canvas.javacanvas.rt;
 
-import java.util.Hashtable;
-
 import org.mozilla.javascript.Callable;
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.Scriptable;
 
 public class RhinoRuntime implements JSRuntime {
 
-    private Hashtable<Integer, RhinoScheduler> intervals = new Hashtable<Integer, RhinoScheduler>();
-    private int intervalId;
+    /**
+     * Makes the Contexts this library enters. Rhino 1.7.x starts contexts at an ES5-era
+     * language version, which leaves out typed arrays and ArrayBuffer, so these use ES6.
+     * Contexts made by the global factory, such as a host application's own, are left alone.
+     */
+    private static final ContextFactory CONTEXT_FACTORY = new ContextFactory() {
+        @Override
+        protected Context makeContext() {
+            Context cx = super.makeContext();
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            return cx;
+        }
+    };
+
+    /**
+     * Enter a Context for running this library's scripts. A thread that is already in a
+     * Context keeps using it, as with {@link Context#enter()}.
+     *
+     * @return the current Context; balance with {@link Context#exit()}
+     */
+    public static Context enterContext() {
+        return CONTEXT_FACTORY.enterContext();
+    }
+
     private String currentUrl;
     private Scriptable scope;
     private final EventLoop eventLoop;
+    private final RhinoScheduler scheduler;
+    private final AnimationFrameScheduler animationFrames;
+    private FrameStepper frameStepper;
     private final boolean isWorker;
 
     // Main thread globals that need to be accessible across Contexts
@@ -52,8 +77,10 @@ public class RhinoRuntime implements JSRuntime {
 
         // Start the event loop - it will block on the queue until work arrives
         this.eventLoop.start();
+        this.scheduler = new RhinoScheduler(this);
+        this.animationFrames = new AnimationFrameScheduler(eventLoop);
 
-        Context context = Context.enter();
+        Context context = enterContext();
         try {
             // Initialize the standard objects (Object, Function, etc.)
             // This must be done before scripts can be executed. Returns
@@ -105,31 +132,39 @@ public class RhinoRuntime implements JSRuntime {
             defineProperty("setTimeout", new Callable() {
                 public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
                     // Accepts both function and string parameters
-                    new Thread(new RhinoScheduler(RhinoRuntime.this, args[0], ((Number) args[1]).intValue(), false))
-                            .start();
-                    return null;
+                    return scheduler.schedule(args[0], timerDelay(args), false);
                 }
             });
 
             defineProperty("setInterval", new Callable() {
                 public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
                     // Accepts both function and string parameters
-                    RhinoScheduler e = new RhinoScheduler(RhinoRuntime.this, args[0], ((Number) args[1]).intValue(),
-                            true);
-                    Integer id = Integer.valueOf(intervalId++);
-                    intervals.put(id, e);
-                    new Thread(e).start();
-                    return id;
+                    return scheduler.schedule(args[0], timerDelay(args), true);
+                }
+            });
+
+            // Timeouts and intervals share one id space, so either function clears either kind
+            Callable clearTimer = new Callable() {
+                public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+                    if (args.length > 0 && args[0] instanceof Number) {
+                        scheduler.cancel(((Number) args[0]).intValue());
+                    }
+                    return null;
+                }
+            };
+            defineProperty("clearTimeout", clearTimer);
+            defineProperty("clearInterval", clearTimer);
+
+            defineProperty("requestAnimationFrame", new Callable() {
+                public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+                    return requestAnimationFrame(args.length > 0 ? args[0] : null);
                 }
             });
 
-            defineProperty("clearInterval", new Callable() {
+            defineProperty("cancelAnimationFrame", new Callable() {
                 public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
-                    Integer id = Integer.valueOf(((Number) args[0]).intValue());
-                    RhinoScheduler e = intervals.get(id);
-                    if (e != null) {
-                        e.stopLoop();
-                        intervals.remove(id);
+                    if (args.length > 0 && args[0] instanceof Number) {
+                        animationFrames.cancel(((Number) args[0]).intValue());
                     }
                     return null;
                 }
@@ -214,6 +249,36 @@ public class RhinoRuntime implements JSRuntime {
         }
     }
 
+    /**
+     * Schedule a JavaScript function for the next animation frame.
+     *
+     * @param callback The function, called with the frame timestamp in milliseconds
+     * @return The request id for cancelAnimationFrame
+     */
+    public int requestAnimationFrame(Object callback) {
+        if (!(callback instanceof Function)) {
+            throw Context.reportRuntimeError("requestAnimationFrame: callback is not a function");
+        }
+        Function fn = (Function) callback;
+        return animationFrames.request(timestamp -> {
+            Context cx = enterContext();
+            try {
+                cx.putThreadLocal("runtime", this);
+                fn.call(cx, scope, scope, new Object[] { timestamp });
+            } finally {
+                Context.exit();
+            }
+        });
+    }
+
+    private static long timerDelay(Object[] args) {
+        if (args.length > 1 && args[1] instanceof Number) {
+            double delay = ((Number) args[1]).doubleValue();
+            return Double.isNaN(delay) ? 0 : (long) delay;
+        }
+        return 0;
+    }
+
     public void defineProperty(String key, Object value) {
         // If the value is a Scriptable, set its parent scope
         if (value instanceof org.mozilla.javascript.Scriptable) {
@@ -272,6 +337,7 @@ public class RhinoRuntime implements JSRuntime {
 
     @Override
     public void close() {
+        shutdownTimers();
         Context.exit();
     }
 
@@ -285,6 +351,55 @@ public class RhinoRuntime implements JSRuntime {
         return eventLoop;
     }
 
+    /**
+     * Get the timer service behind setTimeout/setInterval.
+     *
+     * @return The RhinoScheduler instance, which also exposes timer metrics
+     */
+    public RhinoScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get the frame clock behind requestAnimationFrame.
+     *
+     * @return The AnimationFrameScheduler instance, which also exposes frame timings
+     */
+    public AnimationFrameScheduler getAnimationFrames() {
+        return animationFrames;
+    }
+
+    /**
+     * Switch timers and animation frames to a virtual clock driven by the returned stepper.
+     * Used for headless export, where frames should render as fast as possible and
+     * deterministically. Timers already pending keep their remaining delay.
+     *
+     * @return The FrameStepper that advances this runtime's virtual clock
+     */
+    public synchronized FrameStepper useVirtualClock() {
+        if (frameStepper == null) {
+            frameStepper = new FrameStepper(scheduler, animationFrames);
+        }
+        return frameStepper;
+    }
+
+    /**
+     * Cancel all pending timers and animation frames. The runtime can schedule new ones.
+     */
+    public void cancelTimers() {
+        scheduler.cancelAll();
+        animationFrames.cancelAll();
+    }
+
+    /**
+     * Cancel all pending timers and animation frames and stop their threads.
+     * Call this when the runtime is discarded; timers cannot be scheduled afterwards.
+     */
+    public void shutdownTimers() {
+        scheduler.shutdown();
+        animationFrames.shutdown();
+    }
+
     /**
      * Check if this is a worker runtime.
      * 
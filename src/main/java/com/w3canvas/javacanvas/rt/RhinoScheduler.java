@@ -1,68 +1,310 @@
-/**
- *
- */
-package com.w3canvas.javacanvas.rt;
-
-import java.awt.EventQueue;
-
-import org.mozilla.javascript.Context;
-
-class RhinoScheduler implements Runnable
-{
-
-    private RhinoScriptRunner runner;
-    private int time;
-    private int run;
-    private boolean loop;
-
-    RhinoScheduler(RhinoRuntime runtime, Object command, int time, boolean loop)
-    {
-        this.time = time;
-        this.run = 0;
-        this.loop = loop;
-
-        runner = new RhinoScriptRunner(runtime, command);
-    }
-
-    public void run()
-    {
-        do
-        {
-            try
-            {
-                Thread.sleep(time);
-            }
-            catch (InterruptedException e)
-            {
-                // Auto-generated catch block
-                throw new RuntimeException(e);
-            }
-
-            if (run != 0)
-            {
-                break;
-            }
-
-            if (EventQueue.isDispatchThread())
-            {
-                runner.run(Context.enter());
-            }
-            else
-            {
-                try
-                {
-                    EventQueue.invokeAndWait(runner);
-                }
-                catch (Exception e)
-                {
-                    System.err.println("ERROR: Scheduled task execution failed: " + e.getMessage());
-                }
-            }
-        } while (loop);
-    }
-
-    public void stopLoop()
-    {
-        this.loop = false;
-    }
-}
\ No newline at end of file
+package com.w3canvas.javacanvas.rt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mozilla.javascript.Context;
+
+/**
+ * Timer service behind setTimeout/setInterval for one {@link RhinoRuntime}.
+ *
+ * All timers of a runtime share a single daemon scheduler thread. When a timer is due,
+ * the scheduler only posts its callback to the runtime's {@link EventLoop}; the script
+ * itself runs on the event loop thread, like any other task. The scheduler thread is
+ * created lazily, so runtimes that never use timers do not start one, and it exits once
+ * no timer has been pending for a second. {@link RhinoRuntime#shutdownTimers()} stops it
+ * right away when the runtime is discarded.
+ *
+ * Interval ticks are coalesced: if the previous callback of an interval is still waiting
+ * in the event loop queue, the tick is skipped instead of queueing another copy.
+ *
+ * In virtual time mode (see {@link FrameStepper}) no thread is used: time only moves when
+ * {@link #advanceTo(long)} is called, and due callbacks run synchronously on the caller's
+ * thread in due-time order.
+ */
+public class RhinoScheduler {
+
+    private static final Logger LOG = Logger.getLogger(RhinoScheduler.class.getName());
+
+    // Browsers clamp intervals too; a zero period would spin the scheduler thread
+    private static final long MIN_INTERVAL_MILLIS = 1;
+
+    // How long an idle scheduler thread waits for a new timer before it exits
+    private static final long IDLE_THREAD_SECONDS = 1;
+
+    private final RhinoRuntime runtime;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Integer, Timer> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong firedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong totalLatenessNanos = new AtomicLong();
+    private final AtomicLong maxLatenessNanos = new AtomicLong();
+
+    // Virtual time mode; the clock only moves in advanceTo()
+    private volatile boolean virtual;
+    private volatile long virtualNanos;
+
+    RhinoScheduler(RhinoRuntime runtime) {
+        this.runtime = runtime;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, runtime.isWorker() ? "WorkerTimers" : "MainTimers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setKeepAliveTime(IDLE_THREAD_SECONDS, TimeUnit.SECONDS);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules a script or function to run on the runtime's event loop.
+     *
+     * @param command     the function or source string to run
+     * @param delayMillis the delay before the first run; negative values are treated as 0
+     * @param repeat      true for setInterval, false for setTimeout
+     * @return the timer id, valid for {@link #cancel(int)}
+     */
+    int schedule(Object command, long delayMillis, boolean repeat) {
+        long delay = Math.max(virtual ? MIN_INTERVAL_MILLIS : 0, delayMillis);
+        long period = Math.max(MIN_INTERVAL_MILLIS, delay);
+        Timer timer = new Timer(nextId.getAndIncrement(), new RhinoScriptRunner(runtime, command),
+                repeat, TimeUnit.MILLISECONDS.toNanos(period), now() + TimeUnit.MILLISECONDS.toNanos(delay));
+        timers.put(timer.id, timer);
+        scheduledCount.incrementAndGet();
+        if (virtual) {
+            return timer.id;
+        }
+        try {
+            if (repeat) {
+                timer.future = executor.scheduleAtFixedRate(timer, delay, period, TimeUnit.MILLISECONDS);
+            } else {
+                timer.future = executor.schedule(timer, delay, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            timers.remove(timer.id);
+            LOG.warning("Timer not scheduled, the runtime's timers were shut down");
+        }
+        return timer.id;
+    }
+
+    /**
+     * Cancels a timer. Unknown or already finished ids are ignored, as in browsers.
+     *
+     * @param id the id returned by {@link #schedule(Object, long, boolean)}
+     */
+    void cancel(int id) {
+        Timer timer = timers.remove(id);
+        if (timer != null) {
+            timer.cancelled = true;
+            ScheduledFuture<?> future = timer.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Switches to virtual time, starting at 0. Pending timers keep their remaining delay.
+     */
+    synchronized void useVirtualTime() {
+        if (virtual) {
+            return;
+        }
+        long realNow = System.nanoTime();
+        virtualNanos = 0;
+        virtual = true;
+        for (Timer timer : timers.values()) {
+            ScheduledFuture<?> future = timer.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+            timer.queued.set(false);
+            timer.dueNanos = Math.max(0, timer.dueNanos - realNow);
+        }
+    }
+
+    /**
+     * Returns the current virtual time in nanoseconds.
+     */
+    long getVirtualNanos() {
+        return virtualNanos;
+    }
+
+    /**
+     * Advances virtual time to {@code untilNanos}, running every timer due on the way in
+     * due-time order (creation order for equal times). Timers created by those callbacks run
+     * in the same call if they fall due before {@code untilNanos}.
+     */
+    void advanceTo(long untilNanos) {
+        if (!virtual) {
+            throw new IllegalStateException("Scheduler is not in virtual time mode");
+        }
+        while (true) {
+            Timer next = null;
+            for (Timer timer : timers.values()) {
+                if (timer.dueNanos <= untilNanos && (next == null || timer.dueNanos < next.dueNanos
+                        || (timer.dueNanos == next.dueNanos && timer.id < next.id))) {
+                    next = timer;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            long due = next.dueNanos;
+            virtualNanos = Math.max(virtualNanos, due);
+            next.dueNanos = due + next.periodNanos;
+            next.fire(due);
+        }
+        virtualNanos = Math.max(virtualNanos, untilNanos);
+    }
+
+    private long now() {
+        return virtual ? virtualNanos : System.nanoTime();
+    }
+
+    /**
+     * Cancels every pending timer; the scheduler stays usable.
+     */
+    void cancelAll() {
+        for (Integer id : timers.keySet()) {
+            cancel(id);
+        }
+    }
+
+    /**
+     * Cancels every timer and stops the scheduler thread.
+     */
+    void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of live scheduler threads: 1 while timers are pending, 0 once idle.
+     */
+    public int getThreadCount() {
+        return executor.getPoolSize();
+    }
+
+    /**
+     * Returns the number of timeouts and intervals that have not fired or been cleared yet.
+     */
+    public int getActiveTimerCount() {
+        return timers.size();
+    }
+
+    /**
+     * Returns the number of timers created since the runtime started.
+     */
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * Returns the number of callbacks that have run.
+     */
+    public long getFiredCount() {
+        return firedCount.get();
+    }
+
+    /**
+     * Returns the number of interval ticks dropped because the previous callback was still queued.
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Returns the largest delay, in nanoseconds, between a timer's due time and its
+     * callback starting on the event loop.
+     */
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos.get();
+    }
+
+    /**
+     * Returns the mean delay, in nanoseconds, between due time and callback start.
+     */
+    public long getAverageLatenessNanos() {
+        long fired = firedCount.get();
+        return fired == 0 ? 0 : totalLatenessNanos.get() / fired;
+    }
+
+    private void recordLateness(long latenessNanos) {
+        long lateness = Math.max(0, latenessNanos);
+        totalLatenessNanos.addAndGet(lateness);
+        maxLatenessNanos.accumulateAndGet(lateness, Math::max);
+        firedCount.incrementAndGet();
+    }
+
+    private final class Timer implements Runnable {
+
+        final int id;
+        final RhinoScriptRunner runner;
+        final boolean repeat;
+        final long periodNanos;
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile long dueNanos;
+        volatile boolean cancelled;
+        volatile ScheduledFuture<?> future;
+
+        Timer(int id, RhinoScriptRunner runner, boolean repeat, long periodNanos, long dueNanos) {
+            this.id = id;
+            this.runner = runner;
+            this.repeat = repeat;
+            this.periodNanos = periodNanos;
+            this.dueNanos = dueNanos;
+        }
+
+        // Runs on the scheduler thread: hand the callback over to the event loop
+        @Override
+        public void run() {
+            long due = dueNanos;
+            dueNanos = due + periodNanos;
+            if (cancelled) {
+                return;
+            }
+            if (!queued.compareAndSet(false, true)) {
+                skippedCount.incrementAndGet();
+                return;
+            }
+            try {
+                runtime.getEventLoop().queueTask(() -> fire(due));
+            } catch (RuntimeException e) {
+                // Not queued, so the next tick must not be skipped as a duplicate
+                queued.set(false);
+                LOG.log(Level.WARNING, "Could not post timer " + id + " to the event loop", e);
+            }
+        }
+
+        private void fire(long due) {
+            queued.set(false);
+            if (cancelled) {
+                return;
+            }
+            if (!repeat) {
+                timers.remove(id);
+            }
+            recordLateness(now() - due);
+
+            Context cx = RhinoRuntime.enterContext();
+            try {
+                runner.run(cx);
+            } finally {
+                Context.exit();
+            }
+        }
+    }
+}
@@ -19,7 +19,7 @@ class RhinoScriptRunner implements ContextAction, Runnable
 
     public void run()
     {
-        run(Context.enter());
+        run(RhinoRuntime.enterContext());
     }
 
     public Object run(Context cx)
@@ -28,7 +28,7 @@ class RhinoScriptRunner implements ContextAction, Runnable
         {
             // If no context provided, enter a new one
             if (cx == null) {
-                cx = Context.enter();
+                cx = RhinoRuntime.enterContext();
             }
 
             cx.putThreadLocal("runtime", runtime);
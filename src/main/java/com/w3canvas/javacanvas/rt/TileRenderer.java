@@ -0,0 +1,215 @@
+package com.w3canvas.javacanvas.rt;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import com.w3canvas.javacanvas.backend.awt.MappedCanvasSurface;
+import com.w3canvas.javacanvas.backend.rhino.impl.node.CanvasRenderingContext2D;
+import com.w3canvas.javacanvas.js.worker.OffscreenCanvas;
+
+/**
+ * Renders one large image by running the same drawing script once per tile, in parallel.
+ *
+ * The target is split into tiles of at most {@code tileSize} pixels square. Each tile is
+ * rendered on a worker thread into its own {@link OffscreenCanvas}, whose context is already
+ * translated so that the script draws in target coordinates; the canvas bounds clip everything
+ * outside the tile. The finished tiles are copied into the target in order; only a few tiles
+ * per thread are rendered ahead of the copying, so memory use does not grow with the target.
+ *
+ * The script sees these globals:
+ * <ul>
+ * <li>{@code ctx} - the tile's 2D context</li>
+ * <li>{@code width}, {@code height} - the size of the whole target</li>
+ * <li>{@code tile} - the tile's {@code x}, {@code y}, {@code width} and {@code height}</li>
+ * </ul>
+ * {@code canvas} is the tile's OffscreenCanvas, so {@code canvas.width} is the tile width.
+ * The script must be deterministic and must not replace the transform with
+ * {@code setTransform()} or {@code resetTransform()}, or the tiles will not line up.
+ *
+ * Each thread builds one worker {@link RhinoRuntime} and reuses it for all its tiles; every
+ * tile runs in a fresh scope on top of the runtime's global scope. The script is compiled once.
+ */
+public class TileRenderer {
+
+    /**
+     * Receives each finished tile.
+     */
+    private interface TileSink {
+        void accept(int[] tile, BufferedImage image);
+    }
+
+    // Tiles rendered ahead of the copying, per thread
+    private static final int TILES_AHEAD = 2;
+
+    private final int threadCount;
+
+    /**
+     * @param threadCount number of tiles rendered at the same time
+     */
+    public TileRenderer(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Creates a renderer with one thread per available processor.
+     */
+    public TileRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Renders the script into a new transparent image, premultiplied like the AWT canvas
+     * surfaces so that tiles are copied without conversion.
+     */
+    public BufferedImage render(String script, int width, int height, int tileSize) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        render(script, target, tileSize);
+        return target;
+    }
+
+    /**
+     * Renders the script into {@code target}. Each tile's pixels replace the target's pixels.
+     *
+     * @throws IllegalStateException if the script fails on any tile
+     */
+    public void render(String script, BufferedImage target, int tileSize) {
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            render(script, target.getWidth(), target.getHeight(), tileSize, (tile, image) -> {
+                if (image.getType() == target.getType()) {
+                    target.getRaster().setDataElements(tile[0], tile[1], image.getRaster());
+                } else {
+                    g.drawImage(image, tile[0], tile[1], null);
+                }
+            });
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Renders the script into a memory-mapped surface, which may be far larger than the heap.
+     * Each tile's pixels replace the target's pixels.
+     *
+     * @throws IllegalStateException if the script fails on any tile
+     */
+    public void render(String script, MappedCanvasSurface target, int tileSize) {
+        render(script, target.getWidth(), target.getHeight(), tileSize,
+                (tile, image) -> target.writePixels(tile[0], tile[1], image));
+    }
+
+    private void render(String script, int width, int height, int tileSize, TileSink sink) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+        }
+        Script compiled;
+        Context cx = RhinoRuntime.enterContext();
+        try {
+            compiled = cx.compileString(script, "tile-script", 1, null);
+        } finally {
+            Context.exit();
+        }
+
+        List<int[]> tiles = new ArrayList<>();
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                tiles.add(new int[] { x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y) });
+            }
+        }
+
+        Queue<RhinoRuntime> runtimes = new ConcurrentLinkedQueue<>();
+        ThreadLocal<RhinoRuntime> threadRuntime = ThreadLocal.withInitial(() -> {
+            RhinoRuntime runtime = new RhinoRuntime(true);
+            // Balance the Context.enter() in the RhinoRuntime constructor
+            Context.exit();
+            runtimes.add(runtime);
+            return runtime;
+        });
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, tiles.size()), task -> {
+            Thread thread = new Thread(task, "TileRenderer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Queue<Future<BufferedImage>> pending = new ArrayDeque<>();
+            int submitted = 0;
+            for (int i = 0; i < tiles.size(); i++) {
+                while (submitted < tiles.size() && submitted < i + threadCount * TILES_AHEAD) {
+                    int[] tile = tiles.get(submitted++);
+                    pending.add(executor.submit(() -> renderTile(threadRuntime.get(), compiled, tile, width, height)));
+                }
+                sink.accept(tiles.get(i), pending.remove().get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tile rendering failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tile rendering interrupted", e);
+        } finally {
+            executor.shutdownNow();
+            for (RhinoRuntime runtime : runtimes) {
+                runtime.shutdownTimers();
+                runtime.getEventLoop().stop();
+            }
+        }
+    }
+
+    private static BufferedImage renderTile(RhinoRuntime runtime, Script script, int[] tile, int width, int height) {
+        Context cx = RhinoRuntime.enterContext();
+        try {
+            cx.putThreadLocal("runtime", runtime);
+            Scriptable global = runtime.getScope();
+            Scriptable scope = cx.newObject(global);
+            scope.setPrototype(global);
+            scope.setParentScope(null);
+
+            OffscreenCanvas canvas = (OffscreenCanvas) cx.newObject(scope, "OffscreenCanvas",
+                    new Object[] { tile[2], tile[3] });
+            CanvasRenderingContext2D ctx = (CanvasRenderingContext2D) canvas.jsFunction_getContext("2d");
+            ctx.translate(-tile[0], -tile[1]);
+
+            Scriptable tileInfo = cx.newObject(scope);
+            ScriptableObject.putProperty(tileInfo, "x", tile[0]);
+            ScriptableObject.putProperty(tileInfo, "y", tile[1]);
+            ScriptableObject.putProperty(tileInfo, "width", tile[2]);
+            ScriptableObject.putProperty(tileInfo, "height", tile[3]);
+
+            ScriptableObject.putProperty(scope, "canvas", canvas);
+            ScriptableObject.putProperty(scope, "ctx", ctx);
+            ScriptableObject.putProperty(scope, "width", width);
+            ScriptableObject.putProperty(scope, "height", height);
+            ScriptableObject.putProperty(scope, "tile", tileInfo);
+
+            script.exec(cx, scope);
+            return canvas.getImage();
+        } finally {
+            Context.exit();
+        }
+    }
+}
@@ -31,7 +31,7 @@ public class WorkerThreadEventLoop implements EventLoop {
         }
 
         running = true;
-        eventLoopThread = new Thread(() -> {
+        eventLoopThread = EventLoopThreads.newThread("WorkerEventLoop", () -> {
             while (!Thread.currentThread().isInterrupted() && running) {
                 try {
                     // Block until a task is available - NO busy-waiting!
@@ -42,8 +42,7 @@ public class WorkerThreadEventLoop implements EventLoop {
                     break;
                 }
             }
-        }, "WorkerEventLoop");
-        eventLoopThread.setDaemon(true);
+        });
         eventLoopThread.start();
     }
 
@@ -3,9 +3,11 @@ package com.w3canvas.javacanvas.server;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
 import com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement;
 import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
 import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -23,7 +25,9 @@ import java.util.concurrent.Executors;
 /**
  * A simple HTTP server that provides a "Canvas-as-a-Service" API.
  * Accepts JavaScript code via POST /render and returns the rendered PNG image.
- * Supports sessions via /create-session and X-Session-ID header.
+ * Supports sessions via /create-session and X-Session-ID header; /close-session disposes
+ * a session and frees its canvas. A render that was waiting on a session when it closed
+ * gets 404.
  */
 public class RenderingServer {
 
@@ -36,6 +40,7 @@ public class RenderingServer {
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
         this.server.createContext("/render", new RenderHandler());
         this.server.createContext("/create-session", new CreateSessionHandler());
+        this.server.createContext("/close-session", new CloseSessionHandler());
         this.server.createContext("/health", t -> {
             String response = "OK";
             t.sendResponseHeaders(200, response.length());
@@ -53,6 +58,9 @@ public class RenderingServer {
 
     public void stop() {
         server.stop(0);
+        for (String sessionId : sessions.keySet()) {
+            closeSession(sessionId);
+        }
         System.out.println("Rendering Server stopped");
     }
 
@@ -64,6 +72,44 @@ public class RenderingServer {
         new RenderingServer(port).start();
     }
 
+    /**
+     * Removes a session and frees its canvas. Returns false if there is no such session.
+     */
+    private boolean closeSession(String sessionId) {
+        JavaCanvas javaCanvas = sessions.remove(sessionId);
+        if (javaCanvas == null) {
+            return false;
+        }
+        // Wait for a render on this session to finish before its pixels are freed
+        synchronized (javaCanvas) {
+            release(javaCanvas);
+        }
+        return true;
+    }
+
+    private static void release(JavaCanvas javaCanvas) {
+        Object canvas = javaCanvas.getRuntime().getProperty("canvas");
+        if (canvas instanceof HTMLCanvasElement) {
+            ((HTMLCanvasElement) canvas).release();
+        }
+        // Timers the script left pending would otherwise keep their threads alive
+        if (javaCanvas.getRuntime() instanceof RhinoRuntime) {
+            ((RhinoRuntime) javaCanvas.getRuntime()).shutdownTimers();
+        }
+    }
+
+    class CloseSessionHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange t) throws IOException {
+            if (!"POST".equalsIgnoreCase(t.getRequestMethod())) {
+                t.sendResponseHeaders(405, -1);
+                return;
+            }
+            String sessionId = t.getRequestHeaders().getFirst("X-Session-ID");
+            t.sendResponseHeaders(sessionId != null && closeSession(sessionId) ? 204 : 404, -1);
+        }
+    }
+
     class CreateSessionHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange t) throws IOException {
@@ -125,12 +171,14 @@ public class RenderingServer {
                 buffer.flush();
                 String script = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
 
-                JavaCanvas javaCanvas;
+                JavaCanvas javaCanvas = null;
                 String sessionId = t.getRequestHeaders().getFirst("X-Session-ID");
-
-                if (sessionId != null && sessions.containsKey(sessionId)) {
+                if (sessionId != null) {
                     javaCanvas = sessions.get(sessionId);
-                } else {
+                }
+
+                boolean stateless = javaCanvas == null;
+                if (stateless) {
                     // Fallback to stateless for backward compatibility
                     javaCanvas = new JavaCanvas(".", true);
                     javaCanvas.initializeBackend();
@@ -148,20 +196,42 @@ public class RenderingServer {
                     }
                 }
 
-                // Execute the script
-                javaCanvas.executeCode(script);
-
-                // Extract image (assume the first canvas in the document is the target)
-                // In session mode, we use the pre-created canvas.
-                // We need to retrieve it from the runtime or document.
-                HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getRuntime().getProperty("canvas");
-
-                BufferedImage image = canvas.getImage();
+                byte[] responseBytes = null;
+                synchronized (javaCanvas) {
+                    // closeSession() may have freed the canvas while this request waited for it
+                    if (stateless || sessions.get(sessionId) == javaCanvas) {
+                        try {
+                            // Execute the script
+                            javaCanvas.executeCode(script);
+
+                            // Extract image (assume the first canvas in the document is the target)
+                            // In session mode, we use the pre-created canvas.
+                            // We need to retrieve it from the runtime or document.
+                            HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getRuntime().getProperty("canvas");
+
+                            BufferedImage image = canvas.getImage();
+
+                            // Write PNG
+                            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                            ImageIO.write(AwtCanvasSurface.toStraightAlpha(image), "png", baos);
+                            responseBytes = baos.toByteArray();
+                        } finally {
+                            if (stateless) {
+                                // The canvas of a one-off render is not used again
+                                release(javaCanvas);
+                            }
+                        }
+                    }
+                }
 
-                // Write PNG
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(image, "png", baos);
-                byte[] responseBytes = baos.toByteArray();
+                if (responseBytes == null) {
+                    String error = "Session closed: " + sessionId;
+                    t.sendResponseHeaders(404, error.length());
+                    try (OutputStream os = t.getResponseBody()) {
+                        os.write(error.getBytes());
+                    }
+                    return;
+                }
 
                 // Send response
                 t.getResponseHeaders().set("Content-Type", "image/png");
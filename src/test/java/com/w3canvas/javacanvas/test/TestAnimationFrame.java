@@ -0,0 +1,200 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.rt.AnimationFrameScheduler;
+import com.w3canvas.javacanvas.rt.EventLoop;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import com.w3canvas.javacanvas.rt.WorkerThreadEventLoop;
+import org.junit.jupiter.api.Test;
+import org.mozilla.javascript.Context;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAnimationFrame {
+
+    @Test
+    public void testCallbacksRequestedTogetherShareAFrame() throws Exception {
+        WorkerThreadEventLoop loop = new WorkerThreadEventLoop();
+        loop.start();
+        AnimationFrameScheduler frames = new AnimationFrameScheduler(loop, 60);
+        try {
+            List<Double> timestamps = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(4);
+            for (int i = 0; i < 3; i++) {
+                frames.request(t -> {
+                    timestamps.add(t);
+                    done.countDown();
+                });
+            }
+            int cancelled = frames.request(t -> timestamps.add(-1.0));
+            frames.cancel(cancelled);
+            // A callback requested from inside a frame runs in the following frame
+            frames.request(t -> frames.request(next -> {
+                timestamps.add(next);
+                done.countDown();
+            }));
+
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Frames should run");
+            assertEquals(4, timestamps.size());
+            assertEquals(timestamps.get(0), timestamps.get(1));
+            assertEquals(timestamps.get(0), timestamps.get(2));
+            assertTrue(timestamps.get(3) - timestamps.get(0) >= frames.getFramePeriodNanos() / 1e6 * 0.99,
+                    "Nested request must wait for the next frame: " + timestamps);
+        } finally {
+            frames.shutdown();
+            loop.stop();
+        }
+    }
+
+    @Test
+    public void testClockThreadExitsWhenIdle() throws Exception {
+        WorkerThreadEventLoop loop = new WorkerThreadEventLoop();
+        loop.start();
+        AnimationFrameScheduler frames = new AnimationFrameScheduler(loop, 60);
+        try {
+            CountDownLatch ran = new CountDownLatch(1);
+            frames.request(t -> ran.countDown());
+            assertTrue(ran.await(5, TimeUnit.SECONDS), "Frame should run");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (frames.getThreadCount() > 0 && System.nanoTime() < deadline) {
+                sleep(10);
+            }
+            assertEquals(0, frames.getThreadCount(), "Idle clock thread should exit");
+
+            // A later request starts the clock again
+            CountDownLatch again = new CountDownLatch(1);
+            frames.request(t -> again.countDown());
+            assertTrue(again.await(5, TimeUnit.SECONDS), "Frame should run after idling");
+        } finally {
+            frames.shutdown();
+            loop.stop();
+        }
+    }
+
+    @Test
+    public void testSlowFramesAreSkippedNotQueued() throws Exception {
+        WorkerThreadEventLoop loop = new WorkerThreadEventLoop();
+        loop.start();
+        AnimationFrameScheduler frames = new AnimationFrameScheduler(loop, 100);
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicInteger presented = new AtomicInteger();
+        frames.addRenderHook(rendered::incrementAndGet);
+        frames.setPresenter(presented::incrementAndGet);
+        try {
+            CountDownLatch done = new CountDownLatch(5);
+            Runnable[] step = new Runnable[1];
+            step[0] = () -> frames.request(t -> {
+                sleep(35);
+                done.countDown();
+                if (done.getCount() > 0) {
+                    step[0].run();
+                }
+            });
+            step[0].run();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Animation should complete");
+            Thread.sleep(50);
+            assertEquals(5, frames.getFrameCount());
+            assertEquals(5, rendered.get());
+            assertEquals(5, presented.get());
+            // Each 35ms frame spans several 10ms vsync ticks, which are dropped
+            assertTrue(frames.getSkippedFrameCount() >= 8, "Skipped " + frames.getSkippedFrameCount());
+
+            AnimationFrameScheduler.FrameTiming last = frames.getLastFrameTiming();
+            assertNotNull(last);
+            assertEquals(5, last.getFrameNumber());
+            assertTrue(last.getScriptNanos() >= TimeUnit.MILLISECONDS.toNanos(30), last.toString());
+            assertEquals(0, frames.getPendingCount());
+        } finally {
+            frames.shutdown();
+            loop.stop();
+        }
+    }
+
+    @Test
+    public void testFailuresDoNotStallLaterFrames() throws Exception {
+        WorkerThreadEventLoop loop = new WorkerThreadEventLoop();
+        loop.start();
+        AtomicInteger posts = new AtomicInteger();
+        // The first post fails, like a UI toolkit that is not running yet
+        EventLoop flaky = new EventLoop() {
+            @Override
+            public void queueTask(Runnable task) {
+                if (posts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Toolkit not initialized");
+                }
+                loop.queueTask(task);
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop() {
+            }
+
+            @Override
+            public boolean isRunning() {
+                return true;
+            }
+        };
+        AnimationFrameScheduler frames = new AnimationFrameScheduler(flaky, 100);
+        frames.setPresenter(() -> {
+            if (frames.getFrameCount() == 0) {
+                throw new IllegalStateException("Presenter failed");
+            }
+        });
+        try {
+            CountDownLatch done = new CountDownLatch(2);
+            frames.request(t -> {
+                done.countDown();
+                frames.request(next -> done.countDown());
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Frames should keep running");
+            assertTrue(posts.get() >= 3, "The failed post should be retried");
+        } finally {
+            frames.shutdown();
+            loop.stop();
+        }
+    }
+
+    @Test
+    public void testRequestAnimationFrameFromScript() throws Exception {
+        RhinoRuntime runtime = new RhinoRuntime(true);
+        try {
+            runtime.exec("var frames = [];"
+                    + "function step(t) { frames.push(t); if (frames.length < 3) requestAnimationFrame(step); }"
+                    + "requestAnimationFrame(step);"
+                    + "var never = requestAnimationFrame(function() { frames.push(-1); });"
+                    + "cancelAnimationFrame(never);");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (runtime.getAnimationFrames().getFrameCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Object result = runtime.exec("frames.length + ':' + (frames[0] < frames[1] && frames[1] < frames[2])"
+                    + " + ':' + (frames.indexOf(-1) < 0)");
+            assertEquals("3:true:true", Context.toString(result));
+        } finally {
+            runtime.shutdownTimers();
+            Context.exit();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsContext;
+import com.w3canvas.javacanvas.backend.awt.AwtTextLayoutCache;
+import com.w3canvas.javacanvas.backend.awt.AwtTextMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAwtTextLayoutCache {
+
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    @Test
+    public void testLayoutIsReusedForSameTextAndFont() {
+        AwtTextLayoutCache cache = new AwtTextLayoutCache(8);
+        Font font = new Font("SansSerif", Font.PLAIN, 12);
+
+        TextLayout first = cache.getLayout("Label", font, "ltr", FRC);
+        TextLayout second = cache.getLayout("Label", font, "ltr", FRC);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getLayoutHits());
+        assertEquals(1, cache.getLayoutMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testKeyIncludesFontAndDirection() {
+        AwtTextLayoutCache cache = new AwtTextLayoutCache(8);
+        Font font = new Font("SansSerif", Font.PLAIN, 12);
+
+        TextLayout ltr = cache.getLayout("Label", font, "ltr", FRC);
+        TextLayout rtl = cache.getLayout("Label", font, "rtl", FRC);
+        TextLayout bigger = cache.getLayout("Label", font.deriveFont(24f), "ltr", FRC);
+
+        assertNotSame(ltr, rtl);
+        assertNotSame(ltr, bigger);
+        assertEquals(0, cache.getLayoutHits());
+        assertEquals(3, cache.getLayoutMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        AwtTextLayoutCache cache = new AwtTextLayoutCache(2);
+        Font font = new Font("SansSerif", Font.PLAIN, 12);
+
+        TextLayout a = cache.getLayout("a", font, "ltr", FRC);
+        cache.getLayout("b", font, "ltr", FRC);
+        cache.getLayout("a", font, "ltr", FRC); // touch "a" so "b" becomes eldest
+        cache.getLayout("c", font, "ltr", FRC);
+
+        assertSame(a, cache.getLayout("a", font, "ltr", FRC));
+        long missesBefore = cache.getLayoutMisses();
+        cache.getLayout("b", font, "ltr", FRC);
+        assertEquals(missesBefore + 1, cache.getLayoutMisses(), "Evicted entry should be shaped again");
+    }
+
+    @Test
+    public void testMetricsAreCachedPerWordSpacing() {
+        AwtTextLayoutCache cache = new AwtTextLayoutCache(8);
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        Font font = new Font("SansSerif", Font.PLAIN, 12);
+
+        AwtTextMetrics plain = cache.getMetrics("two words", font, g2d, 0);
+        AwtTextMetrics again = cache.getMetrics("two words", font, g2d, 0);
+        AwtTextMetrics spaced = cache.getMetrics("two words", font, g2d, 10);
+        g2d.dispose();
+
+        assertSame(plain, again);
+        assertNotSame(plain, spaced);
+        assertTrue(spaced.getWidth() > plain.getWidth());
+        assertEquals(1, cache.getMetricsHits());
+        assertEquals(2, cache.getMetricsMisses());
+    }
+
+    @Test
+    public void testRepeatedLabelsHitSharedCache() {
+        AwtCanvasSurface surface = new AwtCanvasSurface(100, 100);
+        BufferedImage image = (BufferedImage) surface.getNativeImage();
+        AwtGraphicsContext context = new AwtGraphicsContext(image.createGraphics(), surface);
+        AwtTextLayoutCache cache = AwtTextLayoutCache.getShared();
+
+        context.fillText("Frame label", 10, 50, 0);
+        long hitsBefore = cache.getLayoutHits();
+        for (int i = 0; i < 10; i++) {
+            context.translate(1, 0);
+            context.fillText("Frame label", 10, 50, 0);
+            context.strokeText("Frame label", 10, 50, 0);
+        }
+
+        assertTrue(cache.getLayoutHits() - hitsBefore >= 20,
+                "Translated redraws of the same label should reuse the shaped layout");
+    }
+}
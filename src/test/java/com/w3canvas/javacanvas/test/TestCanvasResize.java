@@ -0,0 +1,202 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.awt.AwtPaint;
+import com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCanvasResize {
+
+    private static DataBuffer buffer(AwtCanvasSurface surface) {
+        return ((BufferedImage) surface.getNativeImage()).getRaster().getDataBuffer();
+    }
+
+    private static void fill(AwtCanvasSurface surface, Color color) {
+        Graphics2D g = ((BufferedImage) surface.getNativeImage()).createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, surface.getWidth(), surface.getHeight());
+        g.dispose();
+    }
+
+    @Test
+    public void testResizeWithinCapacityKeepsRaster() {
+        AwtCanvasSurface surface = new AwtCanvasSurface(400, 300);
+        // At least 400x300, larger when a pooled raster is reused
+        Dimension capacity = surface.getCapacity();
+        DataBuffer buffer = buffer(surface);
+        fill(surface, Color.RED);
+
+        assertTrue(surface.resize(250, 200));
+        BufferedImage image = (BufferedImage) surface.getNativeImage();
+        assertEquals(250, image.getWidth());
+        assertEquals(200, image.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_ARGB_PRE, image.getType());
+        assertSame(buffer, buffer(surface));
+        assertEquals(capacity, surface.getCapacity());
+        // Resizing clears the canvas
+        assertEquals(0, surface.getPixelData(100, 100, 1, 1)[0]);
+
+        // Growing back within the capacity still needs no new raster
+        assertTrue(surface.resize(400, 300));
+        assertSame(buffer, buffer(surface));
+        assertEquals(0, surface.getPixelData(350, 250, 1, 1)[0]);
+    }
+
+    @Test
+    public void testGrowingBeyondCapacityRoundsUp() {
+        AwtCanvasSurface surface = new AwtCanvasSurface(300, 200);
+        assertTrue(surface.resize(310, 200));
+        assertEquals(310, surface.getWidth());
+        // The next size class leaves room for further small changes
+        assertEquals(new Dimension(384, 256), surface.getCapacity());
+        DataBuffer buffer = buffer(surface);
+        assertTrue(surface.resize(330, 210));
+        assertSame(buffer, buffer(surface));
+    }
+
+    @Test
+    public void testReleasedRastersAreReused() {
+        // Drawn through the graphics context only, so the raster never leaves the surface
+        AwtCanvasSurface first = new AwtCanvasSurface(640, 480);
+        first.getGraphicsContext().setFillPaint(new AwtPaint(Color.GREEN));
+        first.getGraphicsContext().fillRectDirect(0, 0, 640, 480);
+        Dimension capacity = first.getCapacity();
+        first.release();
+
+        // A new surface would be exactly 600x450
+        AwtCanvasSurface second = new AwtCanvasSurface(600, 450);
+        assertEquals(capacity, second.getCapacity());
+        assertEquals(0, second.getPixelData(300, 300, 1, 1)[0], "A reused raster starts out clear");
+        // A straight-alpha surface never gets a premultiplied raster
+        AwtCanvasSurface straight = new AwtCanvasSurface(600, 450, false);
+        assertEquals(BufferedImage.TYPE_INT_ARGB, ((BufferedImage) straight.getNativeImage()).getType());
+        second.release();
+    }
+
+    @Test
+    public void testHandedOutRastersAreNotReused() {
+        AwtCanvasSurface first = new AwtCanvasSurface(700, 500);
+        // As createPattern() and transferToImageBitmap() do
+        BufferedImage kept = (BufferedImage) first.getNativeImage();
+        fill(first, Color.BLUE);
+        first.release();
+
+        AwtCanvasSurface second = new AwtCanvasSurface(700, 500);
+        assertNotSame(kept.getRaster().getDataBuffer(), buffer(second));
+        fill(second, Color.RED);
+        assertEquals(0xFF0000FF, kept.getRGB(10, 10));
+
+        // Nor is a raster outgrown after being handed out
+        AwtCanvasSurface resized = new AwtCanvasSurface(700, 500);
+        DataBuffer outgrown = buffer(resized);
+        assertTrue(resized.resize(900, 700));
+        AwtCanvasSurface third = new AwtCanvasSurface(700, 500);
+        assertNotSame(outgrown, buffer(third));
+    }
+
+    @Test
+    public void testReleasedSurfaceCannotBeUsed() {
+        AwtCanvasSurface surface = new AwtCanvasSurface(100, 100);
+        surface.release();
+        assertThrows(IllegalStateException.class, surface::getNativeImage);
+        assertThrows(IllegalStateException.class, surface::getGraphicsContext);
+        assertThrows(IllegalStateException.class, () -> surface.getPixelData(0, 0, 1, 1));
+        // Releasing again does nothing
+        surface.release();
+    }
+
+    @Test
+    public void testCanvasElementResizesContext() throws Exception {
+        JavaCanvas javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getDocument().jsFunction_createElement("canvas");
+        canvas.jsSet_width(400);
+        canvas.jsSet_height(300);
+        ICanvasRenderingContext2D ctx = (ICanvasRenderingContext2D) canvas.jsFunction_getContext("2d");
+        ctx.setFillStyle("#ff0000");
+        ctx.fillRect(0, 0, 400, 300);
+        DataBuffer buffer = canvas.getImage().getRaster().getDataBuffer();
+
+        canvas.jsSet_width(200);
+        assertEquals(200, canvas.getImage().getWidth());
+        assertEquals(300, canvas.getImage().getHeight());
+        assertEquals(200, (int) canvas.getRealWidth());
+        assertSame(buffer, canvas.getImage().getRaster().getDataBuffer());
+        assertEquals(0, ctx.getSurface().getPixelData(100, 100, 1, 1)[0]);
+        assertEquals("#000000", ctx.getFillStyle());
+
+        ctx.fillRect(0, 0, 200, 300);
+        assertEquals(0xFF000000, ctx.getSurface().getPixelData(199, 299, 1, 1)[0]);
+    }
+
+    @Test
+    public void testSurfacesOfOtherBackendsAreReplaced() {
+        AwtCanvasSurface fixed = new AwtCanvasSurface(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB_PRE), true) {
+        };
+        assertFalse(fixed.resize(20, 20));
+        assertEquals(10, fixed.getWidth());
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testResponsiveResizeBenchmark(TestReporter reporter) {
+        // A chart resized for each request, between 600x400 and 800x600
+        int[][] sizes = new int[200][];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = new int[] { 600 + (i * 37) % 200, 400 + (i * 53) % 200 };
+        }
+        AwtGraphicsBackend backend = new AwtGraphicsBackend();
+        double[] millis = new double[2];
+        long[] bytes = new long[2];
+        for (int round = 0; round < 3; round++) {
+            // Keep the last round, after both paths are warmed up
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            for (int[] size : sizes) {
+                CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, backend, size[0], size[1]);
+                ctx.fillRect(0, 0, 50, 50);
+            }
+            millis[0] = (System.nanoTime() - start) / 1e6;
+            bytes[0] = allocatedBytes() - allocated;
+
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, backend, 800, 600);
+            for (int[] size : sizes) {
+                ctx.getSurface().resize(size[0], size[1]);
+                ctx.reset();
+                ctx.fillRect(0, 0, 50, 50);
+            }
+            millis[1] = (System.nanoTime() - start) / 1e6;
+            bytes[1] = allocatedBytes() - allocated;
+            ctx.getSurface().release();
+        }
+        reporter.publishEntry("200 resizes", String.format(
+                "new surface %.1f ms, %d MB allocated; in place %.1f ms, %d MB allocated",
+                millis[0], bytes[0] >> 20, millis[1], bytes[1] >> 20));
+    }
+}
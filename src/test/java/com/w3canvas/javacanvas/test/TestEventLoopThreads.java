@@ -0,0 +1,100 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.rt.EventLoopThreads;
+import com.w3canvas.javacanvas.rt.WorkerThreadEventLoop;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestEventLoopThreads {
+
+    private static final int WORKERS = 1000;
+    private static final int HOPS_PER_WORKER = 20;
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(EventLoopThreads.VIRTUAL_THREADS_PROPERTY);
+    }
+
+    @Test
+    public void testPlatformDaemonThreadsByDefault() {
+        Thread thread = EventLoopThreads.newThread("test", () -> { });
+        assertFalse(EventLoopThreads.isVirtual(thread));
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    public void testVirtualThreadsWhenEnabled() {
+        assumeTrue(EventLoopThreads.isVirtualThreadsAvailable(), "Virtual threads need JDK 21+");
+        System.setProperty(EventLoopThreads.VIRTUAL_THREADS_PROPERTY, "true");
+        assertTrue(EventLoopThreads.isVirtual(EventLoopThreads.newThread("test", () -> { })));
+    }
+
+    @Test
+    public void testFallbackWithoutVirtualThreads() {
+        assumeFalse(EventLoopThreads.isVirtualThreadsAvailable(), "JDK supports virtual threads");
+        System.setProperty(EventLoopThreads.VIRTUAL_THREADS_PROPERTY, "true");
+        assertFalse(EventLoopThreads.isVirtualThreadsEnabled());
+        Thread thread = EventLoopThreads.newThread("test", () -> { });
+        assertFalse(EventLoopThreads.isVirtual(thread));
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testThousandWorkerLoopsBenchmark(TestReporter reporter) throws Exception {
+        runRing("platform", reporter);
+        if (EventLoopThreads.isVirtualThreadsAvailable()) {
+            System.setProperty(EventLoopThreads.VIRTUAL_THREADS_PROPERTY, "true");
+            runRing("virtual", reporter);
+        }
+    }
+
+    // Passes messages around a ring of worker event loops, as workers relaying postMessage would
+    private static void runRing(String mode, TestReporter reporter) throws InterruptedException {
+        int threadsBefore = Thread.activeCount();
+        WorkerThreadEventLoop[] loops = new WorkerThreadEventLoop[WORKERS];
+        long start = System.nanoTime();
+        for (int i = 0; i < WORKERS; i++) {
+            loops[i] = new WorkerThreadEventLoop();
+            loops[i].start();
+        }
+        long started = System.nanoTime();
+        int platformThreads = Thread.activeCount() - threadsBefore;
+
+        CountDownLatch done = new CountDownLatch(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            hop(loops, i, HOPS_PER_WORKER, done);
+        }
+        try {
+            assertTrue(done.await(60, TimeUnit.SECONDS), "All messages should be delivered");
+            long finished = System.nanoTime();
+            reporter.publishEntry(WORKERS + " " + mode + " worker loops", String.format(
+                    "start %.0f ms, %d messages in %.0f ms, %d platform threads", (started - start) / 1e6,
+                    WORKERS * HOPS_PER_WORKER, (finished - started) / 1e6, platformThreads));
+        } finally {
+            for (WorkerThreadEventLoop loop : loops) {
+                loop.stop();
+            }
+        }
+    }
+
+    private static void hop(WorkerThreadEventLoop[] loops, int index, int remaining, CountDownLatch done) {
+        loops[index].queueTask(() -> {
+            if (remaining == 0) {
+                done.countDown();
+            } else {
+                hop(loops, (index + 1) % loops.length, remaining - 1, done);
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement;
+import com.w3canvas.javacanvas.rt.FrameStepper;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.junit.jupiter.api.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestFrameStepper {
+
+    private static final String ANIMATION = "var ctx = canvas.getContext('2d');"
+            + "var ticks = 0, fired = -1;"
+            + "setInterval(function() { ticks++; }, 100);"
+            + "setTimeout(function() { fired = ticks; }, 1000);"
+            + "function draw(t) {"
+            + "  ctx.fillStyle = '#ffffff'; ctx.fillRect(0, 0, 100, 20);"
+            + "  ctx.fillStyle = '#ff0000'; ctx.fillRect(Math.floor(t / 20), 0, 4, 20);"
+            + "  requestAnimationFrame(draw);"
+            + "}"
+            + "requestAnimationFrame(draw);";
+
+    private static List<int[]> render(int frames, double[] timestamps, long[] elapsedNanos) throws Exception {
+        JavaCanvas javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        Context.enter();
+        try {
+            RhinoRuntime runtime = (RhinoRuntime) javaCanvas.getRuntime();
+            FrameStepper stepper = runtime.useVirtualClock();
+            Scriptable scope = runtime.getScope();
+            HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getDocument().jsFunction_createElement("canvas");
+            canvas.jsSet_width(100);
+            canvas.jsSet_height(20);
+            ScriptableObject.putProperty(scope, "canvas", canvas);
+            javaCanvas.executeCode(ANIMATION);
+
+            List<int[]> captured = new ArrayList<>();
+            long start = System.nanoTime();
+            stepper.run(frames, canvas::getImage, (frame, timestamp, image) -> {
+                timestamps[frame] = timestamp;
+                captured.add(image.getRGB(0, 0, 100, 1, null, 0, 100));
+            });
+            elapsedNanos[0] = System.nanoTime() - start;
+
+            assertEquals(frames, stepper.getFrameCount());
+            if (stepper.getTime() >= 1000) {
+                assertEquals(10, ((Number) runtime.getProperty("fired")).intValue(),
+                        "setTimeout(1000) should run after exactly ten 100ms interval ticks");
+            }
+            assertEquals((int) (stepper.getTime() / 100), ((Number) runtime.getProperty("ticks")).intValue());
+            runtime.shutdownTimers();
+            return captured;
+        } finally {
+            Context.exit();
+        }
+    }
+
+    private static int redColumn(int[] row) {
+        for (int x = 0; x < row.length; x++) {
+            if (row[x] == 0xffff0000) {
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testFramesAdvanceVirtualTime() throws Exception {
+        final int frames = 120;
+        double[] timestamps = new double[frames];
+
+        long[] elapsed = new long[1];
+        List<int[]> captured = render(frames, timestamps, elapsed);
+        double elapsedMillis = elapsed[0] / 1e6;
+
+        assertEquals(frames, captured.size());
+        for (int i = 0; i < frames; i++) {
+            assertEquals((i + 1) * 1000.0 / 60, timestamps[i], 1e-3, "timestamp of frame " + i);
+            assertEquals((int) Math.floor(timestamps[i] / 20), redColumn(captured.get(i)), "red bar in frame " + i);
+        }
+        assertTrue(elapsedMillis < timestamps[frames - 1], "Virtual clock should run faster than real time, took "
+                + elapsedMillis + " ms for " + timestamps[frames - 1] + " ms of animation");
+    }
+
+    @Test
+    public void testFramesAreDeterministic() throws Exception {
+        double[] first = new double[30];
+        double[] second = new double[30];
+        List<int[]> a = render(30, first, new long[1]);
+        List<int[]> b = render(30, second, new long[1]);
+
+        assertTrue(Arrays.equals(first, second));
+        for (int i = 0; i < a.size(); i++) {
+            assertTrue(Arrays.equals(a.get(i), b.get(i)), "Frame " + i + " differs between runs");
+        }
+    }
+}
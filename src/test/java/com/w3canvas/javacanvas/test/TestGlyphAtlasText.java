@@ -0,0 +1,98 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtGlyphAtlas;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.w3canvas.javacanvas.test.VisualRegressionHelper.compareToGoldenMaster;
+import static com.w3canvas.javacanvas.test.VisualRegressionHelper.compareToReference;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestGlyphAtlasText {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 120;
+
+    private AwtGlyphAtlas atlas;
+
+    @BeforeEach
+    public void setUp() {
+        atlas = AwtGlyphAtlas.getShared();
+        atlas.clear();
+    }
+
+    private ICanvasRenderingContext2D createContext(String textRendering) {
+        ICanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, new AwtGraphicsBackend(), WIDTH, HEIGHT);
+        ctx.setTextRendering(textRendering);
+        return ctx;
+    }
+
+    private void drawLabels(ICanvasRenderingContext2D ctx) {
+        ctx.setFillStyle("#ffffff");
+        ctx.fillRect(0, 0, WIDTH, HEIGHT);
+        ctx.setGlobalAlpha(1.0);
+        ctx.setFont("12px sans-serif");
+        ctx.setDirection("ltr");
+        ctx.setTextAlign("start");
+        ctx.setFillStyle("#204080");
+        for (int row = 0; row < 6; row++) {
+            for (int col = 0; col < 3; col++) {
+                ctx.fillText("v" + (row * 3 + col) + ".25", 8 + col * 64 + row * 0.25, 16 + row * 18, 0);
+            }
+        }
+        ctx.setGlobalAlpha(0.5);
+        ctx.setFillStyle("#c00000");
+        ctx.setTextAlign("center");
+        ctx.fillText("Axis", WIDTH / 2.0, HEIGHT - 4, 0);
+    }
+
+    @Test
+    public void testAtlasMatchesOutlineRendering() {
+        ICanvasRenderingContext2D reference = createContext("auto");
+        ICanvasRenderingContext2D fast = createContext("optimizeSpeed");
+
+        drawLabels(reference);
+        drawLabels(fast);
+
+        assertTrue(atlas.getGlyphMisses() > 0, "optimizeSpeed should render through the glyph atlas");
+        assertTrue(compareToReference(reference, fast, 2.0, 64),
+                "Atlas text should match TextLayout rendering within tolerance");
+    }
+
+    @Test
+    public void testAtlasGoldenMaster() {
+        ICanvasRenderingContext2D fast = createContext("optimizeSpeed");
+        drawLabels(fast);
+
+        assertTrue(compareToGoldenMaster(fast, "testGlyphAtlasText", 5.0, 64),
+                "Atlas text should match golden master within 5% tolerance");
+    }
+
+    @Test
+    public void testRepeatedLabelsReuseGlyphs() {
+        ICanvasRenderingContext2D fast = createContext("optimizeSpeed");
+        drawLabels(fast);
+        long missesAfterFirstFrame = atlas.getGlyphMisses();
+
+        drawLabels(fast);
+
+        assertEquals(missesAfterFirstFrame, atlas.getGlyphMisses(), "Second frame should not rasterize new glyphs");
+        assertTrue(atlas.getGlyphHits() > 0);
+    }
+
+    @Test
+    public void testTransformedTextFallsBackToOutlines() {
+        ICanvasRenderingContext2D fast = createContext("optimizeSpeed");
+        fast.rotate(0.3);
+        fast.setFont("16px sans-serif");
+        fast.fillText("Rotated", 40, 20, 0);
+        fast.strokeText("Stroked", 40, 60, 0);
+
+        assertEquals(0, atlas.getGlyphMisses() + atlas.getGlyphHits(),
+                "Rotated and stroked text should not use the glyph atlas");
+    }
+}
@@ -0,0 +1,243 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.core.HitTestIndex;
+import com.w3canvas.javacanvas.core.Path2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.IPath2D;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestHitTesting {
+
+    private ICanvasRenderingContext2D createContext() {
+        return new CoreCanvasRenderingContext2D(null, new AwtGraphicsBackend(), 400, 400);
+    }
+
+    private static IPath2D[] createChart(int count, long seed) {
+        Random random = new Random(seed);
+        IPath2D[] paths = new IPath2D[count];
+        for (int i = 0; i < count; i++) {
+            Path2D path = new Path2D();
+            double x = random.nextDouble() * 380;
+            double y = random.nextDouble() * 380;
+            switch (i % 3) {
+                case 0:
+                    path.rect(x, y, 4 + random.nextDouble() * 12, 4 + random.nextDouble() * 12);
+                    break;
+                case 1:
+                    path.arc(x, y, 2 + random.nextDouble() * 6, 0, Math.PI * 2, false);
+                    break;
+                default:
+                    path.moveTo(x, y);
+                    path.lineTo(x + 10, y + 3);
+                    path.quadraticCurveTo(x + 14, y + 12, x + 2, y + 9);
+                    path.closePath();
+                    break;
+            }
+            paths[i] = path;
+        }
+        return paths;
+    }
+
+    private static int[] bruteForce(ICanvasRenderingContext2D ctx, IPath2D[] paths, double x, double y,
+                                    boolean stroke) {
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < paths.length; i++) {
+            if (stroke ? ctx.isPointInStroke(paths[i], x, y) : ctx.isPointInPath(paths[i], x, y)) {
+                hits.add(i);
+            }
+        }
+        return hits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean wedgeContains(ICanvasRenderingContext2D ctx, double start, double end,
+                                         boolean counterclockwise, double x, double y) {
+        ctx.beginPath();
+        ctx.moveTo(200, 200);
+        ctx.arc(200, 200, 50, start, end, counterclockwise);
+        ctx.closePath();
+        return ctx.isPointInPath(x, y);
+    }
+
+    @Test
+    public void testArcSweepFollowsDirection() {
+        ICanvasRenderingContext2D ctx = createContext();
+        // Angles grow clockwise on screen, so 0..PI/2 is the bottom right quadrant
+        assertTrue(wedgeContains(ctx, 0, Math.PI / 2, false, 220, 220));
+        assertFalse(wedgeContains(ctx, 0, Math.PI / 2, false, 180, 180));
+        assertTrue(wedgeContains(ctx, Math.PI / 2, 0, true, 220, 220));
+        assertFalse(wedgeContains(ctx, Math.PI / 2, 0, true, 180, 180));
+        // A full turn in the drawing direction is a whole circle
+        assertTrue(wedgeContains(ctx, 0, 2 * Math.PI, false, 180, 180));
+        assertTrue(wedgeContains(ctx, 0, -2 * Math.PI, true, 180, 180));
+        // Against the drawing direction the difference wraps to nothing
+        assertFalse(wedgeContains(ctx, 0, -2 * Math.PI, false, 180, 180));
+        assertFalse(wedgeContains(ctx, 0, -2 * Math.PI, false, 220, 220));
+        assertFalse(wedgeContains(ctx, 0, 2 * Math.PI, true, 180, 180));
+        // Larger differences are reduced modulo a full turn
+        assertTrue(wedgeContains(ctx, 0, -3 * Math.PI / 2, false, 220, 220));
+        assertFalse(wedgeContains(ctx, 0, -3 * Math.PI / 2, false, 180, 180));
+    }
+
+    @Test
+    public void testBoundsAreConservative() {
+        Path2D path = new Path2D();
+        path.moveTo(10, 10);
+        path.bezierCurveTo(20, -5, 30, 25, 40, 10);
+        path.arc(60, 10, 5, 0, Math.PI, false);
+        path.arcTo(80, 10, 80, 40, 10);
+        // The arcTo ends at its tangent point (80, 20); its circle spans y 10..30
+        assertArrayEquals(new double[] { 10, -5, 80, 30 }, path.getBounds(), 1e-9);
+
+        assertNull(new Path2D().getBounds());
+
+        Path2D moved = new Path2D();
+        moved.ellipse(0, 0, 10, 4, 0.5, 0, Math.PI * 2, false);
+        double[] before = moved.getBounds();
+        moved.rect(100, 100, 1, 1);
+        assertEquals(101.0, moved.getBounds()[2], 0.0);
+        assertEquals(-10.0, before[0], 0.0);
+    }
+
+    @Test
+    public void testIndexReturnsBoxCandidates() {
+        Path2D a = new Path2D();
+        a.rect(0, 0, 10, 10);
+        Path2D b = new Path2D();
+        b.rect(500, 500, 10, 10);
+        Path2D huge = new Path2D();
+        huge.rect(-1e6, -1e6, 2e6, 2e6);
+
+        HitTestIndex index = new HitTestIndex(16);
+        index.update(new Path2D[] { a, b, huge, null });
+
+        assertArrayEquals(new int[] { 0, 2 }, index.query(5, 5, 0));
+        assertArrayEquals(new int[] { 1, 2 }, index.query(505, 505, 0));
+        assertArrayEquals(new int[] { 2 }, index.query(12, 5, 0));
+        assertArrayEquals(new int[] { 0, 2 }, index.query(12, 5, 3));
+
+        // Mutating a path re-indexes it on the next update
+        b.rect(0, 0, 1, 1);
+        index.update(new Path2D[] { a, b, huge, null });
+        assertArrayEquals(new int[] { 0, 1, 2 }, index.query(0.5, 0.5, 0));
+    }
+
+    @Test
+    public void testBatchFillMatchesIsPointInPath() {
+        ICanvasRenderingContext2D ctx = createContext();
+        IPath2D[] paths = createChart(600, 42);
+        ctx.translate(5, -3);
+        ctx.scale(1.1, 0.9);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            double x = random.nextDouble() * 400;
+            double y = random.nextDouble() * 400;
+            assertArrayEquals(bruteForce(ctx, paths, x, y, false), ctx.hitTest(paths, x, y, "fill"),
+                    "fill hits at " + x + "," + y);
+        }
+    }
+
+    @Test
+    public void testBatchStrokeMatchesIsPointInStroke() {
+        ICanvasRenderingContext2D ctx = createContext();
+        IPath2D[] paths = createChart(300, 11);
+        ctx.rotate(0.05);
+        ctx.setLineWidth(6);
+        ctx.setLineJoin("miter");
+
+        Random random = new Random(3);
+        int total = 0;
+        for (int i = 0; i < 200; i++) {
+            double x = random.nextDouble() * 400;
+            double y = random.nextDouble() * 400;
+            int[] expected = bruteForce(ctx, paths, x, y, true);
+            assertArrayEquals(expected, ctx.hitTest(paths, x, y, "stroke"), "stroke hits at " + x + "," + y);
+            total += expected.length;
+        }
+        assertTrue(total > 0, "Random points should land on some strokes");
+    }
+
+    @Test
+    public void testHitTestFromScript() {
+        JavaCanvas javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        Context.enter();
+        try {
+            Scriptable scope = (Scriptable) javaCanvas.getRuntime().getScope();
+            HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getDocument().jsFunction_createElement("canvas");
+            canvas.jsSet_width(200);
+            canvas.jsSet_height(200);
+            ScriptableObject.putProperty(scope, "canvas", canvas);
+
+            Object result = javaCanvas.executeCode(
+                    "var ctx = canvas.getContext('2d');"
+                    + "var bars = [];"
+                    + "for (var i = 0; i < 10; i++) { var p = new Path2D(); p.rect(i * 20, 0, 15, 100); bars.push(p); }"
+                    + "var ring = new Path2D(); ring.arc(100, 150, 20, 0, Math.PI * 2);"
+                    + "bars.push(ring);"
+                    + "ctx.lineWidth = 4;"
+                    + "ctx.hitTest(bars, 45, 50).join(',') + '|' + ctx.hitTest(bars, 118, 50).join(',')"
+                    + " + '|' + ctx.hitTest(bars, 120, 150, 'stroke').join(',')"
+                    + " + '|' + ctx.hitTest(bars, 100, 150, 'stroke').join(',');");
+            assertEquals("2||10|", Context.toString(result));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testBatchHitTestBenchmark(TestReporter reporter) {
+        ICanvasRenderingContext2D ctx = createContext();
+        IPath2D[] paths = createChart(5000, 99);
+        Random random = new Random(5);
+        double[] points = new double[2000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextDouble() * 400;
+        }
+
+        // Warm up both paths
+        for (int i = 0; i < points.length; i += 2) {
+            ctx.hitTest(paths, points[i], points[i + 1], "fill");
+        }
+        for (int i = 0; i < 40; i += 2) {
+            bruteForce(ctx, paths, points[i], points[i + 1], false);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i += 2) {
+            bruteForce(ctx, paths, points[i], points[i + 1], false);
+        }
+        long loopNanos = (System.nanoTime() - start) / 100;
+
+        start = System.nanoTime();
+        for (int i = 0; i < points.length; i += 2) {
+            ctx.hitTest(paths, points[i], points[i + 1], "fill");
+        }
+        long batchNanos = (System.nanoTime() - start) / (points.length / 2);
+
+        reporter.publishEntry("Hit test over " + paths.length + " paths", String.format(
+                "isPointInPath loop %.1f us, hitTest %.1f us per point", loopNanos / 1e3, batchNanos / 1e3));
+    }
+}
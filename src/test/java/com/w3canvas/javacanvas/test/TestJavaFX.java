@@ -1,8 +1,18 @@
 package com.w3canvas.javacanvas.test;
 
+import com.w3canvas.javacanvas.backend.javafx.JavaFXBlendRenderer;
+import com.w3canvas.javacanvas.backend.javafx.JavaFXCanvasSurface;
+import com.w3canvas.javacanvas.backend.javafx.JavaFXComposite;
+import com.w3canvas.javacanvas.backend.javafx.JavaFXGraphicsBackend;
 import com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.core.PixelBlend;
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
 import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
+import com.w3canvas.javacanvas.rt.AnimationFrameScheduler;
 import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +25,9 @@ import org.testfx.framework.junit5.ApplicationExtension;
 import org.testfx.framework.junit5.Start;
 import org.testfx.framework.junit5.ApplicationTest;
 
+import javafx.application.Platform;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.stage.Stage;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Scriptable;
@@ -22,7 +35,9 @@ import org.mozilla.javascript.ScriptableObject;
 
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(ApplicationExtension.class)
 @Timeout(value = 60, unit = TimeUnit.SECONDS)
@@ -89,6 +104,230 @@ public class TestJavaFX extends ApplicationTest {
         assertEquals(0xFFFF0000, pixelData[0], "The pixel at (15,15) should be red.");
     }
 
+    /**
+     * Creates a context on the JavaFX backend; canvases made through the document use the
+     * backend chosen by {@code w3canvas.backend}, AWT by default.
+     */
+    private static CoreCanvasRenderingContext2D createJavaFXContext(int width, int height) {
+        CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, new JavaFXGraphicsBackend(), width, height);
+        assertTrue(ctx.getSurface() instanceof JavaFXCanvasSurface);
+        return ctx;
+    }
+
+    @Test
+    public void testRepeatedPixelReadsSeeLaterDraws() throws Exception {
+        // Several reads between draws, in and outside the first region read
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        interact(() -> {
+            CoreCanvasRenderingContext2D ctx = createJavaFXContext(200, 200);
+            ctx.setFillStyle("red");
+            ctx.fillRect(0, 0, 50, 50);
+            int first = ctx.getSurface().getPixelData(10, 10, 1, 1)[0];
+            int inside = ctx.getSurface().getPixelData(10, 10, 1, 1)[0];
+            int outside = ctx.getSurface().getPixelData(100, 100, 1, 1)[0];
+            ctx.setFillStyle("blue");
+            ctx.fillRect(0, 0, 50, 50);
+            int redrawn = ctx.getSurface().getPixelData(10, 10, 1, 1)[0];
+            int imageData = ctx.getImageData(10, 10, 1, 1).getData().getPixels(0, 0, 1, 1)[0];
+            future.complete(new int[] { first, inside, outside, redrawn, imageData });
+        });
+
+        int[] pixels = future.get();
+        assertEquals(0xFFFF0000, pixels[0]);
+        assertEquals(0xFFFF0000, pixels[1]);
+        assertEquals(0, pixels[2]);
+        assertEquals(0xFF0000FF, pixels[3], "A read after drawing must not return the cached snapshot");
+        assertEquals(0xFF0000FF, pixels[4], "getImageData should read at the requested offset");
+    }
+
+    @Test
+    public void testConsecutiveCustomBlendFills() throws Exception {
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        interact(() -> {
+            CoreCanvasRenderingContext2D ctx = createJavaFXContext(200, 200);
+            ctx.setFillStyle("blue");
+            ctx.fillRect(0, 0, 100, 100);
+            // Two overlapping custom-blend fills, then a read that must see both. The context
+            // only hands state to the graphics context when it draws, so set it there directly.
+            IGraphicsContext gc = ctx.getSurface().getGraphicsContext();
+            gc.setComposite(new JavaFXComposite(CompositeOperation.DESTINATION_OUT));
+            gc.fillRectDirect(0, 0, 30, 30);
+            gc.fillRectDirect(20, 20, 30, 30);
+            gc.setComposite(new JavaFXComposite(CompositeOperation.SOURCE_OVER));
+            future.complete(new int[] {
+                    ctx.getSurface().getPixelData(5, 5, 1, 1)[0],
+                    ctx.getSurface().getPixelData(45, 45, 1, 1)[0],
+                    ctx.getSurface().getPixelData(80, 80, 1, 1)[0] });
+        });
+
+        int[] pixels = future.get();
+        assertEquals(0, pixels[0] >>> 24, "First destination-out fill should clear its area");
+        assertEquals(0, pixels[1] >>> 24, "Second destination-out fill should clear its area");
+        assertEquals(0xFF0000FF, pixels[2]);
+    }
+
+    @Test
+    public void testCustomBlendStaysInsideClip() throws Exception {
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        interact(() -> {
+            CoreCanvasRenderingContext2D ctx = createJavaFXContext(200, 200);
+            ctx.setFillStyle("blue");
+            ctx.fillRect(0, 0, 100, 100);
+            ctx.beginPath();
+            ctx.rect(0, 0, 50, 100);
+            ctx.clip();
+            IGraphicsContext gc = ctx.getSurface().getGraphicsContext();
+            gc.setComposite(new JavaFXComposite(CompositeOperation.DESTINATION_OUT));
+            gc.setGlobalAlpha(0.5);
+            gc.fillRectDirect(0, 0, 100, 100);
+            future.complete(new int[] {
+                    ctx.getSurface().getPixelData(10, 10, 1, 1)[0],
+                    ctx.getSurface().getPixelData(80, 10, 1, 1)[0] });
+        });
+
+        int[] pixels = future.get();
+        assertEquals(0x80, pixels[0] >>> 24, 1, "Inside the clip, half the destination is taken out");
+        assertEquals(0xFF0000FF, pixels[1], "Outside the clip the canvas is unchanged");
+    }
+
+    @Test
+    public void testCustomBlendBeforeClipIsNotClipped() throws Exception {
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        interact(() -> {
+            CoreCanvasRenderingContext2D ctx = createJavaFXContext(200, 200);
+            ctx.setFillStyle("blue");
+            ctx.fillRect(0, 0, 100, 100);
+            IGraphicsContext gc = ctx.getSurface().getGraphicsContext();
+            gc.setComposite(new JavaFXComposite(CompositeOperation.DESTINATION_OUT));
+            gc.fillRectDirect(0, 0, 100, 100);
+            gc.setComposite(new JavaFXComposite(CompositeOperation.SOURCE_OVER));
+            // The blend is queued; a clip set afterwards must not limit it
+            ctx.beginPath();
+            ctx.rect(0, 0, 10, 10);
+            ctx.clip();
+            future.complete(new int[] {
+                    ctx.getSurface().getPixelData(5, 5, 1, 1)[0],
+                    ctx.getSurface().getPixelData(80, 80, 1, 1)[0] });
+        });
+
+        int[] pixels = future.get();
+        assertEquals(0, pixels[0] >>> 24, "Inside the later clip the blend applies");
+        assertEquals(0, pixels[1] >>> 24, "Outside the later clip the blend applies too");
+    }
+
+    /**
+     * Runs {@code action} on the FX thread and waits for it: one plain round trip, without
+     * the event settling that makes TestFX's interact() take tens of milliseconds.
+     */
+    private static void onFxThread(Runnable action) throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                action.run();
+                done.complete(null);
+            } catch (Throwable t) {
+                done.completeExceptionally(t);
+            }
+        });
+        done.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRecordedDrawingMatchesSynchronousDrawing() throws Exception {
+        final int calls = 2000;
+        JavaFXCanvasSurface recording = new JavaFXCanvasSurface(200, 200, true);
+        JavaFXCanvasSurface direct = new JavaFXCanvasSurface(200, 200, false);
+
+        // Recorded: drawn from this thread, sent to the FX thread on flush and on read
+        IGraphicsContext recorded = recording.getGraphicsContext();
+        recorded.translate(10, 10);
+        for (int i = 0; i < calls; i++) {
+            recorded.fillRectDirect(i % 150, (i / 150) * 10 % 150, 20, 20);
+            if (i % 500 == 499) {
+                recording.flush();
+            }
+        }
+        int[] recordedPixels = recording.getPixelData(0, 0, 200, 200);
+
+        // Synchronous: one round trip to the FX thread per call
+        IGraphicsContext immediate = direct.getGraphicsContext();
+        onFxThread(() -> immediate.translate(10, 10));
+        for (int i = 0; i < calls; i++) {
+            final int n = i;
+            onFxThread(() -> immediate.fillRectDirect(n % 150, (n / 150) * 10 % 150, 20, 20));
+        }
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        onFxThread(() -> future.complete(direct.getPixelData(0, 0, 200, 200)));
+        int[] directPixels = future.get();
+
+        assertArrayEquals(directPixels, recordedPixels, "Replayed drawing should match drawing on the FX thread");
+        assertEquals(1, recording.getSynchronousCallCount(), "Only the pixel read should wait for the FX thread");
+        assertTrue(recording.getBatchCount() < calls, "Drawing should reach the FX thread in batches");
+        assertArrayEquals(new double[] { 1, 0, 0, 1, 10, 10 }, recorded.getTransformMatrix(), 1e-9,
+                "The transform should be tracked without waiting");
+    }
+
+    @Test
+    public void testRecordedDrawingIsShownWithoutFlush() throws Exception {
+        JavaFXCanvasSurface recording = new JavaFXCanvasSurface(100, 100, true);
+        // Drawn from this thread with no animation frame or read to flush it
+        recording.getGraphicsContext().fillRectDirect(0, 0, 50, 50);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (recording.getBatchCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, recording.getBatchCount(), "The first recorded command should schedule a flush");
+        assertEquals(0xFF000000, recording.getPixelData(25, 25, 1, 1)[0]);
+    }
+
+    @Test
+    public void testCanvasRenderHookFollowsContext() throws Exception {
+        String previous = System.setProperty("w3canvas.backend", "javafx");
+        try {
+            RhinoRuntime runtime = (RhinoRuntime) javaCanvas.getRuntime();
+            AnimationFrameScheduler frames = runtime.getAnimationFrames();
+            int hooks = frames.getRenderHookCount();
+            HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getDocument().jsFunction_createElement("canvas");
+            ScriptableObject.putProperty(runtime.getScope(), "canvas", canvas);
+            javaCanvas.executeCode("canvas.getContext('2d');");
+            assertEquals(hooks + 1, frames.getRenderHookCount());
+
+            // The replaced surface's hook is swapped for one of the new surface
+            javaCanvas.executeCode("canvas.width = 200;");
+            assertEquals(hooks + 1, frames.getRenderHookCount());
+
+            canvas.release();
+            assertEquals(hooks, frames.getRenderHookCount());
+        } finally {
+            if (previous == null) {
+                System.clearProperty("w3canvas.backend");
+            } else {
+                System.setProperty("w3canvas.backend", previous);
+            }
+        }
+    }
+
+    @Test
+    public void testBlendRendererMatchesPixelBlend() {
+        int[] src = { 0xFFFF0000, 0x80008000, 0x00000000, 0xC0402000 };
+        int[] dst = { 0xFF0000FF, 0xFFFFFFFF, 0x80800000, 0x40102030 };
+        WritableImage srcImage = new WritableImage(src.length, 1);
+        WritableImage dstImage = new WritableImage(dst.length, 1);
+        srcImage.getPixelWriter().setPixels(0, 0, src.length, 1, PixelFormat.getIntArgbPreInstance(), src, 0, src.length);
+        dstImage.getPixelWriter().setPixels(0, 0, dst.length, 1, PixelFormat.getIntArgbPreInstance(), dst, 0, dst.length);
+
+        for (CompositeOperation op : new CompositeOperation[] { CompositeOperation.MULTIPLY,
+                CompositeOperation.XOR, CompositeOperation.HUE }) {
+            int[] expected = dst.clone();
+            PixelBlend.blendRow(op, src, expected, expected.length, 0.5);
+            int[] actual = new int[dst.length];
+            JavaFXBlendRenderer.blend(srcImage, dstImage, op, 0.5).getPixelReader()
+                    .getPixels(0, 0, actual.length, 1, PixelFormat.getIntArgbPreInstance(), actual, 0, actual.length);
+            assertArrayEquals(expected, actual, op.toString());
+        }
+    }
+
     @Test
     public void testPureJavaFXArcTo() {
         interact(() -> {
@@ -0,0 +1,190 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.awt.MappedCanvasSurface;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
+import com.w3canvas.javacanvas.rt.TileRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestMappedSurface {
+
+    // Deterministic scene that crosses tile borders
+    private static final String SCENE =
+            "ctx.fillStyle = '#204060'; ctx.fillRect(0, 0, width, height);"
+            + "for (var i = 0; i < 30; i++) {"
+            + "  ctx.globalAlpha = 0.5;"
+            + "  ctx.fillStyle = 'rgb(' + (i * 8) + ',' + (255 - i * 8) + ',128)';"
+            + "  ctx.beginPath(); ctx.arc((i * 37) % width, (i * 53) % height, 10 + i, 0, Math.PI * 2); ctx.fill();"
+            + "}";
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempFile("test-mapped-canvas", ".raw");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    @Test
+    public void testTiledRenderMatchesHeapImage() throws IOException {
+        BufferedImage expected = new TileRenderer(2).render(SCENE, 300, 200, 64);
+        MappedCanvasSurface surface = new MappedCanvasSurface(file, 300, 200);
+        try {
+            new TileRenderer(2).render(SCENE, surface, 64);
+            assertEquals(300 * 200 * 4L, Files.size(file));
+            int[] actual = surface.getPixelData(0, 0, 300, 200);
+            int[] wanted = pixels(expected);
+            for (int i = 0; i < wanted.length; i++) {
+                assertEquals(wanted[i], actual[i], "pixel " + i);
+            }
+        } finally {
+            surface.release();
+        }
+    }
+
+    @Test
+    public void testDrawingAndFileFormat() throws IOException {
+        MappedCanvasSurface surface = new MappedCanvasSurface(file, 100, 50);
+        BufferedImage tile = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                tile.setRGB(x, y, 0x80FF0000);
+            }
+        }
+        surface.writePixels(20, 10, tile);
+        surface.release();
+
+        // One big-endian premultiplied ARGB int per pixel, row by row
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "r")) {
+            raw.seek((10L * 100 + 20) * 4);
+            int pixel = raw.readInt();
+            assertEquals(0x80, pixel >>> 24);
+            assertTrue(Math.abs((pixel >> 16 & 0xFF) - 0x80) <= 1, Integer.toHexString(pixel));
+            raw.seek(0);
+            assertEquals(0, raw.readInt());
+        }
+
+        // Reopening keeps the pixels
+        MappedCanvasSurface reopened = new MappedCanvasSurface(file, 100, 50);
+        try {
+            int pixel = reopened.getPixelData(25, 15, 1, 1)[0];
+            assertEquals(0x80, pixel >>> 24);
+            assertTrue((pixel >> 16 & 0xFF) >= 0xFE, Integer.toHexString(pixel));
+        } finally {
+            reopened.release();
+        }
+    }
+
+    @Test
+    public void testDirectDrawingAndPng() throws IOException {
+        MappedCanvasSurface surface = new MappedCanvasSurface(file, 120, 80);
+        try {
+            CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, new AwtGraphicsBackend() {
+                @Override
+                public ICanvasSurface createCanvasSurface(int w, int h) {
+                    return surface;
+                }
+            }, 120, 80);
+            ctx.reset();
+            ctx.setFillStyle("#00ff00");
+            ctx.fillRect(10, 10, 50, 30);
+            ctx.setGlobalAlpha(0.5);
+            ctx.setFillStyle("#0000ff");
+            ctx.fillRect(40, 20, 50, 30);
+
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            surface.writePng(png);
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+            int[] expected = surface.getPixelData(0, 0, 120, 80);
+            int[] actual = pixels(decoded);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], "pixel " + i);
+            }
+            assertEquals(0xFF00FF00, actual[15 * 120 + 15]);
+        } finally {
+            surface.release();
+        }
+    }
+
+    @Test
+    public void testRelease() throws IOException {
+        MappedCanvasSurface surface = new MappedCanvasSurface(file, 10, 10);
+        surface.release();
+        assertTrue(surface.isReleased());
+        assertThrows(IllegalStateException.class, () -> surface.getPixelData(0, 0, 1, 1));
+        // Releasing twice is harmless, and the file stays
+        surface.release();
+        assertTrue(Files.exists(file));
+        assertThrows(IllegalArgumentException.class, () -> new MappedCanvasSurface(file, 50000, 50000));
+    }
+
+    @Test
+    public void testSurfaceLargerThanOneMapping() throws IOException {
+        // 280 million pixels need two 1 GB mappings; the file stays sparse
+        int width = 20000;
+        int height = 14000;
+        MappedCanvasSurface surface = new MappedCanvasSurface(file, width, height);
+        try {
+            BufferedImage tile = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB_PRE);
+            for (int y = 0; y < 64; y++) {
+                for (int x = 0; x < 64; x++) {
+                    tile.setRGB(x, y, 0xFF000000 | y << 8 | x);
+                }
+            }
+            // The first mapping ends after row 13421
+            surface.writePixels(width - 64, 13400, tile);
+            int[] pixels = surface.getPixelData(width - 64, 13400, 64, 64);
+            for (int i = 0; i < pixels.length; i++) {
+                assertEquals(tile.getRGB(i % 64, i / 64), pixels[i], "pixel " + i);
+            }
+            assertEquals(0, surface.getPixelData(0, height - 1, 1, 1)[0]);
+        } finally {
+            surface.release();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testTiledRenderBenchmark(TestReporter reporter) throws IOException {
+        // Larger than any tile, rendered with a small heap footprint
+        int size = 4096;
+        MappedCanvasSurface surface = new MappedCanvasSurface(file, size, size);
+        try {
+            long start = System.nanoTime();
+            new TileRenderer().render(SCENE, surface, 512);
+            long rendered = System.nanoTime();
+            surface.writePng(new ByteArrayOutputStream());
+            long encoded = System.nanoTime();
+            reporter.publishEntry(size + "x" + size + " mapped", String.format("render %.0f ms, PNG %.0f ms",
+                    (rendered - start) / 1e6, (encoded - rendered) / 1e6));
+        } finally {
+            surface.release();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.js.worker.MessagePort;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestMessagePort {
+
+    private JavaCanvas javaCanvas;
+    private RhinoRuntime runtime;
+    private MessagePort sender;
+    private MessagePort receiver;
+
+    @BeforeEach
+    public void setUp() {
+        javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        runtime = (RhinoRuntime) javaCanvas.getRuntime();
+        Context cx = Context.enter();
+
+        Scriptable scope = runtime.getScope();
+        sender = (MessagePort) cx.newObject(scope, "MessagePort");
+        receiver = (MessagePort) cx.newObject(scope, "MessagePort");
+        sender.entangle(receiver);
+        ScriptableObject.putProperty(scope, "sender", sender);
+        ScriptableObject.putProperty(scope, "receiver", receiver);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Context.exit();
+    }
+
+    private Object exec(String code) {
+        return javaCanvas.executeCode(code);
+    }
+
+    private void waitForDelivered(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (receiver.getDeliveredCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, receiver.getDeliveredCount());
+    }
+
+    @Test
+    public void testMessagesQueuedBeforeHandlerAreDeliveredInOrder() throws Exception {
+        exec("var log = [];"
+                + "for (var i = 0; i < 5; i++) { sender.postMessage(i); }");
+        Thread.sleep(20);
+        assertEquals(0, receiver.getDeliveredCount(), "Nothing is delivered without a handler");
+
+        exec("receiver.onmessage = function(e) { log.push(e.data); };"
+                + "sender.postMessage(5);");
+        waitForDelivered(6);
+        assertEquals("0,1,2,3,4,5", exec("log.join(',')").toString());
+    }
+
+    @Test
+    public void testConcurrentProducersKeepPerProducerOrder() throws Exception {
+        final int producers = 4;
+        final int perProducer = 5000;
+        exec("var last = [-1, -1, -1, -1], outOfOrder = 0;"
+                + "receiver.onmessage = function(e) {"
+                + "  var p = Math.floor(e.data / " + perProducer + ");"
+                + "  if (e.data <= last[p]) outOfOrder++;"
+                + "  last[p] = e.data;"
+                + "};");
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    sender.jsFunction_postMessage(base + i, null);
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        waitForDelivered(producers * perProducer);
+        assertEquals(0, ((Number) runtime.getProperty("outOfOrder")).intValue());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testMessageThroughputBenchmark(TestReporter reporter) throws Exception {
+        final int messages = 100000;
+        exec("var sum = 0; receiver.onmessage = function(e) { sum += e.data.n; };");
+
+        long start = System.nanoTime();
+        exec("for (var i = 0; i < " + messages + "; i++) { sender.postMessage({ n: 1 }); }");
+        waitForDelivered(messages);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        reporter.publishEntry("MessagePort", String.format("%d messages in %.0f ms, %.0f messages/s",
+                messages, seconds * 1000, messages / seconds));
+        assertEquals(messages, ((Number) runtime.getProperty("sum")).intValue());
+    }
+}
@@ -0,0 +1,165 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.awt.OffHeapCanvasSurface;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestOffHeapSurface {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 100;
+
+    private static CoreCanvasRenderingContext2D createContext(boolean offHeap, int width, int height) {
+        AwtGraphicsBackend backend = new AwtGraphicsBackend() {
+            @Override
+            public ICanvasSurface createCanvasSurface(int w, int h) {
+                return offHeap ? new OffHeapCanvasSurface(w, h) : new AwtCanvasSurface(w, h, true);
+            }
+        };
+        CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, backend, width, height);
+        ctx.reset();
+        return ctx;
+    }
+
+    private static final Consumer<ICanvasRenderingContext2D> SCENE = c -> {
+        c.setFillStyle("#3080c0");
+        c.fillRect(5, 5, 60, 60);
+        c.setGlobalAlpha(0.5);
+        c.setFillStyle("#ff0000");
+        c.beginPath();
+        c.arc(60, 60, 30, 0, Math.PI * 2, false);
+        c.fill();
+        c.setGlobalAlpha(1);
+        c.setStrokeStyle("black");
+        c.setLineWidth(3);
+        c.strokeRect(20, 40, 50, 30);
+        c.setGlobalCompositeOperation("multiply");
+        c.setFillStyle("#ffff00");
+        c.fillRect(40, 0, 40, 100);
+    };
+
+    @Test
+    public void testDrawingMatchesHeapSurface() {
+        CoreCanvasRenderingContext2D heap = createContext(false, WIDTH, HEIGHT);
+        CoreCanvasRenderingContext2D offHeap = createContext(true, WIDTH, HEIGHT);
+        SCENE.accept(heap);
+        SCENE.accept(offHeap);
+
+        int[] expected = heap.getSurface().getPixelData(0, 0, WIDTH, HEIGHT);
+        int[] actual = offHeap.getSurface().getPixelData(0, 0, WIDTH, HEIGHT);
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int diff = Math.abs((expected[i] >>> shift & 0xFF) - (actual[i] >>> shift & 0xFF));
+                assertTrue(diff <= 2, String.format("pixel %d: expected %08x, got %08x", i, expected[i], actual[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testStraightAlphaForEncoding() {
+        CoreCanvasRenderingContext2D ctx = createContext(true, WIDTH, HEIGHT);
+        ctx.setGlobalAlpha(0.25);
+        ctx.setFillStyle("#0000ff");
+        ctx.fillRect(0, 0, 50, 50);
+
+        BufferedImage straight = AwtCanvasSurface.toStraightAlpha((BufferedImage) ctx.getSurface().getNativeImage());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, straight.getType());
+        assertEquals(ctx.getSurface().getPixelData(10, 10, 1, 1)[0], straight.getRGB(10, 10));
+    }
+
+    @Test
+    public void testReleaseFreesSurface() {
+        CoreCanvasRenderingContext2D ctx = createContext(true, WIDTH, HEIGHT);
+        ctx.fillRect(0, 0, 10, 10);
+        OffHeapCanvasSurface surface = (OffHeapCanvasSurface) ctx.getSurface();
+        assertFalse(surface.isReleased());
+
+        surface.release();
+        assertTrue(surface.isReleased());
+        assertThrows(IllegalStateException.class, () -> surface.getPixelData(0, 0, 1, 1));
+        // Releasing twice is harmless
+        surface.release();
+    }
+
+    @Test
+    public void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapCanvasSurface(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapCanvasSurface(40000, 40000));
+    }
+
+    @Test
+    public void testBackendThreshold() {
+        String previous = System.getProperty("w3canvas.awt.offHeapPixels");
+        System.setProperty("w3canvas.awt.offHeapPixels", "10000");
+        try {
+            AwtGraphicsBackend backend = new AwtGraphicsBackend();
+            ICanvasSurface small = backend.createCanvasSurface(50, 50);
+            ICanvasSurface large = backend.createCanvasSurface(100, 100);
+            assertFalse(small instanceof OffHeapCanvasSurface);
+            assertTrue(large instanceof OffHeapCanvasSurface);
+            large.release();
+        } finally {
+            if (previous == null) {
+                System.clearProperty("w3canvas.awt.offHeapPixels");
+            } else {
+                System.setProperty("w3canvas.awt.offHeapPixels", previous);
+            }
+        }
+        assertFalse(new AwtGraphicsBackend().createCanvasSurface(100, 100) instanceof OffHeapCanvasSurface);
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] { count, time };
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testCanvasChurnGcBenchmark(TestReporter reporter) {
+        // Short-lived 1024x1024 canvases, as a rendering server creates per request
+        for (boolean offHeap : new boolean[] { false, true }) {
+            System.gc();
+            long[] before = gcTotals();
+            long drawNanos = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                CoreCanvasRenderingContext2D ctx = createContext(offHeap, 1024, 1024);
+                long drawStart = System.nanoTime();
+                ctx.setFillStyle("#204060");
+                ctx.fillRect(0, 0, 1024, 1024);
+                ctx.setFillStyle("#c86432");
+                ctx.beginPath();
+                ctx.arc(512, 512, 300, 0, Math.PI * 2, false);
+                ctx.fill();
+                drawNanos += System.nanoTime() - drawStart;
+                ctx.getSurface().release();
+            }
+            long total = System.nanoTime() - start;
+            long[] after = gcTotals();
+            reporter.publishEntry("100 canvases " + (offHeap ? "off-heap" : "heap"), String.format(
+                    "%d GCs, %d ms GC, %.1f ms drawing, %.1f ms total", after[0] - before[0], after[1] - before[1],
+                    drawNanos / 1e6, total / 1e6));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.w3canvas.javacanvas.test;
 
+import com.w3canvas.javacanvas.js.worker.OffscreenCanvas;
 import com.w3canvas.javacanvas.rt.RhinoRuntime;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ScriptableObject;
 
+import java.awt.image.DataBuffer;
 import java.io.FileReader;
 import java.io.IOException;
 
@@ -170,6 +172,25 @@ public class TestOffscreenCanvas {
         assertTrue((Boolean) result, "Resizing canvas should allow continued drawing");
     }
 
+    @Test
+    public void testResizeKeepsRaster() {
+        OffscreenCanvas canvas = (OffscreenCanvas) runtime.exec(
+            "var canvas = new OffscreenCanvas(200, 150);" +
+            "var ctx = canvas.getContext('2d');" +
+            "ctx.fillStyle = '#FF0000';" +
+            "ctx.fillRect(0, 0, 200, 150);" +
+            "canvas;");
+        DataBuffer buffer = canvas.getImage().getRaster().getDataBuffer();
+
+        Object result = runtime.exec(
+            "canvas.width = 120;" +
+            "ctx.fillStyle === '#000000';");
+        assertEquals(Boolean.TRUE, result, "Resizing should reset the context");
+        assertEquals(120, canvas.getImage().getWidth());
+        assertEquals(0, canvas.getImage().getRGB(10, 10), "Resizing should clear the canvas");
+        assertSame(buffer, canvas.getImage().getRaster().getDataBuffer(), "Shrinking should reuse the raster");
+    }
+
     @Test
     public void testCompleteAPIFromScript() {
         try {
@@ -0,0 +1,131 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsContext;
+import com.w3canvas.javacanvas.core.Path2D;
+import com.w3canvas.javacanvas.interfaces.IPath2D;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestPath2DStorage {
+
+    private static final int VERTICES = 100_000;
+
+    @Test
+    public void testElementsRoundTrip() {
+        Object radii = new double[] { 4, 2 };
+        Path2D path = new Path2D();
+        path.moveTo(1, 2);
+        path.lineTo(3, 4);
+        path.quadraticCurveTo(5, 6, 7, 8);
+        path.bezierCurveTo(9, 10, 11, 12, 13, 14);
+        path.arcTo(15, 16, 17, 18, 19);
+        path.roundRect(20, 21, 22, 23, radii);
+        path.arc(24, 25, 26, 0, 1, true);
+        path.ellipse(27, 28, 29, 30, 0.5, 0, 2, false);
+        path.closePath();
+
+        List<IPath2D.PathElement> elements = path.getElements();
+        assertEquals(9, elements.size());
+        assertEquals(IPath2D.PathElement.Type.BEZIER_CURVE_TO, elements.get(3).getType());
+        assertArrayEquals(new double[] { 9, 10, 11, 12, 13, 14 }, elements.get(3).getParams(), 0);
+        assertSame(radii, elements.get(5).getExtra());
+        assertArrayEquals(new double[] { 24, 25, 26, 0, 1, 1 }, elements.get(6).getParams(), 0);
+        assertEquals(0, elements.get(8).getParams().length);
+
+        Path2D copy = new Path2D(path);
+        assertEquals(path.getCommandCount(), copy.getCommandCount());
+        assertSame(radii, copy.getElements().get(5).getExtra());
+    }
+
+    @Test
+    public void testAddPathToItselfDoublesCommands() {
+        Path2D path = new Path2D();
+        path.rect(0, 0, 10, 10);
+        path.roundRect(5, 5, 10, 10, 2);
+
+        path.addPath(path);
+
+        List<IPath2D.PathElement> elements = path.getElements();
+        assertEquals(4, elements.size());
+        assertEquals(IPath2D.PathElement.Type.ROUND_RECT, elements.get(3).getType());
+        assertEquals(2, elements.get(3).getExtra());
+    }
+
+    @Test
+    public void testRectanglesOnlyReportedForRectPaths() {
+        Path2D rects = new Path2D();
+        rects.rect(0, 0, 10, 20);
+        rects.moveTo(50, 50);
+        rects.rect(30, 40, 5, 6);
+        assertArrayEquals(new double[] { 0, 0, 10, 20, 30, 40, 5, 6 }, rects.getRectangles(), 0);
+
+        rects.lineTo(1, 1);
+        assertNull(rects.getRectangles());
+    }
+
+    @Test
+    public void testPolylineAllocation() {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+
+        // Warm up so class loading and JIT allocations are not counted
+        buildPolyline();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        Path2D path = buildPolyline();
+        double bytesPerVertex = (double) (threads.getCurrentThreadAllocatedBytes() - before) / VERTICES;
+
+        assertEquals(VERTICES, path.getCommandCount());
+        // Packed storage is 17 bytes per vertex; doubling growth copies at most as much again
+        // plus unused capacity. One PathElement per vertex cost about 69 bytes.
+        assertTrue(bytesPerVertex < 60, "Path2D allocated " + bytesPerVertex + " bytes/vertex");
+    }
+
+    @Test
+    public void testAwtRetainedPathAllocation() {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        AwtCanvasSurface surface = new AwtCanvasSurface(100, 100);
+        AwtGraphicsContext gc = new AwtGraphicsContext(
+                ((BufferedImage) surface.getNativeImage()).createGraphics(), surface);
+        gc.translate(10, 10);
+        gc.scale(2, 2);
+        Path2D path = buildPolyline();
+        gc.createRetainedPath(path);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        gc.createRetainedPath(path);
+        double bytesPerVertex = (double) (threads.getCurrentThreadAllocatedBytes() - before) / VERTICES;
+
+        // A pre-sized java.awt.geom.Path2D.Double holds 17 bytes per vertex; nothing is
+        // allocated per vertex on top of that
+        assertTrue(bytesPerVertex < 24, "AWT path builder allocated " + bytesPerVertex + " bytes/vertex");
+    }
+
+    private static Path2D buildPolyline() {
+        Path2D path = new Path2D();
+        path.moveTo(0, 0);
+        for (int i = 1; i < VERTICES; i++) {
+            path.lineTo(i * 0.01, Math.sin(i * 0.001) * 40);
+        }
+        return path;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Allocation counters not available");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Allocation counters not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
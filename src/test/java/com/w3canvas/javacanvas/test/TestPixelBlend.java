@@ -0,0 +1,174 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.core.BlendMath;
+import com.w3canvas.javacanvas.core.PixelBlend;
+import com.w3canvas.javacanvas.interfaces.CompositeOperation;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestPixelBlend {
+
+    private static final int TOLERANCE = 3;
+
+    /**
+     * Floating-point reference: the per-pixel W3C formulas on non-premultiplied colors,
+     * returning a premultiplied pixel.
+     */
+    private static int reference(CompositeOperation op, int src, int dst, double alpha) {
+        double sa = (src >>> 24) / 255.0 * alpha;
+        double sr = (src >> 16 & 0xFF) / 255.0, sg = (src >> 8 & 0xFF) / 255.0, sb = (src & 0xFF) / 255.0;
+        double da = (dst >>> 24) / 255.0;
+        double dr = (dst >> 16 & 0xFF) / 255.0, dg = (dst >> 8 & 0xFF) / 255.0, db = (dst & 0xFF) / 255.0;
+        double a, r, g, b;
+        if (PixelBlend.isBlendMode(op)) {
+            float[] bl = BlendMath.blend(op, (float) sr, (float) sg, (float) sb, (float) dr, (float) dg, (float) db);
+            a = sa + da * (1 - sa);
+            r = (1 - da) * sa * sr + (1 - sa) * da * dr + sa * da * bl[0];
+            g = (1 - da) * sa * sg + (1 - sa) * da * dg + sa * da * bl[1];
+            b = (1 - da) * sa * sb + (1 - sa) * da * db + sa * da * bl[2];
+        } else {
+            double fa, fb;
+            switch (op) {
+                case SOURCE_IN: fa = da; fb = 0; break;
+                case SOURCE_OUT: fa = 1 - da; fb = 0; break;
+                case SOURCE_ATOP: fa = da; fb = 1 - sa; break;
+                case DESTINATION_OVER: fa = 1 - da; fb = 1; break;
+                case DESTINATION_IN: fa = 0; fb = sa; break;
+                case DESTINATION_OUT: fa = 0; fb = 1 - sa; break;
+                case DESTINATION_ATOP: fa = 1 - da; fb = sa; break;
+                case XOR: fa = 1 - da; fb = 1 - sa; break;
+                case COPY: fa = 1; fb = 0; break;
+                case LIGHTER: fa = 1; fb = 1; break;
+                default: fa = 1; fb = 1 - sa; break;
+            }
+            a = sa * fa + da * fb;
+            r = sa * fa * sr + da * fb * dr;
+            g = sa * fa * sg + da * fb * dg;
+            b = sa * fa * sb + da * fb * db;
+        }
+        return (channel(a) << 24) | (channel(r) << 16) | (channel(g) << 8) | channel(b);
+    }
+
+    private static int channel(double v) {
+        return (int) Math.round(Math.max(0, Math.min(1, v)) * 255);
+    }
+
+    private static void assertClose(int expected, int actual, String message) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int e = expected >>> shift & 0xFF;
+            int a = actual >>> shift & 0xFF;
+            assertTrue(Math.abs(e - a) <= TOLERANCE, message + String.format(": expected %08x, got %08x", expected, actual));
+        }
+    }
+
+    @Test
+    public void testMatchesFloatReferenceForEveryMode() {
+        Random random = new Random(42);
+        int count = 2000;
+        int[] src = new int[count];
+        int[] dst = new int[count];
+        for (int i = 0; i < count; i++) {
+            src[i] = random.nextInt();
+            dst[i] = random.nextInt();
+        }
+        // Include the edge alphas
+        src[0] = 0x00FF0000;
+        src[1] = 0xFF00FF00;
+        dst[2] = 0x00000000;
+        dst[3] = 0xFF0000FF;
+
+        for (CompositeOperation op : CompositeOperation.values()) {
+            for (double alpha : new double[] { 1.0, 0.5 }) {
+                int[] pre = new int[count];
+                int[] out = new int[count];
+                for (int i = 0; i < count; i++) {
+                    pre[i] = PixelBlend.premultiply(src[i]);
+                    out[i] = PixelBlend.premultiply(dst[i]);
+                }
+                PixelBlend.blendRow(op, pre, out, count, alpha);
+                for (int i = 0; i < count; i++) {
+                    // Compare against the reference on the values the kernel actually saw
+                    int s = PixelBlend.unpremultiply(pre[i]);
+                    int d = PixelBlend.unpremultiply(PixelBlend.premultiply(dst[i]));
+                    assertClose(reference(op, s, d, alpha), out[i], op + " alpha " + alpha + " pixel " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOffsetRowMatchesWholeRow() {
+        int[] src = { 0xFF112233, 0x80402010, 0x00000000, 0xC0A08060 };
+        int[] dst = { 0xFF808080, 0x40201008, 0xFFFFFFFF, 0x00000000 };
+        int[] whole = dst.clone();
+        PixelBlend.blendRow(CompositeOperation.SCREEN, src, whole, 4, 0.7);
+
+        int[] padded = new int[8];
+        System.arraycopy(dst, 0, padded, 3, 4);
+        PixelBlend.blendRow(CompositeOperation.SCREEN, src, 0, padded, 3, 4, 0.7);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(whole[i], padded[3 + i]);
+        }
+        assertEquals(0, padded[0]);
+        assertEquals(0, padded[7]);
+    }
+
+    @Test
+    public void testPremultiplyRoundTrip() {
+        assertEquals(0x80400000, PixelBlend.premultiply(0x80800000));
+        assertEquals(0x80800000, PixelBlend.unpremultiply(0x80400000));
+        assertEquals(0, PixelBlend.unpremultiply(0x00123456));
+        assertEquals(0xFF123456, PixelBlend.premultiply(0xFF123456));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testBlendThroughputBenchmark(TestReporter reporter) {
+        final int width = 1024;
+        final int height = 1024;
+        Random random = new Random(7);
+        int[] src = new int[width];
+        int[] dst = new int[width];
+        for (int i = 0; i < width; i++) {
+            src[i] = PixelBlend.premultiply(random.nextInt());
+            dst[i] = PixelBlend.premultiply(random.nextInt());
+        }
+        int[] row = new int[width];
+
+        for (CompositeOperation op : new CompositeOperation[] { CompositeOperation.MULTIPLY, CompositeOperation.XOR }) {
+            int sink = 0;
+            // Warm up both paths
+            for (int i = 0; i < 200; i++) {
+                System.arraycopy(dst, 0, row, 0, width);
+                PixelBlend.blendRow(op, src, row, width, 0.8);
+                sink += reference(op, src[i], dst[i], 0.8);
+            }
+
+            long start = System.nanoTime();
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    sink += reference(op, src[x], dst[x], 0.8);
+                }
+            }
+            double floatSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(dst, 0, row, 0, width);
+                PixelBlend.blendRow(op, src, row, width, 0.8);
+                sink += row[y & (width - 1)];
+            }
+            double intSeconds = (System.nanoTime() - start) / 1e9;
+
+            double megapixels = width * height / 1e6;
+            reporter.publishEntry(op + " blend", String.format("per-pixel float %.1f MP/s, int rows %.1f MP/s (%d)",
+                    megapixels / floatSeconds, megapixels / intSeconds, sink & 1));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.core.CanvasPixelArray;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.core.ImageData;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
+import com.w3canvas.javacanvas.interfaces.IImageData;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestPremultipliedSurface {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 100;
+
+    private static CoreCanvasRenderingContext2D createContext(boolean premultiplied, int width, int height) {
+        AwtGraphicsBackend backend = new AwtGraphicsBackend() {
+            @Override
+            public ICanvasSurface createCanvasSurface(int w, int h) {
+                return new AwtCanvasSurface(w, h, premultiplied);
+            }
+        };
+        CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, backend, width, height);
+        ctx.reset();
+        return ctx;
+    }
+
+    private static void assertClose(int expected, int actual, int tolerance, String message) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int e = expected >>> shift & 0xFF;
+            int a = actual >>> shift & 0xFF;
+            assertTrue(Math.abs(e - a) <= tolerance, message + String.format(": expected %08x, got %08x", expected, actual));
+        }
+    }
+
+    @Test
+    public void testSurfaceIsPremultipliedByDefault() {
+        AwtCanvasSurface surface = new AwtCanvasSurface(10, 10);
+        assertTrue(surface.isPremultiplied());
+        assertEquals(BufferedImage.TYPE_INT_ARGB_PRE, ((BufferedImage) surface.getNativeImage()).getType());
+        assertFalse(new AwtCanvasSurface(10, 10, false).isPremultiplied());
+    }
+
+    @Test
+    public void testImageDataIsStraightAlpha() {
+        CoreCanvasRenderingContext2D ctx = createContext(true, WIDTH, HEIGHT);
+        ctx.setGlobalAlpha(0.5);
+        ctx.setFillStyle("#ff8000");
+        ctx.fillRect(10, 10, 20, 20);
+
+        IImageData data = ctx.getImageData(10, 10, 1, 1);
+        assertClose(0x80FF8000, data.getData().getPixels(0, 0, 1, 1)[0], 2, "getImageData");
+        assertClose(0x80FF8000, ctx.getSurface().getPixelData(15, 15, 1, 1)[0], 2, "getPixelData");
+    }
+
+    @Test
+    public void testPixelsOutsideCanvasAreTransparent() {
+        CoreCanvasRenderingContext2D ctx = createContext(true, WIDTH, HEIGHT);
+        ctx.setFillStyle("#0000ff");
+        ctx.fillRect(0, 0, WIDTH, HEIGHT);
+
+        int[] pixels = ctx.getSurface().getPixelData(WIDTH - 2, HEIGHT - 2, 4, 4);
+        assertEquals(0xFF0000FF, pixels[0]);
+        assertEquals(0xFF0000FF, pixels[5]);
+        assertEquals(0, pixels[2]);
+        assertEquals(0, pixels[15]);
+    }
+
+    @Test
+    public void testPutImageDataRoundTrip() {
+        CoreCanvasRenderingContext2D ctx = createContext(true, WIDTH, HEIGHT);
+        IImageData data = new ImageData(2, 1, new CanvasPixelArray(new int[] { 0xFF336699, 0x80FF0000 }, 2, 1));
+        ctx.putImageData(data, 5, 5, 0, 0, 2, 1);
+
+        int[] pixels = ctx.getSurface().getPixelData(5, 5, 2, 1);
+        assertEquals(0xFF336699, pixels[0]);
+        assertClose(0x80FF0000, pixels[1], 1, "half transparent pixel");
+    }
+
+    @Test
+    public void testBlurHasNoDarkFringe() {
+        for (boolean premultiplied : new boolean[] { false, true }) {
+            CoreCanvasRenderingContext2D ctx = createContext(premultiplied, WIDTH, HEIGHT);
+            ctx.setFilter("blur(4px)");
+            ctx.setFillStyle("#ff0000");
+            ctx.fillRect(30, 30, 40, 40);
+
+            // A partly transparent pixel in the blurred edge
+            int edge = ctx.getSurface().getPixelData(27, 50, 1, 1)[0];
+            int alpha = edge >>> 24;
+            int red = edge >> 16 & 0xFF;
+            assertTrue(alpha > 0 && alpha < 255, String.format("edge pixel %08x", edge));
+            if (premultiplied) {
+                assertTrue(red >= 250, String.format("premultiplied blur keeps the color: %08x", edge));
+            } else {
+                // Straight alpha mixes in the black of the transparent neighbours
+                assertTrue(red < 200, String.format("straight alpha blur darkens the edge: %08x", edge));
+            }
+        }
+    }
+
+    @Test
+    public void testBlendModesMatchStraightAlphaSurface() {
+        Consumer<ICanvasRenderingContext2D> scene = c -> {
+            c.setFillStyle("#3080c0");
+            c.fillRect(0, 0, WIDTH, HEIGHT);
+            for (String mode : new String[] { "multiply", "screen", "overlay", "difference", "hue" }) {
+                c.setGlobalCompositeOperation(mode);
+                c.setGlobalAlpha(0.7);
+                c.setFillStyle("#c86432");
+                c.fillRect(10, 10, 50, 50);
+            }
+        };
+        CoreCanvasRenderingContext2D straight = createContext(false, WIDTH, HEIGHT);
+        CoreCanvasRenderingContext2D premultiplied = createContext(true, WIDTH, HEIGHT);
+        scene.accept(straight);
+        scene.accept(premultiplied);
+
+        // The backdrop is opaque, where both blend implementations follow the same formulas
+        assertClose(straight.getSurface().getPixelData(30, 30, 1, 1)[0],
+                premultiplied.getSurface().getPixelData(30, 30, 1, 1)[0], 3, "blended pixel");
+        assertEquals(straight.getSurface().getPixelData(80, 80, 1, 1)[0],
+                premultiplied.getSurface().getPixelData(80, 80, 1, 1)[0]);
+    }
+
+    @Test
+    public void testStraightAlphaForEncoding() {
+        CoreCanvasRenderingContext2D ctx = createContext(true, WIDTH, HEIGHT);
+        ctx.setGlobalAlpha(0.25);
+        ctx.setFillStyle("#0000ff");
+        ctx.fillRect(0, 0, 50, 50);
+
+        BufferedImage image = (BufferedImage) ctx.getSurface().getNativeImage();
+        BufferedImage straight = AwtCanvasSurface.toStraightAlpha(image);
+        assertEquals(BufferedImage.TYPE_INT_ARGB, straight.getType());
+        assertEquals(ctx.getSurface().getPixelData(10, 10, 1, 1)[0], straight.getRGB(10, 10));
+        assertSame(straight, AwtCanvasSurface.toStraightAlpha(straight));
+    }
+
+    private static double time(boolean premultiplied, Consumer<ICanvasRenderingContext2D> scene) {
+        CoreCanvasRenderingContext2D ctx = createContext(premultiplied, 512, 512);
+        ctx.setFillStyle("#204060");
+        ctx.fillRect(0, 0, 512, 512);
+        long start = System.nanoTime();
+        scene.accept(ctx);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testCompositeBlurAndReadbackBenchmark(TestReporter reporter) {
+        Consumer<ICanvasRenderingContext2D> composite = c -> {
+            c.setGlobalAlpha(0.6);
+            for (int i = 0; i < 200; i++) {
+                c.setGlobalCompositeOperation(i % 2 == 0 ? "source-over" : "multiply");
+                c.setFillStyle(String.format("#%02x78c8", i % 256));
+                c.fillRect(i % 300, (i * 7) % 300, 200, 200);
+            }
+        };
+        Consumer<ICanvasRenderingContext2D> blur = c -> {
+            c.setFilter("blur(6px)");
+            c.setGlobalAlpha(0.8);
+            for (int i = 0; i < 20; i++) {
+                c.setFillStyle(String.format("#c83c%02x", i * 10));
+                c.fillRect((i * 23) % 400, (i * 41) % 400, 100, 100);
+            }
+        };
+        Consumer<ICanvasRenderingContext2D> readback = c -> {
+            for (int i = 0; i < 10; i++) {
+                c.getImageData(0, 0, 512, 512);
+            }
+        };
+
+        String[] names = { "composite", "blur", "getImageData" };
+        double[] straight = new double[names.length];
+        double[] premultiplied = new double[names.length];
+        for (int round = 0; round < 3; round++) {
+            // Keep the last round, after both formats are warmed up
+            int i = 0;
+            for (Consumer<ICanvasRenderingContext2D> scene : java.util.Arrays.asList(composite, blur, readback)) {
+                straight[i] = time(false, scene);
+                premultiplied[i] = time(true, scene);
+                i++;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            reporter.publishEntry(names[i], String.format("ARGB %.1f ms, ARGB_PRE %.1f ms", straight[i], premultiplied[i]));
+        }
+    }
+}
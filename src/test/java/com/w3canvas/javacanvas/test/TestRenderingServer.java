@@ -8,9 +8,12 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -70,4 +73,88 @@ public class TestRenderingServer {
             assertEquals((byte) 0x47, imageBytes[3]);
         }
     }
+
+    private static HttpURLConnection post(String path, String sessionId, String body) throws IOException {
+        URL url = new URL("http://localhost:" + PORT + path);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        if (sessionId != null) {
+            conn.setRequestProperty("X-Session-ID", sessionId);
+        }
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return conn;
+    }
+
+    @Test
+    public void testCloseSession() throws IOException {
+        HttpURLConnection create = post("/create-session", null, "");
+        assertEquals(200, create.getResponseCode());
+        String json;
+        try (InputStream is = create.getInputStream()) {
+            json = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String sessionId = json.replaceAll(".*\"sessionId\": \"([^\"]+)\".*", "$1");
+
+        assertEquals(200, post("/render", sessionId, "ctx.fillRect(0,0,10,10);").getResponseCode());
+        assertEquals(204, post("/close-session", sessionId, "").getResponseCode());
+        assertEquals(404, post("/close-session", sessionId, "").getResponseCode());
+    }
+
+    private static String createSession() throws IOException {
+        HttpURLConnection create = post("/create-session", null, "");
+        try (InputStream is = create.getInputStream()) {
+            String json = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            return json.replaceAll(".*\"sessionId\": \"([^\"]+)\".*", "$1");
+        }
+    }
+
+    private static CompletableFuture<Integer> postAsync(String path, String sessionId, String body) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return post(path, sessionId, body).getResponseCode();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static long timerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("MainTimers")).count();
+    }
+
+    @Test
+    public void testStatelessRenderStopsTimerThreads() throws Exception {
+        long before = timerThreads();
+        for (int i = 0; i < 5; i++) {
+            // A timeout that would keep its thread alive long after the response
+            assertEquals(200, post("/render", null,
+                    "setTimeout(function() {}, 60000); ctx.fillRect(0,0,10,10);").getResponseCode());
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (timerThreads() > before && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(before, timerThreads());
+    }
+
+    @Test
+    public void testRenderWaitingOnClosedSession() throws Exception {
+        String sessionId = createSession();
+        // Holds the session while the next render and the close line up behind it
+        CompletableFuture<Integer> slow = postAsync("/render", sessionId,
+                "var start = Date.now(); while (Date.now() - start < 1000) {} ctx.fillRect(0,0,10,10);");
+        Thread.sleep(300);
+        CompletableFuture<Integer> waiting = postAsync("/render", sessionId, "ctx.fillRect(0,0,10,10);");
+        Thread.sleep(300);
+        CompletableFuture<Integer> close = postAsync("/close-session", sessionId, "");
+
+        assertEquals(200, (int) slow.get(10, TimeUnit.SECONDS));
+        assertEquals(204, (int) close.get(10, TimeUnit.SECONDS));
+        // Not drawn on the freed canvas
+        assertEquals(404, (int) waiting.get(10, TimeUnit.SECONDS));
+    }
 }
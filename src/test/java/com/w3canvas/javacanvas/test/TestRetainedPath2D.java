@@ -0,0 +1,168 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsContext;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.core.Path2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.IShape;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.awt.image.BufferedImage;
+
+import static com.w3canvas.javacanvas.test.VisualRegressionHelper.compareToReference;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRetainedPath2D {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 200;
+
+    private ICanvasRenderingContext2D createContext() {
+        ICanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, new AwtGraphicsBackend(), WIDTH, HEIGHT);
+        ctx.setFillStyle("#ffffff");
+        ctx.fillRect(0, 0, WIDTH, HEIGHT);
+        return ctx;
+    }
+
+    private static Path2D createShape() {
+        Path2D path = new Path2D();
+        path.moveTo(0, 0);
+        path.lineTo(40, 5);
+        path.quadraticCurveTo(50, 25, 35, 40);
+        path.bezierCurveTo(25, 50, 10, 45, 5, 30);
+        path.closePath();
+        path.rect(45, 0, 15, 15);
+        path.arc(20, 20, 8, 0, Math.PI * 2, false);
+        return path;
+    }
+
+    private static void setTransform(ICanvasRenderingContext2D ctx, int i) {
+        ctx.setTransform(1, 0, 0, 1, 0, 0);
+        ctx.translate(30 + (i % 3) * 55, 30 + (i / 3) * 55);
+        ctx.rotate(i * 0.3);
+        ctx.scale(1 + i * 0.05, 1);
+    }
+
+    @Test
+    public void testRetainedFillMatchesReplayedPath() {
+        ICanvasRenderingContext2D replayed = createContext();
+        ICanvasRenderingContext2D retained = createContext();
+        Path2D path = createShape();
+
+        for (int i = 0; i < 9; i++) {
+            replayed.setFillStyle(i % 2 == 0 ? "#3060c0" : "#c03060");
+            setTransform(replayed, i);
+            replayed.beginPath();
+            replayed.moveTo(0, 0);
+            replayed.lineTo(40, 5);
+            replayed.quadraticCurveTo(50, 25, 35, 40);
+            replayed.bezierCurveTo(25, 50, 10, 45, 5, 30);
+            replayed.closePath();
+            replayed.rect(45, 0, 15, 15);
+            replayed.arc(20, 20, 8, 0, Math.PI * 2, false);
+            replayed.fill("evenodd");
+
+            retained.setFillStyle(i % 2 == 0 ? "#3060c0" : "#c03060");
+            setTransform(retained, i);
+            retained.fill(path, "evenodd");
+        }
+
+        // Curves are flattened from float coordinates on the replay path, so allow edge noise
+        compareToReference(replayed, retained, 0.5, 48);
+    }
+
+    @Test
+    public void testRetainedShapeIsReusedUntilMutation() {
+        ICanvasRenderingContext2D ctx = createContext();
+        AwtGraphicsContext gc = (AwtGraphicsContext) ctx.getSurface().getGraphicsContext();
+        Path2D path = createShape();
+
+        IShape first = path.getRetainedShape(gc);
+        ctx.translate(10, 10);
+        ctx.fill(path);
+        assertSame(first, path.getRetainedShape(gc));
+
+        path.lineTo(100, 100);
+        IShape rebuilt = path.getRetainedShape(gc);
+        assertNotNull(rebuilt);
+        assertNotSame(first, rebuilt);
+    }
+
+    @Test
+    public void testHitTestingAppliesCurrentTransform() {
+        ICanvasRenderingContext2D ctx = createContext();
+        Path2D path = new Path2D();
+        path.rect(0, 0, 20, 20);
+
+        assertTrue(ctx.isPointInPath(path, 10, 10));
+        ctx.translate(100, 100);
+        assertFalse(ctx.isPointInPath(path, 10, 10));
+        assertTrue(ctx.isPointInPath(path, 110, 110));
+
+        ctx.setLineWidth(4);
+        assertTrue(ctx.isPointInStroke(path, 101, 110));
+        assertFalse(ctx.isPointInStroke(path, 110, 110));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testRepeatedFillBenchmark(TestReporter reporter) {
+        final int iterations = 20000;
+        Path2D path = new Path2D();
+        path.moveTo(0, 0);
+        for (int i = 1; i <= 64; i++) {
+            double angle = i * Math.PI * 2 / 64;
+            path.lineTo(Math.cos(angle) * (i % 2 == 0 ? 20 : 10), Math.sin(angle) * (i % 2 == 0 ? 20 : 10));
+        }
+        path.closePath();
+
+        AwtCanvasSurface surface = new AwtCanvasSurface(WIDTH, HEIGHT);
+        AwtGraphicsContext gc = new AwtGraphicsContext(
+                ((BufferedImage) surface.getNativeImage()).createGraphics(), surface);
+
+        // Warm up both paths before timing
+        for (int i = 0; i < 2000; i++) {
+            replayFill(gc, path, i);
+            retainedFill(gc, path, i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            replayFill(gc, path, i);
+        }
+        long replayNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            retainedFill(gc, path, i);
+        }
+        long retainedNanos = System.nanoTime() - start;
+
+        reporter.publishEntry("Path2D fill x" + iterations, String.format("replayed %.1f ms, retained %.1f ms",
+                replayNanos / 1e6, retainedNanos / 1e6));
+    }
+
+    private static void replayFill(AwtGraphicsContext gc, Path2D path, int i) {
+        gc.resetTransform();
+        gc.translate(20 + i % 160, 20 + (i / 160) % 160);
+        gc.beginPath();
+        path.replayOn(gc);
+        gc.fill();
+    }
+
+    private static void retainedFill(AwtGraphicsContext gc, Path2D path, int i) {
+        gc.resetTransform();
+        gc.translate(20 + i % 160, 20 + (i / 160) % 160);
+        gc.beginPath();
+        gc.setRetainedPath(path.getRetainedShape(gc));
+        gc.fill();
+    }
+}
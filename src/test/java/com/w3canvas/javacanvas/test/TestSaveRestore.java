@@ -0,0 +1,222 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtCanvasSurface;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsContext;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.ICanvasSurface;
+import com.w3canvas.javacanvas.interfaces.IComposite;
+import com.w3canvas.javacanvas.interfaces.IGraphicsContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestSaveRestore {
+
+    /**
+     * Graphics context that counts the calls save()/restore() and drawing make.
+     */
+    private static class CountingGraphicsContext extends AwtGraphicsContext {
+        int getTransformCalls;
+        int setTransformCalls;
+        int setCompositeCalls;
+        int setShadowBlurCalls;
+
+        CountingGraphicsContext(AwtCanvasSurface surface) {
+            super(((BufferedImage) surface.getNativeImage()).createGraphics(), surface);
+        }
+
+        @Override
+        public Object getTransform() {
+            getTransformCalls++;
+            return super.getTransform();
+        }
+
+        @Override
+        public void setTransform(Object transform) {
+            setTransformCalls++;
+            super.setTransform(transform);
+        }
+
+        @Override
+        public void setComposite(IComposite comp) {
+            setCompositeCalls++;
+            super.setComposite(comp);
+        }
+
+        @Override
+        public void setShadowBlur(double blur) {
+            setShadowBlurCalls++;
+            super.setShadowBlur(blur);
+        }
+    }
+
+    private static CountingGraphicsContext counting;
+
+    private static CoreCanvasRenderingContext2D createContext(int width, int height) {
+        return new CoreCanvasRenderingContext2D(null, new AwtGraphicsBackend() {
+            @Override
+            public ICanvasSurface createCanvasSurface(int w, int h) {
+                return new AwtCanvasSurface(w, h) {
+                    private CountingGraphicsContext gc;
+
+                    @Override
+                    public IGraphicsContext getGraphicsContext() {
+                        if (gc == null) {
+                            gc = new CountingGraphicsContext(this);
+                            counting = gc;
+                        }
+                        return gc;
+                    }
+                };
+            }
+        }, width, height);
+    }
+
+    @Test
+    public void testNestedSaveRestore() {
+        CoreCanvasRenderingContext2D ctx = createContext(50, 50);
+        ctx.setFillStyle("#ff0000");
+        ctx.translate(10, 0);
+        ctx.save();
+        ctx.setFillStyle("#00ff00");
+        ctx.setLineWidth(4);
+        ctx.setShadowBlur(3);
+        ctx.save();
+        ctx.setFillStyle("#0000ff");
+        ctx.setGlobalAlpha(0.5);
+        ctx.setGlobalCompositeOperation("multiply");
+        ctx.setFilter("blur(2px)");
+        ctx.setImageSmoothingEnabled(false);
+        ctx.setLetterSpacing(2);
+        ctx.setLineDash(new double[] { 2, 3 });
+        ctx.scale(2, 2);
+        ctx.save();
+        // Nothing changes in the innermost state
+        ctx.restore();
+        assertEquals("#0000ff", ctx.getFillStyle());
+        assertEquals(new AffineTransform(2, 0, 0, 2, 10, 0), ctx.getTransform());
+
+        ctx.restore();
+        assertEquals("#00ff00", ctx.getFillStyle());
+        assertEquals(4.0, ctx.getLineWidth());
+        assertEquals(3.0, ctx.getShadowBlur());
+        assertEquals(1.0, ctx.getGlobalAlpha());
+        assertEquals("source-over", ctx.getGlobalCompositeOperation());
+        assertEquals("none", ctx.getFilter());
+        assertEquals(true, ctx.getImageSmoothingEnabled());
+        assertEquals(0.0, ctx.getLetterSpacing());
+        assertEquals(0, ((double[]) ctx.getLineDash()).length);
+        assertEquals(new AffineTransform(1, 0, 0, 1, 10, 0), ctx.getTransform());
+
+        ctx.restore();
+        assertEquals("#ff0000", ctx.getFillStyle());
+        assertEquals(1.0, ctx.getLineWidth());
+        assertEquals(0.0, ctx.getShadowBlur());
+        assertEquals(new AffineTransform(1, 0, 0, 1, 10, 0), ctx.getTransform());
+
+        // An unbalanced restore does nothing
+        ctx.restore();
+        assertEquals("#ff0000", ctx.getFillStyle());
+    }
+
+    @Test
+    public void testRestoredStateIsDrawn() {
+        CoreCanvasRenderingContext2D ctx = createContext(40, 20);
+        ctx.setFillStyle("#0000ff");
+        ctx.save();
+        ctx.setGlobalAlpha(0.5);
+        ctx.setShadowColor("#ff0000");
+        ctx.setShadowOffsetX(20);
+        ctx.fillRect(0, 0, 10, 10);
+        ctx.restore();
+        // Opaque and without a shadow again
+        ctx.fillRect(0, 10, 10, 10);
+
+        BufferedImage image = (BufferedImage) ctx.getSurface().getNativeImage();
+        assertEquals(0x80, image.getRGB(5, 5) >>> 24, 0x01);
+        // The shadow takes on the global alpha too
+        assertEquals(0x80FF0000, image.getRGB(25, 5));
+        assertEquals(0xFF0000FF, image.getRGB(5, 15));
+        assertEquals(0, image.getRGB(25, 15));
+    }
+
+    @Test
+    public void testOnlyChangedStateReachesGraphicsContext() {
+        CoreCanvasRenderingContext2D ctx = createContext(20, 20);
+        ctx.fillRect(0, 0, 1, 1);
+        CountingGraphicsContext gc = counting;
+        int compositeCalls = gc.setCompositeCalls;
+        int shadowCalls = gc.setShadowBlurCalls;
+
+        // Styles only: the transform is neither copied nor put back
+        for (int i = 0; i < 10; i++) {
+            ctx.save();
+            ctx.setFillStyle(i % 2 == 0 ? "#ff0000" : "#00ff00");
+            ctx.fillRect(i, 0, 1, 1);
+            ctx.restore();
+        }
+        assertEquals(0, gc.getTransformCalls);
+        assertEquals(0, gc.setTransformCalls);
+        assertEquals(compositeCalls, gc.setCompositeCalls);
+        assertEquals(shadowCalls, gc.setShadowBlurCalls);
+
+        // Changing the transform copies it once and puts it back once
+        ctx.save();
+        ctx.translate(5, 5);
+        ctx.rotate(0.5);
+        ctx.restore();
+        assertEquals(1, gc.getTransformCalls);
+        assertEquals(1, gc.setTransformCalls);
+
+        // The changed composite is pushed on the next draw, and put back after restore
+        ctx.save();
+        ctx.setGlobalAlpha(0.5);
+        ctx.fillRect(0, 0, 1, 1);
+        ctx.fillRect(1, 1, 1, 1);
+        ctx.restore();
+        ctx.fillRect(2, 2, 1, 1);
+        assertEquals(compositeCalls + 2, gc.setCompositeCalls);
+        assertEquals(shadowCalls, gc.setShadowBlurCalls);
+
+        // reset() starts over with a fresh graphics context
+        ctx.reset();
+        ctx.fillRect(0, 0, 1, 1);
+        assertEquals(0xFF000000, ctx.getSurface().getPixelData(0, 0, 1, 1)[0]);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSaveRestoreBenchmark(TestReporter reporter) {
+        // A chart that wraps each of its marks in save()/restore()
+        CoreCanvasRenderingContext2D ctx = createContext(400, 400);
+        int marks = 100000;
+        double millis = 0;
+        long bytes = 0;
+        for (int round = 0; round < 3; round++) {
+            // Keep the last round, after warming up
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            for (int i = 0; i < marks; i++) {
+                ctx.save();
+                ctx.setFillStyle(i % 2 == 0 ? "#336699" : "#993366");
+                ctx.fillRect(i % 400, (i / 400) % 400, 2, 2);
+                ctx.restore();
+            }
+            millis = (System.nanoTime() - start) / 1e6;
+            bytes = allocatedBytes() - allocated;
+        }
+        reporter.publishEntry(marks + " marks in save()/restore()", String.format(
+                "%.1f ms, %d bytes allocated per mark", millis, bytes / marks));
+    }
+}
@@ -0,0 +1,124 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.js.worker.SharedWorker;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mozilla.javascript.Context;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSharedWorkerRegistry {
+
+    private static final String SCRIPT = "test-sharedworker-broadcast.js";
+
+    private JavaCanvas javaCanvas;
+    private RhinoRuntime runtime;
+
+    @BeforeEach
+    public void setUp() {
+        SharedWorker.terminateAll();
+        javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        runtime = (RhinoRuntime) javaCanvas.getRuntime();
+        Context.enter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Context.exit();
+        SharedWorker.terminateAll();
+    }
+
+    private Object exec(String code) {
+        return javaCanvas.executeCode(code);
+    }
+
+    private int intProperty(String name) {
+        return ((Number) runtime.getProperty(name)).intValue();
+    }
+
+    private void waitFor(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(2);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out waiting for " + what);
+    }
+
+    private void connect(int count) {
+        exec("var workers = [], received = [], total = 0;"
+                + "for (var i = 0; i < " + count + "; i++) {"
+                + "  (function(n) {"
+                + "    var w = new SharedWorker('" + SCRIPT + "');"
+                + "    received[n] = [];"
+                + "    w.port.onmessage = function(e) { received[n].push(e.data); total++; };"
+                + "    workers.push(w);"
+                + "  })(i);"
+                + "}");
+    }
+
+    @Test
+    public void testBroadcastReachesEveryConnection() throws Exception {
+        connect(3);
+        assertEquals(1, SharedWorker.getActiveWorkerCount());
+        assertEquals(3, SharedWorker.getConnectionCount(SCRIPT));
+
+        exec("workers[1].port.postMessage('hello');");
+        waitFor("three deliveries", () -> intProperty("total") == 3);
+
+        assertEquals("hello,hello,hello",
+                exec("received[0][0] + ',' + received[1][0] + ',' + received[2][0]").toString());
+        assertEquals(1, SharedWorker.getBroadcastCount(SCRIPT));
+        assertEquals(1, SharedWorker.getMessagesReceived(SCRIPT));
+    }
+
+    @Test
+    public void testLastClosedPortShutsDownWorker() throws Exception {
+        connect(2);
+        exec("workers[0].port.postMessage('ready');");
+        waitFor("both connections", () -> intProperty("total") == 2);
+
+        exec("workers[0].port.close();");
+        assertEquals(1, SharedWorker.getConnectionCount(SCRIPT));
+        assertEquals(1, SharedWorker.getActiveWorkerCount(), "One connection keeps the worker alive");
+
+        exec("workers[1].port.close();");
+        assertEquals(0, SharedWorker.getActiveWorkerCount(), "Idle worker should leave the registry");
+
+        // A new connection starts a fresh worker
+        connect(1);
+        assertEquals(1, SharedWorker.getActiveWorkerCount());
+        assertEquals(1, SharedWorker.getTotalConnectionCount(SCRIPT));
+        exec("workers[0].port.postMessage('again');");
+        waitFor("fresh worker reply", () -> intProperty("total") == 1);
+        assertEquals("again", exec("received[0][0]").toString());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testBroadcastFanOutBenchmark(TestReporter reporter) throws Exception {
+        final int connections = 50;
+        final int messages = 200;
+        connect(connections);
+
+        long start = System.nanoTime();
+        exec("workers[0].port.postMessage({ burst: " + messages + " });");
+        waitFor("all broadcasts", () -> intProperty("total") == connections * messages);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        reporter.publishEntry("SharedWorker broadcast", String.format("%d messages to %d ports in %.0f ms, %.0f deliveries/s",
+                messages, connections, seconds * 1000, connections * messages / seconds));
+        assertEquals(messages, SharedWorker.getBroadcastCount(SCRIPT));
+        assertEquals(messages - 1, ((Number) exec("received[" + (connections - 1) + "]["
+                + (messages - 1) + "]")).intValue());
+    }
+}
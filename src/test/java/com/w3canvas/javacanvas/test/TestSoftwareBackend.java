@@ -0,0 +1,313 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.awt.AwtGraphicsBackend;
+import com.w3canvas.javacanvas.backend.software.SoftwareCanvasSurface;
+import com.w3canvas.javacanvas.backend.software.SoftwareGraphicsBackend;
+import com.w3canvas.javacanvas.core.CoreCanvasRenderingContext2D;
+import com.w3canvas.javacanvas.core.PixelBlend;
+import com.w3canvas.javacanvas.interfaces.ICanvasGradient;
+import com.w3canvas.javacanvas.interfaces.ICanvasRenderingContext2D;
+import com.w3canvas.javacanvas.interfaces.IGraphicsBackend;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSoftwareBackend {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 200;
+
+    private static CoreCanvasRenderingContext2D createContext(IGraphicsBackend backend, int width, int height) {
+        CoreCanvasRenderingContext2D ctx = new CoreCanvasRenderingContext2D(null, backend, width, height);
+        ctx.reset();
+        return ctx;
+    }
+
+    private static int[] render(IGraphicsBackend backend, Consumer<ICanvasRenderingContext2D> scene) {
+        CoreCanvasRenderingContext2D ctx = createContext(backend, WIDTH, HEIGHT);
+        scene.accept(ctx);
+        int[] pixels = ctx.getSurface().getPixelData(0, 0, WIDTH, HEIGHT);
+        // Compare premultiplied values, so nearly transparent edge pixels do not dominate
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = PixelBlend.premultiply(pixels[i]);
+        }
+        return pixels;
+    }
+
+    /**
+     * Renders {@code scene} with both backends and checks that they agree up to anti-aliasing noise.
+     */
+    private static void assertMatchesAwt(String name, Consumer<ICanvasRenderingContext2D> scene) {
+        int[] expected = render(new AwtGraphicsBackend(), scene);
+        int[] actual = render(new SoftwareGraphicsBackend(), scene);
+        long total = 0;
+        int different = 0;
+        for (int i = 0; i < expected.length; i++) {
+            int diff = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                diff = Math.max(diff, Math.abs((expected[i] >>> shift & 0xFF) - (actual[i] >>> shift & 0xFF)));
+            }
+            total += diff;
+            if (diff > 32) {
+                different++;
+            }
+        }
+        double mean = total / (double) expected.length;
+        assertTrue(mean < 0.5, name + ": mean channel difference " + mean);
+        assertTrue(different <= expected.length / 1000, name + ": " + different + " pixels differ by more than 32");
+    }
+
+    private static BufferedImage checkerboard() {
+        BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 20; x++) {
+                image.setRGB(x, y, ((x + y) & 1) == 0 ? 0xFFFF0000 : 0x800000FF);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    public void testFillsMatchAwt() {
+        assertMatchesAwt("rect", c -> {
+            c.setFillStyle("#0000ff");
+            c.fillRect(10.5, 20.25, 100, 50);
+        });
+        assertMatchesAwt("circle", c -> {
+            c.setFillStyle("rgba(0, 0, 255, 0.5)");
+            c.beginPath();
+            c.arc(100, 100, 70, 0, Math.PI * 2, false);
+            c.fill();
+        });
+        assertMatchesAwt("rotated", c -> {
+            c.translate(100, 100);
+            c.rotate(0.5);
+            c.setFillStyle("#0000ff");
+            c.fillRect(-50, -30, 100, 60);
+        });
+        assertMatchesAwt("evenodd", c -> {
+            c.setFillStyle("#0000ff");
+            c.beginPath();
+            c.rect(20, 20, 160, 160);
+            c.rect(60, 60, 80, 80);
+            c.fill("evenodd");
+        });
+        assertMatchesAwt("curve", c -> {
+            c.setFillStyle("#0000ff");
+            c.beginPath();
+            c.moveTo(20, 180);
+            c.bezierCurveTo(20, 20, 180, 20, 180, 180);
+            c.quadraticCurveTo(100, 100, 20, 180);
+            c.fill();
+        });
+        assertMatchesAwt("roundRect", c -> {
+            c.setFillStyle("#0000ff");
+            c.beginPath();
+            c.roundRect(20, 20, 160, 100, 20);
+            c.fill();
+        });
+        assertMatchesAwt("ellipse", c -> {
+            c.setFillStyle("#0000ff");
+            c.beginPath();
+            c.ellipse(100, 100, 80, 40, 0.3, 0, Math.PI * 2, false);
+            c.fill();
+        });
+        assertMatchesAwt("gradient", c -> {
+            ICanvasGradient gradient = c.createLinearGradient(0, 0, 200, 0);
+            gradient.addColorStop(0, "red");
+            gradient.addColorStop(1, "blue");
+            c.setFillStyle(gradient);
+            c.fillRect(0, 0, 200, 200);
+        });
+    }
+
+    @Test
+    public void testStrokesMatchAwt() {
+        assertMatchesAwt("stroke", c -> {
+            c.setStrokeStyle("black");
+            c.setLineWidth(5);
+            c.beginPath();
+            c.moveTo(10, 10);
+            c.lineTo(190, 150);
+            c.lineTo(30, 190);
+            c.stroke();
+        });
+        assertMatchesAwt("dash", c -> {
+            c.setStrokeStyle("black");
+            c.setLineWidth(3);
+            c.setLineDash(new double[] { 10, 5 });
+            c.beginPath();
+            c.moveTo(10, 100);
+            c.lineTo(190, 100);
+            c.stroke();
+        });
+    }
+
+    @Test
+    public void testCompositingMatchesAwt() {
+        assertMatchesAwt("alpha", c -> {
+            c.setFillStyle("#0000ff");
+            c.fillRect(0, 0, 100, 100);
+            c.setGlobalAlpha(0.5);
+            c.setFillStyle("#ff0000");
+            c.fillRect(50, 50, 100, 100);
+        });
+        assertMatchesAwt("clear", c -> {
+            c.setFillStyle("#0000ff");
+            c.fillRect(0, 0, 200, 200);
+            c.clearRect(50, 50, 30, 30);
+        });
+        assertMatchesAwt("destination-out", c -> {
+            c.setFillStyle("#00ffff");
+            c.fillRect(0, 0, 120, 120);
+            c.setGlobalCompositeOperation("destination-out");
+            c.beginPath();
+            c.arc(60, 60, 40, 0, Math.PI * 2, false);
+            c.fill();
+        });
+        assertMatchesAwt("multiply", c -> {
+            c.setFillStyle("#00ffff");
+            c.fillRect(0, 0, 200, 200);
+            c.setGlobalCompositeOperation("multiply");
+            c.setFillStyle("#ff00ff");
+            c.fillRect(60, 60, 120, 120);
+        });
+    }
+
+    @Test
+    public void testImagesMatchAwt() {
+        BufferedImage image = checkerboard();
+        assertMatchesAwt("image", c -> c.drawImage(image, 30, 40));
+        assertMatchesAwt("scaled image", c -> c.drawImage(image, 0, 0, 20, 20, 10, 10, 100, 100));
+    }
+
+    @Test
+    public void testShadowsAndFiltersMatchAwt() {
+        assertMatchesAwt("offset shadow", c -> {
+            c.setShadowColor("rgba(255, 0, 0, 0.5)");
+            c.setShadowOffsetX(15);
+            c.setShadowOffsetY(10);
+            c.setFillStyle("#0000ff");
+            c.fillRect(20, 20, 80, 60);
+        });
+        assertMatchesAwt("blurred shadow", c -> {
+            c.setShadowColor("#000000");
+            c.setShadowBlur(12);
+            c.setShadowOffsetX(5);
+            c.setShadowOffsetY(5);
+            c.setFillStyle("#00ff00");
+            c.beginPath();
+            c.arc(100, 100, 50, 0, Math.PI * 2, false);
+            c.fill();
+        });
+        assertMatchesAwt("grayscale", c -> {
+            c.setFilter("grayscale(1)");
+            c.setFillStyle("#ff0000");
+            c.fillRect(20, 20, 100, 100);
+        });
+        assertMatchesAwt("blur", c -> {
+            c.setFilter("blur(4px)");
+            c.setFillStyle("#0000ff");
+            c.fillRect(50, 50, 100, 100);
+        });
+    }
+
+    @Test
+    public void testPartialArcCoversOneQuadrant() {
+        ICanvasRenderingContext2D ctx = createContext(new SoftwareGraphicsBackend(), WIDTH, HEIGHT);
+        ctx.setFillStyle("#0000ff");
+        ctx.beginPath();
+        ctx.moveTo(100, 100);
+        ctx.arc(100, 100, 60, 0, Math.PI / 2, false);
+        ctx.fill();
+
+        // Angles grow clockwise on screen, so 0..PI/2 is the bottom right quadrant
+        assertEquals(0xFF0000FF, ctx.getSurface().getPixelData(130, 130, 1, 1)[0]);
+        assertEquals(0, ctx.getSurface().getPixelData(130, 70, 1, 1)[0]);
+        assertEquals(0, ctx.getSurface().getPixelData(70, 130, 1, 1)[0]);
+        assertEquals(0, ctx.getSurface().getPixelData(70, 70, 1, 1)[0]);
+    }
+
+    @Test
+    public void testArcSweepsMatchAwt() {
+        double[][] arcs = {
+                { 0, Math.PI / 2, 0 }, { Math.PI / 2, 0, 1 }, { 0, 2 * Math.PI, 0 }, { 0, -2 * Math.PI, 1 },
+                { 0, -2 * Math.PI, 0 }, { 0, 2 * Math.PI, 1 }, { 0, -3 * Math.PI / 2, 0 }, { 1, 9, 1 } };
+        assertMatchesAwt("arc sweeps", c -> {
+            c.setFillStyle("#0000ff");
+            for (int i = 0; i < arcs.length; i++) {
+                double x = 25 + (i % 4) * 50;
+                double y = 40 + (i / 4) * 80;
+                c.beginPath();
+                c.moveTo(x, y);
+                c.arc(x, y, 20, arcs[i][0], arcs[i][1], arcs[i][2] == 1);
+                c.closePath();
+                c.fill();
+            }
+        });
+    }
+
+    @Test
+    public void testClipLimitsFill() {
+        ICanvasRenderingContext2D ctx = createContext(new SoftwareGraphicsBackend(), WIDTH, HEIGHT);
+        ctx.beginPath();
+        ctx.arc(100, 100, 50, 0, Math.PI * 2, false);
+        ctx.clip();
+        ctx.setFillStyle("#0000ff");
+        ctx.fillRect(0, 0, WIDTH, HEIGHT);
+
+        assertEquals(0xFF0000FF, ctx.getSurface().getPixelData(100, 100, 1, 1)[0]);
+        assertEquals(0, ctx.getSurface().getPixelData(20, 20, 1, 1)[0]);
+        // The clip edge is anti-aliased
+        int edge = ctx.getSurface().getPixelData(135, 135, 1, 1)[0] >>> 24;
+        assertTrue(edge > 0 && edge < 255, "edge alpha " + edge);
+    }
+
+    @Test
+    public void testNativeImageSharesPixels() {
+        CoreCanvasRenderingContext2D ctx = createContext(new SoftwareGraphicsBackend(), WIDTH, HEIGHT);
+        ctx.setFillStyle("rgba(255, 0, 0, 0.5)");
+        ctx.fillRect(10, 10, 20, 20);
+
+        assertTrue(ctx.getSurface() instanceof SoftwareCanvasSurface);
+        BufferedImage image = (BufferedImage) ctx.getSurface().getNativeImage();
+        assertEquals(BufferedImage.TYPE_INT_ARGB_PRE, image.getType());
+        assertEquals(ctx.getSurface().getPixelData(15, 15, 1, 1)[0], image.getRGB(15, 15));
+        assertSame(image, ctx.getSurface().getNativeImage());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSmallPrimitiveThroughputBenchmark(TestReporter reporter) {
+        IGraphicsBackend[] backends = { new AwtGraphicsBackend(), new SoftwareGraphicsBackend() };
+        double[] millis = new double[backends.length];
+        for (int round = 0; round < 3; round++) {
+            for (int b = 0; b < backends.length; b++) {
+                ICanvasRenderingContext2D ctx = createContext(backends[b], 512, 512);
+                Random random = new Random(1);
+                long start = System.nanoTime();
+                for (int i = 0; i < 10000; i++) {
+                    ctx.setFillStyle((i & 1) == 0 ? "#3366cc" : "rgba(200, 50, 50, 0.5)");
+                    if ((i & 2) == 0) {
+                        ctx.fillRect(random.nextInt(500), random.nextInt(500), 6, 6);
+                    } else {
+                        ctx.beginPath();
+                        ctx.arc(random.nextInt(500), random.nextInt(500), 4, 0, Math.PI * 2, false);
+                        ctx.fill();
+                    }
+                }
+                // Keep the last round, after both backends are warmed up
+                millis[b] = (System.nanoTime() - start) / 1e6;
+            }
+        }
+        reporter.publishEntry("10000 small fills", String.format("AWT %.1f ms, software %.1f ms", millis[0], millis[1]));
+    }
+}
@@ -0,0 +1,164 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.rhino.impl.node.ImageData;
+import com.w3canvas.javacanvas.js.worker.StructuredClone;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestStructuredClone {
+
+    private JavaCanvas javaCanvas;
+    private RhinoRuntime runtime;
+    private Context cx;
+
+    @BeforeEach
+    public void setUp() {
+        javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        runtime = (RhinoRuntime) javaCanvas.getRuntime();
+        cx = Context.enter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Context.exit();
+    }
+
+    private Object exec(String code) {
+        return javaCanvas.executeCode(code);
+    }
+
+    // Clones global 'name' into global 'copy'
+    private StructuredClone cloneGlobal(String name) {
+        StructuredClone message = StructuredClone.serialize(runtime.getProperty(name));
+        Scriptable scope = runtime.getScope();
+        ScriptableObject.putProperty(scope, "copy", message.deserialize(cx, scope));
+        return message;
+    }
+
+    @Test
+    public void testObjectGraphKeepsSharedReferencesAndCycles() {
+        exec("var shared = { three: 3 };"
+                + "var value = { i: 1, d: 2.5, s: 'text', t: true, n: null, u: undefined,"
+                + "  date: new Date(5000), list: [1, 'two', shared], shared: shared, 7: 'seven' };"
+                + "value.self = value;");
+        cloneGlobal("value");
+
+        assertEquals("true", exec("String(copy !== value && copy.self === copy"
+                + " && copy.shared === copy.list[2] && copy.shared !== shared"
+                + " && copy.list.length === 3 && copy.list[1] === 'two' && copy.shared.three === 3"
+                + " && copy.date.getTime() === 5000 && copy[7] === 'seven'"
+                + " && copy.i === 1 && copy.d === 2.5 && copy.s === 'text' && copy.t === true"
+                + " && copy.n === null && 'u' in copy && copy.u === undefined)").toString());
+    }
+
+    @Test
+    public void testTypedArraysShareTheirClonedBuffer() {
+        exec("var buffer = new ArrayBuffer(16);"
+                + "var bytes = new Uint8Array(buffer);"
+                + "var floats = new Float32Array(buffer, 4, 2);"
+                + "var view = new DataView(buffer, 12, 4);"
+                + "bytes[0] = 7; floats[1] = 1.5; view.setInt16(0, -2);"
+                + "var message = { bytes: bytes, floats: floats, view: view };");
+        cloneGlobal("message");
+
+        assertEquals("true", exec("String(copy.bytes.buffer === copy.floats.buffer"
+                + " && copy.view.buffer === copy.bytes.buffer && copy.bytes.buffer !== buffer"
+                + " && copy.bytes.length === 16 && copy.bytes[0] === 7"
+                + " && copy.floats.byteOffset === 4 && copy.floats.length === 2 && copy.floats[1] === 1.5"
+                + " && copy.view.byteLength === 4 && copy.view.getInt16(0) === -2)").toString());
+        exec("bytes[0] = 9;");
+        assertEquals(7, ((Number) exec("copy.bytes[0]")).intValue(), "Clone must not share memory with the source");
+    }
+
+    @Test
+    public void testImageDataAndBlob() {
+        exec("var canvas = new OffscreenCanvas(4, 3);"
+                + "var ctx = canvas.getContext('2d');"
+                + "ctx.fillStyle = 'blue'; ctx.fillRect(0, 0, 4, 3);"
+                + "var message = { pixels: ctx.getImageData(0, 0, 4, 3), png: canvas.convertToBlobSync('image/png') };");
+        cloneGlobal("message");
+
+        ImageData source = (ImageData) exec("message.pixels");
+        ImageData copy = (ImageData) exec("copy.pixels");
+        assertNotSame(source, copy);
+        assertEquals(4, copy.getWidth());
+        assertEquals(3, copy.getHeight());
+        assertEquals(source.getData().getPixels(0, 0, 4, 3)[5], copy.getData().getPixels(0, 0, 4, 3)[5]);
+        assertEquals("image/png:true", exec("copy.png.type + ':' + (copy.png.size === message.png.size)").toString());
+    }
+
+    @Test
+    public void testFunctionsCannotBeCloned() {
+        exec("var message = { callback: function() {} };");
+        assertThrows(IllegalArgumentException.class,
+                () -> StructuredClone.serialize(runtime.getProperty("message")));
+
+        // A failed clone must not neuter the transfer list
+        exec("var bitmap = createImageBitmap(new OffscreenCanvas(2, 2)), failed = false;"
+                + "var w = new Worker('test-worker-transfer.js');"
+                + "try { w.postMessage({ bitmap: bitmap, f: function() {} }, [bitmap]); } catch (e) { failed = true; }"
+                + "w.terminate();");
+        assertEquals("true:2", exec("failed + ':' + bitmap.width").toString());
+    }
+
+    @Test
+    public void testHostContextsKeepTheirLanguageVersion() throws Exception {
+        // On another thread, so it is not nested in the runtime's Context
+        int[] version = new int[1];
+        Thread host = new Thread(() -> {
+            Context hostCx = Context.enter();
+            try {
+                version[0] = hostCx.getLanguageVersion();
+            } finally {
+                Context.exit();
+            }
+        });
+        host.start();
+        host.join();
+        assertEquals(Context.VERSION_DEFAULT, version[0]);
+        assertEquals(Context.VERSION_ES6, cx.getLanguageVersion());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testLargeMessageThroughputBenchmark(TestReporter reporter) {
+        final int rounds = 20;
+        exec("var floats = new Float64Array(1 << 20);"
+                + "for (var i = 0; i < floats.length; i++) { floats[i] = i * 0.5; }"
+                + "var records = [];"
+                + "for (var i = 0; i < 10000; i++) { records.push({ id: i, name: 'item' + i, pos: [i, i + 1] }); }");
+
+        long bytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            bytes += cloneGlobal("floats").getByteLength();
+        }
+        double typedMillis = (System.nanoTime() - start) / 1e6 / rounds;
+        assertEquals("true", exec("String(copy.length === floats.length && copy[12345] === 12345 * 0.5)").toString());
+
+        start = System.nanoTime();
+        int recordBytes = 0;
+        for (int i = 0; i < rounds; i++) {
+            recordBytes = cloneGlobal("records").getByteLength();
+        }
+        double recordMillis = (System.nanoTime() - start) / 1e6 / rounds;
+        assertEquals("true", exec("String(copy.length === 10000 && copy[9999].name === 'item9999' && copy[9999].pos[1] === 10000)").toString());
+
+        reporter.publishEntry("Structured clone round trip", String.format(
+                "8 MB Float64Array %.2f ms (%.0f MB/s), 10000 records (%d KB) %.2f ms",
+                typedMillis, bytes / rounds / 1e6 / (typedMillis / 1000), recordBytes / 1024, recordMillis));
+    }
+}
@@ -0,0 +1,121 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.rhino.impl.node.HTMLCanvasElement;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import com.w3canvas.javacanvas.rt.TileRenderer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestTileRenderer {
+
+    // Deterministic scene that crosses tile borders
+    private static final String SCENE =
+            "ctx.fillStyle = 'white'; ctx.fillRect(0, 0, width, height);"
+            + "for (var i = 0; i < 40; i++) {"
+            + "  ctx.fillStyle = 'rgb(' + (i * 6) + ',' + (255 - i * 6) + ',128)';"
+            + "  ctx.beginPath(); ctx.arc((i * 37) % width, (i * 53) % height, 10 + i, 0, Math.PI * 2); ctx.fill();"
+            + "}"
+            + "ctx.strokeStyle = 'black'; ctx.lineWidth = 3;"
+            + "ctx.beginPath(); ctx.moveTo(0, 0); ctx.lineTo(width, height); ctx.stroke();";
+
+    private JavaCanvas javaCanvas;
+
+    @BeforeEach
+    public void setUp() {
+        javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        Context.enter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Context.exit();
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    throw new AssertionError("Pixel (" + x + "," + y + ") differs: "
+                            + Integer.toHexString(expected.getRGB(x, y)) + " vs " + Integer.toHexString(actual.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTilesMatchSingleCanvas() {
+        BufferedImage whole = new TileRenderer(1).render(SCENE, 300, 200, 300);
+        BufferedImage tiled = javaCanvas.renderTiled(SCENE, 300, 200, 64, 4);
+        assertSameImage(whole, tiled);
+    }
+
+    @Test
+    public void testScriptSeesTileGlobals() {
+        BufferedImage image = new TileRenderer(2).render(
+                "ctx.fillStyle = (tile.x === 0 ? 'red' : 'blue');"
+                        + "ctx.fillRect(tile.x, tile.y, canvas.width, canvas.height);"
+                        + "if (width !== 150 || height !== 50) throw new Error('bad size');",
+                150, 50, 100);
+        assertEquals(0xFFFF0000, image.getRGB(99, 10));
+        assertEquals(0xFF0000FF, image.getRGB(100, 10));
+        assertEquals(0xFF0000FF, image.getRGB(149, 49));
+    }
+
+    @Test
+    public void testCanvasElementRenderTiles() throws Exception {
+        HTMLCanvasElement canvas = (HTMLCanvasElement) javaCanvas.getDocument().jsFunction_createElement("canvas");
+        canvas.jsSet_width(120);
+        canvas.jsSet_height(90);
+        ScriptableObject.putProperty(((RhinoRuntime) javaCanvas.getRuntime()).getScope(), "poster", canvas);
+
+        javaCanvas.executeCode("poster.renderTiles(\"ctx.fillStyle = 'blue'; ctx.fillRect(10, 10, width - 20, height - 20);\", 32);");
+        assertEquals(0xFF0000FF, canvas.getImage().getRGB(60, 45));
+        assertEquals(0xFF0000FF, canvas.getImage().getRGB(109, 79));
+        assertEquals(0, canvas.getImage().getRGB(5, 5) >>> 24);
+    }
+
+    @Test
+    public void testScriptErrorIsReported() {
+        assertThrows(IllegalStateException.class,
+                () -> new TileRenderer(2).render("undefinedFunction();", 64, 64, 32));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testPosterBenchmark(TestReporter reporter) {
+        final int size = 2048;
+        final String heavy = SCENE
+                + "for (var j = 0; j < 400; j++) {"
+                + "  ctx.fillStyle = 'rgba(' + (j % 255) + ',40,' + (255 - j % 255) + ',0.5)';"
+                + "  ctx.beginPath(); ctx.arc((j * 97) % width, (j * 61) % height, 60 + j % 90, 0, Math.PI * 2); ctx.fill();"
+                + "}";
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        BufferedImage single = new TileRenderer(1).render(heavy, size, size, 512);
+        double singleMillis = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        BufferedImage parallel = new TileRenderer(threads).render(heavy, size, size, 512);
+        double parallelMillis = (System.nanoTime() - start) / 1e6;
+
+        reporter.publishEntry("Tiled " + size + "x" + size + " poster", String.format(
+                "1 thread %.0f ms, %d threads %.0f ms (%.1fx)",
+                singleMillis, threads, parallelMillis, singleMillis / parallelMillis));
+        assertSameImage(single, parallel);
+    }
+}
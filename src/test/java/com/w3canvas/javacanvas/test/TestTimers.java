@@ -0,0 +1,136 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.rt.MainThreadEventLoop;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import com.w3canvas.javacanvas.rt.RhinoScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTimers {
+
+    private RhinoRuntime runtime;
+
+    @BeforeEach
+    public void setUp() {
+        runtime = new RhinoRuntime();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        runtime.shutdownTimers();
+        Context.exit();
+    }
+
+    private void expose(String name, Object value) {
+        ScriptableObject.putProperty(runtime.getScope(), name, Context.javaToJS(value, runtime.getScope()));
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testTimeoutFiresOnceAndCanBeCleared() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        CountDownLatch cleared = new CountDownLatch(1);
+        expose("fired", fired);
+        expose("cleared", cleared);
+
+        runtime.exec("var keep = setTimeout(function() { fired.countDown(); }, 10);"
+                + "var drop = setTimeout(function() { cleared.countDown(); }, 10);"
+                + "clearTimeout(drop);");
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS), "setTimeout callback should run");
+        RhinoScheduler scheduler = runtime.getScheduler();
+        waitUntil(() -> scheduler.getActiveTimerCount() == 0);
+        Thread.sleep(50);
+        assertEquals(1, cleared.getCount(), "Cleared timeout must not run");
+        assertEquals(2, scheduler.getScheduledCount());
+        assertEquals(1, scheduler.getFiredCount());
+        assertEquals(0, scheduler.getActiveTimerCount());
+    }
+
+    @Test
+    public void testIntervalRepeatsUntilCleared() throws Exception {
+        runtime.exec("var ticks = 0;"
+                + "var id = setInterval(function() {"
+                + "  if (++ticks == 5) { clearInterval(id); }"
+                + "}, 5);");
+
+        waitUntil(() -> ticks() >= 5);
+        Thread.sleep(60);
+        assertEquals(5, ticks(), "Interval should stop after clearInterval");
+        assertEquals(0, runtime.getScheduler().getActiveTimerCount());
+    }
+
+    private int ticks() {
+        return ((Number) runtime.getProperty("ticks")).intValue();
+    }
+
+    @Test
+    public void testManyTimersShareOneThread() throws Exception {
+        final int timers = 500;
+        CountDownLatch fired = new CountDownLatch(timers);
+        expose("fired", fired);
+        int threadsBefore = Thread.activeCount();
+
+        runtime.exec("for (var i = 0; i < " + timers + "; i++) {"
+                + "  setTimeout(function() { fired.countDown(); }, 20 + (i % 10));"
+                + "}");
+        int threadsDuring = Thread.activeCount();
+
+        assertTrue(fired.await(10, TimeUnit.SECONDS), "All timeouts should fire");
+        // One scheduler thread plus, at most, the toolkit's event dispatch thread
+        assertTrue(threadsDuring - threadsBefore <= 2,
+                "Timers started " + (threadsDuring - threadsBefore) + " threads");
+
+        RhinoScheduler scheduler = runtime.getScheduler();
+        waitUntil(() -> scheduler.getFiredCount() == timers);
+        assertEquals(timers, scheduler.getFiredCount());
+        assertTrue(scheduler.getMaxLatenessNanos() >= scheduler.getAverageLatenessNanos());
+    }
+
+    @Test
+    public void testSchedulerThreadExitsWhenIdle() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        expose("fired", fired);
+        runtime.exec("setTimeout(function() { fired.countDown(); }, 10);");
+        assertTrue(fired.await(5, TimeUnit.SECONDS), "setTimeout callback should run");
+
+        RhinoScheduler scheduler = runtime.getScheduler();
+        waitUntil(() -> scheduler.getThreadCount() == 0);
+        assertEquals(0, scheduler.getThreadCount(), "Idle scheduler thread should exit");
+
+        // A later timer starts a new thread
+        CountDownLatch again = new CountDownLatch(1);
+        expose("again", again);
+        runtime.exec("setTimeout(function() { again.countDown(); }, 10);");
+        assertTrue(again.await(5, TimeUnit.SECONDS), "setTimeout callback should run after idling");
+    }
+
+    @Test
+    public void testEventLoopRunsTasksWhenToolkitIsNotStarted() throws Exception {
+        // Like JavaFX on the classpath before Platform.startup()
+        MainThreadEventLoop loop = new MainThreadEventLoop(false, task -> {
+            throw new IllegalStateException("Toolkit not initialized");
+        });
+        loop.start();
+        CountDownLatch ran = new CountDownLatch(2);
+        loop.queueTask(ran::countDown);
+        loop.queueTask(ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS), "Tasks should run on the fallback queue");
+        loop.stop();
+    }
+}
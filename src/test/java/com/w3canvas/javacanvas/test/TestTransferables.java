@@ -0,0 +1,139 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.backend.rhino.impl.node.ImageBitmap;
+import com.w3canvas.javacanvas.js.worker.MessagePort;
+import com.w3canvas.javacanvas.js.worker.OffscreenCanvas;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTransferables {
+
+    private JavaCanvas javaCanvas;
+    private RhinoRuntime runtime;
+
+    @BeforeEach
+    public void setUp() {
+        javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        runtime = (RhinoRuntime) javaCanvas.getRuntime();
+        Context.enter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Context.exit();
+    }
+
+    private Object exec(String code) {
+        return javaCanvas.executeCode(code);
+    }
+
+    private Object waitFor(String variable) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Object value = runtime.getProperty(variable);
+            if (value != null && !(value instanceof org.mozilla.javascript.Undefined)) {
+                return value;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Nothing arrived in '" + variable + "'");
+    }
+
+    @Test
+    public void testTransferToImageBitmapHandsOverImage() {
+        exec("var canvas = new OffscreenCanvas(16, 16);"
+                + "var ctx = canvas.getContext('2d');"
+                + "ctx.fillStyle = 'red'; ctx.fillRect(0, 0, 16, 16);");
+        OffscreenCanvas canvas = (OffscreenCanvas) runtime.getProperty("canvas");
+        BufferedImage drawn = canvas.getImage();
+
+        exec("var bitmap = canvas.transferToImageBitmap();"
+                + "ctx.fillStyle = 'blue'; ctx.fillRect(0, 0, 16, 16);");
+        ImageBitmap bitmap = (ImageBitmap) runtime.getProperty("bitmap");
+
+        assertSame(drawn, bitmap.getNativeImage(), "Bitmap should own the canvas's image");
+        assertEquals(0xFFFF0000, drawn.getRGB(8, 8), "Drawing after the transfer must not reach the bitmap");
+        assertEquals(0xFF0000FF, canvas.getImage().getRGB(8, 8));
+    }
+
+    @Test
+    public void testTransferredArrayBufferIsCopiedIntoReceivingScope() throws Exception {
+        Context cx = Context.getCurrentContext();
+        Scriptable scope = runtime.getScope();
+        MessagePort sender = (MessagePort) cx.newObject(scope, "MessagePort");
+        MessagePort receiver = (MessagePort) cx.newObject(scope, "MessagePort");
+        sender.entangle(receiver);
+        ScriptableObject.putProperty(scope, "sender", sender);
+        ScriptableObject.putProperty(scope, "receiver", receiver);
+
+        exec("var received = null;"
+                + "receiver.onmessage = function(e) { received = e.data; };"
+                + "var buf = new ArrayBuffer(4), bytes = new Uint8Array(buf);"
+                + "bytes[0] = 7;"
+                + "sender.postMessage({ buffer: buf, view: bytes }, [buf]);"
+                + "bytes[0] = 9;");
+        waitFor("received");
+
+        assertEquals("false,true,7,9", exec("[received.buffer === buf, received.view.buffer === received.buffer,"
+                + " received.view[0], bytes[0]].join(',')").toString());
+    }
+
+    @Test
+    public void testWorkerFrameRoundTrip() throws Exception {
+        exec("var offscreen = new OffscreenCanvas(8, 8), frame = null, size = null, after = null, reuseError = null;"
+                + "var w = new Worker('test-worker-transfer.js');"
+                + "w.onmessage = function(e) {"
+                + "  if (typeof e.data === 'string') { after = e.data; }"
+                + "  else { size = e.data.size.join('x'); frame = e.data.frame; }"
+                + "};"
+                + "w.postMessage({ canvas: offscreen, color: 'blue' }, [offscreen]);"
+                + "var sentWidth = offscreen.width;"
+                + "try { offscreen.getContext('2d'); } catch (err) { reuseError = String(err); }");
+
+        assertEquals(0, ((Number) runtime.getProperty("sentWidth")).intValue());
+        assertTrue(String.valueOf(runtime.getProperty("reuseError")).contains("transferred"));
+
+        ImageBitmap frame = (ImageBitmap) waitFor("frame");
+        assertEquals("after transfer: 0", waitFor("after").toString(), "Worker's bitmap should be neutered");
+        assertEquals("8x8", runtime.getProperty("size").toString());
+        assertFalse(frame.isClosed());
+        assertEquals(0xFF0000FF, ((BufferedImage) frame.getNativeImage()).getRGB(4, 4));
+        exec("w.terminate();");
+    }
+
+    @Test
+    public void testInvalidTransferListLeavesSourceIntact() {
+        exec("var b = createImageBitmap(new OffscreenCanvas(4, 4)), errors = [];"
+                + "var ch = new Worker('test-worker-transfer.js');"
+                + "try { ch.postMessage(b, [b, b]); } catch (err) { errors.push('duplicate'); }"
+                + "try { ch.postMessage(b, [b, {}]); } catch (err) { errors.push('plain object'); }"
+                + "try { ch.postMessage(b, b); } catch (err) { errors.push('not a list'); }"
+                + "var width = b.width; errors = errors.join(',');"
+                + "ch.terminate();");
+
+        assertEquals("duplicate,plain object,not a list", runtime.getProperty("errors").toString());
+        assertEquals(4, ((Number) runtime.getProperty("width")).intValue());
+        ImageBitmap bitmap = (ImageBitmap) runtime.getProperty("b");
+        assertFalse(bitmap.isClosed());
+
+        exec("ch = new Worker('test-worker-transfer.js'); ch.postMessage(0, [b]); ch.terminate();");
+        assertTrue(bitmap.isClosed());
+        assertNull(bitmap.getNativeImage());
+    }
+}
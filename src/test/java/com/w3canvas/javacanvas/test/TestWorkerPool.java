@@ -0,0 +1,168 @@
+package com.w3canvas.javacanvas.test;
+
+import com.w3canvas.javacanvas.js.worker.WorkerRuntimePool;
+import com.w3canvas.javacanvas.rt.JavaCanvas;
+import com.w3canvas.javacanvas.rt.RhinoRuntime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.mozilla.javascript.Context;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestWorkerPool {
+
+    private static final String SCRIPT = "test-worker-echo.js";
+
+    private JavaCanvas javaCanvas;
+    private RhinoRuntime runtime;
+    private final WorkerRuntimePool pool = WorkerRuntimePool.getInstance();
+
+    @BeforeEach
+    public void setUp() {
+        pool.clear();
+        javaCanvas = new JavaCanvas(".", true);
+        javaCanvas.initializeBackend();
+        runtime = (RhinoRuntime) javaCanvas.getRuntime();
+        Context.enter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Context.exit();
+        pool.clear();
+    }
+
+    private Object exec(String code) {
+        return javaCanvas.executeCode(code);
+    }
+
+    private String waitForReply(String variable) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Object value = runtime.getProperty(variable);
+            if (value instanceof CharSequence) {
+                return value.toString();
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("No reply in '" + variable + "'");
+    }
+
+    private void waitForIdle(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.getIdleCount(SCRIPT) != count && System.nanoTime() < deadline) {
+            Thread.sleep(2);
+        }
+        assertEquals(count, pool.getIdleCount(SCRIPT));
+    }
+
+    @Test
+    public void testTerminatedRuntimeIsReusedWithFreshGlobals() throws Exception {
+        long created = pool.getCreatedCount();
+        long reused = pool.getReusedCount();
+        exec("var first = null;"
+                + "var w1 = new Worker('" + SCRIPT + "');"
+                + "w1.onmessage = function(e) { first = e.data; };"
+                + "w1.postMessage(21);");
+        assertEquals("42:1", waitForReply("first"));
+
+        exec("w1.terminate();");
+        waitForIdle(1);
+
+        exec("var second = null;"
+                + "var w2 = new Worker('" + SCRIPT + "');"
+                + "w2.onmessage = function(e) { second = e.data; };"
+                + "w2.postMessage(4);");
+        // The counter starts from scratch: the previous worker's globals were removed
+        assertEquals("8:1", waitForReply("second"));
+
+        assertEquals(1, pool.getCreatedCount() - created);
+        assertEquals(1, pool.getReusedCount() - reused);
+        assertEquals(1, pool.getCompiledScriptCount());
+        assertEquals(0, pool.getIdleCount(SCRIPT));
+    }
+
+    @Test
+    public void testTerminateDiscardsPendingMessages() throws Exception {
+        exec("var late = 0, atTerminate = 0, done = null;"
+                + "var w = new Worker('" + SCRIPT + "');"
+                + "w.onmessage = function(e) { late++; };"
+                + "for (var i = 0; i < 1000; i++) { w.postMessage(i); }"
+                + "atTerminate = late;"
+                + "w.terminate();"
+                + "var check = new Worker('" + SCRIPT + "');"
+                + "check.onmessage = function(e) { done = e.data; };"
+                + "check.postMessage(1);");
+
+        waitForReply("done");
+        Thread.sleep(50);
+        // Replies are handled on the event dispatch thread while the script is still posting;
+        // at most one handler can already be running when terminate() is called
+        int late = ((Number) runtime.getProperty("late")).intValue();
+        int atTerminate = ((Number) runtime.getProperty("atTerminate")).intValue();
+        assertTrue(late - atTerminate <= 1, (late - atTerminate) + " messages delivered after terminate()");
+    }
+
+    private static long workerLoopThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("WorkerEventLoop")).count();
+    }
+
+    @Test
+    public void testRuntimeThatCannotBeResetIsShutDown() throws Exception {
+        final String frozen = "test-worker-frozen.js";
+        long created = pool.getCreatedCount();
+        long threadsBefore = workerLoopThreads();
+        exec("var reply = null;"
+                + "var f = new Worker('" + frozen + "');"
+                + "f.onmessage = function(e) { reply = e.data; };"
+                + "f.postMessage(1);");
+        assertEquals("frozen:1", waitForReply("reply"));
+        exec("f.terminate();");
+
+        // Neither pooled nor left running
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (workerLoopThreads() > threadsBefore && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(threadsBefore, workerLoopThreads());
+        assertEquals(0, pool.getIdleCount(frozen));
+        assertEquals(1, pool.getCreatedCount() - created);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testShortLivedWorkersBenchmark(TestReporter reporter) throws Exception {
+        final int workers = 200;
+        long created = pool.getCreatedCount();
+        long reused = pool.getReusedCount();
+
+        long start = System.nanoTime();
+        exec("var cold = null; var c = new Worker('" + SCRIPT + "');"
+                + "c.onmessage = function(e) { cold = e.data; c.terminate(); }; c.postMessage(1);");
+        waitForReply("cold");
+        long coldNanos = System.nanoTime() - start;
+        waitForIdle(1);
+
+        start = System.nanoTime();
+        for (int i = 0; i < workers; i++) {
+            exec("var r = null; var p = new Worker('" + SCRIPT + "');"
+                    + "p.onmessage = function(e) { r = e.data; p.terminate(); }; p.postMessage(1);");
+            waitForReply("r");
+            waitForIdle(1);
+        }
+        long pooledNanos = (System.nanoTime() - start) / workers;
+
+        reporter.publishEntry("Worker spawn + round trip", String.format("new runtime %.2f ms, pooled %.2f ms",
+                coldNanos / 1e6, pooledNanos / 1e6));
+        assertEquals(1, pool.getCreatedCount() - created);
+        assertEquals(workers, pool.getReusedCount() - reused);
+        assertEquals(1, pool.getCompiledScriptCount());
+    }
+}
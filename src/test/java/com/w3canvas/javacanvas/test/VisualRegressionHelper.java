@@ -73,6 +73,23 @@ public class VisualRegressionHelper {
         }
     }
 
+    /**
+     * Compare canvas output against another canvas rendered by a reference code path.
+     *
+     * Useful for alternative rendering modes (e.g. the glyph atlas text mode) that must stay
+     * visually equivalent to the default path on the same machine and fonts.
+     *
+     * @param reference Canvas rendered with the reference path
+     * @param ctx Canvas rendered with the path under test
+     * @param maxDiffPercentage Maximum allowed percentage of different pixels (0-100)
+     * @param pixelTolerance Color tolerance per channel (0-255)
+     * @return true if both canvases match within tolerance
+     */
+    public static boolean compareToReference(ICanvasRenderingContext2D reference, ICanvasRenderingContext2D ctx,
+                                             double maxDiffPercentage, int pixelTolerance) {
+        return compareImages(getCanvasImage(reference), getCanvasImage(ctx), maxDiffPercentage, pixelTolerance);
+    }
+
     /**
      * Get canvas content as a BufferedImage
      */
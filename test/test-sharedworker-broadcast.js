@@ -0,0 +1,14 @@
+// Shared worker that relays messages to every connected port
+onconnect = function(e) {
+    var port = e.ports[0];
+    port.onmessage = function(event) {
+        var data = event.data;
+        if (data && data.burst) {
+            for (var i = 0; i < data.burst; i++) {
+                broadcast(i);
+            }
+        } else {
+            broadcast(data);
+        }
+    };
+};
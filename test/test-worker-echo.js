@@ -0,0 +1,8 @@
+// Echo worker used by TestWorkerPool. 'handled' must start at 0 for every worker,
+// including ones that run on a pooled runtime.
+var handled = (typeof handled === 'undefined') ? 0 : handled + 1000;
+
+onmessage = function(e) {
+    handled++;
+    postMessage(e.data * 2 + ':' + handled);
+};
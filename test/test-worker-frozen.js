@@ -0,0 +1,9 @@
+// Worker used by TestWorkerPool. Freezing the global scope means its runtime cannot be
+// reset for the next worker.
+var marker = 1;
+
+onmessage = function(e) {
+    postMessage('frozen:' + e.data);
+};
+
+Object.freeze(this);
@@ -0,0 +1,14 @@
+// Worker used by TestTransferables: draws into a transferred OffscreenCanvas and
+// transfers the frame back without copying it.
+onmessage = function(e) {
+    if (!e.data || !e.data.canvas) {
+        return;
+    }
+    var canvas = e.data.canvas;
+    var ctx = canvas.getContext('2d');
+    ctx.fillStyle = e.data.color;
+    ctx.fillRect(0, 0, canvas.width, canvas.height);
+    var frame = canvas.transferToImageBitmap();
+    postMessage({ frame: frame, size: [canvas.width, canvas.height] }, [frame]);
+    postMessage('after transfer: ' + frame.width);
+};